@@ -0,0 +1,192 @@
+import java.nio.charset.StandardCharsets;
+
+import com.jogamp.opengl.*;
+
+import solarModel.ParticleBelt;
+import solarModel.SphereMesh;
+
+/**
+ * Draws every particle of a ParticleBelt with one instanced draw call: a small mesh is uploaded once and drawn
+ * once per particle, placed, scaled and coloured by per-instance attributes read from the belt's buffers.
+ * The instance buffer is uploaded again only when the belt has moved since the last upload, in one
+ * glBufferSubData straight from the belt's direct buffer; the colours are uploaded once.
+ * A small GLSL program turns each instance into world space and lights it from the sun, since the fixed function
+ * pipeline has no per-instance attributes. Needs GL 3.3 (or ARB_instanced_arrays); without it nothing is drawn.
+ * Usage: draw() every frame with the modelview holding the camera's view, dispose() when the context goes away.
+ */
+public class BeltRenderer {
+	private static final int VERTEX = 0, NORMAL = 1, INSTANCE = 2, COLOR = 3; // attribute locations
+	private static final String VERTEX_SHADER = String.join("\n",
+			"#version 120",
+			"attribute vec3 vertex;",
+			"attribute vec3 normal;",
+			"attribute vec4 instance; // centre and scale of the particle",
+			"attribute vec3 color;",
+			"uniform vec3 light; // where the light is, in world space",
+			"varying vec3 shade;",
+			"void main() {",
+			"	float diffuse = max(dot(normal, normalize(light - instance.xyz)), 0.0);",
+			"	shade = color * (0.2 + 0.8 * diffuse);",
+			"	gl_Position = gl_ModelViewProjectionMatrix * vec4(instance.xyz + instance.w * vertex, 1.0);",
+			"}");
+	private static final String FRAGMENT_SHADER = String.join("\n",
+			"#version 120",
+			"varying vec3 shade;",
+			"void main() {",
+			"	gl_FragColor = vec4(shade, 1.0);",
+			"}");
+
+	private final ParticleBelt belt;
+	private final SphereMesh mesh; // drawn for every particle
+	private final int[] buffers = new int[4]; // mesh vertices, mesh indices, instances, colours
+	private int program, lightLocation;
+	private int uploadedVersion = -1; // version of the belt in the instance buffer
+	private boolean initialized, supported;
+
+	/**
+	 * @param belt the particles to be drawn
+	 * @param mesh the unit mesh drawn for each particle (a coarse sphere: the particles are a few pixels across)
+	 */
+	public BeltRenderer(ParticleBelt belt, SphereMesh mesh) {
+		this.belt = belt;
+		this.mesh = mesh;
+	}
+
+	/**
+	 * Compiles the program and uploads the mesh and the colours. Called by the first draw() on the GL thread.
+	 * @param gl the openGL interface
+	 */
+	private void init(GL2 gl) {
+		initialized = true;
+		supported = gl.isFunctionAvailable("glDrawElementsInstanced") && gl.isFunctionAvailable("glVertexAttribDivisor");
+		if(!supported) {
+			System.err.println("instanced drawing is not supported, the belt of " + belt.getCount() + " particles is not drawn");
+			return;
+		}
+		program = gl.glCreateProgram();
+		int vertexShader = compile(gl, GL2ES2.GL_VERTEX_SHADER, VERTEX_SHADER),
+				fragmentShader = compile(gl, GL2ES2.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+		gl.glAttachShader(program, vertexShader);
+		gl.glAttachShader(program, fragmentShader);
+		gl.glBindAttribLocation(program, VERTEX, "vertex");
+		gl.glBindAttribLocation(program, NORMAL, "normal");
+		gl.glBindAttribLocation(program, INSTANCE, "instance");
+		gl.glBindAttribLocation(program, COLOR, "color");
+		gl.glLinkProgram(program);
+		gl.glDeleteShader(vertexShader); // freed with the program
+		gl.glDeleteShader(fragmentShader);
+		int[] status = new int[1];
+		gl.glGetProgramiv(program, GL2ES2.GL_LINK_STATUS, status, 0);
+		if(status[0] == 0) throw new GLException("belt program doesn't link: " + programLog(gl));
+		lightLocation = gl.glGetUniformLocation(program, "light");
+
+		gl.glGenBuffers(buffers.length, buffers, 0);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) mesh.getVertexCount() * SphereMesh.STRIDE, mesh.getVertices().duplicate(), GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffers[1]);
+		gl.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, (long) mesh.getIndexCount() * Integer.BYTES, mesh.getIndices().duplicate(), GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[2]);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, instanceBytes(), null, GL.GL_STREAM_DRAW);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[3]);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) belt.getCount() * ParticleBelt.COLOR_FLOATS * Float.BYTES,
+				belt.getColors().duplicate(), GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	private long instanceBytes() {
+		return (long) belt.getCount() * ParticleBelt.INSTANCE_FLOATS * Float.BYTES;
+	}
+
+	/**
+	 * Draws every particle, uploading their positions first if the belt moved
+	 * @param gl the openGL interface
+	 * @param lightX x coordinate of the light (the sun)
+	 * @param lightY y coordinate of the light
+	 * @param lightZ z coordinate of the light
+	 */
+	public void draw(GL2 gl, float lightX, float lightY, float lightZ) {
+		if(!initialized) init(gl);
+		if(!supported || belt.getCount() == 0) return;
+		gl.glUseProgram(program);
+		gl.glUniform3f(lightLocation, lightX, lightY, lightZ);
+
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[2]);
+		if(uploadedVersion != belt.getVersion()) {
+			gl.glBufferData(GL.GL_ARRAY_BUFFER, instanceBytes(), null, GL.GL_STREAM_DRAW); // orphaned, so the GPU doesn't stall on the last frame's
+			gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 0, instanceBytes(), belt.getInstances()); // written by index, always at position 0
+			uploadedVersion = belt.getVersion();
+		}
+		attribute(gl, INSTANCE, ParticleBelt.INSTANCE_FLOATS, 0, 0, 1);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[3]);
+		attribute(gl, COLOR, ParticleBelt.COLOR_FLOATS, 0, 0, 1);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+		attribute(gl, VERTEX, 3, SphereMesh.STRIDE, SphereMesh.POSITION_OFFSET, 0);
+		attribute(gl, NORMAL, 3, SphereMesh.STRIDE, SphereMesh.NORMAL_OFFSET, 0);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffers[1]);
+
+		gl.glDrawElementsInstanced(GL.GL_TRIANGLES, mesh.getIndexCount(), GL.GL_UNSIGNED_INT, 0, belt.getCount());
+
+		for(int location = VERTEX; location <= COLOR; location++) {
+			gl.glVertexAttribDivisor(location, 0);
+			gl.glDisableVertexAttribArray(location);
+		}
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+		gl.glUseProgram(0);
+	}
+
+	/**
+	 * Points an attribute at the bound array buffer
+	 * @param divisor 0 for an attribute of each vertex, 1 for an attribute of each instance
+	 */
+	private static void attribute(GL2 gl, int location, int size, int stride, long offset, int divisor) {
+		gl.glEnableVertexAttribArray(location);
+		gl.glVertexAttribPointer(location, size, GL.GL_FLOAT, false, stride, offset);
+		gl.glVertexAttribDivisor(location, divisor);
+	}
+
+	/**
+	 * @return the particles drawn
+	 */
+	public ParticleBelt getBelt() {
+		return belt;
+	}
+
+	/**
+	 * Deletes the program and the buffers from the GPU
+	 * @param gl the openGL interface
+	 */
+	public void dispose(GL2 gl) {
+		if(!initialized) return;
+		initialized = false;
+		uploadedVersion = -1;
+		if(!supported) return;
+		gl.glDeleteProgram(program);
+		gl.glDeleteBuffers(buffers.length, buffers, 0);
+	}
+
+	private static int compile(GL2 gl, int type, String source) {
+		int shader = gl.glCreateShader(type);
+		gl.glShaderSource(shader, 1, new String[] {source}, null, 0);
+		gl.glCompileShader(shader);
+		int[] status = new int[1];
+		gl.glGetShaderiv(shader, GL2ES2.GL_COMPILE_STATUS, status, 0);
+		if(status[0] == 0) {
+			int[] length = new int[1];
+			gl.glGetShaderiv(shader, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+			byte[] log = new byte[Math.max(1, length[0])];
+			gl.glGetShaderInfoLog(shader, log.length, length, 0, log, 0);
+			throw new GLException("belt shader doesn't compile: " + new String(log, 0, length[0], StandardCharsets.UTF_8));
+		}
+		return shader;
+	}
+
+	private String programLog(GL2 gl) {
+		int[] length = new int[1];
+		gl.glGetProgramiv(program, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+		byte[] log = new byte[Math.max(1, length[0])];
+		gl.glGetProgramInfoLog(program, log.length, length, 0, log, 0);
+		return new String(log, 0, length[0], StandardCharsets.UTF_8);
+	}
+}
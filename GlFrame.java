@@ -1,10 +1,17 @@
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.util.ArrayList;
 import javax.swing.JFrame;
 
+import solarModel.BodyCatalog;
+import solarModel.ParticleBelt;
 import solarModel.Planet;
 import solarModel.PlanetEnum;
 /**
@@ -17,10 +24,6 @@ public class GlFrame extends JFrame implements KeyListener{
 	private static final long serialVersionUID = 1L;
 	private Jogl jogl; //the current OpenGL implementation
 
-	// For pause and play functionality
-	private boolean isPlaying;	// If value is set to true, then it allows the program to pause
-	private float savedRateOfTime; // When time is paused, we sav current time in this variable
-
 	
 	/**
 	 * Creates the GLFrame with a window tile. 
@@ -36,6 +39,18 @@ public class GlFrame extends JFrame implements KeyListener{
 		this.setUndecorated(true);
 		
 		jogl.getCanvas().addKeyListener(this); // Enables user commands from the keyboard
+		jogl.getCanvas().addFocusListener(new FocusAdapter() { // Key releases are missed while the window is out of focus
+			public void focusLost(FocusEvent e) {
+				jogl.post(Jogl.RELEASE_ALL, 0);
+			}
+		});
+		jogl.getCanvas().addMouseListener(new MouseAdapter() { // Clicking a body tracks it
+			public void mouseClicked(MouseEvent e) {
+				float width = Math.max(1, e.getComponent().getWidth()), height = Math.max(1, e.getComponent().getHeight());
+				jogl.post(Jogl.POINTER_X, e.getX() / width);
+				jogl.post(Jogl.PICK, e.getY() / height);
+			}
+		});
 		this.addWindowListener(new WindowAdapter() {  // Allows for the program to terminate when closed
 	        public void windowClosing(WindowEvent e) {
 	            cut();
@@ -68,6 +83,23 @@ public class GlFrame extends JFrame implements KeyListener{
 		jogl.loadArtbook(artbook);
 	}
 
+	/**
+	 * Loads the bodies of a catalog into the implementation for displaying
+	 * @param catalog The catalog to be loaded
+	 * @param directory The directory texture paths in the catalog are relative to
+	 */
+	public void loadCatalog(BodyCatalog catalog, File directory) {
+		jogl.loadCatalog(catalog, directory);
+	}
+
+	/**
+	 * Adds a belt of particles to the implementation for displaying
+	 * @param belt The belt to be drawn
+	 */
+	public void addBelt(ParticleBelt belt) {
+		jogl.addBelt(belt);
+	}
+
 	/**
 	 * This method must be here because we implement the KeyListener interface
 	 * The method will not be used as keyPressed and keyReleased will be the relevant methods.
@@ -78,7 +110,8 @@ public class GlFrame extends JFrame implements KeyListener{
 	}
 
 	/**
-	 * Method contains switch statement which handles what code to execute depending on the user input
+	 * Method contains switch statement which handles what code to execute depending on the user input.
+	 * Runs on the AWT event thread, so every input is posted to Jogl as a command for its next frame
 	 * @param e The input provided by the keyboard
 	 */
 
@@ -94,152 +127,154 @@ public class GlFrame extends JFrame implements KeyListener{
 
 			//VIEWING MERCURY
 			case KeyEvent.VK_1:
-				jogl.setTrackedPlanet(PlanetEnum.MERCURY);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(0.01f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.MERCURY.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 0.01f);
 				break;
 
 			//VIEWING VENUS
 			case KeyEvent.VK_2:
-				jogl.setTrackedPlanet(PlanetEnum.VENUS);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(0.0045f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.VENUS.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 0.0045f);
 				break;
 
 			//VIEWING EARTH
 			case KeyEvent.VK_3:
-				jogl.setTrackedPlanet(PlanetEnum.EARTH);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(0.5f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.EARTH.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 0.5f);
 				break;
 
 			//VIEWING MARS
 			case KeyEvent.VK_4:
-				jogl.setTrackedPlanet(PlanetEnum.MARS);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(0.5f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.MARS.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 0.5f);
 				break;
 
 			//VIEWING JUPITER
 			case KeyEvent.VK_5:
-				jogl.setTrackedPlanet(PlanetEnum.JUPITER);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(0.9f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.JUPITER.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 0.9f);
 				break;
 
 			//VIEWING SATURN
 			case KeyEvent.VK_6:
-				jogl.setTrackedPlanet(PlanetEnum.SATURN);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(1.1f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.SATURN.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 1.1f);
 				break;
 
 			//VIEWING URANUS
 			case KeyEvent.VK_7:
-				jogl.setTrackedPlanet(PlanetEnum.URANUS);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(1.0f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.URANUS.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 1.0f);
 				break;
 
 			//VIEWING NEPTUNE
 			case KeyEvent.VK_8:
-				jogl.setTrackedPlanet(PlanetEnum.NEPTUNE);
-				jogl.setCameraMode(1);
-				jogl.setRateOfTime(1.0f);
+				jogl.post(Jogl.TRACK_PLANET, PlanetEnum.NEPTUNE.ordinal());
+				jogl.post(Jogl.SET_RATE_OF_TIME, 1.0f);
 				break;
 
 			//RETURN TO STATIC VIEWPOINT
 			case KeyEvent.VK_0:
-				jogl.setTrackedPlanet(null);	// Not tracking a specific planet
-				jogl.setCameraFixed();		// Set camera mode to static view
-				jogl.setCameraMode(0);		// Set camera mode to static view
-				jogl.setRateOfTime(1.0f);
+				jogl.post(Jogl.TRACK_PLANET, -1);	// Not tracking a specific planet, camera in static view
+				jogl.post(Jogl.SET_RATE_OF_TIME, 1.0f);
 				break;
 
 			//INCREASE SIMULATION SPEED
 			case KeyEvent.VK_SHIFT:
-				jogl.increaseRateOfTime();
+				jogl.post(Jogl.INCREASE_RATE_OF_TIME, 0);
 				break;
 
 			//DECREASE SIMULATION SPEED
 			case KeyEvent.VK_CONTROL:
-				jogl.decreaseRateOfTime();
+				jogl.post(Jogl.DECREASE_RATE_OF_TIME, 0);
+				break;
+
+			//SWITCH BETWEEN CLOSED FORM ORBITS AND GRAVITY
+			case KeyEvent.VK_G:
+				jogl.post(Jogl.TOGGLE_GRAVITY, 0);
 				break;
 
-			//TRANSLATE CAMERA FORWARDS
-			case KeyEvent.VK_UP:
-				if(jogl.getCameraMode() == 0) {//fixed camera mode
-					jogl.moveCameraInOut(1);
-				}
+			//SWITCH BETWEEN MOVING THE PLANETS AND READING THEM FROM AN EPHEMERIS
+			case KeyEvent.VK_E:
+				jogl.post(Jogl.TOGGLE_EPHEMERIS, 0);
 				break;
 
-			//TRANSLATE CAMERA BACKWARDS
-			case KeyEvent.VK_DOWN:
-				if(jogl.getCameraMode() == 0) {//fixed camera mode
-					jogl.moveCameraInOut(-1);
-				}
+			//START AND STOP RECORDING THE SIMULATION
+			case KeyEvent.VK_R:
+				jogl.post(Jogl.TOGGLE_RECORDING, 0);
 				break;
 
-			//TRANSLATE CAMERA LEFT
-			case KeyEvent.VK_LEFT:
-				if(jogl.getCameraMode() == 0) //fixed camera mode
-					jogl.moveCameraLeftRight(-1);
-				else
-					jogl.setIsFreeOrbit(true, -1);
+			//START AND STOP PLAYING BACK THE RECORDING, B PLAYS IT THE OTHER WAY, HOME AND END GO TO ITS START AND END
+			case KeyEvent.VK_P:
+				jogl.post(Jogl.TOGGLE_PLAYBACK, 0);
 				break;
 
-			//TRANSLATE CAMERA RIGHT
-			case KeyEvent.VK_RIGHT:
-				if(jogl.getCameraMode() == 0) //fixed camera mode
-					jogl.moveCameraLeftRight(1);
-				else
-					jogl.setIsFreeOrbit(true, 1);
+			case KeyEvent.VK_B:
+				jogl.post(Jogl.REVERSE_PLAYBACK, 0);
 				break;
 
-			//ROTATE CAMERA LEFT
-			case KeyEvent.VK_A:
-				if(jogl.getCameraMode() == 0) //fixed camera mode
-					jogl.rotateCameraLeftRight(1);
+			case KeyEvent.VK_HOME:
+				jogl.post(Jogl.SEEK, 0.0f);
 				break;
 
-			//ROTATE CAMERA RIGHT
-			case KeyEvent.VK_D:
-				if(jogl.getCameraMode() == 0) //fixed camera mode
-					jogl.rotateCameraLeftRight(-1);
+			case KeyEvent.VK_END:
+				jogl.post(Jogl.SEEK, 1.0f);
 				break;
 
-			//ROTATE CAMERA DOWN
-			case KeyEvent.VK_W:
-				if(jogl.getCameraMode() == 0) //fixed camera mode
-					jogl.rotateCameraUpDown(-1);
+			//TRACK THE NEXT MOON OF THE TRACKED PLANET (BACK TO THE PLANET AFTER ITS LAST MOON)
+			case KeyEvent.VK_M:
+				jogl.post(Jogl.NEXT_MOON, 0);
 				break;
 
-			//ROTATE CAMERA UP
-			case KeyEvent.VK_S:
-				if(jogl.getCameraMode() == 0) //fixed camera mode
-					jogl.rotateCameraUpDown(1);
+			//SHOW AND HIDE THE PATHS OF THE ORBITS
+			case KeyEvent.VK_O:
+				jogl.post(Jogl.TOGGLE_ORBITS, 0);
+				break;
+
+			//SHOW AND HIDE THE TRAILS OF WHERE THE BODIES HAVE BEEN
+			case KeyEvent.VK_T:
+				jogl.post(Jogl.TOGGLE_TRAILS, 0);
 				break;
 
 			// Hitting the space bar will pause and play the animation
 			case KeyEvent.VK_SPACE:
-			if (isPlaying) {
-				savedRateOfTime = jogl.getRateOfTime();
-				jogl.setRateOfTime(0.0f);
-				isPlaying = false;
-			}
-			else{
-				jogl.setRateOfTime(savedRateOfTime);
-				isPlaying = true;
-			}
-			break;
+				jogl.post(Jogl.TOGGLE_PAUSE, 0);
+				break;
+
+			//MOVING THE CAMERA: held until the key is released (see movement)
+			default:
+				int movement = movement(e.getKeyCode());
+				if(movement >= 0)
+					jogl.post(Jogl.PRESS, movement);
+				break;
 		}
 	}
 
 	@Override
 	public void keyReleased(KeyEvent e) {
-		//Update rotation speed to 0 when user releases keys
-		if(jogl.getIsFreeOrbit() && (e.getKeyCode() == KeyEvent.VK_LEFT || e.getKeyCode() == KeyEvent.VK_RIGHT)) {
-			jogl.setIsFreeOrbit(true, 0);
+		//Stop the camera's movement when user releases keys
+		int movement = movement(e.getKeyCode());
+		if(movement >= 0)
+			jogl.post(Jogl.RELEASE, movement);
+	}
+
+	/**
+	 * Finds the camera movement a key holds. In fixed camera mode the camera moves and turns,
+	 * in orbit mode the left and right arrows take the camera round the planet (the other movements are ignored)
+	 * @param keyCode the key
+	 * @return the movement (Jogl.MOVE_FORWARD, ...), or -1 if the key doesn't move the camera
+	 */
+	private static int movement(int keyCode) {
+		switch(keyCode) {
+			case KeyEvent.VK_UP: return Jogl.MOVE_FORWARD;		//TRANSLATE CAMERA FORWARDS
+			case KeyEvent.VK_DOWN: return Jogl.MOVE_BACK;		//TRANSLATE CAMERA BACKWARDS
+			case KeyEvent.VK_LEFT: return Jogl.MOVE_LEFT;		//TRANSLATE CAMERA LEFT (or orbit leftwards)
+			case KeyEvent.VK_RIGHT: return Jogl.MOVE_RIGHT;		//TRANSLATE CAMERA RIGHT (or orbit rightwards)
+			case KeyEvent.VK_A: return Jogl.TURN_LEFT;			//ROTATE CAMERA LEFT
+			case KeyEvent.VK_D: return Jogl.TURN_RIGHT;			//ROTATE CAMERA RIGHT
+			case KeyEvent.VK_W: return Jogl.TURN_DOWN;			//ROTATE CAMERA DOWN
+			case KeyEvent.VK_S: return Jogl.TURN_UP;			//ROTATE CAMERA UP
+			default: return -1;
 		}
-	}	
+	}
 }
@@ -1,6 +1,8 @@
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.lang.management.ManagementFactory;
 import java.util.*;
 import com.jogamp.opengl.*;
 import com.jogamp.opengl.awt.*;
@@ -9,137 +11,354 @@ import com.jogamp.opengl.math.Vec3f;
 import com.jogamp.opengl.util.*;
 
 import com.jogamp.opengl.util.texture.Texture;
-import com.jogamp.opengl.util.texture.TextureIO;
 import solarModel.*;
+import javax.management.JMException;
+import javax.management.ObjectName;
 /**
  * An implementation of jogl that simulates a solar system
  */
 public class Jogl implements GLEventListener {
 	private GL2 gl; //interface to OpenGL (C) functions
 	private GLU glu; //graphics library utilities
-	private GLUquadric quad; //used for drawing spheres
+	private SphereRenderer sphere; //draws every sphere from the level of detail meshes uploaded in init
+	private final ArrayList<BeltRenderer> belts = new ArrayList<BeltRenderer>(); //draws the particle belts (see addBelt)
+	private final TrailRenderer trailRenderer = new TrailRenderer(); //draws the trails behind the bodies (see setTrailsShown)
+	//paths of the orbits, made on worker threads and drawn when shown (see setOrbitsShown)
+	private final OrbitPaths orbitPaths = new OrbitPaths(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	private final OrbitRenderer orbitRenderer = new OrbitRenderer(orbitPaths);
+	private boolean orbitsShown;
+	private final SpatialGrid grid = new SpatialGrid(GRID_CELL_SIZE); //finds the bodies near a point or the mouse (see pick)
+	private static final float GRID_CELL_SIZE = 1.0f; // width of the grid's cells, about the distance between close bodies
+	private static final float PICK_PIXELS = 6.0f; // how far from the mouse a body too small to click on may be picked
+	private final float[] pickRay = new float[6]; // origin and direction of the ray picked along
+	private float pointerX; // horizontal position of the mouse for the next PICK (see POINTER_X)
+	private CloseApproaches approaches; //reports the bodies coming close, run by the simulation thread (null when not looked for)
+	//how close the surfaces of two bodies come to be reported (negative for not looking)
+	private static final float APPROACH_DISTANCE = Float.parseFloat(System.getProperty("solar.approachDistance", "-1"));
+	private Trails trails; //where the bodies have been, appended to by the simulation thread (null when not shown)
+	// Points in the trail of each body and the distance a body moves before its next point
+	// (override with -Dsolar.trailLength=<points> and -Dsolar.trailSpacing=<distance>)
+	private static final int TRAIL_LENGTH = Integer.getInteger("solar.trailLength", 512);
+	private static final float TRAIL_SPACING = Float.parseFloat(System.getProperty("solar.trailSpacing", "0.5"));
+	private LevelOfDetail levelOfDetail; //picks the mesh each body is drawn with from its size on screen
+	private static final float VERTICAL_FOV = 60.0f; // vertical field of view (degrees) of the perspective projection
+	private static final float NEAR_CLIP = .01f, FAR_CLIP = 1000.0f; // near and far values for perspective projection
+	private static final float MIN_PROJECTED_RADIUS = 0.5f; // bodies smaller than this on screen (pixels) are not drawn
+	private int viewportHeight; // height of the viewport in pixels, set in reshape
+	private Frustum frustum; // volume seen by the camera, bodies outside it are not drawn
+	private int drawnBodies, culledBodies; // bodies drawn and skipped in the last frame
+	private static final float[] LIGHT_POSITION = {0.0f, 0.0f, 0.0f, 1.0f}; // position of the light source (center of the scene)
 	private ArrayList<Planet> artbook;	// List of planets to be drawn
+	private Simulation simulation;		// Bodies as drawn this frame, interpolated from the simulation thread
+	private SimulationThread simulationThread; // Steps a copy of the simulation at a fixed rate, whatever the frame rate
+	// Ticks per second of the simulation thread (override with -Dsolar.tickRate=<ticks>, 0 to tick as fast as possible)
+	private static final int TICK_RATE = Integer.getInteger("solar.tickRate", SimulationThread.DEFAULT_TICK_RATE);
 	private GLCanvas canvas;			// The canvas to be drawn on
 	private Animator director;
-	private float timeElapsed, rateOfTime; //time since simulation began and it's rate.
+	private float rateOfTime; //time the simulation advances by every tick
 	private PlanetEnum trackedPlanet; //the planet currently being tracked
+	private int trackedBody = -1; //index of the body currently being tracked, a planet or a moon (-1 for none)
 	private Camera camera; 		// The camera which views the scene
+	private CameraPath cameraPath; // Path the camera follows through time instead of being moved by the user (null for none)
 	private boolean isFreeOrbit; //Flag for if the user is controlling the camera in-orbit
 	private int freeOrbitDirection; //0 (no orbit), 1 (right orbit), or -1 (left orbit)
+	private boolean isPaused; //Flag for if time is stopped by the user
+	private float savedRateOfTime; //the rate of time before it was paused
 
-	private ArrayList<Texture> planetTextures; // List of all planet textures
-	// Textures for every planet and the sun
-	private Texture sunTexture;
-	private Texture mercuryTexture;
-	private Texture venusTexture;
-	private Texture earthTexture;
-	private Texture marsTexture;
-	private Texture jupiterTexture;
-	private Texture saturnTexture;
-	private Texture uranusTexture;
-	private Texture neptuneTexture;
+	// Commands posted by the window (see post), executed by display() at the start of the next frame
+	public static final int TRACK_PLANET = 0, // value: ordinal of the PlanetEnum, or -1 to return to the fixed camera
+			SET_RATE_OF_TIME = 1, // value: the rate of time
+			INCREASE_RATE_OF_TIME = 2,
+			DECREASE_RATE_OF_TIME = 3,
+			TOGGLE_PAUSE = 4,
+			TOGGLE_GRAVITY = 5,
+			TOGGLE_EPHEMERIS = 6,
+			PRESS = 7, // value: a movement that continues until it is released
+			RELEASE = 8, // value: the movement released
+			RELEASE_ALL = 9, // e.g. when the window loses focus and key releases are not seen
+			TOGGLE_RECORDING = 10,
+			TOGGLE_PLAYBACK = 11,
+			REVERSE_PLAYBACK = 12,
+			SEEK = 13, // value: where to go in the recording played back (0 for its start, 1 for its end)
+			TRACK_BODY = 14, // value: index of the body in the simulation (see Simulation.getParent)
+			NEXT_MOON = 15, // tracks the next moon of the tracked planet, and the planet again after its last moon
+			TOGGLE_TRAILS = 16,
+			TOGGLE_ORBITS = 17,
+			POINTER_X = 18, // value: horizontal position of the mouse for the next PICK (0 at the left edge, 1 at the right)
+			PICK = 19; // value: vertical position of the mouse (0 at the top, 1 at the bottom), tracks the body under it
+	// Camera movements that continue while their key is held
+	public static final int MOVE_FORWARD = 0, MOVE_BACK = 1, MOVE_LEFT = 2, MOVE_RIGHT = 3,
+			TURN_LEFT = 4, TURN_RIGHT = 5, TURN_UP = 6, TURN_DOWN = 7;
+	private static final float CAMERA_SPEED = 30.0f; // units per second a held key moves the fixed camera
+	private static final float CAMERA_TURN_SPEED = 30.0f; // degrees per second a held key turns the fixed camera
+	private static final float FREE_ORBIT_SPEED = 60.0f; // degrees per second a held key moves the camera around a planet
+	private static final float MAX_FRAME_SECONDS = 0.1f; // longest frame a held key is integrated over (e.g. after a stall)
+	private final CommandQueue commands = new CommandQueue(256); // from the AWT event thread to display()
+	private final CommandQueue.Handler commandHandler = this::execute;
+	private int heldMovements; // bit per movement whose key is held
+	private long lastFrameNanos; // when the last frame started (0 before the first)
+	private float frameSeconds; // time since the last frame
+	private final FrameTimings timings = new FrameTimings(); // time spent in each phase of a frame (see FrameTimings)
+
+	// Texture files of the sun and of every planet, in the order of PlanetEnum
+	private static final String SUN_TEXTURE = "src/Planet_Textures/sun.jpg";
+	private static final String[] PLANET_TEXTURES = {"src/Planet_Textures/mercury.jpg",
+			"src/Planet_Textures/venus.jpg", "src/Planet_Textures/earth.jpg", "src/Planet_Textures/mars.jpg",
+			"src/Planet_Textures/jupiter.jpg", "src/Planet_Textures/saturn.jpg", "src/Planet_Textures/uranus.jpg",
+			"src/Planet_Textures/neptune.jpg"};
+	private TextureLoader textures; // Decodes the textures in the background (each body's slot is in the BodyRegistry)
+	// Where decoded textures are kept between runs (override with -Dsolar.textureCache=<directory>)
+	private static final File TEXTURE_CACHE = new File(System.getProperty("solar.textureCache",
+			System.getProperty("user.home") + File.separator + ".solarSystem" + File.separator + "textures"));
+	// Where fitted ephemeris segments are kept between runs (override with -Dsolar.ephemerisCache=<directory>)
+	private static final File EPHEMERIS_CACHE = new File(System.getProperty("solar.ephemerisCache",
+			System.getProperty("user.home") + File.separator + ".solarSystem" + File.separator + "ephemeris"));
+	// Where the simulation is recorded and played back from (override with -Dsolar.timeline=<file>)
+	private static final File TIMELINE = new File(System.getProperty("solar.timeline",
+			System.getProperty("user.home") + File.separator + ".solarSystem" + File.separator + "timeline.bin"));
+	private Timeline playback; // recording being played back instead of running the simulation (null for none)
+	private float playbackTime; // simulation time drawn from the recording
+	private int playbackDirection; // 1 to play forward, -1 to play backwards
+	private Simulation liveSimulation; // the bodies drawn before the playback started
+	private boolean resumeSimulation; // whether the simulation thread was running before the playback started
+	private static final float[] MATERIAL_DIFFUSE = {0.7f, 0.7f, 0.7f, 1.0f}; // Diffuse reflection allows for un-uniform light distribution
+	private final float[] placeholderDiffuse = {0.0f, 0.0f, 0.0f, 1.0f}; // Diffuse reflection of a body drawn in its colour
 	
 	/**
 	 * Creates a new instance of the jogl implementation with a defined camera
 	 */
 	public Jogl () {
-		canvas = makeCanvas(500,500);
-		director = new Animator(canvas);		// Sets up the animation
+		this(true);
+	}
+
+	/**
+	 * Creates a new instance of the jogl implementation with a defined camera
+	 * @param onscreen false to draw into a drawable made elsewhere (e.g. offscreen, see BatchRenderer):
+	 * there is no canvas or animator and the simulation is moved with setTime() instead of its thread
+	 */
+	public Jogl (boolean onscreen) {
+		//textures start decoding as soon as the bodies are loaded, they are uploaded once the GL context exists
+		GLProfile profile = GLProfile.get("GL2");
+		this.textures = new TextureLoader(profile, new TextureCache(TEXTURE_CACHE, profile),
+				Math.min(PLANET_TEXTURES.length + 1, Runtime.getRuntime().availableProcessors()));
+		if(FrameTimings.ENABLED) {
+			textures.setTimings(timings);
+			registerTimings();
+		}
+		if(onscreen) {
+			canvas = makeCanvas(500,500);
+			director = new Animator(canvas);		// Sets up the animation
+			director.setUpdateFPSFrames(60, null);	// Measures the frame rate every 60 frames
+		}
 		this.artbook = new ArrayList<Planet>();	// Initialize the ArrayList of planets
+		this.rateOfTime = 1;					// Time goes up by 1 every tick
+		if(APPROACH_DISTANCE >= 0) {
+			approaches = new CloseApproaches(APPROACH_DISTANCE, 0.5f);
+			approaches.addListener(this::reportApproach);
+		}
+		setSimulation(new Simulation(artbook), 0);	// Total time elapsed equal 0 when created
 		this.trackedPlanet = null;				// There is no set planet being tracked right away
-		this.timeElapsed = 0;					// Total time elapsed equal 0 when created
-		this.rateOfTime = 1;					// timeElapsed goes up by 1 every time interval
 		this.isFreeOrbit = false;
 		this.freeOrbitDirection = 0;
 		this.camera = new Camera();				// Initialize the camera
+		this.levelOfDetail = new LevelOfDetail();
+		this.sphere = new SphereRenderer(levelOfDetail.makeMeshes());
+		this.viewportHeight = 500;
+		this.frustum = new Frustum();
+		this.frustum.setPerspective(VERTICAL_FOV, 1.0f, NEAR_CLIP, FAR_CLIP);
 	}
 	
 	/**
 	 * The executive function of the simulation. This display does the following operations:
-	 * 1. Determine planet coordinates and setup the modelview matrix
+	 * 0. Execute the commands posted since the last frame and move the camera by the keys held
+	 * 1. Determine planet coordinates (from the simulation thread) and setup the modelview matrix
 	 * 2. Place the camera based on whether it is in free motion or in (fixed) orbit around a planet
 	 * 3. The sun will be initially drawn
 	 * 4. Each planet will be drawn and textured to it's orbital position and rotational angle (with respect to it's principle x axis)
-	 * 5. Increase the timeElapsed by rateOfTime
+	 *    Bodies outside the camera's view or too small to cover a pixel are skipped
+	 *    Then the paths of the orbits, the trails behind the bodies and the particle belts are drawn, if there are any
+	 * 5. Swap the buffers
+	 * Each step is timed (see FrameTimings). GL calls only queue work for the GPU, so the time the GPU takes
+	 * shows in the buffer swap.
  	 */
 	@Override
 	public void display(GLAutoDrawable drawable) {		
+		long frameStart = timings.start(), phase = frameStart;
+
+		//Executes the user's commands and moves the camera by the keys held since the last frame
+		long now = System.nanoTime();
+		frameSeconds = lastFrameNanos == 0 ? 0.0f : Math.min(MAX_FRAME_SECONDS, (now - lastFrameNanos) / 1.0e9f);
+		lastFrameNanos = now;
+		commands.drain(commandHandler);
+		moveCamera(frameSeconds);
+		phase = timings.lap(FrameTimings.COMMANDS, phase);
+
 //		Calculates the orbital and rotational angles of each planet
 		calculatePlanetProperties();
+		phase = timings.lap(FrameTimings.SIMULATION, phase);
 
 		//set the modelview matrix (VIEW COORDINATE SYSTEM)
 		initMatrix(drawable, GL2.GL_MODELVIEW);
 		
 		//Determine where the camera will be and place it (CAMERA COORDINATE SYSTEM)
-		if(this.camera.mode == this.camera.ORBIT) trackPlanet();
+		if(this.cameraPath != null) {
+			cameraPath.place(camera, simulationThread.getTime());
+		}
+		else if(this.camera.getMode() == Camera.ORBIT) {
+			trackPlanet();
+			phase = timings.lap(FrameTimings.TRACK_PLANET, phase);
+		}
 		placeCamera();
+		frustum.setView(camera.getPosition(), camera.getFocalPoint(), camera.getUp());
+		drawnBodies = 0;
+		culledBodies = 0;
+		phase = timings.lap(FrameTimings.PLACE_CAMERA, phase);
 
-		GLUquadric quad1 = glu.gluNewQuadric(); // Quadric will be used to draw spheres with textures
 		//Draw sun with texuture and lighting
-		drawSun(quad1);
+		sphere.begin(gl);
+		BodyRegistry registry = simulation.getRegistry();
+		int sun = registry.getLightSource();
+		if(sun >= 0) drawSun(sun);
+		phase = timings.lap(FrameTimings.DRAW_SUN, phase);
 		
 		/*
 		 * The model is placed, the camera is oriented in the canvas
 		 * and the viewport is filled with the camera.
 		 * now we begin drawing planets
 		 */
-		int index = 0; // index is used to track what planet is being drawn. Used to know what texure to be used
-		Texture planetTexture;
-		for(Planet p : this.artbook) {
-
-			// Skip the sun, because we already drew it above using drawSun()
-			if (index == 0) {
-				index++;
-				continue;
-			}
+		// index is used to track what planet is being drawn. Used to find its texure and mesh in the registry
+		// Bodies not drawn as lit spheres are skipped, e.g. the sun because we already drew it above using drawSun()
+		for(int index = 0; index < simulation.getCount(); index++) {
+			if(registry.getMesh(index) != BodyRegistry.SPHERE) continue;
+			//skip the planet before any GL calls if it can't be seen
+			float px = simulation.getX(index), py = simulation.getY(index), pz = simulation.getZ(index);
+			float radius = 0.5f * simulation.getRadius(index);
+			int level = selectLevel(index, px, py, pz, radius);
+			if(level < 0) continue;
 
 			//popping and pushing starts the canvas at the origin for every planet
 			gl.glPushMatrix();
 				//go to this planet's orbital position and rotate it
-				float rotationRadians = (float) Math.toRadians((p.getRotation()));
-				if(p.getEnum() != null) // If not the sun
-					gl.glTranslatef(p.getX(), 0.0f, p.getZ());  // translate planet to appropiate coordinates
+				float rotationRadians = (float) Math.toRadians((simulation.getRotation(index)));
+				gl.glTranslatef(px, py, pz);  // translate planet to appropiate coordinates
 				gl.glRotatef(rotationRadians, 0.0f, 1.0f, 0.0f);	// rotate the planet
 
-				// Draw planet with texture
-				planetTexture = planetTextures.get(index);
-				planetTexture.bind(gl);					// Bind texture with drawing tool
-				gl.glEnable(GL2.GL_TEXTURE_2D);			// Enable textures
-				planetTexture.enable(gl);				// Enable the texture to be drawn
-				glu.gluQuadricTexture(quad1, true);	// Allow quadric to be drawn with texture
-				glu.gluSphere(quad1,  0.5 * (p.getRadius()), 30, 30); 	// Draw sphere with quadric that has textures on it
-				// Disable textures
-				planetTexture.disable(gl);
-				gl.glDisable(GL2.GL_TEXTURE_2D);
+				// Draw planet with texture, or in its colour until the texture is loaded
+				Texture planetTexture = getTexture(index);
+				if(planetTexture != null) {
+					planetTexture.bind(gl);					// Bind texture with drawing tool
+					gl.glEnable(GL2.GL_TEXTURE_2D);			// Enable textures
+					planetTexture.enable(gl);				// Enable the texture to be drawn
+					sphere.draw(gl, radius, level); 	// Draw sphere that has textures on it
+					// Disable textures
+					planetTexture.disable(gl);
+					gl.glDisable(GL2.GL_TEXTURE_2D);
+				} else {
+					placeholderDiffuse[0] = simulation.getRed(index);
+					placeholderDiffuse[1] = simulation.getGreen(index);
+					placeholderDiffuse[2] = simulation.getBlue(index);
+					gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_DIFFUSE, placeholderDiffuse, 0);
+					sphere.draw(gl, radius, level);
+					gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_DIFFUSE, MATERIAL_DIFFUSE, 0);
+				}
 
 			gl.glPopMatrix();
-			index++; // index is incremeted
 		}
-		
-		timeElapsed+= rateOfTime;
+		sphere.end(gl);
+		phase = timings.lap(FrameTimings.DRAW_PLANETS, phase);
+
+		//Draw the path of every orbit, from the paths made so far
+		if(orbitsShown) {
+			Vec3f eye = camera.getPosition();
+			orbitRenderer.draw(gl, simulation, frustum, eye.x(), eye.y(), eye.z(), VERTICAL_FOV, viewportHeight);
+			phase = timings.lap(FrameTimings.DRAW_ORBITS, phase);
+		}
+
+		//Draw where the bodies have been, uploading only the points appended since the last frame
+		//(not while playing back, the trails are those of the simulation)
+		if(trails != null && playback == null) {
+			trailRenderer.draw(gl, trails, simulation);
+			phase = timings.lap(FrameTimings.DRAW_TRAILS, phase);
+		}
+
+		//Move the particles of every belt to this frame's time and draw each belt in one instanced draw, lit by the sun
+		if(!belts.isEmpty()) {
+			float time = playback != null ? playbackTime : simulationThread.getTime();
+			float lx = sun >= 0 ? simulation.getX(sun) : 0.0f, ly = sun >= 0 ? simulation.getY(sun) : 0.0f,
+					lz = sun >= 0 ? simulation.getZ(sun) : 0.0f;
+			for(int b = 0; b < belts.size(); b++) {
+				BeltRenderer belt = belts.get(b);
+				belt.getBelt().update(time);
+				belt.draw(gl, lx, ly, lz);
+			}
+			phase = timings.lap(FrameTimings.DRAW_BELTS, phase);
+		}
+
+		drawable.swapBuffers();
+		timings.lap(FrameTimings.SWAP_BUFFERS, phase);
+		timings.endFrame(frameStart);
 	}
 	
 	/**
 	 * Draws the sun as the light source for the system.
-	 * First the light source is set at the modelview origin, then the textured sun is drawn
+	 * First the light source is set at the sun's centre, then the textured sun is drawn
 	 * NOTE: drawSun assumes that the modelview coordinate is at the origin <0,0,0,1> 
+	 * @param index index of the body bound to the light source mesh (see BodyRegistry)
 	 */
-	private void drawSun(GLUquadric quad){
-		float[] lightPosition = {0.0f, 0.0f, 0.0f, 1.0f}; // position of the light source (center of the scene)
-		gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, lightPosition, 0); // Set the properties
-		gl.glDisable(GL2.GL_LIGHTING);	// Disable lighting before pushing the matrix
+	private void drawSun(int index){
+		float sx = simulation.getX(index), sy = simulation.getY(index), sz = simulation.getZ(index);
 		gl.glPushMatrix();				// push matrix before drawing the sun
-		gl.glEnable(GL2.GL_TEXTURE_2D);	// enable the lighting again
-		sunTexture.enable(gl);			// bind texture with drawing tool
-		sunTexture.bind(gl);
-		glu.gluQuadricTexture(quad, true);	// allow textures to be drawn on quadric
-		glu.gluSphere(quad, 0.5f * 109.3f, 30, 30);	// draw the sphere using quadric
-		sunTexture.disable(gl);			// disable texture
-		gl.glDisable(GL2.GL_TEXTURE_2D);
+		gl.glTranslatef(sx, sy, sz);
+		gl.glLightfv(GL2.GL_LIGHT0, GL2.GL_POSITION, LIGHT_POSITION, 0); // Set the properties
+		float radius = 0.5f * simulation.getRadius(index);
+		int level = selectLevel(index, sx, sy, sz, radius);
+		if(level < 0) {	// the sun is out of view, the light is still placed
+			gl.glPopMatrix();
+			return;
+		}
+		gl.glDisable(GL2.GL_LIGHTING);	// Disable lighting before drawing the sun
+		Texture sunTexture = getTexture(index);
+		if(sunTexture != null) {
+			gl.glEnable(GL2.GL_TEXTURE_2D);	// enable the lighting again
+			sunTexture.enable(gl);			// bind texture with drawing tool
+			sunTexture.bind(gl);
+			sphere.draw(gl, radius, level);	// draw the sphere
+			sunTexture.disable(gl);			// disable texture
+			gl.glDisable(GL2.GL_TEXTURE_2D);
+		} else {
+			// unlit, so the sun is drawn in its flat colour until the texture is loaded
+			gl.glColor3f(simulation.getRed(index), simulation.getGreen(index), simulation.getBlue(index));
+			sphere.draw(gl, radius, level);
+			gl.glColor3f(1.0f, 1.0f, 1.0f);
+		}
 		gl.glPopMatrix(); 				// Pop matrix after done drawingin
 		gl.glEnable(GL2.GL_LIGHTING);   // enable lighting after popping the matrix
 	}
 	
+	/**
+	 * Culls a body against the camera's view and picks its level of detail from how large it is on screen.
+	 * Counts the body as drawn or culled.
+	 * @param index index of the body in the simulation
+	 * @param x x coordinate of the centre of the body
+	 * @param y y coordinate of the centre of the body
+	 * @param z z coordinate of the centre of the body
+	 * @param radius radius the body is drawn with
+	 * @return the sphere mesh level to draw the body with, or -1 if the body shouldn't be drawn
+	 */
+	private int selectLevel(int index, float x, float y, float z, float radius) {
+		if(!frustum.isVisible(x, y, z, radius)) {
+			culledBodies++;
+			return -1;
+		}
+		float projectedRadius = LevelOfDetail.projectedRadius(radius, frustum.distance(x, y, z), VERTICAL_FOV, viewportHeight);
+		if(projectedRadius < MIN_PROJECTED_RADIUS) {
+			culledBodies++;
+			return -1;
+		}
+		drawnBodies++;
+		return levelOfDetail.select(index, projectedRadius);
+	}
+	
 	/**
 	 * Initialises the specified JOGL matrix
 	 * @param drawable The canvas
@@ -164,6 +383,7 @@ public class Jogl implements GLEventListener {
 			this.rateOfTime *= 2;
 		else
 			this.rateOfTime += 0.25f;
+		simulationThread.setStep(rateOfTime);
 	}
 	
 	/**
@@ -175,14 +395,21 @@ public class Jogl implements GLEventListener {
 			this.rateOfTime /= 2;
 		else
 			this.rateOfTime -= 0.25f;
+		simulationThread.setStep(rateOfTime);
 	}
 
-	/*
-	 * Method exists because it must be implemented from the GLEventListener interface
-	 * Method is not utilized in program
+	/**
+	 * Releases the sphere buffers and textures from the GPU
 	 */
 	@Override
-	public void dispose(GLAutoDrawable drawable) {}
+	public void dispose(GLAutoDrawable drawable) {
+		sphere.dispose(drawable.getGL().getGL2());
+		for(BeltRenderer belt : belts)
+			belt.dispose(drawable.getGL().getGL2());
+		trailRenderer.dispose(drawable.getGL().getGL2());
+		orbitRenderer.dispose(drawable.getGL().getGL2());
+		textures.dispose(drawable.getGL());
+	}
 	
 	/**
 	 * Initialises the display canvas by setting up the gl interface, library, tools, and sets the canvas to a filled colour
@@ -191,72 +418,43 @@ public class Jogl implements GLEventListener {
 	public void init(GLAutoDrawable drawable) {
 		//updates display once every vertical refresh
 		drawable.getGL().setSwapInterval(1); 
+		drawable.setAutoSwapBufferMode(false); // display() swaps the buffers itself, so the swap is timed
 	
 		//OpenGl interface (gl) and utilities library (glu)
 		gl = drawable.getGL().getGL2();
 		gl.glEnable(GL2.GL_DEPTH_TEST);
 		glu = new GLU();
 		
-		//quad is used for drawing spheres
-		quad = glu.gluNewQuadric();
-		glu.gluQuadricDrawStyle(quad, GLU.GLU_LINE);
+		//upload the sphere meshes used for drawing every textured sphere
+		sphere.init(gl);
+		gl.glEnable(GL2.GL_RESCALE_NORMAL);	// spheres are scaled unit meshes, keep their normals unit length
 				
 		//clear the canvas to a solid colour
 		float red = 0.0f, green = 0.0f, blue = 0.0f, alpha = 1.0f;
 		gl.glClearColor(red, green, blue, alpha);
 
-		// Load textures into each texture variable, and add to the list.
-		this.planetTextures = new ArrayList<Texture>(8);
-
-		sunTexture = loadTexture("src/Planet_Textures/sun.jpg");
-		planetTextures.add(sunTexture);
-		mercuryTexture = loadTexture("src/Planet_Textures/mercury.jpg");
-		planetTextures.add(mercuryTexture);
-		venusTexture = loadTexture("src/Planet_Textures/venus.jpg");
-		planetTextures.add(venusTexture);
-		earthTexture = loadTexture("src/Planet_Textures/earth.jpg");
-		planetTextures.add(earthTexture);
-		marsTexture = loadTexture("src/Planet_Textures/mars.jpg");
-		planetTextures.add(marsTexture);
-		jupiterTexture = loadTexture("src/Planet_Textures/jupiter.jpg");
-		planetTextures.add(jupiterTexture);
-		saturnTexture = loadTexture("src/Planet_Textures/saturn.jpg");
-		planetTextures.add(saturnTexture);
-		uranusTexture = loadTexture("src/Planet_Textures/uranus.jpg");
-		planetTextures.add(uranusTexture);
-		neptuneTexture = loadTexture("src/Planet_Textures/neptune.jpg");
-		planetTextures.add(neptuneTexture);
+		// Textures are decoded in the background since the constructor, they are uploaded by display() when ready
 
 		// Initialize lighting properties
 		gl.glEnable(GL2.GL_LIGHTING);
 		gl.glEnable(GL2.GL_LIGHT0);
 		float[] materialAmbient = {0.1f, 0.1f, 0.1f, 1.0f}; // Very low ambient light so darkside of planets cannot be seen
-		float[] materialDiffuse = {0.7f, 0.7f, 0.7f, 1.0f}; // Diffuse reflection allows for un-uniform light distribution
 		float[] materialSpecular = {0.4f, 0.4f, 0.4f, 1.0f}; // Low Specular reflection so the highlights aren't too bright
 		float materialShininess = 5.0f;						// Low shininess to avoid fake plastic look
 		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_AMBIENT, materialAmbient, 0);
-		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_DIFFUSE, materialDiffuse, 0);
+		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_DIFFUSE, MATERIAL_DIFFUSE, 0);
 		gl.glMaterialfv(GL2.GL_FRONT, GL2.GL_SPECULAR, materialSpecular, 0);
 		gl.glMaterialf(GL2.GL_FRONT, GL2.GL_SHININESS, materialShininess);
 	}
 
 	/**
-	 * Method used to initialize Texture types
-	 * Reads local file path to store .jpg file in the variable
-	 * @param textureFileName local path (Plane_Textures) to specific texture.
-	 *                        Path can start from src/......
-	 * @return Texture type that holds path to .jpg file
+	 * Gets the texture of a body, uploading it if it has just been decoded
+	 * @param index index of the body in the simulation
+	 * @return the texture, or null if there is none (yet) and the body should be drawn in its colour
 	 */
-	private Texture loadTexture(String textureFileName) {
-		Texture texture = null;
-		// Try catch block incase the texture path is not valid
-		try {
-			File textureFile = new File(textureFileName); // Load your JPG image
-			texture = TextureIO.newTexture(textureFile, true);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return texture;
+	private Texture getTexture(int index) {
+		int slot = simulation.getRegistry().getTexture(index);
+		return slot < 0 ? null : textures.get(slot);
 	}
 	
 	@Override
@@ -268,40 +466,51 @@ public class Jogl implements GLEventListener {
 		gl.glLoadIdentity(); // Load indentity matrix
 		
 		//setup the projection matrix (perspective)
-		float VERTICAL_FOV = 60.0f;
+		this.viewportHeight = Math.max(height, 1);
 		float aspectRatio = (float) width/height;   // Uses width and height of frame to calculate aspect ratio
-		float nearClip = .01f, farClip = 1000.0f;   // near and far values for perspective projection
-		glu.gluPerspective(VERTICAL_FOV, aspectRatio, nearClip, farClip); // Sets up perspective projection
+		glu.gluPerspective(VERTICAL_FOV, aspectRatio, NEAR_CLIP, FAR_CLIP); // Sets up perspective projection
+		frustum.setPerspective(VERTICAL_FOV, aspectRatio, NEAR_CLIP, FAR_CLIP);
 	}
 
 	/**
-	 * Finds the polar coordinates of the planet with the sun as the origin.
-	 * @param art The planet at it's previous position
-	 * @return the angle of the planet's orbit with respect to the sun in degrees
+	 * Publishes the frame timings over JMX as solarSystem:type=FrameTimings
 	 */
-	private float orbitPlanet(Planet art) {
-		float sunRadius = artbook.get(0).getRadius(),
-				offset = art.getOffset() + sunRadius; // Ensure we obtain the proper offset of the planet
-		
-		//Get the new orbital position of the planet
-		float orbit = art.orbit(timeElapsed) % 360,   // orbit represents the angle (in degrees) from the orginal planet position
-				orbitRadians = (float) Math.toRadians(orbit);
-		
-		//Calculate the position of the planet
-		float planetX = (float) (offset * Math.cos(orbitRadians));
-		float planetZ = (float) (offset * Math.sin(orbitRadians));
-		//Set the position of the planet
-		art.setX(planetX);
-		art.setZ(planetZ);
-		return orbit;
+	private void registerTimings() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(timings, new ObjectName("solarSystem:type=FrameTimings"));
+		} catch (JMException e) {
+			// e.g. another Jogl in the same JVM registered first, the timings are still recorded (and logged if asked)
+			System.err.println("Frame timings are not published over JMX: " + e.getMessage());
+		}
 	}
-	
+
+	/**
+	 * @return the frame timings of the last complete interval
+	 */
+	public FrameTimingsMBean getTimings() {
+		return timings;
+	}
+
+	/**
+	 * @return the number of bodies drawn in the last frame
+	 */
+	public int getDrawnBodies() {
+		return drawnBodies;
+	}
+
+	/**
+	 * @return the number of bodies skipped in the last frame because they were out of view or too small
+	 */
+	public int getCulledBodies() {
+		return culledBodies;
+	}
+
 	/**
 	 * Checks to see if jogl is playing or not
 	 * @return
 	 */
 	public boolean isPlaying() {
-		return director.isAnimating();
+		return director != null && director.isAnimating();
 	}
 	
 	/**
@@ -310,6 +519,167 @@ public class Jogl implements GLEventListener {
 	 */
 	public void loadArtbook(ArrayList<Planet> artbook) {
 		this.artbook = artbook;
+		setSimulation(new Simulation(artbook), simulationThread.getTime());
+		//planets are bound to the texture of their enum and the sun to its own, wherever they are in the artbook
+		BodyRegistry registry = simulation.getRegistry();
+		for(int index = 0; index < simulation.getCount(); index++) {
+			PlanetEnum planet = registry.getEnum(index);
+			if(planet != null)
+				registry.setTexture(index, textures.load(PLANET_TEXTURES[planet.ordinal()]));
+			else if(index == registry.getLightSource())
+				registry.setTexture(index, textures.load(SUN_TEXTURE));
+		}
+	}
+
+	/**
+	 * Adds a belt of particles to be drawn around the sun (before the animation starts)
+	 * @param belt the belt, moved to the time of every frame drawn
+	 */
+	public void addBelt(ParticleBelt belt) {
+		belts.add(new BeltRenderer(belt, new SphereMesh(4, 2))); // an octahedron: the particles are a few pixels across
+	}
+
+	/**
+	 * Reads the bodies to be used by this implementation from a catalog
+	 * @param catalog the catalog to be used
+	 * @param directory the directory texture paths in the catalog are relative to
+	 */
+	public void loadCatalog(BodyCatalog catalog, File directory) {
+		this.artbook = new ArrayList<Planet>();
+		setSimulation(new Simulation(catalog), simulationThread.getTime());
+		BodyRegistry registry = simulation.getRegistry();
+		for(int index = 0; index < catalog.size(); index++) {
+			String texture = catalog.getTexture(index);
+			if(texture != null) registry.setTexture(index, textures.load(new File(directory, texture).getPath()));
+		}
+	}
+
+	/**
+	 * Replaces the bodies, stepping a copy of them on a new simulation thread (running if the old one was)
+	 * @param simulation the bodies to be drawn
+	 * @param time the time the new simulation starts at
+	 */
+	private void setSimulation(Simulation simulation, float time) {
+		boolean running = false;
+		if(simulationThread != null) {
+			setPlayback(false);
+			setRecording(false);
+			setEphemerisMode(false);
+			running = simulationThread.isRunning();
+			simulationThread.stop();
+		}
+		this.simulation = simulation;
+		this.trackedBody = simulation.indexOf(trackedPlanet); // a tracked moon is lost, bodies may be in another order
+		this.simulationThread = new SimulationThread(new Simulation(simulation), time, TICK_RATE);
+		simulationThread.setStep(rateOfTime);
+		if(trails != null) setTrailsShown(true); // trails of the new bodies
+		simulationThread.setApproaches(approaches);
+		simulationThread.setGrid(grid, 0.5f);
+		if(running) simulationThread.start();
+	}
+
+	/**
+	 * Prints a close approach (on the simulation thread)
+	 */
+	private void reportApproach(int first, int second, float time, float distance) {
+		BodyRegistry registry = simulation.getRegistry();
+		System.out.printf("%s %s and %s at time %.2f (%.3f apart)%n", distance <= 0 ? "Collision of" : "Close approach of",
+				describe(registry, first), describe(registry, second), time, Math.max(0.0f, distance));
+	}
+
+	/**
+	 * @return the name of a body, or its index if it has none
+	 */
+	private static String describe(BodyRegistry registry, int body) {
+		String name = body < registry.size() ? registry.getName(body) : null;
+		return name != null ? name : "body " + body;
+	}
+
+	/**
+	 * @return the detector reporting the bodies that come close, to add listeners to (null unless
+	 * -Dsolar.approachDistance is set)
+	 */
+	public CloseApproaches getApproaches() {
+		return approaches;
+	}
+
+	/**
+	 * Shows or hides a trail behind every body, showing where it has been since the trails were shown
+	 * (TRAIL_LENGTH points, one each time a body has moved TRAIL_SPACING)
+	 * @param shown true to show the trails
+	 */
+	public void setTrailsShown(boolean shown) {
+		this.trails = shown ? new Trails(simulation.getCount(), TRAIL_LENGTH, TRAIL_SPACING) : null;
+		simulationThread.setTrails(trails);
+	}
+
+	/**
+	 * @return whether trails are shown behind the bodies
+	 */
+	public boolean isTrailsShown() {
+		return trails != null;
+	}
+
+	/**
+	 * Shows or hides the path of every body's orbit. The paths are made in the background the first time they are
+	 * shown and again only for orbits that change, so a body's path may appear a few frames after the others.
+	 * @param shown true to show the paths
+	 */
+	public void setOrbitsShown(boolean shown) {
+		this.orbitsShown = shown;
+	}
+
+	/**
+	 * @return whether the paths of the orbits are shown
+	 */
+	public boolean isOrbitsShown() {
+		return orbitsShown;
+	}
+
+	/**
+	 * Returns the simulation read by display()
+	 * @return the simulation of the artbook
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
+	/**
+	 * @return the ticks the simulation ran in the last second
+	 */
+	public double getTicksPerSecond() {
+		return simulationThread.getTicksPerSecond();
+	}
+
+	/**
+	 * @return the frames drawn per second, measured by the animator
+	 */
+	public float getFramesPerSecond() {
+		return director != null ? director.getLastFPS() : 0.0f;
+	}
+
+	/**
+	 * Moves the bodies to a time, for the next frame to draw them there exactly (without interpolation).
+	 * Only for a Jogl made without a canvas, whose simulation thread isn't started
+	 * @param time the simulation time
+	 */
+	public void setTime(float time) {
+		simulationThread.advanceTo(time);
+	}
+
+	/**
+	 * Makes the camera follow a path through time, ahead of tracking a planet
+	 * @param cameraPath the path, or null to give the camera back to the user
+	 */
+	public void setCameraPath(CameraPath cameraPath) {
+		this.cameraPath = cameraPath;
+	}
+
+	/**
+	 * Waits until every texture has been decoded, so the next frame draws them all
+	 */
+	public void awaitTextures() {
+		textures.awaitDecoded();
 	}
 	
 	/**
@@ -317,6 +687,7 @@ public class Jogl implements GLEventListener {
 	 */
 	public boolean startAnimator() {
 		canvas.requestFocus();
+		simulationThread.start();
 		return director.start();
 	}
 
@@ -326,6 +697,8 @@ public class Jogl implements GLEventListener {
 	public boolean stopAnimator() {
 		canvas.destroy();
 		artbook.clear();
+		setRecording(false); // the recording is written out
+		simulationThread.stop();
 		return director.stop();
 	}
 	
@@ -362,8 +735,8 @@ public class Jogl implements GLEventListener {
 	 * @param mode 0 = not moving, 1 = moving right, -1 = moving left
 	 */
 	public void setCameraMode(int mode) {
-		camera.mode = mode;
-		if(mode == camera.ORBIT) this.freeOrbitDirection = camera.MOVING_NONE;
+		camera.setMode(mode);
+		if(mode == Camera.ORBIT) this.freeOrbitDirection = Camera.MOVING_NONE;
 	}
 	
 	/**
@@ -381,9 +754,7 @@ public class Jogl implements GLEventListener {
 	 * @param dz The difference in the z position relative to the CAMERA COORDINATE SYSTEM
 	 */
 	public void moveCameraInOut(float dz) {
-		Vec3f dv = this.camera.lookAtDirection.mul(dz);
-		this.camera.position.add(dv);
-		this.camera.focalPoint.add(dv);
+		this.camera.moveInOut(dz);
 	}
 	
 	/**
@@ -391,11 +762,7 @@ public class Jogl implements GLEventListener {
 	 * @param dt The angle of rotation
 	 */
 	public void rotateCameraLeftRight(float dt) {		
-		Vec3f v = this.camera.focalPoint;
-		this.camera.focalPoint = rotateY(dt, this.camera.position, v);
-		this.camera.lookAtDirection = new Vec3f(this.camera.focalPoint).sub(this.camera.position).normalize();
-		//update left vector
-		this.camera.left = this.camera.lookAtDirection.cross(this.camera.up).normalize().mul(-1);
+		this.camera.rotateLeftRight(dt);
 	}
 	
 	/**
@@ -403,11 +770,7 @@ public class Jogl implements GLEventListener {
 	 * @param dt The angle of rotation
 	 */
 	public void rotateCameraUpDown(float dt) {
-		Vec3f v = this.camera.focalPoint;
-		this.camera.focalPoint = rotateX(dt, this.camera.position, v);
-		this.camera.lookAtDirection = new Vec3f(this.camera.focalPoint).sub(this.camera.position).normalize();
-		//update up vector
-		this.camera.up = this.camera.lookAtDirection.cross(this.camera.left).normalize();
+		this.camera.rotateUpDown(dt);
 	}
 	
 	/**
@@ -415,60 +778,19 @@ public class Jogl implements GLEventListener {
 	 */
 	public void setRateOfTime(float time){
 		this.rateOfTime = time;
+		simulationThread.setStep(time);
 	}
 
 	public float getRateOfTime(){
 		return this.rateOfTime;
 	}
 	
-	/**
-	 * Rotates the vector from headpoint -> tailPoint by angleDegrees about the y axis
-	 * If headPoint is null then the tailPoint is rotating about the origin
-	 * @param angleDegrees angle of rotation 
-	 * @param headPoint The head of the vector
-	 * @param tailPoint The tail of the vector
-	 * @return the new tailPoint vector
-	 */
-	private Vec3f rotateY(float angleDegrees, Vec3f headPoint, Vec3f tailPoint) {
-		//check if we are rotating about the origin or an arbitrary headPoint
-		if(headPoint == null) headPoint = new Vec3f(0,0,0);
-		
-		Vec3f dv = new Vec3f(tailPoint).sub(headPoint);
-		float angleRadians = (float) Math.toRadians(angleDegrees);
-		
-		float newX = dv.x() * (float) Math.cos(angleRadians) + dv.z() * (float) Math.sin(angleRadians),
-				newY = tailPoint.y(),
-				newZ = -(dv.x()) * (float) Math.sin(angleRadians) + dv.z() * (float) Math.cos(angleRadians);
-		return new Vec3f(newX, newY, newZ);
-	}
-	
-	/**
-	 * Rotates the vector from headpoint -> tailPoint by angleDegrees about the x axis
-	 * If headPoint is null then the tailPoint is rotating about the origin
-	 * @param angleDegrees angle of rotation 
-	 * @param headPoint The head of the vector
-	 * @param tailPoint The tail of the vector
-	 * @return the new tailPoint vector
-	 */
-	private Vec3f rotateX(float angleDegrees, Vec3f headPoint, Vec3f tailPoint) {
-		if(headPoint == null) headPoint = new Vec3f(0,0,0);
-		
-		Vec3f dv = new Vec3f(tailPoint).sub(headPoint);
-		float angleRadians = (float) Math.toRadians(angleDegrees);
-		
-		float newX = tailPoint.x(),
-				newY = dv.y() * (float) Math.cos(angleRadians) - dv.z() * (float) Math.sin(angleRadians),
-				newZ = dv.y() * (float) Math.sin(angleRadians) + dv.z() * (float) Math.cos(angleRadians);
-		
-		return new Vec3f(newX, newY, newZ);
-	}
-	
 	/**
 	 * Get the camera mode
 	 * @return current camera mode (fixed or orbit)
 	 */
 	public int getCameraMode() {
-		return this.camera.mode;
+		return this.camera.getMode();
 	}
 	
 	/**
@@ -476,90 +798,435 @@ public class Jogl implements GLEventListener {
 	 * @param dt the difference in the positions
 	 */
 	public void moveCameraLeftRight(float dt) {
-		Vec3f dv = this.camera.left.mul(-dt);
-		this.camera.position.add(dv);
-		this.camera.focalPoint.add(dv);
+		this.camera.moveLeftRight(dt);
 	}
 		
+	/**
+	 * Queues a command for the next frame. Safe to call from any thread (e.g. the AWT event thread): the command is
+	 * executed by display() on the animator's thread, so the camera and the tracked planet are only touched by that thread
+	 * @param command one of the commands (TRACK_PLANET, SET_RATE_OF_TIME, ...)
+	 * @param value the argument of the command (ignored by commands without one)
+	 * @return false if too many commands are waiting and this one was dropped
+	 */
+	public boolean post(int command, float value) {
+		return commands.offer(command, value);
+	}
+
+	/**
+	 * Executes a command taken from the queue by display()
+	 */
+	private void execute(int command, float value) {
+		switch(command) {
+			case TRACK_PLANET:
+				if(value < 0) {
+					setTrackedPlanet(null);	// Not tracking a specific planet
+					setCameraFixed();		// Set camera mode to static view
+					setCameraMode(Camera.FREE);
+				}
+				else {
+					setTrackedPlanet(PlanetEnum.values()[(int) value]);
+					setCameraMode(Camera.ORBIT);
+				}
+				break;
+			case SET_RATE_OF_TIME:
+				if(isPaused) savedRateOfTime = value; // used once time is resumed
+				else setRateOfTime(value);
+				break;
+			case INCREASE_RATE_OF_TIME:
+				increaseRateOfTime();
+				break;
+			case DECREASE_RATE_OF_TIME:
+				decreaseRateOfTime();
+				break;
+			case TOGGLE_PAUSE:
+				if(isPaused) {
+					setRateOfTime(savedRateOfTime);
+				}
+				else {
+					savedRateOfTime = rateOfTime;
+					setRateOfTime(0.0f);
+				}
+				isPaused = !isPaused;
+				break;
+			case TOGGLE_GRAVITY:
+				setGravityMode(!isGravityMode());
+				break;
+			case TOGGLE_EPHEMERIS:
+				setEphemerisMode(!isEphemerisMode());
+				break;
+			case PRESS:
+				heldMovements |= 1 << (int) value;
+				//moving around a tracked planet takes the camera into free orbit
+				if(camera.getMode() == Camera.ORBIT && ((int) value == MOVE_LEFT || (int) value == MOVE_RIGHT))
+					this.isFreeOrbit = true;
+				break;
+			case RELEASE:
+				heldMovements &= ~(1 << (int) value);
+				break;
+			case RELEASE_ALL:
+				heldMovements = 0;
+				break;
+			case TOGGLE_RECORDING:
+				setRecording(!isRecording());
+				break;
+			case TOGGLE_PLAYBACK:
+				setPlayback(!isPlayback());
+				break;
+			case REVERSE_PLAYBACK:
+				playbackDirection = -playbackDirection;
+				break;
+			case SEEK:
+				if(playback != null)
+					playbackTime = playback.getStartTime() + value * (playback.getEndTime() - playback.getStartTime());
+				break;
+			case TRACK_BODY:
+				if((int) value > 0 && (int) value < simulation.getCount()) {
+					setTrackedBody((int) value);
+					setCameraMode(Camera.ORBIT);
+				}
+				break;
+			case NEXT_MOON:
+				if(trackedBody > 0) {
+					setTrackedBody(nextMoon(trackedBody));
+					setCameraMode(Camera.ORBIT);
+				}
+				break;
+			case TOGGLE_TRAILS:
+				setTrailsShown(!isTrailsShown());
+				break;
+			case TOGGLE_ORBITS:
+				setOrbitsShown(!isOrbitsShown());
+				break;
+			case POINTER_X:
+				pointerX = value;
+				break;
+			case PICK:
+				int picked = pick(pointerX, value);
+				if(picked >= 0) {
+					setTrackedBody(picked);
+					setCameraMode(Camera.ORBIT);
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Moves the camera by the movements held, scaled by the time since the last frame so the speed doesn't depend
+	 * on the frame rate or the keyboard's repeat rate. The fixed camera moves and turns, in orbit the camera goes round the planet.
+	 * @param seconds time since the last frame
+	 */
+	private void moveCamera(float seconds) {
+		if(camera.getMode() == Camera.ORBIT) {
+			this.freeOrbitDirection = held(MOVE_RIGHT) - held(MOVE_LEFT);
+			return;
+		}
+		int forward = held(MOVE_FORWARD) - held(MOVE_BACK),
+				right = held(MOVE_RIGHT) - held(MOVE_LEFT),
+				turnLeft = held(TURN_LEFT) - held(TURN_RIGHT),
+				turnUp = held(TURN_UP) - held(TURN_DOWN);
+		if(forward != 0) camera.moveInOut(forward * CAMERA_SPEED * seconds);
+		if(right != 0) camera.moveLeftRight(right * CAMERA_SPEED * seconds);
+		if(turnLeft != 0) camera.rotateLeftRight(turnLeft * CAMERA_TURN_SPEED * seconds);
+		if(turnUp != 0) camera.rotateUpDown(turnUp * CAMERA_TURN_SPEED * seconds);
+	}
+
+	/**
+	 * @return 1 if the movement's key is held, 0 if not
+	 */
+	private int held(int movement) {
+		return (heldMovements >>> movement) & 1;
+	}
+
 	/**
 	 * Sets the camera to the planet to be tracked
 	 * @param pe
 	 */
 	public void setTrackedPlanet(PlanetEnum pe) {
 		this.trackedPlanet = pe;
+		this.trackedBody = simulation.indexOf(pe);
+		this.isFreeOrbit = false;
+	}
+
+	/**
+	 * Sets the camera to any body to be tracked, e.g. a moon
+	 * @param index the index of the body in the simulation (-1 for none)
+	 */
+	public void setTrackedBody(int index) {
+		this.trackedBody = index;
+		this.trackedPlanet = index >= 0 ? simulation.getEnum(index) : null;
 		this.isFreeOrbit = false;
 	}
+
+	/**
+	 * Finds the body under a point of the screen, as the camera was when the last frame was drawn: the nearest body
+	 * the ray from the camera through the point goes through, or passes within PICK_PIXELS of on screen.
+	 * The bodies are where the last tick left them, in the grid the simulation thread keeps up to date.
+	 * To be called on the animator's thread (e.g. through the PICK command).
+	 * @param screenX horizontal position on the screen, 0 at its left edge and 1 at its right edge
+	 * @param screenY vertical position on the screen, 0 at its top edge and 1 at its bottom edge
+	 * @return the index of the body in the simulation (-1 for none)
+	 */
+	public int pick(float screenX, float screenY) {
+		frustum.getRay(screenX, screenY, pickRay);
+		float tolerance = 2 * PICK_PIXELS * frustum.getTanHalfFovY() / viewportHeight; // per unit of distance from the camera
+		Simulation stepped = simulationThread.getSimulation();
+		synchronized(stepped) { // between two ticks, so the grid and the positions agree
+			return grid.pick(stepped, pickRay[0], pickRay[1], pickRay[2], pickRay[3], pickRay[4], pickRay[5], tolerance, 0.5f);
+		}
+	}
+
+	/**
+	 * Finds the bodies nearest a point, where the last tick left them. To be called on the animator's thread.
+	 * @param x x coordinate of the point
+	 * @param y y coordinate of the point
+	 * @param z z coordinate of the point
+	 * @param result receives the indices of the bodies in the simulation, nearest first (its length is how many are wanted)
+	 * @return the number of bodies found
+	 */
+	public int nearest(float x, float y, float z, int[] result) {
+		Simulation stepped = simulationThread.getSimulation();
+		synchronized(stepped) {
+			return grid.nearest(stepped, x, y, z, result);
+		}
+	}
+
+	/**
+	 * @return the index of the body being tracked (-1 for none)
+	 */
+	public int getTrackedBody() {
+		return trackedBody;
+	}
+
+	/**
+	 * Finds the body after one in the subtree of its planet (the body orbiting the sun it is in),
+	 * going back to the planet after the last moon. Moons come after their planet (see Simulation.setParent).
+	 * @param index the index of the tracked body
+	 * @return the index of the next body to be tracked
+	 */
+	private int nextMoon(int index) {
+		SceneGraph graph = simulation.getSceneGraph();
+		int planet = index;
+		while(simulation.getParent(planet) > 0) planet = simulation.getParent(planet);
+		for(int i = index + 1; i < simulation.getCount(); i++)
+			if(graph.isWithin(i, planet)) return i;
+		return planet;
+	}
 	
 	/**
-	 * Determines orbital position and rotational angle as functions of timeElapsed (orbitPlanet and art.rotate)
+	 * Switches between closed form circular orbits and orbits integrated under gravity.
+	 * When gravity is switched on every planet starts on a circular orbit from its current position.
+	 * An ephemeris in use is fitted again.
+	 * @param gravity true to move the planets under gravity
+	 */
+	public void setGravityMode(boolean gravity) {
+		if(gravity == isGravityMode()) return;
+		boolean ephemeris = isEphemerisMode();
+		setEphemerisMode(false);
+		simulationThread.change(s -> {
+			GravityIntegrator integrator = null;
+			if(gravity) {
+				integrator = new GravityIntegrator(s);
+				integrator.circularize();
+			}
+			s.setIntegrator(integrator, simulationThread.getTime());
+		});
+		setEphemerisMode(ephemeris); // fitted again from the new orbits
+	}
+
+	/**
+	 * @return whether the planets are moved under gravity (true) or on closed form orbits (false)
+	 */
+	public boolean isGravityMode() {
+		return simulationThread.getSimulation().getIntegrator() != null;
+	}
+
+	/**
+	 * Switches between moving the planets every frame and reading their positions from a Chebyshev ephemeris.
+	 * The ephemeris is fitted from a copy of the simulation as it is now (under gravity if gravity is on),
+	 * so jumping far ahead in time or back costs a polynomial evaluation instead of running the simulation there.
+	 * Switching the ephemeris off under gravity starts every planet on a circular orbit from where it is.
+	 * @param ephemeris true to read the positions from an ephemeris
+	 */
+	public void setEphemerisMode(boolean ephemeris) {
+		if(ephemeris == isEphemerisMode()) return;
+		simulationThread.change(s -> {
+			float time = simulationThread.getTime();
+			if(!ephemeris) {
+				s.getEphemeris().dispose();
+				s.setEphemeris(null);
+				if(s.getIntegrator() != null) {
+					//the integrator wasn't stepped while the ephemeris was used
+					s.getIntegrator().circularize();
+					s.setIntegrator(s.getIntegrator(), time);
+				}
+				return;
+			}
+			Simulation model = new Simulation(s);
+			GravityIntegrator gravity = s.getIntegrator();
+			if(gravity != null) {
+				GravityIntegrator integrator = new GravityIntegrator(model);
+				integrator.setGravitationalConstant(gravity.getGravitationalConstant());
+				integrator.setSoftening(gravity.getSoftening());
+				//fitted under the same forces, with a solver of its own (a solver keeps the state of its force pass)
+				if(gravity.getForceSolver() instanceof BarnesHutSolver)
+					integrator.setForceSolver(new BarnesHutSolver(((BarnesHutSolver) gravity.getForceSolver()).getOpeningAngle()));
+				model.setIntegrator(integrator, time);
+			}
+			Ephemeris fitted = new Ephemeris(model, time);
+			fitted.setDirectory(EPHEMERIS_CACHE);
+			s.setEphemeris(fitted);
+		});
+	}
+
+	/**
+	 * @return whether the positions of the planets are read from an ephemeris
+	 */
+	public boolean isEphemerisMode() {
+		return simulationThread.getSimulation().getEphemeris() != null;
+	}
+
+	/**
+	 * Starts or stops recording every tick of the simulation into the timeline file (see TimelineRecorder),
+	 * replacing the last recording. Stops any playback first.
+	 * @param recording true to record
+	 */
+	public void setRecording(boolean recording) {
+		if(recording == isRecording()) return;
+		if(recording) {
+			setPlayback(false);
+			simulationThread.change(s -> {
+				try {
+					Files.createDirectories(TIMELINE.getAbsoluteFile().getParentFile().toPath());
+					simulationThread.setRecorder(new TimelineRecorder(TIMELINE, s));
+				} catch (IOException e) {
+					System.err.println("Can't record the simulation: " + e.getMessage());
+				}
+			});
+			return;
+		}
+		try {
+			simulationThread.setRecorder(null).close();
+		} catch (IOException e) {
+			System.err.println("The recording may be incomplete: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return whether the ticks of the simulation are being recorded
+	 */
+	public boolean isRecording() {
+		return simulationThread.getRecorder() != null;
+	}
+
+	/**
+	 * Starts or stops playing back the timeline file from its start, instead of running the simulation.
+	 * The recording plays at the rate of time (backwards after REVERSE_PLAYBACK) and stops at either end.
+	 * Bodies recorded beyond the ones loaded are drawn in their recorded size and colour.
+	 * The simulation carries on from where it was once the playback stops.
+	 * @param play true to play back
+	 */
+	public void setPlayback(boolean play) {
+		if(play == isPlayback()) return;
+		if(play) {
+			setRecording(false);
+			Timeline timeline;
+			try {
+				timeline = new Timeline(TIMELINE);
+			} catch (IOException e) {
+				System.err.println("No recording to play back: " + e.getMessage());
+				return;
+			}
+			resumeSimulation = simulationThread.isRunning();
+			simulationThread.stop();
+			liveSimulation = simulation;
+			if(timeline.getCount() > simulation.getCount()) {
+				simulation = new Simulation(simulation);
+				for(int index = simulation.getCount(); index < timeline.getCount(); index++)
+					simulation.addBody(timeline.getRadius(index), 0.0f, 0.0f, 0.0f,
+							timeline.getRed(index), timeline.getGreen(index), timeline.getBlue(index));
+			}
+			playback = timeline;
+			playbackTime = timeline.getStartTime();
+			playbackDirection = 1;
+			return;
+		}
+		try {
+			playback.close();
+		} catch (IOException e) {
+			// nothing was written
+		}
+		playback = null;
+		simulation = liveSimulation;
+		liveSimulation = null;
+		if(resumeSimulation) simulationThread.start();
+	}
+
+	/**
+	 * @return whether a recording is being played back
+	 */
+	public boolean isPlayback() {
+		return playback != null;
+	}
+
+	/**
+	 * Determines orbital position and rotational angle of every body for this frame,
+	 * interpolated from the last tick of the simulation thread (see SimulationThread.interpolate),
+	 * or read from the recording being played back
 	 */
 	public void calculatePlanetProperties() {
-		for(Planet art : artbook) {
-			//Calculate planet orbit 
-			float orbit = orbitPlanet(art);
-			float rotation = art.rotate(timeElapsed);
-
-			//set the new planet orbit and rotation
-			//don't update the tracked planet's rotation if we're in FREE orbit around it
-			art.setOrbit(orbit);
-			if(this.isFreeOrbit && art.getEnum() == this.trackedPlanet) continue;
-			art.setRotation(rotation);
+		//don't update the tracked planet's rotation if we're in FREE orbit around it
+		int heldRotation = this.isFreeOrbit ? this.trackedBody : -1;
+		if(playback != null) {
+			//as much simulation time per second as the simulation thread would run
+			int tickRate = TICK_RATE > 0 ? TICK_RATE : SimulationThread.DEFAULT_TICK_RATE;
+			playbackTime += playbackDirection * rateOfTime * tickRate * frameSeconds;
+			playbackTime = Math.max(playback.getStartTime(), Math.min(playback.getEndTime(), playbackTime));
+			playback.read(playbackTime, simulation, heldRotation);
+			return;
 		}
+		simulationThread.interpolate(simulation, heldRotation);
 	}
 	
 	/**
 	 * Updates the camera parameters to orbit the tracked planet if camera is in orbit mode
 	 * If the camera is in free orbit, the planet's rotational angle is modified ONLY on user input
-	 * Camera orientation is determined by the vector cp = <planet.position - camera.position> 
 	 */
 	private void trackPlanet() {
-		//Determine which planet is being tracked
-		Planet p = null;
-		for(Planet pl : artbook) 
-			if(pl.getEnum() == this.trackedPlanet) 
-				p = pl;
+		//Determine which body is being tracked
+		int p = this.trackedBody;
+		if(p < 0) return;
 		
 		//get tracked planet's position, rotational angle, and find the distance the camera needs to be to orbit it
-		float px = p.getX(),
-				pz = p.getZ(),
-				pr = p.getRotation(),
-				or = p.getRadius() + 0.5f;
+		float px = simulation.getX(p),
+				py = simulation.getY(p),
+				pz = simulation.getZ(p),
+				pr = simulation.getRotation(p),
+				or = simulation.getRadius(p) + 0.5f;
 		if(this.isFreeOrbit)
-			pr += this.freeOrbitDirection;
-		
-		//calculate camera position from planet position, rotation, and camera orbital radius
-		float cx = or * (float) (Math.cos(Math.toRadians(-pr))) + px;
-		float cz = or * (float) (Math.sin(Math.toRadians(-pr))) + pz;
+			pr += this.freeOrbitDirection * FREE_ORBIT_SPEED * frameSeconds;
 		
-		p.setRotation(pr);
-		
-		//Update camera left, up, lookAt vectors and camera position and focal point
-		this.camera.position.set(cx, 0, cz);
-		this.camera.focalPoint.set(px, 0, pz);
-		this.camera.up.set(0, 1, 0);
-		
-		//cp is the vector from the camera position to the planet
-		Vec3f cp = new Vec3f(px-cx, 0, pz-cz);
-		
-		this.camera.lookAtDirection.set(cp.x(), 0, cp.z()).normalize();
-		this.camera.left = this.camera.lookAtDirection.cross(this.camera.up).normalize().mul(-1);
+		simulation.setRotation(p, pr);
+		this.camera.orbit(px, py, pz, pr, or);
 	}
 	
 	/**
 	 * Sets the camera using it's position, focal point, and upVector with gluLookAt
 	 */
 	public void placeCamera() {	
-		float cx = camera.position.x(),
-				cy = camera.position.y(),
-				cz = camera.position.z(),
+		Vec3f position = camera.getPosition(),
+				focalPoint = camera.getFocalPoint(),
+				up = camera.getUp();
+		float cx = position.x(),
+				cy = position.y(),
+				cz = position.z(),
 				
-				fx = camera.focalPoint.x(),
-				fy = camera.focalPoint.y(),
-				fz = camera.focalPoint.z(),
+				fx = focalPoint.x(),
+				fy = focalPoint.y(),
+				fz = focalPoint.z(),
 				
-				ux = camera.up.x(),
-				uy = camera.up.y(),
-				uz = camera.up.z();
+				ux = up.x(),
+				uy = up.y(),
+				uz = up.z();
 		
 		glu.gluLookAt(cx, cy, cz,
 				fx, fy, fz,
@@ -583,90 +1250,4 @@ public class Jogl implements GLEventListener {
 	public boolean getIsFreeOrbit() {
 		return this.isFreeOrbit;
 	}
-	
-	/**
-	 * Used to help manage the camera
-  	 * Based on an up, lookAt, and left vector
-         * Keeps track of it's position and focal point
-         * Is either in FREE mode (0) or ORBIT mode (1) around a planet
-	 */
-	class Camera {
-		public final int FREE = 0, //viewing from a static or dynamic position
-						 ORBIT = 1; //camera is orbiting a planet
-		
-		//For rotation direction
-		public final int MOVING_LEFT = -1,
-				 		 MOVING_NONE = 0,
-						 MOVING_RIGHT = 1;
-		
-		private int mode;	// Determines if camera is orbiting a planet, or is in free camera mode
-		
-		private Vec3f position, lookAtDirection, left, up; 
-		private Vec3f focalPoint;
-		
-		public Camera() {
-			setFixedMode();
-		}
-
-		/**
-		 * Sets default camera values:
-		 * position = <0,0,200>
-		 * focalPoint = <0,0,0>
-		 * lookAtDirection = <focalPoint - position>/N = <0,0,-1>
-		 * left = (<lookAtDirection> X <up>)/-N = <0,0,-1>
-		 * up = <0,1,0>
-		 */
-		public void setFixedMode() {
-			this.position = new Vec3f(0,0,200);	// When user hits 0 on keyboard, camera is in there coordinates
-			this.focalPoint = new Vec3f(0,0,0);	// camera looks at the center of the scene (the sun)
-			
-			this.lookAtDirection = new Vec3f(new Vec3f(this.focalPoint).sub(this.position)).normalize();
-			
-			this.up = new Vec3f(0,1,0);
-			this.left = this.lookAtDirection.cross(this.up).normalize().mul(-1);
-			this.mode = FREE;	// Free camera mode. mode = 1
-		}
-
-		/*
-		Series of setters and getters to provide encapsulation for camera properties
-		 */
-		public int getMode() {
-			return this.mode;
-		}
-		
-		public void setPositionVector(float[] xyz) {
-			this.position.set(xyz);
-		}
-		
-		public void setLookAtVector(float[] xyz) {
-			this.lookAtDirection.set(xyz);
-		}
-		
-		public void setUpVector(float[] xyz) {
-			this.up.set(xyz);
-			this.up.normalize();
-		}
-		
-		public void setLeftVector(float[] xyz) {
-			this.left.set(xyz);
-			this.left.normalize();
-		}
-
-		/**
-		 * toString method that displays camera properties
-		 * @return String of camera properties
-		 */
-		@Override
-		public String toString() {
-			String str = "";
-			str += "Position = " + position.toString() + "\n"
-					+ "Focal Point = " + focalPoint.toString() + "\n"
-					+ "lookAt Vector = " + lookAtDirection.toString() + "\n"
-					+ "left Vector = " + left.toString() + "\n"
-					+ "up Vector = " + up.toString();
-			return str;
-			
-		}
-	}
 }
-
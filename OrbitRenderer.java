@@ -0,0 +1,104 @@
+import java.nio.FloatBuffer;
+
+import com.jogamp.opengl.*;
+
+import solarModel.Frustum;
+import solarModel.LevelOfDetail;
+import solarModel.OrbitPaths;
+import solarModel.Simulation;
+
+/**
+ * Draws the path of every body's orbit (see OrbitPaths) as a line loop around its parent, in the body's colour.
+ * The paths share one vertex buffer: only the ranges of the paths that changed are uploaded, and all of it only when
+ * the paths were packed again into a larger buffer. Each path is drawn at the coarsest
+ * level whose error is below MAX_ERROR_PIXELS on screen, from the nearest the camera is to the path,
+ * and paths out of the camera's view are skipped.
+ * Usage: draw() every frame with the modelview holding the camera's view, dispose() when the context goes away.
+ */
+public class OrbitRenderer {
+	private static final float MAX_ERROR_PIXELS = 0.5f; // largest distance on screen between a path and the true orbit
+	private static final float SHADE = 0.35f; // paths are drawn darker than their bodies
+
+	private final OrbitPaths paths;
+	private final int[] buffer = new int[1];
+	private int uploadedVersion = -1; // version of the paths in the buffer
+	private boolean initialized;
+
+	/**
+	 * @param paths the paths to be drawn, updated by draw()
+	 */
+	public OrbitRenderer(OrbitPaths paths) {
+		this.paths = paths;
+	}
+
+	/**
+	 * Picks up the paths made since the last frame, uploads the ones that changed and draws them
+	 * @param gl the openGL interface
+	 * @param simulation the bodies, as drawn this frame
+	 * @param frustum the camera's view
+	 * @param cameraX x coordinate of the camera
+	 * @param cameraY y coordinate of the camera
+	 * @param cameraZ z coordinate of the camera
+	 * @param verticalFov vertical field of view (degrees) of the projection
+	 * @param viewportHeight height of the viewport in pixels
+	 */
+	public void draw(GL2 gl, Simulation simulation, Frustum frustum, float cameraX, float cameraY, float cameraZ,
+			float verticalFov, int viewportHeight) {
+		if(!initialized) {
+			gl.glGenBuffers(1, buffer, 0);
+			initialized = true;
+		}
+		paths.update(simulation);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffer[0]);
+		FloatBuffer vertices = paths.getVertices();
+		if(uploadedVersion != paths.getVersion()) {
+			gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) vertices.capacity() * Float.BYTES, vertices, GL.GL_DYNAMIC_DRAW);
+			uploadedVersion = paths.getVersion();
+		}
+		else {
+			for(int c = 0; c < paths.getChangeCount(); c++) {
+				int first = paths.getChangeFirst(c);
+				vertices.position(first);
+				gl.glBufferSubData(GL.GL_ARRAY_BUFFER, (long) first * Float.BYTES, (long) paths.getChangeLength(c) * Float.BYTES, vertices);
+			}
+			vertices.position(0);
+		}
+		paths.clearChanges();
+		gl.glDisable(GL2.GL_LIGHTING);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glVertexPointer(3, GL.GL_FLOAT, 0, 0);
+		int count = Math.min(paths.size(), simulation.getCount());
+		for(int i = 1; i < count; i++) {
+			if(paths.getCount(i, 0) == 0) continue;
+			int parent = simulation.getParent(i);
+			float ox = simulation.getX(parent), oy = simulation.getY(parent), oz = simulation.getZ(parent),
+					apoapsis = paths.getApoapsis(i);
+			if(!frustum.isVisible(ox, oy, oz, apoapsis)) continue;
+			float distance = paths.getDistance(i, cameraX, cameraY, cameraZ, ox, oy, oz);
+			int level = 0;
+			while(level < OrbitPaths.LEVELS - 1 && LevelOfDetail.projectedRadius(OrbitPaths.TOLERANCES[level] * apoapsis,
+					distance, verticalFov, viewportHeight) > MAX_ERROR_PIXELS)
+				level++;
+			gl.glColor3f(SHADE * simulation.getRed(i), SHADE * simulation.getGreen(i), SHADE * simulation.getBlue(i));
+			gl.glPushMatrix();
+			gl.glTranslatef(ox, oy, oz);
+			gl.glDrawArrays(GL.GL_LINE_LOOP, paths.getFirst(i, level), paths.getCount(i, level));
+			gl.glPopMatrix();
+		}
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glColor3f(1.0f, 1.0f, 1.0f);
+		gl.glEnable(GL2.GL_LIGHTING);
+	}
+
+	/**
+	 * Deletes the buffer from the GPU, the paths are uploaded again by the next draw()
+	 * @param gl the openGL interface
+	 */
+	public void dispose(GL2 gl) {
+		if(!initialized) return;
+		gl.glDeleteBuffers(1, buffer, 0);
+		initialized = false;
+		uploadedVersion = -1;
+	}
+}
@@ -0,0 +1,151 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import com.jogamp.opengl.*;
+
+import solarModel.SphereMesh;
+
+/**
+ * Draws spheres from SphereMeshes uploaded once into a vertex buffer (VBO) and an index buffer (IBO).
+ * Every sphere is a unit mesh scaled to its radius, so drawing a sphere is a single glDrawElements call
+ * instead of generating its vertices in immediate mode every frame.
+ * Several meshes (levels of detail) can share the buffers: they are packed one after the other with
+ * their indices rebased, so switching level between spheres doesn't rebind anything.
+ * Usage per frame: begin(), then draw() for each sphere, then end().
+ */
+public class SphereRenderer {
+	private final SphereMesh[] meshes;
+	private final int[] indexCounts; // number of indices of each mesh
+	private final long[] indexOffsets; // byte offset of each mesh's first index in the index buffer
+	private final int[] buffers = new int[2]; // vertex buffer and index buffer names
+	private boolean uploaded;
+
+	/**
+	 * @param meshes the unit spheres to be drawn, one per level of detail (coarsest first)
+	 */
+	public SphereRenderer(SphereMesh... meshes) {
+		if(meshes.length == 0) throw new IllegalArgumentException("need at least one mesh");
+		this.meshes = meshes.clone();
+		this.indexCounts = new int[meshes.length];
+		this.indexOffsets = new long[meshes.length];
+		long offset = 0;
+		for(int level = 0; level < meshes.length; level++) {
+			indexCounts[level] = meshes[level].getIndexCount();
+			indexOffsets[level] = offset;
+			offset += (long) indexCounts[level] * Integer.BYTES;
+		}
+		this.uploaded = false;
+	}
+
+	/**
+	 * Uploads the meshes to the GPU. Must be called on the GL thread (from init)
+	 * @param gl the openGL interface
+	 */
+	public void init(GL2 gl) {
+		int vertexCount = 0, indexCount = 0;
+		for(SphereMesh mesh : meshes) {
+			vertexCount += mesh.getVertexCount();
+			indexCount += mesh.getIndexCount();
+		}
+		FloatBuffer vertices = ByteBuffer.allocateDirect(vertexCount * SphereMesh.STRIDE)
+				.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		IntBuffer indices = ByteBuffer.allocateDirect(indexCount * Integer.BYTES)
+				.order(ByteOrder.nativeOrder()).asIntBuffer();
+		int base = 0; // index of the first vertex of the current mesh
+		for(SphereMesh mesh : meshes) {
+			vertices.put(mesh.getVertices().duplicate());
+			IntBuffer meshIndices = mesh.getIndices().duplicate();
+			while(meshIndices.hasRemaining())
+				indices.put(base + meshIndices.get());
+			base += mesh.getVertexCount();
+		}
+		vertices.flip();
+		indices.flip();
+
+		gl.glGenBuffers(2, buffers, 0);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) vertexCount * SphereMesh.STRIDE, vertices, GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffers[1]);
+		gl.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, (long) indexCount * Integer.BYTES, indices, GL.GL_STATIC_DRAW);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+		uploaded = true;
+	}
+
+	/**
+	 * Binds the buffers and sets up the vertex arrays used by draw()
+	 * @param gl the openGL interface
+	 */
+	public void begin(GL2 gl) {
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffers[1]);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glEnableClientState(GL2.GL_NORMAL_ARRAY);
+		gl.glEnableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+		gl.glVertexPointer(3, GL.GL_FLOAT, SphereMesh.STRIDE, SphereMesh.POSITION_OFFSET);
+		gl.glNormalPointer(GL.GL_FLOAT, SphereMesh.STRIDE, SphereMesh.NORMAL_OFFSET);
+		gl.glTexCoordPointer(2, GL.GL_FLOAT, SphereMesh.STRIDE, SphereMesh.TEXTURE_OFFSET);
+	}
+
+	/**
+	 * Draws the finest sphere at the current modelview origin
+	 * @param gl the openGL interface
+	 * @param radius the radius of the sphere
+	 */
+	public void draw(GL2 gl, float radius) {
+		draw(gl, radius, meshes.length - 1);
+	}
+
+	/**
+	 * Draws the sphere of a level of detail at the current modelview origin
+	 * GL_RESCALE_NORMAL must be enabled so the scaled normals stay unit length for lighting
+	 * @param gl the openGL interface
+	 * @param radius the radius of the sphere
+	 * @param level index of the mesh to be drawn
+	 */
+	public void draw(GL2 gl, float radius, int level) {
+		gl.glPushMatrix();
+		gl.glScalef(radius, radius, radius);
+		gl.glDrawElements(GL.GL_TRIANGLES, indexCounts[level], GL.GL_UNSIGNED_INT, indexOffsets[level]);
+		gl.glPopMatrix();
+	}
+
+	/**
+	 * Disables the vertex arrays and unbinds the buffers
+	 * @param gl the openGL interface
+	 */
+	public void end(GL2 gl) {
+		gl.glDisableClientState(GL2.GL_TEXTURE_COORD_ARRAY);
+		gl.glDisableClientState(GL2.GL_NORMAL_ARRAY);
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Deletes the buffers from the GPU
+	 * @param gl the openGL interface
+	 */
+	public void dispose(GL2 gl) {
+		if(!uploaded) return;
+		gl.glDeleteBuffers(2, buffers, 0);
+		uploaded = false;
+	}
+
+	/**
+	 * @param level index of the mesh
+	 * @return the mesh drawn at that level
+	 */
+	public SphereMesh getMesh(int level) {
+		return meshes[level];
+	}
+
+	/**
+	 * @return the number of meshes (levels of detail)
+	 */
+	public int getLevelCount() {
+		return meshes.length;
+	}
+}
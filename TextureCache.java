@@ -0,0 +1,220 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.jogamp.opengl.*;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+
+/**
+ * Keeps decoded textures on disk so image files are only decoded the first time they are loaded.
+ * The first load decodes the image, builds its mipmaps on the CPU and writes every level to a raw cache file.
+ * Later loads map the cache file into memory and hand slices of the mapping to the GL upload as they are,
+ * with no decode and no copy.
+ * A cache file is named after the path of its image and remembers the image's size and modification time,
+ * so it is rebuilt when the image changes.
+ *
+ * Cache file layout (native byte order): a HEADER_BYTES header, then every mipmap level, largest first, tightly packed
+ * header: magic, version, image size (long), image modification time (long), width, height, internal format,
+ * pixel format, pixel type, flip vertically (0 or 1), number of levels
+ */
+public class TextureCache {
+	private static final int MAGIC = 0x53545843; // "STXC"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+
+	private final File directory; // where the cache files are kept
+	private final GLProfile profile; // profile the texture data is made for
+
+	/**
+	 * @param directory where the cache files are kept (created when needed)
+	 * @param profile profile of the GL context the textures will be uploaded to
+	 */
+	public TextureCache(File directory, GLProfile profile) {
+		this.directory = directory;
+		this.profile = profile;
+	}
+
+	/**
+	 * Loads an image from its cache file, or decodes it and writes its cache file. Safe to call from any thread
+	 * @param image the image file
+	 * @return the texture data, with its mipmaps
+	 * @throws IOException if the image can't be read
+	 */
+	public TextureData load(File image) throws IOException {
+		File cached = cacheFile(image);
+		TextureData data = null;
+		try {
+			data = map(cached, image);
+		} catch (IOException e) {
+			data = null; // a broken cache file is rebuilt below
+		}
+		if(data != null) return data;
+
+		data = TextureIO.newTextureData(profile, image, false, null);
+		ByteBuffer[] levels = buildMipmaps(data);
+		if(levels == null) return data; // not a format the cache handles, upload it as decoded
+		try {
+			write(cached, image, data, levels);
+		} catch (IOException e) {
+			e.printStackTrace(); // the texture can still be used, it will be decoded again next time
+		}
+		return new TextureData(profile, data.getInternalFormat(), data.getWidth(), data.getHeight(), 0,
+				data.getPixelFormat(), GL.GL_UNSIGNED_BYTE, false, data.getMustFlipVertically(), levels, null);
+	}
+
+	/**
+	 * @return the cache file of an image, named after its absolute path
+	 */
+	private File cacheFile(File image) {
+		String path = image.getAbsolutePath();
+		String name = image.getName().replaceAll("[^A-Za-z0-9_.-]", "_");
+		return new File(directory, name + "-" + Integer.toHexString(path.hashCode()) + ".tex");
+	}
+
+	/**
+	 * Maps a cache file and slices it into mipmap levels
+	 * @return the texture data, or null if there is no cache file or it is out of date
+	 */
+	private TextureData map(File cached, File image) throws IOException {
+		if(!cached.isFile()) return null;
+		try(FileChannel channel = FileChannel.open(cached.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_BYTES) return null;
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after closing the channel
+			mapped.order(ByteOrder.nativeOrder());
+			if(mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION
+					|| mapped.getLong(8) != image.length() || mapped.getLong(16) != image.lastModified())
+				return null;
+			int width = mapped.getInt(24), height = mapped.getInt(28),
+					internalFormat = mapped.getInt(32), pixelFormat = mapped.getInt(36), pixelType = mapped.getInt(40);
+			boolean flip = mapped.getInt(44) != 0;
+			int levelCount = mapped.getInt(48), bytesPerPixel = bytesPerPixel(pixelFormat);
+			if(bytesPerPixel == 0 || levelCount != levelCount(width, height)) return null;
+
+			ByteBuffer[] levels = new ByteBuffer[levelCount];
+			int position = HEADER_BYTES;
+			for(int level = 0, w = width, h = height; level < levelCount; level++, w = Math.max(1, w / 2), h = Math.max(1, h / 2)) {
+				int bytes = w * h * bytesPerPixel;
+				if(position + bytes > mapped.capacity()) return null; // truncated
+				mapped.limit(position + bytes).position(position);
+				levels[level] = mapped.slice();
+				mapped.clear();
+				position += bytes;
+			}
+			return new TextureData(profile, internalFormat, width, height, 0, pixelFormat, pixelType, false, flip, levels, null);
+		}
+	}
+
+	/**
+	 * Writes a cache file. The file is written under a temporary name and moved into place,
+	 * so a cache file is never seen half written
+	 */
+	private void write(File cached, File image, TextureData data, ByteBuffer[] levels) throws IOException {
+		Files.createDirectories(directory.toPath());
+		Path temporary = Files.createTempFile(directory.toPath(), cached.getName(), ".part");
+		try {
+			try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+				header.putInt(MAGIC).putInt(VERSION).putLong(image.length()).putLong(image.lastModified())
+						.putInt(data.getWidth()).putInt(data.getHeight()).putInt(data.getInternalFormat())
+						.putInt(data.getPixelFormat()).putInt(GL.GL_UNSIGNED_BYTE)
+						.putInt(data.getMustFlipVertically() ? 1 : 0).putInt(levels.length);
+				header.clear();
+				channel.write(header);
+				for(ByteBuffer level : levels) {
+					ByteBuffer bytes = level.duplicate();
+					while(bytes.hasRemaining()) channel.write(bytes);
+				}
+			}
+			Files.move(temporary, cached.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Builds the full mipmap chain of decoded texture data by averaging 2x2 blocks of each level
+	 * @return every level down to 1x1, tightly packed, or null if the data isn't uncompressed unsigned bytes
+	 */
+	private static ByteBuffer[] buildMipmaps(TextureData data) {
+		int bytesPerPixel = bytesPerPixel(data.getPixelFormat());
+		if(bytesPerPixel == 0 || data.getPixelType() != GL.GL_UNSIGNED_BYTE || data.isDataCompressed()
+				|| !(data.getBuffer() instanceof ByteBuffer))
+			return null;
+
+		int width = data.getWidth(), height = data.getHeight();
+		ByteBuffer[] levels = new ByteBuffer[levelCount(width, height)];
+
+		//copy level 0 without the row padding of the decoded data
+		ByteBuffer source = ((ByteBuffer) data.getBuffer()).duplicate();
+		int alignment = Math.max(1, data.getAlignment()),
+				rowBytes = width * bytesPerPixel,
+				sourceRowBytes = data.getRowLength() > 0 ? data.getRowLength() * bytesPerPixel : (rowBytes + alignment - 1) / alignment * alignment;
+		int start = source.position();
+		levels[0] = ByteBuffer.allocateDirect(rowBytes * height);
+		for(int row = 0; row < height; row++) {
+			source.limit(start + row * sourceRowBytes + rowBytes).position(start + row * sourceRowBytes);
+			levels[0].put(source);
+		}
+		levels[0].flip();
+
+		for(int level = 1; level < levels.length; level++) {
+			ByteBuffer above = levels[level - 1];
+			int w = Math.max(1, width / 2), h = Math.max(1, height / 2);
+			ByteBuffer below = ByteBuffer.allocateDirect(w * h * bytesPerPixel);
+			for(int y = 0; y < h; y++) {
+				int y0 = Math.min(2 * y, height - 1), y1 = Math.min(2 * y + 1, height - 1);
+				for(int x = 0; x < w; x++) {
+					int x0 = Math.min(2 * x, width - 1), x1 = Math.min(2 * x + 1, width - 1);
+					for(int c = 0; c < bytesPerPixel; c++) {
+						int sum = (above.get((y0 * width + x0) * bytesPerPixel + c) & 0xff)
+								+ (above.get((y0 * width + x1) * bytesPerPixel + c) & 0xff)
+								+ (above.get((y1 * width + x0) * bytesPerPixel + c) & 0xff)
+								+ (above.get((y1 * width + x1) * bytesPerPixel + c) & 0xff);
+						below.put((byte) ((sum + 2) >> 2));
+					}
+				}
+			}
+			below.flip();
+			levels[level] = below;
+			width = w;
+			height = h;
+		}
+		return levels;
+	}
+
+	/**
+	 * @return the number of mipmap levels down to 1x1
+	 */
+	private static int levelCount(int width, int height) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(1, Math.max(width, height)));
+	}
+
+	/**
+	 * @return the bytes per pixel of an unsigned byte pixel format, or 0 if the cache doesn't handle the format
+	 */
+	private static int bytesPerPixel(int pixelFormat) {
+		switch(pixelFormat) {
+		case GL.GL_RGBA:
+		case GL.GL_BGRA:
+			return 4;
+		case GL.GL_RGB:
+		case GL2GL3.GL_BGR:
+			return 3;
+		case GL.GL_LUMINANCE_ALPHA:
+			return 2;
+		case GL.GL_LUMINANCE:
+		case GL.GL_ALPHA:
+			return 1;
+		default:
+			return 0;
+		}
+	}
+}
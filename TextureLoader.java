@@ -0,0 +1,159 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.jogamp.opengl.*;
+import com.jogamp.opengl.util.texture.Texture;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+
+import solarModel.FrameTimings;
+
+/**
+ * Decodes texture files into TextureData on a pool of worker threads, so decoding can start before
+ * there is a GL context and the files are decoded in parallel instead of one after another on the GL thread.
+ * Only the upload of a decoded texture happens on the GL thread, the first time get() finds it ready.
+ * Until then get() returns null and the caller draws something in its place.
+ * With a TextureCache, files decoded on an earlier run are mapped from the cache instead of decoded.
+ */
+public class TextureLoader {
+	private final GLProfile profile; // profile the texture data is decoded for
+	private final TextureCache cache; // decoded textures from earlier runs, or null to always decode
+	private final ExecutorService decoders;
+	private final ArrayList<Future<Decoded>> decoding = new ArrayList<Future<Decoded>>(); // null once uploaded or failed
+	private final ArrayList<Texture> textures = new ArrayList<Texture>(); // null until uploaded
+	private final HashMap<String, Integer> slots = new HashMap<String, Integer>(); // slot of each file queued, so a file shared by many bodies is loaded once
+	private FrameTimings timings; // records decode and upload times, or null
+
+	/**
+	 * Starts the decoding threads
+	 * @param profile profile of the GL context the textures will be uploaded to
+	 * @param cache decoded textures from earlier runs, or null to always decode the files
+	 * @param threads number of files decoded at the same time
+	 */
+	public TextureLoader(GLProfile profile, TextureCache cache, int threads) {
+		this.profile = profile;
+		this.cache = cache;
+		this.decoders = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "texture-decoder");
+			thread.setDaemon(true); // don't keep the application alive for textures nobody will see
+			return thread;
+		});
+	}
+
+	/**
+	 * Queues a texture file to be decoded, unless it already is
+	 * @param fileName path of the image file
+	 * @return the slot to get the texture from
+	 */
+	public int load(String fileName) {
+		Integer slot = slots.get(fileName);
+		if(slot != null) return slot;
+		slots.put(fileName, textures.size());
+		File file = new File(fileName);
+		decoding.add(decoders.submit(() -> {
+			long start = System.nanoTime();
+			TextureData data = cache != null ? cache.load(file) : TextureIO.newTextureData(profile, file, true, null);
+			return new Decoded(data, System.nanoTime() - start);
+		}));
+		textures.add(null);
+		return textures.size() - 1;
+	}
+
+	/**
+	 * Gets a texture, uploading it if it has just finished decoding. Must be called on the GL thread
+	 * @param slot the slot returned by load()
+	 * @return the texture, or null if it isn't decoded yet or couldn't be loaded
+	 */
+	public Texture get(int slot) {
+		Texture texture = textures.get(slot);
+		if(texture != null) return texture;
+		Future<Decoded> future = decoding.get(slot);
+		if(future == null || !future.isDone()) return null;
+
+		decoding.set(slot, null);
+		try {
+			long start = timings != null ? timings.start() : 0;
+			Decoded decoded = future.get();
+			texture = TextureIO.newTexture(decoded.data);
+			decoded.data.flush(); // the pixels are on the GPU now
+			textures.set(slot, texture);
+			if(timings != null) {
+				timings.record(FrameTimings.TEXTURE_DECODE, decoded.nanos);
+				timings.lap(FrameTimings.TEXTURE_UPLOAD, start);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Same as before: report the texture that couldn't be read and keep drawing without it
+			if(e.getCause() instanceof IOException) e.getCause().printStackTrace();
+			else e.printStackTrace();
+		}
+		return texture;
+	}
+
+	/**
+	 * Waits until every texture queued has been decoded (or failed), so the next frame uploads and draws them all
+	 * (e.g. before rendering frames that shouldn't show bodies in their colour)
+	 */
+	public void awaitDecoded() {
+		for(Future<Decoded> future : decoding) {
+			if(future == null) continue;
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				// reported by get() when the texture would be uploaded
+			}
+		}
+	}
+
+	/**
+	 * Records how long each texture took to decode and to upload
+	 * @param timings the timings of the GL thread (get() records into them), or null for none
+	 */
+	public void setTimings(FrameTimings timings) {
+		this.timings = timings;
+	}
+
+	/**
+	 * @return the number of textures queued
+	 */
+	public int size() {
+		return textures.size();
+	}
+
+	/**
+	 * Deletes the uploaded textures and stops the decoding threads. Must be called on the GL thread
+	 * @param gl the openGL interface
+	 */
+	public void dispose(GL gl) {
+		decoders.shutdownNow();
+		for(int slot = 0; slot < textures.size(); slot++) {
+			Texture texture = textures.get(slot);
+			if(texture != null) texture.destroy(gl);
+			textures.set(slot, null);
+			decoding.set(slot, null);
+		}
+	}
+
+	/**
+	 * A decoded texture and how long decoding it took
+	 */
+	private static class Decoded {
+		final TextureData data;
+		final long nanos;
+
+		Decoded(TextureData data, long nanos) {
+			this.data = data;
+			this.nanos = nanos;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import com.jogamp.opengl.*;
+
+import solarModel.Simulation;
+import solarModel.Trails;
+
+/**
+ * Draws the Trails of the bodies as lines in each body's colour, from a vertex buffer laid out like the trails' buffer.
+ * The whole buffer is uploaded once; after that every frame uploads only the points appended since the last frame,
+ * with a glBufferSubData for each run of new points (one or two per body that moved, none for the others),
+ * so what a frame uploads depends on how far the bodies moved and not on how long the trails are.
+ * Every trail is then drawn with a single glMultiDrawArrays of line strips.
+ * Usage: draw() every frame with the modelview holding the camera's view, dispose() when the context goes away.
+ */
+public class TrailRenderer {
+	private static final float SHADE = 0.6f; // trails are drawn darker than their bodies
+
+	private final int[] buffers = new int[2]; // points, colours
+	private Trails trails; // trails in the buffers (null before the first draw)
+	private long[] uploaded; // points of each trail in the buffers
+	private FloatBuffer source; // view of the trails' points the uploads are read from (its position is where they start)
+	private IntBuffer firsts, counts; // the strips drawn
+	private boolean initialized;
+
+	/**
+	 * Uploads the new points of every trail and draws them
+	 * @param gl the openGL interface
+	 * @param trails the trails to be drawn
+	 * @param simulation the bodies the trails belong to (for their colours), at least as many as the trails
+	 */
+	public void draw(GL2 gl, Trails trails, Simulation simulation) {
+		if(trails != this.trails) allocate(gl, trails, simulation);
+		int strips = 0;
+		firsts.clear();
+		counts.clear();
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+		synchronized(trails) {
+			for(int i = 0; i < trails.getCount(); i++) {
+				long written = trails.getWritten(i);
+				if(written != uploaded[i]) upload(gl, i, written);
+				strips += trails.getStrips(i, firsts, counts);
+			}
+		}
+		firsts.flip();
+		counts.flip();
+		if(strips > 0) {
+			gl.glDisable(GL2.GL_LIGHTING);
+			gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+			gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+			gl.glVertexPointer(3, GL.GL_FLOAT, 0, 0);
+			gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[1]);
+			gl.glColorPointer(3, GL.GL_FLOAT, 0, 0);
+			gl.glMultiDrawArrays(GL.GL_LINE_STRIP, firsts, counts, strips);
+			gl.glDisableClientState(GL2.GL_COLOR_ARRAY);
+			gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+			gl.glColor3f(1.0f, 1.0f, 1.0f);
+			gl.glEnable(GL2.GL_LIGHTING);
+		}
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Uploads the points appended to a trail since its last upload (at most a ring of them)
+	 * @param body the index of the body
+	 * @param written the points appended to its trail so far
+	 */
+	private void upload(GL2 gl, int body, long written) {
+		int capacity = trails.getCapacity(), base = trails.getStride() * body;
+		long from = Math.max(uploaded[body], written - capacity);
+		int start = trails.slot(from), points = (int) (written - from);
+		if(start + points <= capacity) {
+			uploadPoints(gl, base + start, points);
+			if(start == 0) uploadPoints(gl, base + capacity, 1); // the point closing the ring was written with the first
+		}
+		else {
+			uploadPoints(gl, base + start, capacity - start + 1); // up to and including the point closing the ring
+			uploadPoints(gl, base, start + points - capacity);
+		}
+		uploaded[body] = written;
+	}
+
+	private void uploadPoints(GL2 gl, int first, int points) {
+		source.position(first * Trails.POINT_FLOATS);
+		gl.glBufferSubData(GL.GL_ARRAY_BUFFER, (long) first * Trails.POINT_FLOATS * Float.BYTES,
+				(long) points * Trails.POINT_FLOATS * Float.BYTES, source);
+	}
+
+	/**
+	 * Sizes the buffers for new trails: uploads all of their points and the colours of their bodies
+	 */
+	private void allocate(GL2 gl, Trails trails, Simulation simulation) {
+		if(!initialized) {
+			gl.glGenBuffers(buffers.length, buffers, 0);
+			initialized = true;
+		}
+		int count = trails.getCount(), stride = trails.getStride();
+		long bytes = (long) count * stride * Trails.POINT_FLOATS * Float.BYTES;
+		FloatBuffer colors = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		for(int i = 0; i < count; i++) {
+			float red = SHADE * simulation.getRed(i), green = SHADE * simulation.getGreen(i), blue = SHADE * simulation.getBlue(i);
+			for(int p = 0; p < stride; p++)
+				colors.put(red).put(green).put(blue);
+		}
+		colors.flip();
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[1]);
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, bytes, colors, GL.GL_STATIC_DRAW);
+
+		this.trails = trails;
+		this.uploaded = new long[count];
+		this.source = trails.getPoints().duplicate();
+		this.firsts = ByteBuffer.allocateDirect(2 * count * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+		this.counts = ByteBuffer.allocateDirect(2 * count * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+		synchronized(trails) {
+			source.position(0);
+			gl.glBufferData(GL.GL_ARRAY_BUFFER, bytes, source, GL.GL_DYNAMIC_DRAW);
+			for(int i = 0; i < count; i++)
+				uploaded[i] = trails.getWritten(i);
+		}
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Deletes the buffers from the GPU, the trails are uploaded again by the next draw()
+	 * @param gl the openGL interface
+	 */
+	public void dispose(GL2 gl) {
+		if(!initialized) return;
+		gl.glDeleteBuffers(buffers.length, buffers, 0);
+		initialized = false;
+		trails = null;
+	}
+}
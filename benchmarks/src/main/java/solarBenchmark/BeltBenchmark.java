@@ -0,0 +1,47 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.ParticleBelt;
+
+/**
+ * Moving every particle of an asteroid belt and packing the instance buffer uploaded for the instanced draw,
+ * as done once per frame while time runs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeltBenchmark {
+	@Param({"100000", "1000000"})
+	public int particles;
+
+	private ParticleBelt belt;
+	private float timeElapsed;
+
+	@Setup
+	public void setup() {
+		belt = ParticleBelt.mainBelt(particles, 109.3f);
+		timeElapsed = 0;
+	}
+
+	@Benchmark
+	public ParticleBelt update() {
+		belt.update(timeElapsed += 1);
+		return belt;
+	}
+}
@@ -0,0 +1,67 @@
+package solarBenchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import solarModel.Planet;
+import solarModel.PlanetEnum;
+import solarModel.Simulation;
+
+/**
+ * Builds the bodies used by the benchmarks: the sun and the eight planets (as in solarSystem.setPlanets())
+ * followed by extra bodies placed between the orbits of the planets.
+ */
+final class Bodies {
+	static final float SUN_MASS = 332946.0f; // relative to earth
+
+	private Bodies() {}
+
+	/**
+	 * @return the sun followed by the eight planets
+	 */
+	static ArrayList<Planet> planets() {
+		ArrayList<Planet> planets = new ArrayList<Planet>();
+		float[] color = {1.0f,0.55f,0.0f},
+				position = {0.0f, 0.0f, 0.0f};
+		Planet sun = new Planet(position, 109.3f, 0.0f, 0.0f, 0.8800f, color);
+		sun.setMass(SUN_MASS);
+		planets.add(sun);
+		for(PlanetEnum planetEnum : PlanetEnum.values())
+			planets.add(new Planet(position, planetEnum));
+		return planets;
+	}
+
+	/**
+	 * Creates a simulation of the solar system with extra bodies until it holds count bodies
+	 * @param count the number of bodies (at least 9)
+	 * @param extraMass the mass of each extra body (0 for test particles)
+	 * @return the simulation, updated once so every body is on its orbit
+	 */
+	static Simulation simulation(int count, float extraMass) {
+		ArrayList<Planet> planets = planets();
+		Simulation simulation = new Simulation(planets);
+		Random random = new Random(1);
+		while(simulation.getCount() < count) {
+			Planet p = planets.get(1 + random.nextInt(planets.size() - 1));
+			int index = simulation.addBody(p.getRadius(), p.getOffset() * (0.5f + random.nextFloat()), p.getOrbitRate(),
+					p.getRotateRate(), p.getRed(), p.getGreen(), p.getBlue());
+			simulation.setMass(index, extraMass);
+		}
+		simulation.update(random.nextInt(360));
+		return simulation;
+	}
+
+	/**
+	 * Puts every orbiting body of a simulation on an ellipse with random orbital elements,
+	 * keeping the size of its closed form orbit
+	 * @param simulation the simulation
+	 * @param maxEccentricity the largest eccentricity given to a body
+	 */
+	static void ellipses(Simulation simulation, float maxEccentricity) {
+		Random random = new Random(2);
+		for(int index = 1; index < simulation.getCount(); index++)
+			simulation.setOrbitalElements(index, 0.0f, maxEccentricity * random.nextFloat(), 10.0f * random.nextFloat(),
+					360.0f * random.nextFloat(), 360.0f * random.nextFloat(), 360.0f * random.nextFloat());
+		simulation.update(0);
+	}
+}
@@ -0,0 +1,89 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jogamp.opengl.math.Vec3f;
+
+import solarModel.Camera;
+import solarModel.PlanetEnum;
+import solarModel.Simulation;
+
+/**
+ * The camera paths run on key presses (rotateY, rotateX) and every frame in orbit mode (trackPlanet).
+ * Only trackPlanet looks among the bodies, so only it is run for each number of bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CameraBenchmark {
+	private Camera camera;
+	private float angle;
+	private final Vec3f result = new Vec3f();
+
+	/**
+	 * The bodies the tracked planet is found among
+	 */
+	@State(Scope.Benchmark)
+	public static class Scene {
+		@Param({"9", "1000", "100000", "1000000"})
+		public int bodies;
+
+		private Simulation simulation;
+
+		@Setup
+		public void setup() {
+			simulation = Bodies.simulation(bodies, 0.0f);
+		}
+	}
+
+	@Setup
+	public void setup() {
+		camera = new Camera();
+		angle = 0;
+	}
+
+	@Benchmark
+	public Vec3f rotateY() {
+		return Camera.rotateY(1, camera.getPosition(), camera.getFocalPoint(), result);
+	}
+
+	@Benchmark
+	public Vec3f rotateX() {
+		return Camera.rotateX(1, camera.getPosition(), camera.getFocalPoint(), result);
+	}
+
+	@Benchmark
+	public Camera rotateCamera() {
+		camera.rotateLeftRight(1);
+		camera.rotateUpDown(-1);
+		return camera;
+	}
+
+	/**
+	 * Same work as Jogl.trackPlanet(): find the tracked planet and orbit the camera around it
+	 */
+	@Benchmark
+	public Camera trackPlanet(Scene scene) {
+		Simulation simulation = scene.simulation;
+		int p = simulation.indexOf(PlanetEnum.NEPTUNE);
+		float pr = simulation.getRotation(p) + (angle += 1);
+		simulation.setRotation(p, pr);
+		camera.orbit(simulation.getX(p), simulation.getZ(p), pr, simulation.getRadius(p) + 0.5f);
+		return camera;
+	}
+}
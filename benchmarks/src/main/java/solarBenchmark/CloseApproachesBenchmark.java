@@ -0,0 +1,56 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.CloseApproaches;
+import solarModel.Simulation;
+
+/**
+ * What looking for close approaches adds to a tick: the bodies are moved by a tick (at the default rate of time and
+ * at a rate a hundred times faster, where the motion of each tick is much longer) and every pair coming close is found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CloseApproachesBenchmark {
+	@Param({"9", "10000", "1000000"})
+	public int bodies;
+
+	@Param({"1", "100"})
+	public float rateOfTime;
+
+	private Simulation simulation;
+	private CloseApproaches approaches;
+	private float time;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		simulation = Bodies.simulation(bodies, 0.0f);
+		Bodies.ellipses(simulation, 0.2f); // spread the extra bodies around their orbits
+		approaches = new CloseApproaches(0.01f, 0.01f); // the extra bodies are as large as planets, make them small ones
+		approaches.detect(simulation, time);
+	}
+
+	@Benchmark
+	public int tick() {
+		time += rateOfTime;
+		simulation.update(time);
+		return approaches.detect(simulation, time);
+	}
+}
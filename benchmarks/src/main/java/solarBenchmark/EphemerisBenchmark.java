@@ -0,0 +1,78 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.Ephemeris;
+import solarModel.Simulation;
+
+/**
+ * Positions read from a Chebyshev ephemeris, stepping through time and jumping around in it.
+ * Every segment used is fitted in setup, so only evaluation is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EphemerisBenchmark {
+	private static final int SEGMENTS = 16; // segments fitted in setup, the times measured stay inside them
+	private static final float JUMP = 7.3f * Ephemeris.DEFAULT_SPAN; // time skipped by a scrub, several segments
+
+	@Param({"9", "1000", "100000"})
+	public int bodies;
+
+	private Simulation simulation;
+	private Ephemeris ephemeris;
+	private float timeElapsed, window;
+
+	@Setup
+	public void setup() {
+		simulation = Bodies.simulation(bodies, 0.0f);
+		simulation.update(0);
+		ephemeris = new Ephemeris(new Simulation(simulation), 0);
+		simulation.setEphemeris(ephemeris);
+		window = SEGMENTS * Ephemeris.DEFAULT_SPAN;
+		for(float time = 0; time < window; time += Ephemeris.DEFAULT_SPAN / 2)
+			simulation.update(time);
+		timeElapsed = 0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		ephemeris.dispose();
+	}
+
+	/**
+	 * One tick forward, as run by the simulation thread
+	 */
+	@Benchmark
+	public Simulation update() {
+		timeElapsed = (timeElapsed + 1) % window;
+		simulation.update(timeElapsed);
+		return simulation;
+	}
+
+	/**
+	 * A jump several segments away, as when dragging through the timeline
+	 */
+	@Benchmark
+	public Simulation scrub() {
+		timeElapsed = (timeElapsed + JUMP) % window;
+		simulation.update(timeElapsed);
+		return simulation;
+	}
+}
@@ -0,0 +1,172 @@
+package solarBenchmark;
+
+import java.lang.management.ManagementFactory;
+
+import solarModel.Camera;
+import solarModel.CloseApproaches;
+import solarModel.CommandQueue;
+import solarModel.DirectForceSolver;
+import solarModel.FrameTimings;
+import solarModel.Frustum;
+import solarModel.GravityIntegrator;
+import solarModel.LevelOfDetail;
+import solarModel.PlanetEnum;
+import solarModel.Simulation;
+import solarModel.SimulationThread;
+import solarModel.SpatialGrid;
+import solarModel.Trails;
+
+/**
+ * Checks that the per-frame path allocates nothing once it is warmed up, on both of its threads.
+ * The simulation side is a SimulationThread ticking as fast as it can with trails, close approaches and the grid attached,
+ * as the program runs it. The render side runs the calls of Jogl.display() without a GL context: the command queue
+ * drain (with key presses offered as GlFrame offers them), SimulationThread.interpolate(), trackPlanet in free orbit,
+ * the frustum and level of detail selection of every body and the frame timings.
+ * Each side is measured by the bytes its thread allocated, with the ThreadMXBean.
+ * Exits with code 1 if any frame or tick in steady state allocated.
+ */
+public class FrameAllocationCheck {
+	private static final int BODIES = 10000;
+	private static final int WARMUP_FRAMES = 20000; // enough for the JIT to compile the frame path
+	private static final int MEASURED_FRAMES = 10000;
+	private static final int WARMUP_TICKS = 8000; // enough for the JIT to compile the tick and the buffers of close pairs to stop growing
+	private static final int MEASURED_TICKS = 2000;
+	private static final float VERTICAL_FOV = 45.0f; // as set up by Jogl
+	private static final int VIEWPORT_HEIGHT = 1000;
+	private static final int MOVE_IN_OUT = 0, TURN_LEFT_RIGHT = 1; // commands standing in for GlFrame's key presses
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private final SimulationThread simulationThread;
+	private final Simulation simulation; // the bodies as drawn, interpolated from the simulation thread
+	private final Camera camera = new Camera();
+	private final Frustum frustum = new Frustum();
+	private final LevelOfDetail levelOfDetail = new LevelOfDetail();
+	private final FrameTimings timings = new FrameTimings();
+	private final CommandQueue commands = new CommandQueue(256);
+	private final CommandQueue.Handler commandHandler = this::execute;
+	private final int tracked;
+	private int approaches; // close approaches reported by the simulation thread
+	private float sink; // keeps the draw loop reads from being removed
+
+	FrameAllocationCheck(boolean gravity) {
+		Simulation model = Bodies.simulation(BODIES, 0.0f);
+		Bodies.ellipses(model, 0.2f); // spread the extra bodies around their orbits, as CloseApproachesBenchmark does
+		if(gravity) {
+			GravityIntegrator integrator = new GravityIntegrator(model);
+			integrator.setForceSolver(new DirectForceSolver());
+			integrator.circularize();
+			model.setIntegrator(integrator, 0.0f);
+		}
+		simulation = new Simulation(model);
+		tracked = simulation.indexOf(PlanetEnum.EARTH);
+		frustum.setPerspective(VERTICAL_FOV, 1.0f, 0.1f, 1000.0f);
+
+		simulationThread = new SimulationThread(model, 0.0f, 0); // ticks as fast as it can
+		simulationThread.setTrails(new Trails(BODIES, 512, 0.5f));
+		CloseApproaches detector = new CloseApproaches(0.01f, 0.01f); // the extra bodies are as large as planets, make them small ones
+		detector.addListener((first, second, time, distance) -> approaches++);
+		simulationThread.setApproaches(detector);
+		simulationThread.setGrid(new SpatialGrid(1.0f), 0.5f); // as Jogl sets it up
+	}
+
+	/**
+	 * Executes a command taken from the queue, as Jogl.execute() does for the camera keys
+	 */
+	private void execute(int command, float value) {
+		switch(command) {
+			case MOVE_IN_OUT:
+				camera.moveInOut(value);
+				break;
+			case TURN_LEFT_RIGHT:
+				camera.rotateLeftRight(value);
+				break;
+		}
+	}
+
+	/**
+	 * One frame of Jogl.display() with the camera orbiting earth in free orbit
+	 */
+	private void frame() {
+		long frameStart = timings.start(), phase = frameStart;
+
+		//key presses sent by GlFrame, then the drain at the start of display()
+		commands.offer(MOVE_IN_OUT, 1.0f);
+		commands.offer(TURN_LEFT_RIGHT, -1.0f);
+		commands.drain(commandHandler);
+		phase = timings.lap(FrameTimings.COMMANDS, phase);
+
+		//calculatePlanetProperties()
+		simulationThread.interpolate(simulation, tracked);
+		phase = timings.lap(FrameTimings.SIMULATION, phase);
+
+		//trackPlanet()
+		float pr = simulation.getRotation(tracked) + Camera.MOVING_RIGHT;
+		simulation.setRotation(tracked, pr);
+		camera.orbit(simulation.getX(tracked), simulation.getY(tracked), simulation.getZ(tracked), pr, simulation.getRadius(tracked) + 0.5f);
+		phase = timings.lap(FrameTimings.TRACK_PLANET, phase);
+
+		//placeCamera()
+		frustum.setView(camera.getPosition(), camera.getFocalPoint(), camera.getUp());
+		phase = timings.lap(FrameTimings.PLACE_CAMERA, phase);
+
+		//the draw loop up to the GL calls: culling and selectLevel()
+		for(int index = 1; index < simulation.getCount(); index++) {
+			float x = simulation.getX(index), y = simulation.getY(index), z = simulation.getZ(index),
+					radius = 0.5f * simulation.getRadius(index);
+			if(!frustum.isVisible(x, y, z, radius)) continue;
+			float projectedRadius = LevelOfDetail.projectedRadius(radius, frustum.distance(x, y, z), VERTICAL_FOV, VIEWPORT_HEIGHT);
+			sink += levelOfDetail.select(index, projectedRadius) + simulation.getRotation(index);
+		}
+		phase = timings.lap(FrameTimings.DRAW_PLANETS, phase);
+		timings.endFrame(frameStart);
+	}
+
+	/**
+	 * Runs frames while the simulation thread ticks, until both are warmed up, then measures both sides
+	 * @return the bytes allocated by the measured frames and by the measured ticks, and the number of each
+	 */
+	private long[] measure() {
+		simulationThread.start();
+		long ticker = threadId("simulation"), renderer = Thread.currentThread().getId();
+		for(int i = 0; i < WARMUP_FRAMES || simulationThread.getTickCount() < WARMUP_TICKS; i++) frame();
+
+		long frameBefore = threads.getThreadAllocatedBytes(renderer), tickBefore = threads.getThreadAllocatedBytes(ticker),
+				firstTick = simulationThread.getTickCount();
+		long frames = 0;
+		while(frames < MEASURED_FRAMES || simulationThread.getTickCount() - firstTick < MEASURED_TICKS) {
+			frame();
+			frames++;
+		}
+		long frameBytes = threads.getThreadAllocatedBytes(renderer) - frameBefore,
+				tickBytes = threads.getThreadAllocatedBytes(ticker) - tickBefore,
+				ticks = simulationThread.getTickCount() - firstTick;
+		simulationThread.stop();
+		return new long[] {frameBytes, frames, tickBytes, ticks};
+	}
+
+	/**
+	 * @return the id of the live thread of the given name
+	 */
+	private static long threadId(String name) {
+		for(Thread thread : Thread.getAllStackTraces().keySet())
+			if(thread.getName().equals(name)) return thread.getId();
+		throw new IllegalStateException("no thread named " + name);
+	}
+
+	public static void main(String[] args) {
+		boolean failed = false;
+		for(boolean gravity : new boolean[] {false, true}) {
+			FrameAllocationCheck check = new FrameAllocationCheck(gravity);
+			long[] measured = check.measure();
+			String orbits = gravity ? "gravity" : "closed form";
+			failed |= measured[0] != 0 || measured[2] != 0;
+			System.out.printf("%s %s orbits, render side: %d bytes allocated in %d frames (%.2f bytes/frame) [%s]%n",
+					measured[0] == 0 ? "PASSED" : "FAILED", orbits, measured[0], measured[1],
+					(double) measured[0] / measured[1], check.sink);
+			System.out.printf("%s %s orbits, simulation side: %d bytes allocated in %d ticks (%.2f bytes/tick) [%d approaches]%n",
+					measured[2] == 0 ? "PASSED" : "FAILED", orbits, measured[2], measured[3],
+					(double) measured[2] / measured[3], check.approaches);
+		}
+		if(failed) System.exit(1);
+	}
+}
@@ -0,0 +1,59 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.BarnesHutSolver;
+import solarModel.DirectForceSolver;
+import solarModel.GravityIntegrator;
+import solarModel.Simulation;
+
+/**
+ * One step of the gravity integrator.
+ * With the direct solver the extra bodies are test particles around the sun and planets,
+ * with the Barnes-Hut solver they have mass and pull on each other like debris.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GravityBenchmark {
+	@Param({"9", "1000", "100000", "1000000"})
+	public int bodies;
+
+	@Param({"direct", "barneshut"})
+	public String solver;
+
+	private Simulation simulation;
+	private float timeElapsed;
+
+	@Setup
+	public void setup() {
+		boolean barnesHut = solver.equals("barneshut");
+		simulation = Bodies.simulation(bodies, barnesHut ? 1.0e-6f : 0.0f);
+		GravityIntegrator integrator = new GravityIntegrator(simulation);
+		integrator.setForceSolver(barnesHut ? new BarnesHutSolver() : new DirectForceSolver());
+		integrator.circularize();
+		timeElapsed = 0;
+		simulation.setIntegrator(integrator, timeElapsed);
+	}
+
+	@Benchmark
+	public Simulation step() {
+		simulation.update(timeElapsed += 1);
+		return simulation;
+	}
+}
@@ -0,0 +1,74 @@
+package solarBenchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.KeplerSolver;
+import solarModel.Simulation;
+
+/**
+ * One tick of the elliptical (Keplerian) orbits, and the batched Kepler equation solver on its own
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeplerBenchmark {
+	@Param({"9", "1000", "100000", "1000000"})
+	public int bodies;
+
+	@Param({"0.1", "0.6"})
+	public float eccentricity; // largest eccentricity of a body
+
+	private Simulation simulation;
+	private float[] meanAnomaly, eccentricAnomaly, eccentricities;
+	private float timeElapsed;
+
+	@Setup
+	public void setup() {
+		simulation = Bodies.simulation(bodies, 0.0f);
+		Bodies.ellipses(simulation, eccentricity);
+		Random random = new Random(3);
+		meanAnomaly = new float[bodies];
+		eccentricAnomaly = new float[bodies];
+		eccentricities = new float[bodies];
+		for(int i = 0; i < bodies; i++) {
+			meanAnomaly[i] = (float) (2 * Math.PI * random.nextFloat());
+			eccentricities[i] = eccentricity * random.nextFloat();
+		}
+		timeElapsed = 0;
+	}
+
+	/**
+	 * Every body placed on its ellipse, as run by the simulation thread every tick
+	 */
+	@Benchmark
+	public Simulation update() {
+		simulation.update(timeElapsed += 1);
+		return simulation;
+	}
+
+	/**
+	 * Kepler's equation for every body on one thread
+	 */
+	@Benchmark
+	public float[] solve() {
+		System.arraycopy(meanAnomaly, 0, eccentricAnomaly, 0, bodies);
+		KeplerSolver.solve(eccentricAnomaly, eccentricities, 0, bodies);
+		return eccentricAnomaly;
+	}
+}
@@ -0,0 +1,61 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.OrbitPaths;
+import solarModel.Simulation;
+
+/**
+ * What the paths of the orbits cost the frame once they are made: update() checking every body's orbit against its path.
+ * Making the paths happens on the worker threads, see the time printed by setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrbitPathsBenchmark {
+	@Param({"9", "1000", "10000"})
+	public int bodies;
+
+	private Simulation simulation;
+	private OrbitPaths paths;
+
+	@Setup(Level.Trial)
+	public void setup() throws InterruptedException {
+		simulation = Bodies.simulation(bodies, 0.0f);
+		paths = new OrbitPaths(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		long start = System.nanoTime();
+		paths.update(simulation);
+		while(paths.getPending() > 0) {
+			Thread.sleep(1);
+			paths.update(simulation);
+		}
+		System.out.printf("%n%d paths made in %.1f ms%n", bodies - 1, (System.nanoTime() - start) / 1.0e6);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		paths.dispose();
+	}
+
+	@Benchmark
+	public boolean unchanged() {
+		return paths.update(simulation);
+	}
+}
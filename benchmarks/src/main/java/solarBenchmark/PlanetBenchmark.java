@@ -0,0 +1,58 @@
+package solarBenchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import solarModel.Planet;
+import solarModel.PlanetEnum;
+import solarModel.Simulation;
+
+/**
+ * Creating planets from PlanetEnum (each reads the ratio tables at its enum's ordinal)
+ * and loading a list of planets into a simulation, which also names each body in the simulation's BodyRegistry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanetBenchmark {
+	@Param({"9", "1000", "100000", "1000000"})
+	public int bodies;
+
+	private ArrayList<Planet> planets;
+	private final float[] position = {0.0f, 0.0f, 0.0f};
+
+	@Setup
+	public void setup() {
+		planets = Bodies.planets();
+		PlanetEnum[] enums = PlanetEnum.values();
+		while(planets.size() < bodies)
+			planets.add(new Planet(position, enums[planets.size() % enums.length]));
+	}
+
+	@Benchmark
+	public void newPlanets(Blackhole blackhole) {
+		for(PlanetEnum planetEnum : PlanetEnum.values())
+			blackhole.consume(new Planet(position, planetEnum));
+	}
+
+	@Benchmark
+	public Simulation loadArtbook() {
+		return new Simulation(planets);
+	}
+}
@@ -0,0 +1,118 @@
+package solarBenchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and compares every score against a baseline file.
+ * The run fails (exit code 1) if a benchmark takes longer, or allocates more bytes per operation,
+ * than its baseline plus the tolerance, or if a benchmark has no baseline: the baseline is measured on the machine the
+ * gate runs on (it isn't committed, times from another machine mean nothing) and recorded with updateBaseline.
+ * System properties:
+ * baseline: the baseline file (default baseline.properties)
+ * tolerance: allowed slowdown as a fraction of the baseline (default 0.10)
+ * include: regular expression of the benchmarks to run (default every benchmark)
+ * updateBaseline: true to record this run as the baseline instead of comparing
+ */
+public class RegressionGate {
+	private static final String ALLOCATION = "gc.alloc.rate.norm"; // bytes allocated per operation
+	private static final double ALLOCATION_SLACK = 16; // bytes per operation ignored (JMH's own noise)
+
+	public static void main(String[] args) throws Exception {
+		File baselineFile = new File(System.getProperty("baseline", "baseline.properties"));
+		double tolerance = Double.parseDouble(System.getProperty("tolerance", "0.10"));
+		boolean update = Boolean.getBoolean("updateBaseline");
+
+		Options options = new OptionsBuilder()
+				.include(System.getProperty("include", "solarBenchmark\\..*Benchmark\\..*"))
+				.addProfiler(GCProfiler.class)
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+
+		Properties baseline = load(baselineFile);
+		int failures = 0, missing = 0;
+		for(RunResult result : results) {
+			String key = key(result);
+			double time = result.getPrimaryResult().getScore();
+			Result<?> allocation = result.getSecondaryResults().get(ALLOCATION);
+			double bytes = allocation == null ? 0 : allocation.getScore();
+
+			String baseTime = baseline.getProperty(key + ".time"),
+					baseBytes = baseline.getProperty(key + ".alloc");
+			if(update) {
+				baseline.setProperty(key + ".time", Double.toString(time));
+				baseline.setProperty(key + ".alloc", Double.toString(bytes));
+				System.out.printf("RECORDED %s: %.3f %s, %.1f B/op%n", key, time, result.getPrimaryResult().getScoreUnit(), bytes);
+				continue;
+			}
+			if(baseTime == null || baseBytes == null) {
+				missing++;
+				System.out.printf("MISSING %s: %.3f %s, %.1f B/op (no baseline)%n", key, time, result.getPrimaryResult().getScoreUnit(), bytes);
+				continue;
+			}
+			double maxTime = Double.parseDouble(baseTime) * (1 + tolerance),
+					maxBytes = Double.parseDouble(baseBytes) * (1 + tolerance) + ALLOCATION_SLACK;
+			boolean slower = time > maxTime,
+					allocates = bytes > maxBytes;
+			if(slower || allocates) failures++;
+			System.out.printf("%s %s: %.3f %s (limit %.3f), %.1f B/op (limit %.1f)%n",
+					slower || allocates ? "FAILED" : "PASSED", key,
+					time, result.getPrimaryResult().getScoreUnit(), maxTime, bytes, maxBytes);
+		}
+
+		if(update) {
+			store(baseline, baselineFile);
+			return;
+		}
+		if(missing > 0)
+			System.out.println(missing + " benchmark(s) have no baseline in " + baselineFile + ", record one with -DupdateBaseline=true");
+		if(failures > 0)
+			System.out.println(failures + " benchmark(s) regressed against " + baselineFile);
+		if(failures > 0 || missing > 0) System.exit(1);
+	}
+
+	/**
+	 * @return the name of the benchmark followed by its parameters, e.g. SimulationBenchmark.update[bodies=9]
+	 */
+	private static String key(RunResult result) {
+		String name = result.getParams().getBenchmark();
+		StringBuilder key = new StringBuilder(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1));
+		key.append('[');
+		String separator = "";
+		for(String param : new TreeSet<String>(result.getParams().getParamsKeys())) {
+			key.append(separator).append(param).append('=').append(result.getParams().getParam(param));
+			separator = ",";
+		}
+		return key.append(']').toString();
+	}
+
+	private static Properties load(File file) throws IOException {
+		Properties properties = new Properties();
+		if(file.exists()) {
+			try(InputStream in = new FileInputStream(file)) {
+				properties.load(in);
+			}
+		}
+		return properties;
+	}
+
+	private static void store(Properties properties, File file) throws IOException {
+		try(OutputStream out = new FileOutputStream(file)) {
+			properties.store(out, "Benchmark baseline: time per operation and bytes allocated per operation");
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package solarBenchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.Simulation;
+
+/**
+ * One tick of the closed form orbits with the ~290 known moons in the scene, as moons of the planets (depth 1)
+ * or in chains of satellites orbiting satellites, to show the cost of a tick doesn't grow with the depth of the tree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneGraphBenchmark {
+	private static final int MOONS = 290;
+
+	@Param({"1", "4", "16"})
+	public int depth; // moons in each chain, the first orbiting a planet and every other the one before it
+
+	private Simulation simulation;
+	private float timeElapsed;
+
+	@Setup
+	public void setup() {
+		simulation = Bodies.simulation(9, 0.0f);
+		Random random = new Random(4);
+		int parent = 0;
+		for(int m = 0; m < MOONS; m++) {
+			if(m % depth == 0) parent = 1 + random.nextInt(8); // a new chain, from a planet
+			int index = simulation.addBody(0.01f + 0.3f * random.nextFloat(), 0.1f + 5.0f * random.nextFloat(),
+					10.0f + 400.0f * random.nextFloat(), 1.0f, 0.6f, 0.6f, 0.6f);
+			simulation.setParent(index, parent);
+			parent = index;
+		}
+		simulation.update(0);
+		timeElapsed = 0;
+	}
+
+	/**
+	 * Every body moved and its world position worked out, as run by the simulation thread every tick
+	 */
+	@Benchmark
+	public Simulation update() {
+		simulation.update(timeElapsed += 1);
+		return simulation;
+	}
+
+	/**
+	 * The same tick with time paused: nothing moved, so no world position is worked out again
+	 */
+	@Benchmark
+	public Simulation paused() {
+		simulation.update(timeElapsed);
+		return simulation;
+	}
+}
@@ -0,0 +1,51 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.PlanetEnum;
+import solarModel.Simulation;
+
+/**
+ * One tick of the closed form orbits, as run by the simulation thread every tick
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+	@Param({"9", "1000", "100000", "1000000"})
+	public int bodies;
+
+	private Simulation simulation;
+	private float timeElapsed;
+
+	@Setup
+	public void setup() {
+		simulation = Bodies.simulation(bodies, 0.0f);
+		timeElapsed = 0;
+	}
+
+	/**
+	 * Same calls as a tick of the simulation thread, with earth's rotation held as in free orbit
+	 */
+	@Benchmark
+	public Simulation calculatePlanetProperties() {
+		simulation.holdRotation(simulation.indexOf(PlanetEnum.EARTH));
+		simulation.update(timeElapsed += 1);
+		return simulation;
+	}
+}
@@ -0,0 +1,99 @@
+package solarBenchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.Simulation;
+import solarModel.SpatialGrid;
+
+/**
+ * Finding the bodies near a point and under the mouse with the grid, against testing every body,
+ * and what keeping the grid up to date costs once the bodies have moved for a tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialGridBenchmark {
+	private static final int QUERIES = 64; // points and rays queried in turn
+	private static final float TOLERANCE = 0.002f; // a few pixels at the default viewport
+
+	@Param({"9", "10000", "1000000"})
+	public int bodies;
+
+	private Simulation simulation;
+	private SpatialGrid grid;
+	private final float[] points = new float[3 * QUERIES], rays = new float[6 * QUERIES];
+	private final int[] nearest = new int[10];
+	private float time;
+	private int query;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		simulation = Bodies.simulation(bodies, 0.0f);
+		grid = new SpatialGrid(1.0f);
+		grid.update(simulation, 0.5f);
+		//points near bodies, and rays from above the plane of the orbits towards bodies
+		Random random = new Random(3);
+		for(int q = 0; q < QUERIES; q++) {
+			int body = 1 + random.nextInt(bodies - 1);
+			float x = simulation.getX(body), y = simulation.getY(body), z = simulation.getZ(body);
+			points[3 * q] = x + random.nextFloat();
+			points[3 * q + 1] = y;
+			points[3 * q + 2] = z + random.nextFloat();
+			float ox = 0.5f * x, oy = 100.0f, oz = 0.5f * z, dx = x - ox, dy = y - oy, dz = z - oz,
+					length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+			rays[6 * q] = ox; rays[6 * q + 1] = oy; rays[6 * q + 2] = oz;
+			rays[6 * q + 3] = dx / length; rays[6 * q + 4] = dy / length; rays[6 * q + 5] = dz / length;
+		}
+	}
+
+	@Benchmark
+	public int update() {
+		time += 0.05f;
+		simulation.update(time);
+		return grid.update(simulation, 0.5f);
+	}
+
+	@Benchmark
+	public int nearest() {
+		int q = 3 * (query++ & (QUERIES - 1));
+		return grid.nearest(simulation, points[q], points[q + 1], points[q + 2], nearest);
+	}
+
+	@Benchmark
+	public int nearestScan() {
+		int q = 3 * (query++ & (QUERIES - 1)), best = -1;
+		float bestDistance = Float.POSITIVE_INFINITY;
+		for(int i = 0; i < simulation.getCount(); i++) {
+			float dx = simulation.getX(i) - points[q], dy = simulation.getY(i) - points[q + 1], dz = simulation.getZ(i) - points[q + 2],
+					distance = dx * dx + dy * dy + dz * dz;
+			if(distance < bestDistance) {
+				bestDistance = distance;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	@Benchmark
+	public int pick() {
+		int q = 6 * (query++ & (QUERIES - 1));
+		return grid.pick(simulation, rays[q], rays[q + 1], rays[q + 2], rays[q + 3], rays[q + 4], rays[q + 5], TOLERANCE, 0.5f);
+	}
+}
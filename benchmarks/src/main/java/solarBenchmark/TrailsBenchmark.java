@@ -0,0 +1,54 @@
+package solarBenchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solarModel.Simulation;
+import solarModel.Trails;
+
+/**
+ * Appending the bodies' positions to their trails after a tick, as the simulation thread does while the trails are shown.
+ * The cost is the same whether the rings are empty or full, and falls with the spacing as fewer bodies move far enough.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrailsBenchmark {
+	@Param({"9", "1000", "10000"})
+	public int bodies;
+
+	@Param({"0", "0.5"})
+	public float spacing;
+
+	private Simulation simulation;
+	private Trails trails;
+	private float timeElapsed;
+
+	@Setup
+	public void setup() {
+		simulation = Bodies.simulation(bodies, 0.0f);
+		trails = new Trails(bodies, 512, spacing);
+		timeElapsed = 0;
+	}
+
+	@Benchmark
+	public Trails append() {
+		simulation.update(timeElapsed += 1);
+		trails.append(simulation);
+		return trails;
+	}
+}
@@ -0,0 +1,232 @@
+package solarModel;
+
+import java.util.Arrays;
+
+/**
+ * Approximates the pull of distant groups of massive bodies by their total mass at their centre of mass (Barnes-Hut),
+ * so a force pass costs (bodies x log(massive bodies)) instead of (bodies x massive bodies).
+ * The massive bodies are inserted into an octree at the start of every force pass. The nodes live in flat arrays
+ * that are kept between passes, so rebuilding the tree every tick doesn't create garbage once the pool has grown.
+ * The opening angle theta trades accuracy for speed: a node is treated as one body when (node size / distance) < theta.
+ * 0 gives the exact sum, 0.5 is a common choice and 1 is fast but rough.
+ */
+public class BarnesHutSolver implements ForceSolver {
+	private static final int MAX_DEPTH = 32; // bodies closer than (tree size / 2^32) share a leaf
+	private static final int INITIAL_NODES = 64;
+	private static final float DEFAULT_THETA = 0.5f;
+
+	private float theta; // opening angle
+	private float theta2; // squared opening angle (compared against squared distances)
+
+	//node pool: every node is a cube, the children of node n are children[8 * n + octant] (-1 for none)
+	private int nodeCount;
+	private int[] children = new int[8 * INITIAL_NODES];
+	private boolean[] leaf = new boolean[INITIAL_NODES];
+	private float[] centerX = new float[INITIAL_NODES], centerY = new float[INITIAL_NODES], centerZ = new float[INITIAL_NODES];
+	private float[] half = new float[INITIAL_NODES]; // half the width of the cube
+	private int[] body = new int[INITIAL_NODES]; // the body held by a leaf with a single body (-1 otherwise)
+	private float[] mass = new float[INITIAL_NODES]; // total mass of the bodies in the node
+	// mass weighted sum of positions while the tree is built, centre of mass once it is finished
+	private float[] comX = new float[INITIAL_NODES], comY = new float[INITIAL_NODES], comZ = new float[INITIAL_NODES];
+
+	// traversal stack for each thread running accelerate()
+	private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[8 * (MAX_DEPTH + 2)]);
+
+	/**
+	 * Creates a solver with the default opening angle (0.5)
+	 */
+	public BarnesHutSolver() {
+		this(DEFAULT_THETA);
+	}
+
+	/**
+	 * Creates a solver with the given opening angle
+	 * @param theta the opening angle (0 is exact, larger is faster and less accurate)
+	 */
+	public BarnesHutSolver(float theta) {
+		setOpeningAngle(theta);
+	}
+
+	/**
+	 * Rebuilds the octree from the current positions of the massive bodies
+	 */
+	@Override
+	public void prepare(Simulation s) {
+		nodeCount = 0;
+
+		//find the cube holding every massive body
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE,
+				maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+		boolean hasMass = false;
+		for(int i = 0; i < s.count; i++) {
+			if(s.mass[i] <= 0) continue;
+			minX = Math.min(minX, s.x[i]); maxX = Math.max(maxX, s.x[i]);
+			minY = Math.min(minY, s.y[i]); maxY = Math.max(maxY, s.y[i]);
+			minZ = Math.min(minZ, s.z[i]); maxZ = Math.max(maxZ, s.z[i]);
+			hasMass = true;
+		}
+		if(!hasMass) return;
+		float size = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+		int root = newNode(0.5f * (minX + maxX), 0.5f * (minY + maxY), 0.5f * (minZ + maxZ),
+				0.5f * size * 1.001f + Float.MIN_NORMAL); // slightly larger so bodies on the boundary are inside
+
+		for(int i = 0; i < s.count; i++)
+			if(s.mass[i] > 0)
+				insert(root, i, s.x[i], s.y[i], s.z[i], s.mass[i]);
+
+		//turn the weighted sums into centres of mass
+		for(int n = 0; n < nodeCount; n++) {
+			comX[n] /= mass[n]; comY[n] /= mass[n]; comZ[n] /= mass[n];
+		}
+	}
+
+	/**
+	 * Adds a body to the tree, splitting leaves that already hold a body
+	 */
+	private void insert(int node, int index, float px, float py, float pz, float m) {
+		for(int depth = 0; ; depth++) {
+			if(leaf[node]) {
+				if(mass[node] == 0) {
+					//empty leaf
+					addMass(node, px, py, pz, m);
+					body[node] = index;
+					return;
+				}
+				if(depth >= MAX_DEPTH) {
+					//bodies too close to separate: the leaf holds their total
+					addMass(node, px, py, pz, m);
+					body[node] = -1;
+					return;
+				}
+				//split the leaf: its body moves down into a child and the node becomes internal
+				float oldMass = mass[node];
+				int child = newChild(node, octant(node, comX[node] / oldMass, comY[node] / oldMass, comZ[node] / oldMass));
+				mass[child] = oldMass;
+				comX[child] = comX[node]; comY[child] = comY[node]; comZ[child] = comZ[node];
+				body[child] = body[node];
+				leaf[node] = false;
+				body[node] = -1;
+			}
+			addMass(node, px, py, pz, m);
+			int octant = octant(node, px, py, pz),
+					child = children[8 * node + octant];
+			if(child < 0) {
+				child = newChild(node, octant);
+				addMass(child, px, py, pz, m);
+				body[child] = index;
+				return;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Adds a body's mass to a node's totals
+	 */
+	private void addMass(int node, float px, float py, float pz, float m) {
+		mass[node] += m;
+		comX[node] += m * px; comY[node] += m * py; comZ[node] += m * pz;
+	}
+
+	/**
+	 * @return the octant (0-7) of the node that holds the point
+	 */
+	private int octant(int node, float px, float py, float pz) {
+		return (px >= centerX[node] ? 1 : 0) | (py >= centerY[node] ? 2 : 0) | (pz >= centerZ[node] ? 4 : 0);
+	}
+
+	/**
+	 * Takes a node from the pool for one octant of the parent
+	 * @return the index of the child
+	 */
+	private int newChild(int parent, int octant) {
+		float quarter = 0.5f * half[parent];
+		int child = newNode(centerX[parent] + ((octant & 1) != 0 ? quarter : -quarter),
+				centerY[parent] + ((octant & 2) != 0 ? quarter : -quarter),
+				centerZ[parent] + ((octant & 4) != 0 ? quarter : -quarter),
+				quarter);
+		children[8 * parent + octant] = child;
+		return child;
+	}
+
+	/**
+	 * Takes an empty leaf from the pool, growing the pool if it is full
+	 * @return the index of the node
+	 */
+	private int newNode(float cx, float cy, float cz, float halfWidth) {
+		if(nodeCount == leaf.length) grow(2 * nodeCount);
+		int node = nodeCount++;
+		Arrays.fill(children, 8 * node, 8 * node + 8, -1);
+		leaf[node] = true;
+		centerX[node] = cx; centerY[node] = cy; centerZ[node] = cz;
+		half[node] = halfWidth;
+		body[node] = -1;
+		mass[node] = 0.0f;
+		comX[node] = 0.0f; comY[node] = 0.0f; comZ[node] = 0.0f;
+		return node;
+	}
+
+	/**
+	 * Resizes the node pool
+	 * @param capacity the new number of nodes
+	 */
+	private void grow(int capacity) {
+		children = Arrays.copyOf(children, 8 * capacity);
+		leaf = Arrays.copyOf(leaf, capacity);
+		centerX = Arrays.copyOf(centerX, capacity); centerY = Arrays.copyOf(centerY, capacity); centerZ = Arrays.copyOf(centerZ, capacity);
+		half = Arrays.copyOf(half, capacity);
+		body = Arrays.copyOf(body, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		comX = Arrays.copyOf(comX, capacity); comY = Arrays.copyOf(comY, capacity); comZ = Arrays.copyOf(comZ, capacity);
+	}
+
+	/**
+	 * Walks the tree from the root, using a node as a single body when it is far enough away and opening it otherwise.
+	 * The leaf holding the body itself is skipped: its rounded centre of mass would otherwise pull on the body.
+	 */
+	@Override
+	public void accelerate(Simulation s, int i, float gm, float softening) {
+		float xi = s.x[i], yi = s.y[i], zi = s.z[i],
+				axi = 0.0f, ayi = 0.0f, azi = 0.0f;
+		int[] stack = stacks.get();
+		int top = 0;
+		if(nodeCount > 0) stack[top++] = 0;
+		while(top > 0) {
+			int node = stack[--top];
+			if(body[node] == i) continue;
+			float dx = comX[node] - xi,
+					dy = comY[node] - yi,
+					dz = comZ[node] - zi,
+					r2 = dx * dx + dy * dy + dz * dz,
+					size = 2.0f * half[node];
+			if(leaf[node] || size * size < theta2 * r2) {
+				r2 += softening;
+				float f = mass[node] / (r2 * (float) Math.sqrt(r2));
+				axi += f * dx; ayi += f * dy; azi += f * dz;
+			}
+			else {
+				for(int octant = 0; octant < 8; octant++) {
+					int child = children[8 * node + octant];
+					if(child >= 0) stack[top++] = child;
+				}
+			}
+		}
+		s.ax[i] = gm * axi; s.ay[i] = gm * ayi; s.az[i] = gm * azi;
+	}
+
+	/*
+	Setters and getters for the accuracy of the solver
+	 */
+
+	public float getOpeningAngle() {
+		return theta;
+	}
+	public void setOpeningAngle(float theta) {
+		if(theta < 0) throw new IllegalArgumentException("opening angle must not be negative: " + theta);
+		this.theta = theta;
+		this.theta2 = theta * theta;
+	}
+	public int getNodeCount() {
+		return nodeCount;
+	}
+}
@@ -0,0 +1,241 @@
+package solarModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A body catalog of fixed size records, mapped from disk when opened and read on demand.
+ * Opening only reads the header and the texture names, so a catalog of millions of bodies opens in milliseconds
+ * and a row costs nothing until one of its values is read.
+ *
+ * File layout (big endian):
+ * header (HEADER_BYTES): magic, version, number of rows, offset of the texture table (long)
+ * rows (RECORD_BYTES each): name (NAME_BYTES, UTF-8, zero padded), radius, offset, orbitRate, rotateRate,
+ * red, green, blue, mass (floats), texture (index into the texture table, -1 for none),
+ * planet (PlanetEnum ordinal, -1 for none), semiMajorAxis, eccentricity, inclination, node, periapsis,
+ * meanAnomaly (floats), flags (bit 0 set if the orbital elements are used), parent (row the body orbits, -1 for the primary)
+ * texture table: number of textures, then each texture path as a short length and UTF-8 bytes
+ *
+ * A single mapping holds at most 2GB, about 33 million rows.
+ * Catalogs of version 2 (without parents) are still read, every body in them orbits the primary.
+ * So are catalogs of version 1 (rows of RECORD_BYTES_WITHOUT_ELEMENTS bytes that end after the planet, without orbital
+ * elements or parents), every body in them moves on the circle of its offset around the primary.
+ */
+public class BinaryCatalog implements BodyCatalog {
+	static final int MAGIC = 0x53434154; // "SCAT"
+	private static final int VERSION = 3;
+	private static final int VERSION_WITHOUT_PARENTS = 2;
+	private static final int VERSION_WITHOUT_ELEMENTS = 1;
+	private static final int HEADER_BYTES = 32;
+	private static final int NAME_BYTES = 16;
+	private static final int RECORD_BYTES = 96;
+	private static final int RECORD_BYTES_WITHOUT_ELEMENTS = 64; // rows of version 1
+	// byte offset of each field in a record
+	private static final int RADIUS = NAME_BYTES, OFFSET = RADIUS + 4, ORBIT_RATE = OFFSET + 4, ROTATE_RATE = ORBIT_RATE + 4,
+			RED = ROTATE_RATE + 4, GREEN = RED + 4, BLUE = GREEN + 4, MASS = BLUE + 4, TEXTURE = MASS + 4, PLANET = TEXTURE + 4,
+			SEMI_MAJOR_AXIS = PLANET + 4, ECCENTRICITY = SEMI_MAJOR_AXIS + 4, INCLINATION = ECCENTRICITY + 4, NODE = INCLINATION + 4,
+			PERIAPSIS = NODE + 4, MEAN_ANOMALY = PERIAPSIS + 4, FLAGS = MEAN_ANOMALY + 4, PARENT = FLAGS + 4;
+	private static final int HAS_ELEMENTS = 1; // flag set if the orbital elements are used
+
+	private final ByteBuffer records; // the rows, record i starts at i * recordBytes
+	private final int recordBytes; // RECORD_BYTES, or RECORD_BYTES_WITHOUT_ELEMENTS for a catalog of version 1
+	private final int count;
+	private final boolean hasElements; // false for a catalog of version 1
+	private final boolean hasParents; // false for a catalog of version 1 or 2
+	private final String[] textures; // texture table
+
+	/**
+	 * Maps a binary catalog
+	 * @param file the catalog file
+	 * @throws IOException if the file can't be read or isn't a binary catalog
+	 */
+	public BinaryCatalog(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+				throw new IOException(file + ": not a binary catalog (" + channel.size() + " bytes)");
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after closing the channel
+			int version = mapped.getInt(4);
+			if(mapped.getInt(0) != MAGIC || version < VERSION_WITHOUT_ELEMENTS || version > VERSION)
+				throw new IOException(file + ": not a binary catalog of version " + VERSION_WITHOUT_ELEMENTS + " to " + VERSION);
+			this.hasParents = version > VERSION_WITHOUT_PARENTS;
+			this.hasElements = version > VERSION_WITHOUT_ELEMENTS;
+			this.recordBytes = hasElements ? RECORD_BYTES : RECORD_BYTES_WITHOUT_ELEMENTS;
+			this.count = mapped.getInt(8);
+			long textureTable = mapped.getLong(12);
+			if(count < 0 || HEADER_BYTES + (long) count * recordBytes > textureTable || textureTable > mapped.capacity())
+				throw new IOException(file + ": truncated catalog");
+
+			mapped.limit(HEADER_BYTES + count * recordBytes).position(HEADER_BYTES);
+			this.records = mapped.slice();
+
+			mapped.clear().position((int) textureTable);
+			this.textures = new String[mapped.getInt()];
+			for(int t = 0; t < textures.length; t++) {
+				byte[] bytes = new byte[mapped.getShort() & 0xffff];
+				mapped.get(bytes);
+				textures[t] = new String(bytes, StandardCharsets.UTF_8);
+			}
+		}
+	}
+
+	/**
+	 * Writes a catalog in binary form, e.g. to convert a text catalog
+	 * @param catalog the catalog to be written
+	 * @param file the binary file
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(BodyCatalog catalog, File file) throws IOException {
+		ArrayList<String> textures = new ArrayList<String>();
+		HashMap<String, Integer> textureIndices = new HashMap<String, Integer>();
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			long textureTable = HEADER_BYTES + (long) catalog.size() * RECORD_BYTES;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(catalog.size()).putLong(textureTable);
+			header.clear();
+			channel.write(header);
+
+			ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES * 1024); // rows are written in batches
+			for(int i = 0; i < catalog.size(); i++) {
+				byte[] name = catalog.getName(i).getBytes(StandardCharsets.UTF_8);
+				int start = record.position();
+				record.put(name, 0, Math.min(name.length, NAME_BYTES));
+				record.position(start + NAME_BYTES);
+				record.putFloat(catalog.getRadius(i)).putFloat(catalog.getOffset(i))
+						.putFloat(catalog.getOrbitRate(i)).putFloat(catalog.getRotateRate(i))
+						.putFloat(catalog.getRed(i)).putFloat(catalog.getGreen(i)).putFloat(catalog.getBlue(i))
+						.putFloat(catalog.getMass(i));
+				String texture = catalog.getTexture(i);
+				if(texture != null && !textureIndices.containsKey(texture)) {
+					textureIndices.put(texture, textures.size());
+					textures.add(texture);
+				}
+				PlanetEnum planetEnum = catalog.getEnum(i);
+				record.putInt(texture == null ? -1 : textureIndices.get(texture));
+				record.putInt(planetEnum == null ? -1 : planetEnum.ordinal());
+				record.putFloat(catalog.getSemiMajorAxis(i)).putFloat(catalog.getEccentricity(i))
+						.putFloat(catalog.getInclination(i)).putFloat(catalog.getNode(i))
+						.putFloat(catalog.getPeriapsis(i)).putFloat(catalog.getMeanAnomaly(i));
+				record.putInt(catalog.hasOrbitalElements(i) ? HAS_ELEMENTS : 0);
+				record.putInt(catalog.getParent(i));
+				record.position(start + RECORD_BYTES);
+				if(!record.hasRemaining()) {
+					record.flip();
+					while(record.hasRemaining()) channel.write(record);
+					record.clear();
+				}
+			}
+			record.flip();
+			while(record.hasRemaining()) channel.write(record);
+
+			ByteBuffer table = ByteBuffer.allocate(Integer.BYTES);
+			table.putInt(textures.size()).flip();
+			channel.write(table);
+			for(String texture : textures) {
+				byte[] bytes = texture.getBytes(StandardCharsets.UTF_8);
+				table = ByteBuffer.allocate(Short.BYTES + bytes.length);
+				table.putShort((short) bytes.length).put(bytes).flip();
+				while(table.hasRemaining()) channel.write(table);
+			}
+		}
+	}
+
+	/*
+	Getters for each row of the catalog, read from the mapped record
+	 */
+
+	@Override
+	public int size() {
+		return count;
+	}
+	@Override
+	public String getName(int index) {
+		int start = index * recordBytes, length = 0;
+		while(length < NAME_BYTES && records.get(start + length) != 0) length++;
+		byte[] name = new byte[length];
+		for(int b = 0; b < length; b++) name[b] = records.get(start + b);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+	@Override
+	public PlanetEnum getEnum(int index) {
+		int ordinal = records.getInt(index * recordBytes + PLANET);
+		return ordinal < 0 ? null : PlanetEnum.values()[ordinal];
+	}
+	@Override
+	public float getRadius(int index) {
+		return records.getFloat(index * recordBytes + RADIUS);
+	}
+	@Override
+	public float getOffset(int index) {
+		return records.getFloat(index * recordBytes + OFFSET);
+	}
+	@Override
+	public float getOrbitRate(int index) {
+		return records.getFloat(index * recordBytes + ORBIT_RATE);
+	}
+	@Override
+	public float getRotateRate(int index) {
+		return records.getFloat(index * recordBytes + ROTATE_RATE);
+	}
+	@Override
+	public float getRed(int index) {
+		return records.getFloat(index * recordBytes + RED);
+	}
+	@Override
+	public float getGreen(int index) {
+		return records.getFloat(index * recordBytes + GREEN);
+	}
+	@Override
+	public float getBlue(int index) {
+		return records.getFloat(index * recordBytes + BLUE);
+	}
+	@Override
+	public float getMass(int index) {
+		return records.getFloat(index * recordBytes + MASS);
+	}
+	@Override
+	public String getTexture(int index) {
+		int texture = records.getInt(index * recordBytes + TEXTURE);
+		return texture < 0 ? null : textures[texture];
+	}
+	@Override
+	public boolean hasOrbitalElements(int index) {
+		return hasElements && (records.getInt(index * recordBytes + FLAGS) & HAS_ELEMENTS) != 0;
+	}
+	@Override
+	public int getParent(int index) {
+		return hasParents ? records.getInt(index * recordBytes + PARENT) : BodyCatalog.super.getParent(index);
+	}
+	@Override
+	public float getSemiMajorAxis(int index) {
+		return hasElements ? records.getFloat(index * recordBytes + SEMI_MAJOR_AXIS) : BodyCatalog.super.getSemiMajorAxis(index);
+	}
+	@Override
+	public float getEccentricity(int index) {
+		return hasElements ? records.getFloat(index * recordBytes + ECCENTRICITY) : BodyCatalog.super.getEccentricity(index);
+	}
+	@Override
+	public float getInclination(int index) {
+		return hasElements ? records.getFloat(index * recordBytes + INCLINATION) : BodyCatalog.super.getInclination(index);
+	}
+	@Override
+	public float getNode(int index) {
+		return hasElements ? records.getFloat(index * recordBytes + NODE) : BodyCatalog.super.getNode(index);
+	}
+	@Override
+	public float getPeriapsis(int index) {
+		return hasElements ? records.getFloat(index * recordBytes + PERIAPSIS) : BodyCatalog.super.getPeriapsis(index);
+	}
+	@Override
+	public float getMeanAnomaly(int index) {
+		return hasElements ? records.getFloat(index * recordBytes + MEAN_ANOMALY) : BodyCatalog.super.getMeanAnomaly(index);
+	}
+}
@@ -0,0 +1,117 @@
+package solarModel;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * A list of bodies read from a file, so the bodies of a scene can be changed without recompiling.
+ * Rows are read by index; the first row is the primary (the sun).
+ * Catalogs come in two forms with the same content:
+ * TextCatalog, a human-editable text file for small sets, and
+ * BinaryCatalog, fixed size records mapped from disk and read on demand, for catalogs of millions of bodies.
+ * Every value is relative to earth, as in Planet.
+ */
+public interface BodyCatalog {
+
+	/**
+	 * @return the number of bodies in the catalog
+	 */
+	int size();
+
+	/**
+	 * @param index the row
+	 * @return the name of the body
+	 */
+	String getName(int index);
+
+	/**
+	 * @param index the row
+	 * @return the planet the body is, or null if it isn't one of the planets
+	 */
+	PlanetEnum getEnum(int index);
+
+	float getRadius(int index);
+	float getOffset(int index);
+	float getOrbitRate(int index);
+	float getRotateRate(int index);
+	float getRed(int index);
+	float getGreen(int index);
+	float getBlue(int index);
+	float getMass(int index);
+
+	/**
+	 * @param index the row
+	 * @return the row of the body this body orbits (always a row above it), or -1 for the primary
+	 */
+	default int getParent(int index) {
+		return index == 0 ? -1 : 0;
+	}
+
+	/**
+	 * @param index the row
+	 * @return the path of the body's texture image (relative to the catalog file), or null for none
+	 */
+	String getTexture(int index);
+
+	/**
+	 * @param index the row
+	 * @return true if the body moves on an ellipse given by its orbital elements (see Simulation.setOrbitalElements),
+	 * false if it moves on the circle given by its offset
+	 */
+	default boolean hasOrbitalElements(int index) {
+		return false;
+	}
+
+	/*
+	Orbital elements of each row (only meaningful if hasOrbitalElements), angles in degrees
+	 */
+
+	default float getSemiMajorAxis(int index) {
+		return 0.0f;
+	}
+	default float getEccentricity(int index) {
+		return 0.0f;
+	}
+	default float getInclination(int index) {
+		return 0.0f;
+	}
+	default float getNode(int index) {
+		return 0.0f;
+	}
+	default float getPeriapsis(int index) {
+		return 0.0f;
+	}
+	default float getMeanAnomaly(int index) {
+		return 0.0f;
+	}
+
+	/**
+	 * Opens a catalog file in either form
+	 * @param file a text or binary catalog
+	 * @return the catalog
+	 * @throws IOException if the file can't be read or isn't a valid catalog
+	 */
+	static BodyCatalog open(File file) throws IOException {
+		int magic = 0;
+		if(file.length() >= Integer.BYTES) {
+			try(DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+				magic = in.readInt();
+			}
+		}
+		return magic == BinaryCatalog.MAGIC ? new BinaryCatalog(file) : new TextCatalog(file);
+	}
+
+	/**
+	 * Finds the planet with a name
+	 * @param name the name of a body
+	 * @return the planet whose enum name matches (ignoring case), or null
+	 */
+	static PlanetEnum planetEnum(String name) {
+		for(PlanetEnum planetEnum : PlanetEnum.values())
+			if(planetEnum.name().equalsIgnoreCase(name))
+				return planetEnum;
+		return null;
+	}
+}
@@ -0,0 +1,168 @@
+package solarModel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Names the bodies of a Simulation and says what each one is drawn with, so a body is found and drawn
+ * in constant time instead of by scanning the bodies or relying on the order they were added in.
+ *
+ * A body's id is the index it was added at: bodies are only ever added to the end of a simulation, so an id never
+ * changes or is reused, is the same in copies of the simulation and indexes every property array directly.
+ * Bodies are found by id, by name (a hash lookup) or by the planet they are (an array indexed by the enum's ordinal).
+ * Each body is bound to a texture (a slot of the TextureLoader, -1 for none) and a mesh: SPHERE for a lit sphere,
+ * LIGHT_SOURCE for the unlit sphere the light is placed at (the sun) or HIDDEN for a body drawn some other way.
+ */
+public class BodyRegistry {
+	public static final int HIDDEN = -1, SPHERE = 0, LIGHT_SOURCE = 1; // meshes a body is drawn with
+	private static final PlanetEnum[] PLANETS = PlanetEnum.values();
+
+	private int count;
+	private String[] names; // name of each body (null for none)
+	private PlanetEnum[] enums; // the enum of each body (null for bodies that are not planets)
+	private int[] textures; // texture slot of each body (-1 for none)
+	private int[] meshes; // mesh of each body
+	private final HashMap<String, Integer> byName = new HashMap<String, Integer>(); // lower case name to id
+	private final int[] byEnum = new int[PLANETS.length]; // id of each planet (-1 if it isn't a body)
+	private int lightSource = -1; // the first body drawn as the light source (-1 for none)
+
+	/**
+	 * @param capacity the number of bodies that can be registered before the arrays grow
+	 */
+	BodyRegistry(int capacity) {
+		this.names = new String[capacity];
+		this.enums = new PlanetEnum[capacity];
+		this.textures = new int[capacity];
+		this.meshes = new int[capacity];
+		Arrays.fill(byEnum, -1);
+	}
+
+	/**
+	 * Registers the next body, without a name or a texture. The first body is the light source, every other a sphere.
+	 * @return the id of the body
+	 */
+	int add() {
+		if(count == names.length) grow(Math.max(16, 2 * count));
+		int id = count++;
+		names[id] = null;
+		enums[id] = null;
+		textures[id] = -1;
+		meshes[id] = SPHERE;
+		if(id == 0) setMesh(id, LIGHT_SOURCE);
+		return id;
+	}
+
+	/**
+	 * Makes this registry hold the same bodies and bindings as another one
+	 * @param other the registry to be copied
+	 */
+	void copy(BodyRegistry other) {
+		if(other.count > names.length) grow(other.count);
+		System.arraycopy(other.names, 0, names, 0, other.count);
+		System.arraycopy(other.enums, 0, enums, 0, other.count);
+		System.arraycopy(other.textures, 0, textures, 0, other.count);
+		System.arraycopy(other.meshes, 0, meshes, 0, other.count);
+		byName.clear();
+		byName.putAll(other.byName);
+		System.arraycopy(other.byEnum, 0, byEnum, 0, byEnum.length);
+		count = other.count;
+		lightSource = other.lightSource;
+	}
+
+	private void grow(int capacity) {
+		names = Arrays.copyOf(names, capacity);
+		enums = Arrays.copyOf(enums, capacity);
+		textures = Arrays.copyOf(textures, capacity);
+		meshes = Arrays.copyOf(meshes, capacity);
+	}
+
+	/**
+	 * Names a body. A name already taken keeps finding the body that had it first.
+	 * @param id the id of the body
+	 * @param name the name (found in any case), or null for none
+	 */
+	public void setName(int id, String name) {
+		names[id] = name;
+		if(name != null) byName.putIfAbsent(name.toLowerCase(Locale.ROOT), id);
+	}
+
+	/**
+	 * Says which planet a body is. A planet already given keeps finding the body that was it first.
+	 * @param id the id of the body
+	 * @param planet the planet, or null if the body isn't one of the planets
+	 */
+	public void setEnum(int id, PlanetEnum planet) {
+		enums[id] = planet;
+		if(planet != null && byEnum[planet.ordinal()] < 0) byEnum[planet.ordinal()] = id;
+	}
+
+	/**
+	 * Binds a body to a texture
+	 * @param id the id of the body
+	 * @param texture the texture slot (see TextureLoader.load), or -1 to draw the body in its colour
+	 */
+	public void setTexture(int id, int texture) {
+		textures[id] = texture;
+	}
+
+	/**
+	 * Binds a body to a mesh
+	 * @param id the id of the body
+	 * @param mesh SPHERE, LIGHT_SOURCE or HIDDEN
+	 */
+	public void setMesh(int id, int mesh) {
+		meshes[id] = mesh;
+		if(mesh == LIGHT_SOURCE && (lightSource < 0 || id < lightSource)) lightSource = id;
+		else if(mesh != LIGHT_SOURCE && id == lightSource) {
+			lightSource = -1;
+			for(int i = 0; i < count; i++)
+				if(meshes[i] == LIGHT_SOURCE) { lightSource = i; break; }
+		}
+	}
+
+	/**
+	 * @param name the name of a body, in any case
+	 * @return the id of the first body with the name, or -1 if there is none
+	 */
+	public int indexOf(String name) {
+		if(name == null) return -1;
+		Integer id = byName.get(name.toLowerCase(Locale.ROOT));
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param planet the planet
+	 * @return the id of the first body that is the planet, or -1 if it is not in the simulation
+	 */
+	public int indexOf(PlanetEnum planet) {
+		return planet == null ? -1 : byEnum[planet.ordinal()];
+	}
+
+	/*
+	Getters for each body's name and bindings
+	 */
+
+	public int size() {
+		return count;
+	}
+	public String getName(int id) {
+		return names[id];
+	}
+	public PlanetEnum getEnum(int id) {
+		return enums[id];
+	}
+	public int getTexture(int id) {
+		return textures[id];
+	}
+	public int getMesh(int id) {
+		return meshes[id];
+	}
+
+	/**
+	 * @return the id of the body the light is placed at (the first bound to LIGHT_SOURCE), or -1 for none
+	 */
+	public int getLightSource() {
+		return lightSource;
+	}
+}
@@ -0,0 +1,262 @@
+package solarModel;
+
+import com.jogamp.opengl.math.Vec3f;
+
+/**
+ * Used to help manage the camera
+ * Based on an up, lookAt, and left vector
+ * Keeps track of it's position and focal point
+ * Is either in FREE mode (0) or ORBIT mode (1) around a planet
+ * The camera only does the vector math, it is placed in the scene by Jogl.placeCamera()
+ * The vectors are updated in place so moving the camera every frame doesn't allocate
+ */
+public class Camera {
+	public static final int FREE = 0, //viewing from a static or dynamic position
+					 ORBIT = 1; //camera is orbiting a planet
+
+	//For rotation direction
+	public static final int MOVING_LEFT = -1,
+			 		 MOVING_NONE = 0,
+					 MOVING_RIGHT = 1;
+
+	private int mode;	// Determines if camera is orbiting a planet, or is in free camera mode
+
+	private final Vec3f position, lookAtDirection, left, up;
+	private final Vec3f focalPoint;
+	private final Vec3f delta; // scratch vector for movements
+
+	public Camera() {
+		this.position = new Vec3f();
+		this.focalPoint = new Vec3f();
+		this.lookAtDirection = new Vec3f();
+		this.up = new Vec3f();
+		this.left = new Vec3f();
+		this.delta = new Vec3f();
+		setFixedMode();
+	}
+
+	/**
+	 * Sets default camera values:
+	 * position = <0,0,200>
+	 * focalPoint = <0,0,0>
+	 * lookAtDirection = <focalPoint - position>/N = <0,0,-1>
+	 * left = (<lookAtDirection> X <up>)/-N = <0,0,-1>
+	 * up = <0,1,0>
+	 */
+	public void setFixedMode() {
+		this.position.set(0,0,200);	// When user hits 0 on keyboard, camera is in there coordinates
+		this.focalPoint.set(0,0,0);	// camera looks at the center of the scene (the sun)
+
+		this.lookAtDirection.set(this.focalPoint).sub(this.position).normalize();
+
+		this.up.set(0,1,0);
+		this.left.cross(this.lookAtDirection, this.up).normalize().scale(-1);
+		this.mode = FREE;	// Free camera mode. mode = 1
+	}
+
+	/**
+	 * Moves the camera towards or away from it's focal point, moving the focal point with.
+	 * Does so by adding the unit lookAt vector * dz to the current camera position and focal point
+	 * @param dz The difference in the z position relative to the CAMERA COORDINATE SYSTEM
+	 */
+	public void moveInOut(float dz) {
+		Vec3f dv = this.delta.set(this.lookAtDirection).scale(dz);
+		this.position.add(dv);
+		this.focalPoint.add(dv);
+	}
+
+	/**
+	 * Moves the camera left or right on it's principle x axis by adding the unit left vector multiplied by the distance to be moved
+	 * @param dt the difference in the positions
+	 */
+	public void moveLeftRight(float dt) {
+		Vec3f dv = this.delta.set(this.left).scale(-dt);
+		this.position.add(dv);
+		this.focalPoint.add(dv);
+	}
+
+	/**
+	 * Rotates the camera on it's y axis
+	 * @param dt The angle of rotation
+	 */
+	public void rotateLeftRight(float dt) {
+		rotateY(dt, this.position, this.focalPoint, this.focalPoint);
+		this.lookAtDirection.set(this.focalPoint).sub(this.position).normalize();
+		//update left vector
+		this.left.cross(this.lookAtDirection, this.up).normalize().scale(-1);
+	}
+
+	/**
+	 * Rotates the camera on it's x axis
+	 * @param dt The angle of rotation
+	 */
+	public void rotateUpDown(float dt) {
+		rotateX(dt, this.position, this.focalPoint, this.focalPoint);
+		this.lookAtDirection.set(this.focalPoint).sub(this.position).normalize();
+		//update up vector
+		this.up.cross(this.lookAtDirection, this.left).normalize();
+	}
+
+	/**
+	 * Places the camera on a circle around a planet, looking at the planet.
+	 * Camera orientation is determined by the vector cp = <planet.position - camera.position>
+	 * @param px x position of the planet
+	 * @param pz z position of the planet
+	 * @param angle the angle (degrees) of the camera around the planet
+	 * @param distance the distance the camera needs to be to orbit the planet
+	 */
+	public void orbit(float px, float pz, float angle, float distance) {
+		orbit(px, 0.0f, pz, angle, distance);
+	}
+
+	/**
+	 * Places the camera on a horizontal circle around a planet that may be above or below the XZ plane
+	 * @param px x position of the planet
+	 * @param py y position of the planet
+	 * @param pz z position of the planet
+	 * @param angle the angle (degrees) of the camera around the planet
+	 * @param distance the distance the camera needs to be to orbit the planet
+	 */
+	public void orbit(float px, float py, float pz, float angle, float distance) {
+		//calculate camera position from planet position, rotation, and camera orbital radius
+		float cx = distance * (float) (Math.cos(Math.toRadians(-angle))) + px;
+		float cz = distance * (float) (Math.sin(Math.toRadians(-angle))) + pz;
+
+		//Update camera left, up, lookAt vectors and camera position and focal point
+		this.position.set(cx, py, cz);
+		this.focalPoint.set(px, py, pz);
+		this.up.set(0, 1, 0);
+
+		//lookAt is the unit vector from the camera position to the planet
+		this.lookAtDirection.set(px-cx, 0, pz-cz).normalize();
+		this.left.cross(this.lookAtDirection, this.up).normalize().scale(-1);
+	}
+
+	/**
+	 * Places the camera at a point looking at another, level with the XZ plane (e.g. along a camera path)
+	 * The camera can't look straight up or down
+	 * @param px x position of the camera
+	 * @param py y position of the camera
+	 * @param pz z position of the camera
+	 * @param fx x of the point looked at
+	 * @param fy y of the point looked at
+	 * @param fz z of the point looked at
+	 */
+	public void lookAt(float px, float py, float pz, float fx, float fy, float fz) {
+		this.position.set(px, py, pz);
+		this.focalPoint.set(fx, fy, fz);
+		this.lookAtDirection.set(fx-px, fy-py, fz-pz).normalize();
+
+		//left is level, up is perpendicular to both
+		this.up.set(0, 1, 0);
+		this.left.cross(this.lookAtDirection, this.up).normalize().scale(-1);
+		this.up.cross(this.lookAtDirection, this.left).normalize();
+	}
+
+	/**
+	 * Rotates the vector from headpoint -> tailPoint by angleDegrees about the y axis
+	 * If headPoint is null then the tailPoint is rotating about the origin
+	 * @param angleDegrees angle of rotation
+	 * @param headPoint The head of the vector
+	 * @param tailPoint The tail of the vector
+	 * @param result The vector the new tailPoint is written to (may be tailPoint)
+	 * @return result
+	 */
+	public static Vec3f rotateY(float angleDegrees, Vec3f headPoint, Vec3f tailPoint, Vec3f result) {
+		//check if we are rotating about the origin or an arbitrary headPoint
+		float dx = tailPoint.x() - (headPoint == null ? 0 : headPoint.x()),
+				dz = tailPoint.z() - (headPoint == null ? 0 : headPoint.z());
+		float angleRadians = (float) Math.toRadians(angleDegrees);
+
+		float newX = dx * (float) Math.cos(angleRadians) + dz * (float) Math.sin(angleRadians),
+				newY = tailPoint.y(),
+				newZ = -(dx) * (float) Math.sin(angleRadians) + dz * (float) Math.cos(angleRadians);
+		return result.set(newX, newY, newZ);
+	}
+
+	/**
+	 * Rotates the vector from headpoint -> tailPoint by angleDegrees about the x axis
+	 * If headPoint is null then the tailPoint is rotating about the origin
+	 * @param angleDegrees angle of rotation
+	 * @param headPoint The head of the vector
+	 * @param tailPoint The tail of the vector
+	 * @param result The vector the new tailPoint is written to (may be tailPoint)
+	 * @return result
+	 */
+	public static Vec3f rotateX(float angleDegrees, Vec3f headPoint, Vec3f tailPoint, Vec3f result) {
+		float dy = tailPoint.y() - (headPoint == null ? 0 : headPoint.y()),
+				dz = tailPoint.z() - (headPoint == null ? 0 : headPoint.z());
+		float angleRadians = (float) Math.toRadians(angleDegrees);
+
+		float newX = tailPoint.x(),
+				newY = dy * (float) Math.cos(angleRadians) - dz * (float) Math.sin(angleRadians),
+				newZ = dy * (float) Math.sin(angleRadians) + dz * (float) Math.cos(angleRadians);
+
+		return result.set(newX, newY, newZ);
+	}
+
+	/*
+	Series of setters and getters to provide encapsulation for camera properties
+	 */
+	public int getMode() {
+		return this.mode;
+	}
+
+	public void setMode(int mode) {
+		this.mode = mode;
+	}
+
+	public Vec3f getPosition() {
+		return this.position;
+	}
+
+	public Vec3f getFocalPoint() {
+		return this.focalPoint;
+	}
+
+	public Vec3f getLookAtDirection() {
+		return this.lookAtDirection;
+	}
+
+	public Vec3f getUp() {
+		return this.up;
+	}
+
+	public Vec3f getLeft() {
+		return this.left;
+	}
+
+	public void setPositionVector(float[] xyz) {
+		this.position.set(xyz);
+	}
+
+	public void setLookAtVector(float[] xyz) {
+		this.lookAtDirection.set(xyz);
+	}
+
+	public void setUpVector(float[] xyz) {
+		this.up.set(xyz);
+		this.up.normalize();
+	}
+
+	public void setLeftVector(float[] xyz) {
+		this.left.set(xyz);
+		this.left.normalize();
+	}
+
+	/**
+	 * toString method that displays camera properties
+	 * @return String of camera properties
+	 */
+	@Override
+	public String toString() {
+		String str = "";
+		str += "Position = " + position.toString() + "\n"
+				+ "Focal Point = " + focalPoint.toString() + "\n"
+				+ "lookAt Vector = " + lookAtDirection.toString() + "\n"
+				+ "left Vector = " + left.toString() + "\n"
+				+ "up Vector = " + up.toString();
+		return str;
+
+	}
+}
@@ -0,0 +1,109 @@
+package solarModel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A path for the camera through the scene, read from a human-editable text file.
+ * One keyframe per line, in order of time, fields separated by whitespace, everything after a '#' is a comment:
+ *
+ * time x y z focalX focalY focalZ
+ *
+ * At a keyframe's time the camera is at (x, y, z) looking at (focalX, focalY, focalZ). Between keyframes both points
+ * move in a straight line, before the first keyframe and after the last the camera stays where they put it.
+ */
+public class CameraPath {
+	private static final int FIELDS = 7;
+
+	private int count;
+	private float[] times = new float[16];
+	private float[] points = new float[16 * 6]; // position then focal point of each keyframe
+
+	/**
+	 * Reads a camera path
+	 * @param file the path file
+	 * @throws IOException if the file can't be read, a line is malformed, the keyframes are out of order or there are none
+	 */
+	public CameraPath(File file) throws IOException {
+		try(BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			int lineNumber = 0;
+			while((line = in.readLine()) != null) {
+				lineNumber++;
+				int comment = line.indexOf('#');
+				if(comment >= 0) line = line.substring(0, comment);
+				line = line.trim();
+				if(line.isEmpty()) continue;
+				String[] fields = line.split("\\s+");
+				if(fields.length != FIELDS)
+					throw new IOException(file + ":" + lineNumber + ": expected " + FIELDS + " fields, found " + fields.length);
+				float[] row = new float[FIELDS];
+				try {
+					for(int v = 0; v < FIELDS; v++)
+						row[v] = Float.parseFloat(fields[v]);
+				} catch (NumberFormatException e) {
+					throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+				}
+				if(count > 0 && row[0] < times[count - 1])
+					throw new IOException(file + ":" + lineNumber + ": keyframe before the one above it");
+				add(row);
+			}
+		}
+		if(count == 0) throw new IOException(file + ": no keyframes");
+	}
+
+	private void add(float[] row) {
+		if(count == times.length) {
+			times = Arrays.copyOf(times, 2 * count);
+			points = Arrays.copyOf(points, 2 * 6 * count);
+		}
+		times[count] = row[0];
+		System.arraycopy(row, 1, points, 6 * count, 6);
+		count++;
+	}
+
+	/**
+	 * Places the camera where the path has it at a time
+	 * @param camera the camera to be placed
+	 * @param time the simulation time
+	 */
+	public void place(Camera camera, float time) {
+		//the last keyframe at or before the time (the first if there is none)
+		int key = Arrays.binarySearch(times, 0, count, time);
+		if(key < 0) key = Math.max(0, -key - 2);
+		int next = Math.min(key + 1, count - 1);
+		float span = times[next] - times[key];
+		float t = span > 0 ? Math.max(0.0f, Math.min(1.0f, (time - times[key]) / span)) : 0.0f;
+		int a = 6 * key, b = 6 * next;
+		camera.lookAt(lerp(a, b, 0, t), lerp(a, b, 1, t), lerp(a, b, 2, t),
+				lerp(a, b, 3, t), lerp(a, b, 4, t), lerp(a, b, 5, t));
+	}
+
+	private float lerp(int a, int b, int field, float t) {
+		return points[a + field] + t * (points[b + field] - points[a + field]);
+	}
+
+	/**
+	 * @return the number of keyframes
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return the time of the first keyframe
+	 */
+	public float getStartTime() {
+		return times[0];
+	}
+
+	/**
+	 * @return the time of the last keyframe
+	 */
+	public float getEndTime() {
+		return times[count - 1];
+	}
+}
@@ -0,0 +1,427 @@
+package solarModel;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the pairs of bodies of a Simulation whose surfaces come within a distance of each other, e.g. to flag close
+ * approaches and collisions as a run goes on. The simulation thread calls detect() after every tick (see
+ * SimulationThread.setApproaches) and every listener is told of each pair that has come close since the last tick.
+ *
+ * Between two ticks each body is taken to move in a straight line, so the test is on the whole of the motion and not
+ * only on where the bodies end up: two fast bodies that pass through each other within a tick (e.g. at a high rate of
+ * time) are still found. Each body's motion in the tick, grown by its radius and half the distance, is boxed.
+ * The boxes are sorted into a hierarchy of grids (each level's cells twice as wide as the last) at the level
+ * whose cells are at least as wide as the box, and hashed by cell. A body is then only tested against the bodies
+ * of the few cells around its box at its own level and above, so the cost grows with the number of bodies and not
+ * with the number of pairs, and a few fast bodies with large boxes don't make the cells of every other body larger.
+ * A level holding only a few bodies (e.g. the sun, far larger than anything else) is tested body by body instead.
+ *
+ * Working out the boxes and testing the pairs are split into chunks of bodies run in parallel on a fork-join pool
+ * (hashing the bodies by cell is a counting sort in between, on the calling thread). The chunks and their arrays are
+ * reused, so once the pairs found stop growing a tick allocates nothing but the sort of the pairs found.
+ */
+public class CloseApproaches {
+	private static final int CHUNKS_PER_THREAD = 4; // more chunks than threads so idle threads can steal work
+	private static final int MIN_CHUNK_SIZE = 4096; // smallest number of bodies worth a task
+	private static final int LEVELS = 24; // levels of the grid, each twice as wide as the last
+	private static final int COORDINATE_BITS = 19; // bits of each cell coordinate in a cell's key
+	private static final int COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+	private static final int BOX_FLOATS = 6; // lowest x, y, z then highest x, y, z of a box
+	private static final int SPARSE_LEVEL = 16; // bodies in a level few enough to be tested one by one instead of by cell
+
+	/**
+	 * Told of the bodies that came close, on the simulation thread between two ticks (so it should be quick)
+	 */
+	public interface Listener {
+		/**
+		 * Two bodies have come within the distance since the last tick
+		 * @param first the index of one body
+		 * @param second the index of the other body (greater than first)
+		 * @param time the simulation time at which they were nearest within the tick
+		 * @param distance the distance between their surfaces then (0 or less if they collided)
+		 */
+		void approached(int first, int second, float time, float distance);
+	}
+
+	private final float distance; // how close the surfaces of two bodies come to be flagged
+	private final float radiusScale; // what the radii are multiplied by to give the size of the bodies
+	private final ForkJoinPool pool;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private Simulation simulation; // the bodies of the tick being detected
+	private int count; // bodies detected (0 before the first tick)
+	private float time; // simulation time of the last tick
+	private float[] lastX = new float[0], lastY = new float[0], lastZ = new float[0]; // positions at the last tick
+	private long[] keys = new long[0]; // cell of each body's box, with its level
+	private byte[] levels = new byte[0]; // level of the grid each body is in
+	private int[] bucketStarts = new int[1]; // first of each bucket's bodies in order, and the end of the last
+	private int[] order = new int[0]; // bodies sorted by bucket
+	private long[] orderKeys = new long[0]; // cell of each body in order, read instead of keys to stay in the cache
+	private float[] boxes = new float[0], orderBoxes = new float[0]; // box of each body, and in order (BOX_FLOATS each)
+	private int occupied; // bit per level holding bodies
+	private int sparse; // bit per level holding no more than SPARSE_LEVEL bodies (e.g. the sun, or a few fast bodies)
+	private final int[] levelCounts = new int[LEVELS]; // bodies in each level
+	private final int[] sparseBodies = new int[LEVELS * SPARSE_LEVEL]; // bodies of each sparse level
+	private final float[] sparseBoxes = new float[LEVELS * SPARSE_LEVEL * BOX_FLOATS]; // and their boxes
+	private float baseCell = 1.0f; // width of the cells at level 0
+	private long[] active = new long[0], found = new long[0]; // pairs close at the last tick and this one (sorted)
+	private int activeCount;
+	private Chunk[] chunks = new Chunk[0];
+	private boolean boxing; // what the chunks are doing: boxing the bodies, or testing the pairs
+
+	/**
+	 * @param distance how close the surfaces of two bodies come to be flagged (0 for collisions only)
+	 * @param radiusScale what the radii are multiplied by to give the size of the bodies (as they are drawn)
+	 */
+	public CloseApproaches(float distance, float radiusScale) {
+		this(distance, radiusScale, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param distance how close the surfaces of two bodies come to be flagged (0 for collisions only)
+	 * @param radiusScale what the radii are multiplied by to give the size of the bodies
+	 * @param pool the pool the chunks of bodies are run on
+	 */
+	public CloseApproaches(float distance, float radiusScale, ForkJoinPool pool) {
+		if(distance < 0) throw new IllegalArgumentException("the distance can't be negative");
+		this.distance = distance;
+		this.radiusScale = radiusScale;
+		this.pool = pool;
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Forgets where the bodies were, so the next detect() starts from where they are then
+	 * (e.g. when the bodies are replaced or time jumps) and flags every pair close at that time
+	 */
+	public void reset() {
+		count = 0;
+		activeCount = 0;
+	}
+
+	/**
+	 * Finds the pairs that came close as the bodies moved from their positions at the last call to their positions now,
+	 * and tells the listeners of those that weren't already close at the last call
+	 * @param simulation the simulation, after a tick
+	 * @param time the simulation time of the tick
+	 * @return the number of pairs close during the tick (newly or not)
+	 */
+	public int detect(Simulation simulation, float time) {
+		this.simulation = simulation;
+		if(simulation.count != count) resize(simulation);
+		float lastTime = this.time;
+		this.time = time;
+
+		//box every body's motion and hash the boxes by cell
+		float smallest, largest;
+		boxing = true;
+		while(true) {
+			ParallelChunks.run(pool, chunks);
+			smallest = Float.POSITIVE_INFINITY;
+			largest = 0.0f;
+			occupied = 0;
+			Arrays.fill(levelCounts, 0);
+			for(Chunk chunk : chunks) {
+				smallest = Math.min(smallest, chunk.smallest);
+				largest = Math.max(largest, chunk.largest);
+				occupied |= chunk.occupied;
+				for(int l = 0; l < LEVELS; l++)
+					levelCounts[l] += chunk.levelCounts[l];
+			}
+			if(largest <= Math.scalb(baseCell, LEVELS - 1)) break;
+			baseCell = Math.scalb(largest, 1 - LEVELS); // a box too large for the top level (e.g. time jumped), widen every level
+		}
+		sort();
+
+		//test every body against the bodies in the cells around its box
+		boxing = false;
+		ParallelChunks.run(pool, chunks);
+		int pairs = 0;
+		for(Chunk chunk : chunks) pairs += chunk.pairs;
+		if(found.length < pairs) found = new long[Math.max(pairs, 2 * found.length)];
+		pairs = 0;
+		for(Chunk chunk : chunks) {
+			for(int p = 0; p < chunk.pairs; p++)
+				found[pairs + p] = (long) chunk.firsts[p] << 32 | chunk.seconds[p];
+			pairs += chunk.pairs;
+		}
+		Arrays.sort(found, 0, pairs);
+		if(!listeners.isEmpty()) announce(lastTime, time, pairs);
+
+		//the pairs close now are not flagged again until they have drifted apart
+		long[] swap = active;
+		active = found;
+		found = swap;
+		activeCount = pairs;
+		for(int i = 0; i < count; i++) {
+			lastX[i] = simulation.x[i];
+			lastY[i] = simulation.y[i];
+			lastZ[i] = simulation.z[i];
+		}
+		//the cells of the next tick start about as small as this tick's smallest box, as long as the top level holds the largest
+		if(largest > 0) baseCell = Math.max(smallest, Math.scalb(largest, 2 - LEVELS));
+		return pairs;
+	}
+
+	/**
+	 * Tells the listeners of the pairs found that weren't close at the last tick
+	 */
+	private void announce(float lastTime, float time, int pairs) {
+		for(Chunk chunk : chunks)
+			for(int p = 0; p < chunk.pairs; p++) {
+				long pair = (long) chunk.firsts[p] << 32 | chunk.seconds[p];
+				if(Arrays.binarySearch(active, 0, activeCount, pair) >= 0) continue;
+				float when = lastTime + chunk.times[p] * (time - lastTime);
+				for(Listener listener : listeners)
+					listener.approached(chunk.firsts[p], chunk.seconds[p], when, chunk.distances[p]);
+			}
+	}
+
+	/**
+	 * Sizes the arrays for the bodies of a simulation, and starts from where the bodies are
+	 */
+	private void resize(Simulation simulation) {
+		count = simulation.count;
+		activeCount = 0;
+		lastX = Arrays.copyOf(simulation.x, count);
+		lastY = Arrays.copyOf(simulation.y, count);
+		lastZ = Arrays.copyOf(simulation.z, count);
+		keys = new long[count];
+		levels = new byte[count];
+		order = new int[count];
+		orderKeys = new long[count];
+		boxes = new float[BOX_FLOATS * count];
+		orderBoxes = new float[BOX_FLOATS * count];
+		bucketStarts = new int[(Integer.highestOneBit(Math.max(1, count - 1)) << 1) + 1]; // a power of two of buckets
+		int chunkCount = Math.max(1, Math.min(CHUNKS_PER_THREAD * pool.getParallelism(), count / MIN_CHUNK_SIZE));
+		chunks = new Chunk[chunkCount];
+		for(int c = 0; c < chunkCount; c++)
+			chunks[c] = new Chunk((int) ((long) count * c / chunkCount), (int) ((long) count * (c + 1) / chunkCount));
+	}
+
+	/**
+	 * Counting sort of the bodies by the bucket of their cell, gathering the bodies of the sparse levels on the way
+	 */
+	private void sort() {
+		sparse = 0;
+		for(int l = 0; l < LEVELS; l++)
+			if(levelCounts[l] <= SPARSE_LEVEL) sparse |= 1 << l;
+		Arrays.fill(levelCounts, 0); // counts the bodies gathered
+		int buckets = bucketStarts.length - 1;
+		Arrays.fill(bucketStarts, 0);
+		for(int i = 0; i < count; i++)
+			bucketStarts[bucket(keys[i]) + 1]++;
+		for(int b = 0; b < buckets; b++)
+			bucketStarts[b + 1] += bucketStarts[b];
+		for(int i = 0; i < count; i++) {
+			int o = bucketStarts[bucket(keys[i])]++;
+			order[o] = i;
+			orderKeys[o] = keys[i];
+			System.arraycopy(boxes, BOX_FLOATS * i, orderBoxes, BOX_FLOATS * o, BOX_FLOATS);
+			int level = levels[i];
+			if((sparse & (1 << level)) != 0) {
+				int k = SPARSE_LEVEL * level + levelCounts[level]++;
+				sparseBodies[k] = i;
+				System.arraycopy(boxes, BOX_FLOATS * i, sparseBoxes, BOX_FLOATS * k, BOX_FLOATS);
+			}
+		}
+		//the scatter moved every start to the next bucket's start
+		for(int b = buckets; b > 0; b--)
+			bucketStarts[b] = bucketStarts[b - 1];
+		bucketStarts[0] = 0;
+	}
+
+	private static long key(int level, int cx, int cy, int cz) {
+		return (long) level << (3 * COORDINATE_BITS) | ((long) (cz & COORDINATE_MASK) << (2 * COORDINATE_BITS))
+				| ((long) (cy & COORDINATE_MASK) << COORDINATE_BITS) | (cx & COORDINATE_MASK);
+	}
+
+	/**
+	 * Hashes a cell to its bucket. The rows of cells along x are spread over the table but the cells of a row are in
+	 * consecutive buckets, so the cells around a box are read from a few runs of the table instead of one place each.
+	 */
+	private int bucket(long key) {
+		long hash = (key & ~COORDINATE_MASK) * 0x9E3779B97F4A7C15L;
+		return ((int) (hash >>> 32) + (int) (key & COORDINATE_MASK)) & (bucketStarts.length - 2);
+	}
+
+	/**
+	 * A range of bodies [from, to) that is boxed, then tested against the other bodies, by one task
+	 */
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+		float smallest, largest; // width of the smallest and largest box
+		int occupied; // bit per level holding bodies of the chunk
+		final int[] levelCounts = new int[LEVELS]; // bodies of the chunk in each level
+		int pairs; // pairs found, with their bodies, when they were nearest (0 to 1 through the tick) and how near
+		int[] firsts = new int[16], seconds = new int[16];
+		float[] times = new float[16], distances = new float[16];
+
+		Chunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(boxing) box();
+			else test();
+		}
+
+		/**
+		 * Puts each body in the level whose cells are as wide as its box, in the cell of its box's lowest corner
+		 */
+		private void box() {
+			Simulation s = simulation;
+			float base = baseCell, small = Float.POSITIVE_INFINITY, large = 0.0f;
+			int bits = 0;
+			Arrays.fill(levelCounts, 0);
+			for(int i = from; i < to; i++) {
+				float reach = reach(i),
+						width = Math.max(Math.max(Math.abs(s.x[i] - lastX[i]), Math.abs(s.y[i] - lastY[i])),
+								Math.abs(s.z[i] - lastZ[i])) + 2 * reach;
+				small = Math.min(small, width);
+				large = Math.max(large, width);
+				int level = 0;
+				float cell = base;
+				while(cell < width && level < LEVELS - 1) {
+					cell *= 2;
+					level++;
+				}
+				levels[i] = (byte) level;
+				levelCounts[level]++;
+				bits |= 1 << level;
+				int b = BOX_FLOATS * i;
+				boxes[b] = Math.min(s.x[i], lastX[i]) - reach;
+				boxes[b + 1] = Math.min(s.y[i], lastY[i]) - reach;
+				boxes[b + 2] = Math.min(s.z[i], lastZ[i]) - reach;
+				boxes[b + 3] = Math.max(s.x[i], lastX[i]) + reach;
+				boxes[b + 4] = Math.max(s.y[i], lastY[i]) + reach;
+				boxes[b + 5] = Math.max(s.z[i], lastZ[i]) + reach;
+				keys[i] = key(level, cell(boxes[b], cell), cell(boxes[b + 1], cell), cell(boxes[b + 2], cell));
+			}
+			smallest = small;
+			largest = large;
+			occupied = bits;
+		}
+
+		/**
+		 * Tests each body against the bodies whose box's lowest corner is in a cell its box can reach. At the levels
+		 * above its own every body is tested; at its own level only the cells with a key from its cell's on, and in its
+		 * own cell the bodies after it, so each pair is tested once (by its body lower down, or with the lower key).
+		 */
+		private void test() {
+			Simulation s = simulation;
+			pairs = 0;
+			for(int i = from; i < to; i++) {
+				float reach = reach(i);
+				int b = BOX_FLOATS * i;
+				float minX = boxes[b], minY = boxes[b + 1], minZ = boxes[b + 2],
+						maxX = boxes[b + 3], maxY = boxes[b + 4], maxZ = boxes[b + 5];
+				int level = levels[i];
+				long own = keys[i];
+				for(int l = level; l < LEVELS; l++) {
+					if((CloseApproaches.this.occupied & (1 << l)) == 0) continue;
+					if((sparse & (1 << l)) != 0) {
+						for(int k = SPARSE_LEVEL * l, end = k + CloseApproaches.this.levelCounts[l]; k < end; k++) {
+							int j = sparseBodies[k], kb = BOX_FLOATS * k;
+							if(l == level && j <= i) continue;
+							if(sparseBoxes[kb] > maxX || sparseBoxes[kb + 3] < minX || sparseBoxes[kb + 1] > maxY
+									|| sparseBoxes[kb + 4] < minY || sparseBoxes[kb + 2] > maxZ || sparseBoxes[kb + 5] < minZ) continue;
+							test(i, j, reach);
+						}
+						continue;
+					}
+					float cell = Math.scalb(baseCell, l); // the boxes of this level are no wider than a cell
+					int fromX = cell(minX - cell, cell), toX = cell(maxX, cell),
+							fromY = cell(minY - cell, cell), toY = cell(maxY, cell),
+							fromZ = cell(minZ - cell, cell), toZ = cell(maxZ, cell);
+					for(int cz = fromZ; cz <= toZ; cz++)
+						for(int cy = fromY; cy <= toY; cy++)
+							for(int cx = fromX; cx <= toX; cx++) {
+								long key = key(l, cx, cy, cz);
+								if(l == level && key < own) continue; // tested from the other body's cell
+								int bucket = bucket(key);
+								for(int o = bucketStarts[bucket], end = bucketStarts[bucket + 1]; o < end; o++) {
+									if(orderKeys[o] != key) continue;
+									int j = order[o];
+									if(key == own && j <= i) continue;
+									//the boxes are next to each other in order, only bodies whose box overlaps are read
+									int ob = BOX_FLOATS * o;
+									if(orderBoxes[ob] > maxX || orderBoxes[ob + 3] < minX || orderBoxes[ob + 1] > maxY
+											|| orderBoxes[ob + 4] < minY || orderBoxes[ob + 2] > maxZ || orderBoxes[ob + 5] < minZ) continue;
+									test(i, j, reach);
+								}
+							}
+				}
+			}
+		}
+
+		/**
+		 * Finds how near two bodies come as they move in straight lines from their last positions,
+		 * and adds them to the pairs if their surfaces come within the distance
+		 */
+		private void test(int i, int j, float reachI) {
+			Simulation s = simulation;
+			float reachJ = reach(j);
+			//relative position at the last tick and now, nearest where the relative motion is nearest
+			float x0 = lastX[j] - lastX[i], y0 = lastY[j] - lastY[i], z0 = lastZ[j] - lastZ[i],
+					vx = s.x[j] - s.x[i] - x0, vy = s.y[j] - s.y[i] - y0, vz = s.z[j] - s.z[i] - z0;
+			float speed2 = vx * vx + vy * vy + vz * vz, t = 1.0f;
+			if(speed2 > 0) t = Math.max(0.0f, Math.min(1.0f, -(x0 * vx + y0 * vy + z0 * vz) / speed2));
+			float dx = x0 + t * vx, dy = y0 + t * vy, dz = z0 + t * vz,
+					reach = reachI + reachJ, centres2 = dx * dx + dy * dy + dz * dz;
+			if(centres2 > reach * reach) return;
+			if(pairs == firsts.length) {
+				int capacity = 2 * pairs;
+				firsts = Arrays.copyOf(firsts, capacity);
+				seconds = Arrays.copyOf(seconds, capacity);
+				times = Arrays.copyOf(times, capacity);
+				distances = Arrays.copyOf(distances, capacity);
+			}
+			firsts[pairs] = Math.min(i, j);
+			seconds[pairs] = Math.max(i, j);
+			times[pairs] = t;
+			distances[pairs] = (float) Math.sqrt(centres2) - reach + distance; // between the surfaces
+			pairs++;
+		}
+
+		/**
+		 * @return how far from its centre a body's box reaches: its radius and half the distance
+		 */
+		private float reach(int body) {
+			return simulation.radius[body] * radiusScale + 0.5f * distance;
+		}
+	}
+
+	private static int cell(float coordinate, float cell) {
+		return (int) Math.floor(coordinate / cell);
+	}
+
+	/*
+	Getters for the detector
+	 */
+
+	public float getDistance() {
+		return distance;
+	}
+	public float getRadiusScale() {
+		return radiusScale;
+	}
+	/**
+	 * @return the number of pairs close at the last tick
+	 */
+	public int getActiveCount() {
+		return activeCount;
+	}
+}
@@ -0,0 +1,87 @@
+package solarModel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue of commands from any number of threads (e.g. the AWT event thread) to one thread that
+ * executes them (the thread drawing the frames), without locks.
+ * A command is an int code and a float value packed into a long, so nothing is allocated on either side.
+ *
+ * Each slot has a sequence number telling whose turn it is: a producer claims the tail with a compare-and-set when
+ * the slot's sequence equals the tail, writes the command and then moves the sequence on, which publishes it to
+ * the consumer. The consumer reads slots in order while their sequence shows a published command and hands each
+ * slot back to the producers by moving its sequence on by the capacity.
+ */
+public class CommandQueue {
+	/**
+	 * Executes the commands taken from the queue
+	 */
+	public interface Handler {
+		void execute(int command, float value);
+	}
+
+	private final int mask; // capacity - 1, the capacity is a power of two
+	private final long[] commands; // code in the high 32 bits, value in the low 32 bits
+	private final AtomicLongArray sequences; // slot i holds a command for position p once its sequence is p + 1
+	private final AtomicLong tail = new AtomicLong(); // next position producers claim
+	private long head; // next position the consumer reads (only touched by the consumer)
+
+	/**
+	 * @param capacity the most commands waiting at once (rounded up to a power of two)
+	 */
+	public CommandQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.mask = size - 1;
+		this.commands = new long[size];
+		this.sequences = new AtomicLongArray(size);
+		for(int slot = 0; slot < size; slot++)
+			sequences.set(slot, slot);
+	}
+
+	/**
+	 * Adds a command, from any thread
+	 * @param command the code of the command
+	 * @param value the argument of the command
+	 * @return false if the queue is full and the command was dropped
+	 */
+	public boolean offer(int command, float value) {
+		long packed = ((long) command << 32) | (Float.floatToRawIntBits(value) & 0xffffffffL);
+		while(true) {
+			long position = tail.get();
+			int slot = (int) position & mask;
+			long sequence = sequences.get(slot);
+			if(sequence == position) {
+				if(tail.compareAndSet(position, position + 1)) {
+					commands[slot] = packed;
+					sequences.set(slot, position + 1); // publishes the command
+					return true;
+				}
+			}
+			else if(sequence < position) {
+				return false; // the consumer hasn't read this slot since the last lap
+			}
+			// otherwise another producer claimed the position first, try the next one
+		}
+	}
+
+	/**
+	 * Executes every command waiting, in the order they were added, on the consumer thread.
+	 * Stops after one full queue so producers can't keep the consumer busy forever.
+	 * @param handler executes each command
+	 * @return the number of commands executed
+	 */
+	public int drain(Handler handler) {
+		int executed = 0;
+		while(executed <= mask) {
+			int slot = (int) head & mask;
+			if(sequences.get(slot) != head + 1) break; // nothing published there yet
+			long packed = commands[slot];
+			sequences.set(slot, head + mask + 1); // free for the producers' next lap
+			head++;
+			handler.execute((int) (packed >>> 32), Float.intBitsToFloat((int) packed));
+			executed++;
+		}
+		return executed;
+	}
+}
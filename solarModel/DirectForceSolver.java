@@ -0,0 +1,52 @@
+package solarModel;
+
+/**
+ * Sums the pull of every massive body on each body directly.
+ * Exact, but the cost of a force pass is (bodies x massive bodies), so it is best suited to
+ * many test particles around a few massive bodies.
+ */
+public class DirectForceSolver implements ForceSolver {
+	// massive bodies gathered into compact arrays so the force loop reads them sequentially
+	private float[] sourceX = new float[0], sourceY = new float[0], sourceZ = new float[0], sourceMass = new float[0];
+	private int sourceCount;
+
+	/**
+	 * Copies the position and mass of every body with mass into the source arrays
+	 */
+	@Override
+	public void prepare(Simulation s) {
+		int n = 0;
+		for(int i = 0; i < s.count; i++)
+			if(s.mass[i] > 0) n++;
+		if(n > sourceX.length) {
+			sourceX = new float[n]; sourceY = new float[n]; sourceZ = new float[n]; sourceMass = new float[n];
+		}
+		n = 0;
+		for(int i = 0; i < s.count; i++) {
+			if(s.mass[i] <= 0) continue;
+			sourceX[n] = s.x[i]; sourceY[n] = s.y[i]; sourceZ[n] = s.z[i];
+			sourceMass[n] = s.mass[i];
+			n++;
+		}
+		sourceCount = n;
+	}
+
+	/**
+	 * Accumulates the acceleration of body i from every massive body
+	 * A body's pull on itself is zero because the distance is zero (the softening keeps it finite)
+	 */
+	@Override
+	public void accelerate(Simulation s, int i, float gm, float softening) {
+		float xi = s.x[i], yi = s.y[i], zi = s.z[i],
+				axi = 0.0f, ayi = 0.0f, azi = 0.0f;
+		for(int j = 0; j < sourceCount; j++) {
+			float dx = sourceX[j] - xi,
+					dy = sourceY[j] - yi,
+					dz = sourceZ[j] - zi,
+					r2 = dx * dx + dy * dy + dz * dz + softening,
+					f = sourceMass[j] / (r2 * (float) Math.sqrt(r2));
+			axi += f * dx; ayi += f * dy; azi += f * dz;
+		}
+		s.ax[i] = gm * axi; s.ay[i] = gm * ayi; s.az[i] = gm * azi;
+	}
+}
@@ -0,0 +1,495 @@
+package solarModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Positions of every body as piecewise Chebyshev polynomials of time, fitted once from a model simulation
+ * and then evaluated instead of running the model.
+ * Time is cut into segments of equal span. Each body's span is the segment's, halved until the body goes no more than
+ * MAX_TURN round its parent within it (from its orbit rate), so a moon going round many times in a segment has a
+ * polynomial per piece of its orbit instead of one it can't follow. The first time a segment is needed the model is run
+ * through it and the position of every body is sampled at the Chebyshev nodes of each of its spans; the coefficients
+ * are then found for every body in parallel. Evaluating a position is a short Clenshaw recurrence per axis, whatever
+ * the model (closed form, Keplerian or an integrator) and however far the time is from the last one.
+ *
+ * Segments are kept in memory up to a byte budget, least recently used first out, and can be saved to a directory
+ * so they are not fitted again on the next run. The segment next to the current one in the direction time runs
+ * is fitted in the background once evaluation passes the middle of the current segment.
+ *
+ * The model must hold the same bodies as the simulations the ephemeris is evaluated into, and is only used
+ * by the ephemeris from then on. Only positions come from the ephemeris (the orbit angles are worked out from them),
+ * rotations stay closed form.
+ */
+public class Ephemeris {
+	public static final float DEFAULT_SPAN = 32.0f; // a quarter of mercury's orbit
+	public static final int DEFAULT_DEGREE = 12; // position error around 1e-6 of the orbit radius for a quarter turn
+	public static final float MAX_TURN = 90.0f; // degrees a body may go round its parent within one of its spans
+	private static final int MAX_LEVEL = 12; // times a body's span may be halved (4096 spans per segment)
+	public static final long DEFAULT_BUDGET = 256L << 20; // bytes of coefficients kept in memory
+	private static final float MAX_MODEL_STEP = 1.0f; // largest time step the model is advanced by (same as a frame)
+	private static final int MIN_FIT_SIZE = 1024; // smallest number of bodies worth a fitting task
+	private static final int MAGIC = 0x45504845; // "EPHE"
+
+	private final Simulation model;
+	private final ForkJoinPool pool;
+	private final ExecutorService prefetcher; // fits segments ahead of time, outside the pool the model's solvers wait on
+	private final float span; // time covered by a segment
+	private final int degree; // degree of the polynomials (degree + 1 coefficients and samples per span)
+	private final byte[] levels; // times each body's span is the segment's halved
+	private final int[] offsets; // first coefficient of each body in a segment, then the number of coefficients
+	private final int[][] members; // the bodies of each level, in order
+	private final int[] ranks; // index of each body among the bodies of its level
+	private final long budget; // bytes of coefficients kept in memory
+	private final long fingerprint; // identifies the model's bodies and the fit in saved segments
+	private final double[][] basis; // basis[j][k] = cos(j * pi * (k + 0.5) / (degree + 1)), Chebyshev polynomial j at node k
+	private final LinkedHashMap<Long, Segment> segments = new LinkedHashMap<Long, Segment>(16, 0.75f, true); // in access order
+	private long bytes; // bytes of coefficients in segments
+	private float modelTime; // time the model was last updated to
+	private File directory; // where segments are saved (null to keep them in memory only)
+	private Segment current; // segment of the last evaluation
+	private float lastTime; // time of the last evaluation, tells which way time runs
+
+	/**
+	 * Creates an ephemeris of the model with the default span, degree and budget, fitted on the common fork-join pool
+	 * @param model the simulation sampled to fit the polynomials
+	 * @param time the current time of the model
+	 */
+	public Ephemeris(Simulation model, float time) {
+		this(model, time, DEFAULT_SPAN, DEFAULT_DEGREE, DEFAULT_BUDGET, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param model the simulation sampled to fit the polynomials
+	 * @param time the current time of the model
+	 * @param span time covered by each segment, the longest span of a body
+	 * @param degree degree of the polynomials
+	 * @param budget bytes of coefficients kept in memory (at least one segment is always kept)
+	 * @param pool the pool the fitting is split across
+	 */
+	public Ephemeris(Simulation model, float time, float span, int degree, long budget, ForkJoinPool pool) {
+		if(span <= 0 || degree < 1)
+			throw new IllegalArgumentException("an ephemeris needs a positive span and a degree of at least 1");
+		this.model = model;
+		this.modelTime = time;
+		this.lastTime = time;
+		this.span = span;
+		this.degree = degree;
+		this.budget = budget;
+		this.pool = pool;
+		this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ephemeris-prefetch");
+			thread.setDaemon(true); // don't keep the application alive for segments nobody will see
+			return thread;
+		});
+		int nodes = degree + 1;
+		this.basis = new double[nodes][nodes];
+		for(int j = 0; j < nodes; j++)
+			for(int k = 0; k < nodes; k++)
+				basis[j][k] = Math.cos(j * Math.PI * (k + 0.5) / nodes);
+
+		//each body's span, and where its coefficients are in a segment
+		int count = model.count;
+		this.levels = new byte[count];
+		this.offsets = new int[count + 1];
+		this.ranks = new int[count];
+		int[] levelCounts = new int[MAX_LEVEL + 1];
+		for(int i = 0; i < count; i++) {
+			int level = 0;
+			while(level < MAX_LEVEL && Math.abs(model.orbitRate[i]) * Math.scalb(span, -level) > MAX_TURN) level++;
+			levels[i] = (byte) level;
+			ranks[i] = levelCounts[level]++;
+			offsets[i + 1] = offsets[i] + (3 * nodes << level);
+		}
+		this.members = new int[MAX_LEVEL + 1][];
+		for(int level = 0; level <= MAX_LEVEL; level++) members[level] = new int[levelCounts[level]];
+		for(int i = 0; i < count; i++) members[levels[i]][ranks[i]] = i;
+		this.fingerprint = fingerprint(model, time, span, degree, levels);
+	}
+
+	/**
+	 * Saves fitted segments to a directory and reads them back instead of fitting them
+	 * @param directory where the segments are saved (created when needed), or null to keep them in memory only
+	 */
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Sets the position and orbit angle of every body of a simulation at the given time
+	 * @param time the time
+	 * @param target the simulation the positions are written to (holding the same bodies as the model)
+	 */
+	public void evaluate(float time, Simulation target) {
+		long index = (long) Math.floor(time / span);
+		Segment segment = current;
+		if(segment == null || segment.index != index) {
+			segment = segment(index);
+			current = segment;
+		}
+		double within = (time - (double) index * span) / span; // time within the segment, in [0, 1]
+		float tau = (float) (2 * within - 1);
+
+		//fit the segment the time is heading towards before it is reached (none while time is paused)
+		if(time > lastTime && tau > 0 && !segment.nextRequested) {
+			segment.nextRequested = true;
+			prefetch(index + 1);
+		}
+		else if(time < lastTime && tau < 0 && !segment.previousRequested) {
+			segment.previousRequested = true;
+			prefetch(index - 1);
+		}
+		lastTime = time;
+
+		//Clenshaw recurrence: sum of c[j] T[j](tau) without finding each T[j], over the span of the body holding the time
+		float[] c = segment.coefficients;
+		int nodes = degree + 1, count = Math.min(segment.count, target.count);
+		for(int i = 0; i < count; i++) {
+			int spans = 1 << levels[i];
+			double scaled = within * spans;
+			int piece = Math.min(spans - 1, (int) scaled);
+			float t = (float) (2 * (scaled - piece) - 1), twoT = 2 * t;
+			int base = offsets[i] + 3 * nodes * piece;
+			target.x[i] = clenshaw(c, base, nodes, t, twoT);
+			target.y[i] = clenshaw(c, base + nodes, nodes, t, twoT);
+			target.z[i] = clenshaw(c, base + 2 * nodes, nodes, t, twoT);
+			//the angle around the parent, as the closed form orbits count it (a parent comes before its children)
+			int p = target.parent[i];
+			float dx = p < 0 ? target.x[i] : target.x[i] - target.x[p], dz = p < 0 ? target.z[i] : target.z[i] - target.z[p];
+			float theta = (float) Math.toDegrees(Math.atan2(dz, dx));
+			target.orbit[i] = theta < 0 ? theta + 360 : theta;
+		}
+	}
+
+	private static float clenshaw(float[] c, int base, int nodes, float tau, float twoTau) {
+		float b1 = 0, b2 = 0;
+		for(int j = nodes - 1; j > 0; j--) {
+			float b0 = twoTau * b1 - b2 + c[base + j];
+			b2 = b1;
+			b1 = b0;
+		}
+		return tau * b1 - b2 + c[base];
+	}
+
+	/**
+	 * Gets a segment from memory, from its saved file or by fitting it
+	 * @param index the segment covering [index * span, (index + 1) * span)
+	 * @return the segment
+	 */
+	private Segment segment(long index) {
+		Segment segment;
+		synchronized(segments) {
+			segment = segments.get(index);
+		}
+		if(segment != null) return segment;
+
+		synchronized(model) {
+			//another thread may have made the segment while this one waited for the model
+			synchronized(segments) {
+				segment = segments.get(index);
+			}
+			if(segment != null) return segment;
+			segment = read(index);
+			if(segment == null) {
+				segment = fit(index);
+				write(segment);
+			}
+			store(segment);
+		}
+		return segment;
+	}
+
+	/**
+	 * Keeps a segment in memory, dropping the least recently used segments until the budget is met
+	 */
+	private void store(Segment segment) {
+		synchronized(segments) {
+			segments.put(segment.index, segment);
+			bytes += segment.bytes();
+			//always keep the newest
+			Iterator<Segment> eldest = segments.values().iterator();
+			while(bytes > budget && segments.size() > 1) {
+				Segment dropped = eldest.next();
+				if(dropped == segment) continue;
+				eldest.remove();
+				bytes -= dropped.bytes();
+			}
+		}
+	}
+
+	/**
+	 * Fits a segment on the prefetch thread unless it is already known
+	 */
+	private void prefetch(long index) {
+		synchronized(segments) {
+			if(segments.containsKey(index)) return;
+		}
+		prefetcher.execute(() -> segment(index));
+	}
+
+	/**
+	 * Runs the model through a segment, sampling each level's bodies at the Chebyshev nodes of each of their spans,
+	 * and fits the coefficients of every body. Must hold the model's lock
+	 */
+	private Segment fit(long index) {
+		int nodes = degree + 1, count = model.count;
+		double start = (double) index * span;
+		float[][] samples = new float[MAX_LEVEL + 1][]; // [level][span][node][body of the level][axis]
+		int[] next = new int[MAX_LEVEL + 1]; // the next sample of each level, counted over its spans in time order
+		for(int level = 0; level <= MAX_LEVEL; level++)
+			samples[level] = new float[(nodes << level) * 3 * members[level].length];
+
+		//the nodes of a span run from its end to its start: sample every level's nodes, the earliest first
+		while(true) {
+			int earliest = -1;
+			double earliestTime = Double.POSITIVE_INFINITY;
+			for(int level = 0; level <= MAX_LEVEL; level++) {
+				if(members[level].length == 0 || next[level] == nodes << level) continue;
+				double time = nodeTime(start, level, next[level], nodes);
+				if(time < earliestTime) {
+					earliest = level;
+					earliestTime = time;
+				}
+			}
+			if(earliest < 0) break;
+			advanceModel((float) earliestTime);
+			int sample = next[earliest]++, piece = sample / nodes, k = nodes - 1 - sample % nodes;
+			int[] bodies = members[earliest];
+			float[] out = samples[earliest];
+			int base = 3 * bodies.length * (piece * nodes + k);
+			for(int r = 0; r < bodies.length; r++) {
+				int i = bodies[r];
+				out[base + 3 * r] = model.x[i];
+				out[base + 3 * r + 1] = model.y[i];
+				out[base + 3 * r + 2] = model.z[i];
+			}
+		}
+
+		Segment segment = new Segment(index, count, new float[offsets[count]]);
+		pool.invoke(new Fit(samples, segment.coefficients, 0, count));
+		return segment;
+	}
+
+	/**
+	 * @return the time of a level's sample, counted over its spans in time order (each span's nodes from its end)
+	 */
+	private double nodeTime(double start, int level, int sample, int nodes) {
+		int piece = sample / nodes, k = nodes - 1 - sample % nodes;
+		double pieceSpan = Math.scalb((double) span, -level);
+		return start + pieceSpan * (piece + 0.5 * (1 + Math.cos(Math.PI * (k + 0.5) / nodes)));
+	}
+
+	/**
+	 * Updates the model to a time. An integrator is advanced in steps no larger than a frame so it stays as accurate
+	 * as when it is displayed, closed form orbits are placed at the time directly
+	 */
+	private void advanceModel(float time) {
+		if(model.getIntegrator() == null) {
+			modelTime = time;
+			model.update(time);
+			return;
+		}
+		while(modelTime != time) {
+			float step = Math.max(-MAX_MODEL_STEP, Math.min(MAX_MODEL_STEP, time - modelTime));
+			modelTime = Math.abs(time - modelTime) <= MAX_MODEL_STEP ? time : modelTime + step;
+			model.update(modelTime);
+		}
+	}
+
+	/**
+	 * Finds the Chebyshev coefficients of a range of bodies [from, to) from their samples,
+	 * splitting the range in half until it is small enough
+	 */
+	private class Fit extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final float[][] samples;
+		private final float[] coefficients;
+		private final int from, to;
+
+		Fit(float[][] samples, float[] coefficients, int from, int to) {
+			this.samples = samples;
+			this.coefficients = coefficients;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > MIN_FIT_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Fit(samples, coefficients, from, middle), new Fit(samples, coefficients, middle, to));
+				return;
+			}
+			int nodes = degree + 1;
+			for(int i = from; i < to; i++) {
+				int level = levels[i], bodies = members[level].length;
+				float[] in = samples[level];
+				for(int piece = 0; piece < 1 << level; piece++)
+					for(int axis = 0; axis < 3; axis++) {
+						int out = offsets[i] + (3 * piece + axis) * nodes;
+						for(int j = 0; j < nodes; j++) {
+							double sum = 0;
+							for(int k = 0; k < nodes; k++)
+								sum += in[3 * (bodies * (piece * nodes + k) + ranks[i]) + axis] * basis[j][k];
+							coefficients[out + j] = (float) ((j == 0 ? 1.0 : 2.0) * sum / nodes);
+						}
+					}
+			}
+		}
+	}
+
+	/**
+	 * @return the saved file of a segment
+	 */
+	private File file(long index) {
+		return new File(directory, String.format("%016x_%d.eph", fingerprint, index));
+	}
+
+	/**
+	 * Reads a saved segment
+	 * @return the segment, or null if it isn't saved (or can't be read)
+	 */
+	private Segment read(long index) {
+		if(directory == null) return null;
+		File file = file(index);
+		if(!file.isFile()) return null;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+			buffer.flip();
+			if(buffer.getInt() != MAGIC || buffer.getLong() != fingerprint || buffer.getLong() != index) return null;
+			int count = buffer.getInt();
+			float[] coefficients = new float[offsets[model.count]];
+			if(count != model.count || buffer.remaining() != coefficients.length * Float.BYTES) return null;
+			buffer.asFloatBuffer().get(coefficients);
+			return new Segment(index, count, coefficients);
+		} catch (IOException e) {
+			return null; // fitted again
+		}
+	}
+
+	/**
+	 * Saves a segment, under a temporary name moved into place so a file is never seen half written
+	 */
+	private void write(Segment segment) {
+		if(directory == null) return;
+		try {
+			Files.createDirectories(directory.toPath());
+			File file = file(segment.index);
+			Path temporary = Files.createTempFile(directory.toPath(), file.getName(), ".part");
+			try {
+				ByteBuffer buffer = ByteBuffer.allocate(24 + segment.coefficients.length * Float.BYTES);
+				buffer.putInt(MAGIC).putLong(fingerprint).putLong(segment.index).putInt(segment.count);
+				buffer.asFloatBuffer().put(segment.coefficients);
+				buffer.clear();
+				try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+					while(buffer.hasRemaining()) channel.write(buffer);
+				}
+				Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temporary);
+			}
+		} catch (IOException e) {
+			e.printStackTrace(); // the segment is still used, it will be fitted again next run
+		}
+	}
+
+	/**
+	 * Identifies the fit of a model, so saved segments are only used for the same bodies, starting state, forces and fit
+	 */
+	private static long fingerprint(Simulation model, float time, float span, int degree, byte[] levels) {
+		int n = model.count;
+		long hash = 17;
+		float[][] properties = {model.radius, model.offset, model.orbitRate, model.mass, model.x, model.y, model.z,
+				model.vx, model.vy, model.vz, model.semiMajorAxis, model.eccentricity, model.inclination, model.node,
+				model.periapsis, model.meanAnomaly};
+		for(float[] property : properties)
+			hash = 31 * hash + Arrays.hashCode(Arrays.copyOf(property, n));
+		hash = 31 * hash + Arrays.hashCode(Arrays.copyOf(model.parent, n));
+		GravityIntegrator integrator = model.getIntegrator();
+		if(integrator != null) {
+			hash = 31 * hash + Float.floatToIntBits(integrator.getGravitationalConstant());
+			hash = 31 * hash + Float.floatToIntBits(integrator.getSoftening());
+			//the solver changes the forces: Barnes-Hut approximates them more coarsely the larger its opening angle
+			ForceSolver solver = integrator.getForceSolver();
+			hash = 31 * hash + solver.getClass().getName().hashCode();
+			if(solver instanceof BarnesHutSolver)
+				hash = 31 * hash + Float.floatToIntBits(((BarnesHutSolver) solver).getOpeningAngle());
+		}
+		hash = 31 * hash + Float.floatToIntBits(time);
+		hash = 31 * hash + Float.floatToIntBits(span);
+		hash = 31 * hash + Arrays.hashCode(levels);
+		return 31 * hash + degree;
+	}
+
+	/**
+	 * Stops fitting segments in the background (called when the ephemeris is no longer used)
+	 */
+	public void dispose() {
+		prefetcher.shutdownNow();
+	}
+
+	/**
+	 * @return the number of segments in memory
+	 */
+	public int getSegmentCount() {
+		synchronized(segments) {
+			return segments.size();
+		}
+	}
+
+	/**
+	 * @return the time covered by a segment
+	 */
+	public float getSpan() {
+		return span;
+	}
+
+	/**
+	 * @return the time covered by each polynomial of a body, the segment's span halved until the body goes no more
+	 * than MAX_TURN round its parent within it
+	 */
+	public float getSpan(int body) {
+		return Math.scalb(span, -levels[body]);
+	}
+
+	/**
+	 * @return the degree of the polynomials
+	 */
+	public int getDegree() {
+		return degree;
+	}
+
+	/**
+	 * The coefficients of every body over one span of time
+	 */
+	private static class Segment {
+		final long index; // the segment covers [index * span, (index + 1) * span)
+		final int count; // number of bodies
+		final float[] coefficients; // [body][span][axis][coefficient], each body's from its offset
+		boolean nextRequested, previousRequested; // whether the neighbouring segments were prefetched
+
+		Segment(long index, int count, float[] coefficients) {
+			this.index = index;
+			this.count = count;
+			this.coefficients = coefficients;
+		}
+
+		long bytes() {
+			return (long) coefficients.length * Float.BYTES;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package solarModel;
+
+/**
+ * Finds the gravitational acceleration of the bodies of a Simulation for the GravityIntegrator.
+ * prepare() is called once per force pass after the bodies have moved, then accelerate() is called for every body
+ * from several threads at once, so accelerate() must only read state shared between bodies.
+ */
+public interface ForceSolver {
+
+	/**
+	 * Gathers whatever the solver needs from the current positions and masses of the bodies
+	 * @param simulation the simulation being integrated
+	 */
+	void prepare(Simulation simulation);
+
+	/**
+	 * Sets the acceleration (ax, ay, az) of one body from the massive bodies
+	 * @param simulation the simulation being integrated
+	 * @param index the index of the body
+	 * @param gm the gravitational constant times one unit of mass
+	 * @param softening squared distance added to every pair of bodies so forces stay finite
+	 */
+	void accelerate(Simulation simulation, int index, float gm, float softening);
+}
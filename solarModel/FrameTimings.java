@@ -0,0 +1,214 @@
+package solarModel;
+
+import java.util.Arrays;
+
+/**
+ * Times the phases of every frame (simulation, camera, drawing, buffer swap and texture loading) into histograms,
+ * published over JMX (see FrameTimingsMBean) and optionally printed as one line per interval.
+ *
+ * Recording a time is a couple of System.nanoTime() calls and an increment in a histogram of buckets that grow
+ * geometrically (8 per power of two, so a percentile is within 12.5% of the time recorded), with nothing allocated,
+ * so the timings can stay on. Each phase is only recorded by one thread (the GL thread, except texture decoding,
+ * which is measured by the decoding thread and recorded on the GL thread when the texture is uploaded).
+ * Histograms are filled for an interval and then published while the next interval is recorded into another set,
+ * so readers see complete intervals. Three sets take turns: the set published before is only cleared to be recorded
+ * into an interval after it was replaced, so a reader still going through it never sees it cleared under it.
+ *
+ * -Dsolar.frameTimings=false switches the timings off: ENABLED is a constant, so the JIT removes the timing calls.
+ * -Dsolar.frameLog=<seconds> prints the timings every interval of that many seconds (the interval is 10 seconds otherwise).
+ */
+public class FrameTimings implements FrameTimingsMBean {
+	public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("solar.frameTimings"));
+	private static final int LOG_SECONDS = Integer.getInteger("solar.frameLog", 0); // 0 for no log line
+	private static final int DEFAULT_INTERVAL_SECONDS = 10;
+
+	// Phases of a frame, in the order they run
+	public static final int FRAME = 0, // the whole of display(), including the buffer swap
+			COMMANDS = 1, // the user's commands and the camera's movement
+			SIMULATION = 2, // calculatePlanetProperties()
+			TRACK_PLANET = 3,
+			PLACE_CAMERA = 4,
+			DRAW_SUN = 5,
+			DRAW_PLANETS = 6,
+			DRAW_ORBITS = 7, // picking up the paths of the orbits made since the last frame and drawing them (only timed when they are shown)
+			DRAW_TRAILS = 8, // uploading the new points of the trails and drawing them (only timed when they are shown)
+			DRAW_BELTS = 9, // moving and drawing the particle belts (only timed when there are belts)
+			SWAP_BUFFERS = 10,
+			TEXTURE_DECODE = 11, // decoding (or mapping from the cache) one texture, on a decoding thread
+			TEXTURE_UPLOAD = 12; // uploading one texture
+	private static final String[] PHASES = {"frame", "commands", "simulation", "trackPlanet", "placeCamera",
+			"drawSun", "drawPlanets", "drawOrbits", "drawTrails", "drawBelts", "swapBuffers", "textureDecode", "textureUpload"};
+
+	private static final int SUB_BUCKET_BITS = 3, SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // buckets per power of two
+	private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS + 1);
+
+	private final long intervalNanos;
+	private Histogram[] recording = makeHistograms(); // filled by the GL thread
+	private volatile Histogram[] published = makeHistograms(); // the last complete interval
+	private Histogram[] retired = makeHistograms(); // the interval published before, possibly still being read
+	private long intervalStart; // when the recording interval started (0 before the first frame)
+
+	public FrameTimings() {
+		this.intervalNanos = (LOG_SECONDS > 0 ? LOG_SECONDS : DEFAULT_INTERVAL_SECONDS) * 1000000000L;
+	}
+
+	private static Histogram[] makeHistograms() {
+		Histogram[] histograms = new Histogram[PHASES.length];
+		for(int phase = 0; phase < histograms.length; phase++)
+			histograms[phase] = new Histogram();
+		return histograms;
+	}
+
+	/**
+	 * @return the time a phase starts, to be passed to lap() (0 if the timings are off)
+	 */
+	public long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time of a phase that has just ended
+	 * @param phase the phase that ended
+	 * @param since the time it started (from start() or the previous lap())
+	 * @return the time now, the start of the next phase
+	 */
+	public long lap(int phase, long since) {
+		if(!ENABLED) return 0;
+		long now = System.nanoTime();
+		recording[phase].record(now - since);
+		return now;
+	}
+
+	/**
+	 * Records a time measured elsewhere, on the GL thread
+	 * @param phase the phase
+	 * @param nanos how long it took
+	 */
+	public void record(int phase, long nanos) {
+		if(ENABLED) recording[phase].record(nanos);
+	}
+
+	/**
+	 * Records the whole frame and publishes the histograms (and prints them if asked to) once an interval is over
+	 * @param frameStart the time the frame started (from start())
+	 */
+	public void endFrame(long frameStart) {
+		if(!ENABLED) return;
+		long now = lap(FRAME, frameStart);
+		if(intervalStart == 0) intervalStart = frameStart;
+		if(now - intervalStart < intervalNanos) return;
+		Histogram[] finished = recording;
+		recording = retired; // replaced an interval ago, no reader has it any more
+		for(Histogram histogram : recording) histogram.clear();
+		retired = published;
+		published = finished;
+		intervalStart = now;
+		if(LOG_SECONDS > 0) System.out.println(getSummary());
+	}
+
+	/*
+	The MBean, read from the last complete interval
+	 */
+
+	@Override
+	public String[] getPhases() {
+		return PHASES.clone();
+	}
+	@Override
+	public double[] getP50Millis() {
+		return percentiles(0.50);
+	}
+	@Override
+	public double[] getP99Millis() {
+		return percentiles(0.99);
+	}
+	@Override
+	public double[] getMaxMillis() {
+		Histogram[] histograms = published;
+		double[] millis = new double[histograms.length];
+		for(int phase = 0; phase < histograms.length; phase++)
+			millis[phase] = histograms[phase].max / 1.0e6;
+		return millis;
+	}
+	@Override
+	public long[] getCounts() {
+		Histogram[] histograms = published;
+		long[] counts = new long[histograms.length];
+		for(int phase = 0; phase < histograms.length; phase++)
+			counts[phase] = histograms[phase].count;
+		return counts;
+	}
+	@Override
+	public int getIntervalSeconds() {
+		return (int) (intervalNanos / 1000000000L);
+	}
+	@Override
+	public String getSummary() {
+		Histogram[] histograms = published;
+		StringBuilder line = new StringBuilder(String.format("frame timings over %d s, %d frames (p50/p99/max ms):",
+				getIntervalSeconds(), histograms[FRAME].count));
+		for(int phase = 0; phase < histograms.length; phase++) {
+			Histogram histogram = histograms[phase];
+			if(histogram.count == 0) continue;
+			line.append(String.format(" %s %.2f/%.2f/%.2f", PHASES[phase], histogram.percentile(0.50) / 1.0e6,
+					histogram.percentile(0.99) / 1.0e6, histogram.max / 1.0e6));
+		}
+		return line.toString();
+	}
+
+	private double[] percentiles(double fraction) {
+		Histogram[] histograms = published;
+		double[] millis = new double[histograms.length];
+		for(int phase = 0; phase < histograms.length; phase++)
+			millis[phase] = histograms[phase].percentile(fraction) / 1.0e6;
+		return millis;
+	}
+
+	/**
+	 * Counts of times in buckets: times below SUB_BUCKETS nanoseconds have a bucket each, above that every power
+	 * of two is split into SUB_BUCKETS buckets
+	 */
+	private static class Histogram {
+		final long[] counts = new long[BUCKETS];
+		long count, max;
+
+		void record(long nanos) {
+			if(nanos < 0) nanos = 0;
+			counts[bucket(nanos)]++;
+			count++;
+			if(nanos > max) max = nanos;
+		}
+
+		void clear() {
+			Arrays.fill(counts, 0);
+			count = 0;
+			max = 0;
+		}
+
+		/**
+		 * @return the highest time of the bucket holding the given fraction of the times (at most the maximum)
+		 */
+		long percentile(double fraction) {
+			if(count == 0) return 0;
+			long rank = (long) Math.ceil(fraction * count), seen = 0;
+			for(int bucket = 0; bucket < BUCKETS; bucket++) {
+				seen += counts[bucket];
+				if(seen >= Math.max(rank, 1)) return Math.min(max, highest(bucket));
+			}
+			return max;
+		}
+
+		static int bucket(long nanos) {
+			if(nanos < SUB_BUCKETS) return (int) nanos;
+			int exponent = 63 - Long.numberOfLeadingZeros(nanos); // at least SUB_BUCKET_BITS
+			int mantissa = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + mantissa;
+		}
+
+		static long highest(int bucket) {
+			if(bucket < SUB_BUCKETS) return bucket;
+			int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1, mantissa = bucket % SUB_BUCKETS;
+			return ((long) (SUB_BUCKETS + mantissa + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+		}
+	}
+}
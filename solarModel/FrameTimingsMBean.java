@@ -0,0 +1,23 @@
+package solarModel;
+
+/**
+ * The frame timings seen over JMX (e.g. in jconsole, under solarSystem:type=FrameTimings).
+ * Every array holds one value per phase, in the order of getPhases(), for the last complete interval.
+ */
+public interface FrameTimingsMBean {
+	String[] getPhases();
+	double[] getP50Millis();
+	double[] getP99Millis();
+	double[] getMaxMillis();
+	long[] getCounts();
+
+	/**
+	 * @return the seconds each interval covers
+	 */
+	int getIntervalSeconds();
+
+	/**
+	 * @return one line with the median, 99th percentile and maximum of every phase
+	 */
+	String getSummary();
+}
@@ -0,0 +1,119 @@
+package solarModel;
+
+import com.jogamp.opengl.math.Vec3f;
+
+/**
+ * The volume seen by a perspective camera, used to skip bodies that can't be on screen before they are drawn.
+ * The frustum is kept in camera space: the camera position and its forward, right and up axes, as set up by
+ * gluLookAt, and the tangents of the half fields of view, as set up by gluPerspective.
+ * Testing a bounding sphere is then a few dot products instead of transforming it by the projection.
+ * This class has no OpenGL dependency and allocates nothing after construction.
+ */
+public class Frustum {
+	private float px, py, pz; // camera position
+	private float fx, fy, fz; // unit forward axis (towards the focal point)
+	private float rx, ry, rz; // unit right axis
+	private float ux, uy, uz; // unit up axis
+	private float tanHalfFovY, tanHalfFovX; // tangents of half the vertical and horizontal fields of view
+	private float secHalfFovY, secHalfFovX; // 1 / cos of half the fields of view, widens the side planes by a sphere's radius
+	private float near, far; // distance of the clipping planes along the forward axis
+
+	/**
+	 * Sets the projection, with the same parameters as gluPerspective
+	 * @param verticalFov vertical field of view (degrees)
+	 * @param aspectRatio width / height of the viewport
+	 * @param near distance to the near clipping plane
+	 * @param far distance to the far clipping plane
+	 */
+	public void setPerspective(float verticalFov, float aspectRatio, float near, float far) {
+		this.tanHalfFovY = (float) Math.tan(Math.toRadians(0.5 * verticalFov));
+		this.tanHalfFovX = tanHalfFovY * aspectRatio;
+		this.secHalfFovY = (float) Math.sqrt(1 + tanHalfFovY * tanHalfFovY);
+		this.secHalfFovX = (float) Math.sqrt(1 + tanHalfFovX * tanHalfFovX);
+		this.near = near;
+		this.far = far;
+	}
+
+	/**
+	 * Sets the view, with the same parameters as gluLookAt
+	 * @param position position of the camera
+	 * @param focalPoint point the camera looks at
+	 * @param up up direction of the camera
+	 */
+	public void setView(Vec3f position, Vec3f focalPoint, Vec3f up) {
+		px = position.x();
+		py = position.y();
+		pz = position.z();
+
+		//forward = normalize(focalPoint - position)
+		fx = focalPoint.x() - px;
+		fy = focalPoint.y() - py;
+		fz = focalPoint.z() - pz;
+		float length = (float) Math.sqrt(fx*fx + fy*fy + fz*fz);
+		fx /= length; fy /= length; fz /= length;
+
+		//right = normalize(forward x up)
+		rx = fy * up.z() - fz * up.y();
+		ry = fz * up.x() - fx * up.z();
+		rz = fx * up.y() - fy * up.x();
+		length = (float) Math.sqrt(rx*rx + ry*ry + rz*rz);
+		rx /= length; ry /= length; rz /= length;
+
+		//up = right x forward (the given up need not be perpendicular to forward)
+		ux = ry * fz - rz * fy;
+		uy = rz * fx - rx * fz;
+		uz = rx * fy - ry * fx;
+	}
+
+	/**
+	 * Checks whether a sphere can be seen. Conservative: a sphere near a corner of the frustum may pass
+	 * without being on screen, but a sphere on screen never fails.
+	 * @param x x coordinate of the centre of the sphere
+	 * @param y y coordinate of the centre of the sphere
+	 * @param z z coordinate of the centre of the sphere
+	 * @param radius radius of the sphere
+	 * @return false if the sphere is completely outside the frustum
+	 */
+	public boolean isVisible(float x, float y, float z, float radius) {
+		float dx = x - px, dy = y - py, dz = z - pz;
+		float depth = dx*fx + dy*fy + dz*fz;
+		if(depth < near - radius || depth > far + radius) return false;
+		float vertical = dx*ux + dy*uy + dz*uz;
+		if(Math.abs(vertical) > depth * tanHalfFovY + radius * secHalfFovY) return false;
+		float horizontal = dx*rx + dy*ry + dz*rz;
+		return Math.abs(horizontal) <= depth * tanHalfFovX + radius * secHalfFovX;
+	}
+
+	/**
+	 * Finds the distance from the camera to a point
+	 * @param x x coordinate of the point
+	 * @param y y coordinate of the point
+	 * @param z z coordinate of the point
+	 * @return the distance from the camera position to the point
+	 */
+	public float distance(float x, float y, float z) {
+		float dx = x - px, dy = y - py, dz = z - pz;
+		return (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
+	/**
+	 * Finds the ray from the camera through a point of the screen, e.g. the point under the mouse
+	 * @param screenX horizontal position on the screen, 0 at its left edge and 1 at its right edge
+	 * @param screenY vertical position on the screen, 0 at its top edge and 1 at its bottom edge (as the window counts)
+	 * @param ray receives the origin of the ray (the camera position) then its unit direction, 6 floats
+	 */
+	public void getRay(float screenX, float screenY, float[] ray) {
+		float horizontal = (2 * screenX - 1) * tanHalfFovX, vertical = (1 - 2 * screenY) * tanHalfFovY;
+		float dx = fx + horizontal*rx + vertical*ux, dy = fy + horizontal*ry + vertical*uy, dz = fz + horizontal*rz + vertical*uz;
+		float length = (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
+		ray[0] = px; ray[1] = py; ray[2] = pz;
+		ray[3] = dx / length; ray[4] = dy / length; ray[5] = dz / length;
+	}
+
+	/**
+	 * @return the tangent of half the vertical field of view
+	 */
+	public float getTanHalfFovY() {
+		return tanHalfFovY;
+	}
+}
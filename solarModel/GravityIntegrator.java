@@ -0,0 +1,220 @@
+package solarModel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves the bodies of a Simulation under gravity instead of on fixed circles.
+ * Uses the velocity Verlet (kick-drift-kick leapfrog) scheme, which is symplectic so orbits
+ * don't spiral in or out over long runs.
+ * Bodies without mass are test particles: they are pulled by the massive bodies but don't pull on anything,
+ * The forces are found by a ForceSolver: the DirectForceSolver sums every massive body (a step costs bodies x massive bodies)
+ * and the BarnesHutSolver approximates distant groups of bodies with an octree (a step costs bodies x log(massive bodies)).
+ * The primary (body 0) is held at the origin.
+ * Each step is split into chunks of bodies which are run in parallel on a fork-join pool.
+ * The chunks are reused for every step and the calling thread waits for them without blocking,
+ * so once the chunks are made a step doesn't allocate.
+ */
+public class GravityIntegrator {
+	private static final int CHUNKS_PER_THREAD = 4; // more chunks than threads so idle threads can steal work
+	private static final int MIN_CHUNK_SIZE = 256; // smallest number of bodies worth a task
+	private static final int KICK_DRIFT = 0, FORCE_KICK = 1; // the two phases of a step
+	private static final float DEFAULT_SOFTENING = 0.01f;
+
+	private final Simulation simulation;
+	private final ForkJoinPool pool;
+	private float gm; // gravitational constant times one unit of mass (one earth)
+	private float softening; // squared distance added to every pair of bodies so forces stay finite
+	private float dt, kick; // time step of the current step and the time the current phase kicks velocities by
+	private int phase; // phase of the current step (KICK_DRIFT or FORCE_KICK)
+	private boolean primed; // true once the accelerations of the current positions are known
+	private ForceSolver solver; // finds the acceleration of each body
+
+	private Chunk[] chunks = new Chunk[0];
+	private int chunkedCount = -1; // the body count the chunks were made for
+
+	/**
+	 * Creates an integrator for the simulation that runs on the common fork-join pool
+	 * @param simulation the simulation to be integrated
+	 */
+	public GravityIntegrator(Simulation simulation) {
+		this(simulation, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates an integrator for the simulation that runs on the given pool
+	 * @param simulation the simulation to be integrated
+	 * @param pool the pool the force accumulation is split across
+	 */
+	public GravityIntegrator(Simulation simulation, ForkJoinPool pool) {
+		this.simulation = simulation;
+		this.pool = pool;
+		this.softening = DEFAULT_SOFTENING * DEFAULT_SOFTENING;
+		this.solver = new DirectForceSolver();
+		this.primed = false;
+	}
+
+	/**
+	 * Gives every body the velocity of a circular orbit around its parent (the primary for planets) at its current distance.
+	 * The gravitational constant is chosen so that the first orbiting body keeps its closed form orbit rate,
+	 * which keeps the speed of the simulation close to the closed form orbits.
+	 * Bodies with a negative orbit rate orbit in the opposite direction.
+	 */
+	public void circularize() {
+		Simulation s = simulation;
+		if(s.count < 2 || s.mass[0] <= 0)
+			throw new IllegalStateException("gravity needs a primary with mass and at least one orbiting body");
+
+		s.x[0] = 0.0f; s.y[0] = 0.0f; s.z[0] = 0.0f;
+		s.vx[0] = 0.0f; s.vy[0] = 0.0f; s.vz[0] = 0.0f;
+
+		//place bodies that haven't been updated yet on their closed form orbit, parents before their moons
+		for(int i = 1; i < s.count; i++) {
+			int p = Math.max(s.parent[i], 0);
+			if(s.x[i] == 0 && s.y[i] == 0 && s.z[i] == 0) {
+				s.x[i] = s.x[p] + s.offset[i] + s.radius[p];
+				s.y[i] = s.y[p]; s.z[i] = s.z[p];
+			}
+		}
+
+		//find the gravitational constant from the first body orbiting the primary
+		for(int i = 1; i < s.count; i++) {
+			if(s.orbitRate[i] == 0 || s.parent[i] != 0) continue;
+			double r = distance(i, 0),
+					omega = Math.toRadians(s.orbitRate[i]);
+			this.gm = (float) (omega * omega * r * r * r / s.mass[0]);
+			break;
+		}
+
+		//tangential velocity of a circular orbit on the XZ plane around the parent, on top of the parent's velocity
+		//(a moon of a massless planet just moves along with it)
+		for(int i = 1; i < s.count; i++) {
+			int p = Math.max(s.parent[i], 0);
+			float r = distance(i, p),
+					speed = r > 0 ? (float) Math.sqrt(gm * s.mass[p] / r) / r : 0.0f, // over r, to scale the offset
+					direction = s.orbitRate[i] < 0 ? -1.0f : 1.0f;
+			s.vx[i] = s.vx[p] - direction * speed * (s.z[i] - s.z[p]);
+			s.vy[i] = s.vy[p];
+			s.vz[i] = s.vz[p] + direction * speed * (s.x[i] - s.x[p]);
+		}
+		this.primed = false;
+	}
+
+	/**
+	 * @param i the index of the body
+	 * @param p the index of the body it orbits
+	 * @return the distance between the two bodies
+	 */
+	private float distance(int i, int p) {
+		Simulation s = simulation;
+		float dx = s.x[i] - s.x[p], dy = s.y[i] - s.y[p], dz = s.z[i] - s.z[p];
+		return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * Advances every body by one kick-drift-kick step
+	 * @param dt the time step (may be negative to run backwards, 0 does nothing)
+	 */
+	public void step(float dt) {
+		if(dt == 0 || simulation.count == 0) return;
+		if(chunkedCount != simulation.count) makeChunks();
+		this.dt = dt;
+
+		if(!primed) {
+			//the first kick needs the accelerations of the starting positions
+			solver.prepare(simulation);
+			run(FORCE_KICK, 0.0f);
+			primed = true;
+		}
+		run(KICK_DRIFT, 0.5f * dt);
+		solver.prepare(simulation);
+		run(FORCE_KICK, 0.5f * dt);
+	}
+
+	/**
+	 * Runs one phase of the step over every chunk in parallel (see ParallelChunks.run)
+	 * @param phase KICK_DRIFT or FORCE_KICK
+	 * @param kick the time the velocities are kicked by
+	 */
+	private void run(int phase, float kick) {
+		this.phase = phase;
+		this.kick = kick;
+		ParallelChunks.run(pool, chunks);
+	}
+
+	/**
+	 * Splits the bodies into chunks (only when the number of bodies changes)
+	 */
+	private void makeChunks() {
+		int count = simulation.count,
+				maxChunks = Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD),
+				chunkCount = Math.max(1, Math.min(maxChunks, (count + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE)),
+				chunkSize = (count + chunkCount - 1) / chunkCount;
+		chunks = new Chunk[chunkCount];
+		for(int c = 0; c < chunkCount; c++)
+			chunks[c] = new Chunk(Math.min(count, c * chunkSize), Math.min(count, (c + 1) * chunkSize));
+		chunkedCount = count;
+	}
+
+	/**
+	 * A range of bodies [from, to) that is integrated by one task
+	 */
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+
+		Chunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			Simulation s = simulation;
+			int start = Math.max(from, 1); // the primary is held at the origin
+			if(phase == KICK_DRIFT) {
+				for(int i = start; i < to; i++) {
+					s.vx[i] += s.ax[i] * kick; s.vy[i] += s.ay[i] * kick; s.vz[i] += s.az[i] * kick;
+					s.x[i] += s.vx[i] * dt; s.y[i] += s.vy[i] * dt; s.z[i] += s.vz[i] * dt;
+				}
+			}
+			else {
+				for(int i = start; i < to; i++) {
+					solver.accelerate(s, i, gm, softening);
+					s.vx[i] += s.ax[i] * kick; s.vy[i] += s.ay[i] * kick; s.vz[i] += s.az[i] * kick;
+					//the angle around the parent, as the closed form orbits count it (the positions are all drifted already)
+					int p = s.parent[i];
+					float dx = p < 0 ? s.x[i] : s.x[i] - s.x[p], dz = p < 0 ? s.z[i] : s.z[i] - s.z[p];
+					float theta = (float) Math.toDegrees(Math.atan2(dz, dx));
+					s.orbit[i] = theta < 0 ? theta + 360 : theta;
+				}
+			}
+		}
+	}
+
+	/*
+	Series of setters and getters for the integrator properties
+	 */
+
+	public float getGravitationalConstant() {
+		return gm;
+	}
+	public void setGravitationalConstant(float gm) {
+		this.gm = gm;
+		this.primed = false;
+	}
+	public ForceSolver getForceSolver() {
+		return solver;
+	}
+	public void setForceSolver(ForceSolver solver) {
+		this.solver = solver;
+		this.primed = false;
+	}
+	public float getSoftening() {
+		return (float) Math.sqrt(softening);
+	}
+	public void setSoftening(float length) {
+		this.softening = length * length;
+		this.primed = false;
+	}
+}
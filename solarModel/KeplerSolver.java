@@ -0,0 +1,244 @@
+package solarModel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Places the bodies of a Simulation on elliptical (Keplerian) orbits around the primary, or around their parent
+ * (see SceneGraph: each ellipse is worked out relative to the parent and then carried along with it).
+ * Each body's orbit is given by its orbital elements (see Simulation.setOrbitalElements): the mean anomaly grows
+ * by the body's orbit rate, Kepler's equation M = E - e sin(E) is solved for the eccentric anomaly E, and the body
+ * is placed on its ellipse, which is turned into the scene by the inclination, node and argument of periapsis.
+ * The reference plane of the elements is the XZ plane of the scene (the ecliptic x and y axes are the scene's x and z
+ * axes), so a body with no eccentricity, inclination, node, periapsis or mean anomaly is on the same circle
+ * as the closed form orbits.
+ *
+ * Kepler's equation is solved for every body in one batch over primitive arrays (see solve()), split into chunks
+ * that run in parallel on a fork-join pool in the same way as the GravityIntegrator, so a tick doesn't allocate.
+ * The orientation of each orbit is worked out once when its elements change, not every tick.
+ */
+public class KeplerSolver {
+	private static final int CHUNKS_PER_THREAD = 4; // more chunks than threads so idle threads can steal work
+	private static final int MIN_CHUNK_SIZE = 1024; // smallest number of bodies worth a task
+	private static final int MAX_ITERATIONS = 8; // Newton iterations before giving up on a body (only hit for e close to 1)
+	private static final double TOLERANCE = 1.0e-7; // radians, below float precision of the positions
+	private static final double SMALL_STEP = 1.0e-2; // Newton steps smaller than this (radians) update sin and cos by a series
+	private static final double TWO_PI = 2 * Math.PI;
+
+	private final Simulation simulation;
+	private final ForkJoinPool pool;
+	private float time; // time of the current placement
+	private float[] px = new float[0], py = new float[0], pz = new float[0]; // unit vector towards each body's periapsis
+	private float[] qx = new float[0], qy = new float[0], qz = new float[0]; // unit vector 90 degrees ahead of periapsis
+	private float[] anomaly = new float[0]; // mean anomaly of each body, then its eccentric anomaly
+	private float[] cosAnomaly = new float[0], sinAnomaly = new float[0]; // cosine and sine of each eccentric anomaly
+	private boolean oriented; // false when some elements changed since the orientations were worked out
+
+	private Chunk[] chunks = new Chunk[0];
+	private int chunkedCount = -1; // the body count the chunks were made for
+
+	/**
+	 * Creates a solver for the simulation that runs on the common fork-join pool
+	 * @param simulation the simulation whose bodies are placed
+	 */
+	public KeplerSolver(Simulation simulation) {
+		this(simulation, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a solver for the simulation that runs on the given pool
+	 * @param simulation the simulation whose bodies are placed
+	 * @param pool the pool the bodies are split across
+	 */
+	public KeplerSolver(Simulation simulation, ForkJoinPool pool) {
+		this.simulation = simulation;
+		this.pool = pool;
+		this.oriented = false;
+	}
+
+	/**
+	 * Solves Kepler's equation M = E - e sin(E) for E by Newton's method for every body in [from, to).
+	 * The loop only touches primitive arrays, one body at a time, so the JIT can unroll it and keep it in registers.
+	 * @param anomaly the mean anomaly of each body in radians, replaced by its eccentric anomaly
+	 * @param eccentricity the eccentricity of each body, in [0, 1)
+	 * @param from the first body
+	 * @param to one past the last body
+	 */
+	public static void solve(float[] anomaly, float[] eccentricity, int from, int to) {
+		solve(anomaly, eccentricity, null, null, from, to);
+	}
+
+	/**
+	 * Solves Kepler's equation and keeps the cosine and sine of each eccentric anomaly, which placing a body needs.
+	 * Each Newton step needs sin(E) and cos(E). Once the steps are small they are rotated by the step with a short
+	 * series instead of being found again, so most bodies cost four trigonometric calls (for the starting guess).
+	 * @param anomaly the mean anomaly of each body in radians, replaced by its eccentric anomaly
+	 * @param eccentricity the eccentricity of each body, in [0, 1)
+	 * @param cosAnomaly receives the cosine of each eccentric anomaly (may be null)
+	 * @param sinAnomaly receives the sine of each eccentric anomaly (may be null)
+	 * @param from the first body
+	 * @param to one past the last body
+	 */
+	public static void solve(float[] anomaly, float[] eccentricity, float[] cosAnomaly, float[] sinAnomaly, int from, int to) {
+		for(int i = from; i < to; i++) {
+			double m = anomaly[i], e = eccentricity[i];
+			//wrap M into [-pi, pi] so the starting guess is close
+			m -= TWO_PI * Math.rint(m / TWO_PI);
+			double E, sinE, cosE;
+			if(e < 0.8) {
+				//second order series in e for small eccentricities
+				double sinM = Math.sin(m), cosM = Math.cos(m);
+				E = m + e * sinM * (1 + e * cosM);
+				sinE = e == 0 ? sinM : Math.sin(E);
+				cosE = e == 0 ? cosM : Math.cos(E);
+			}
+			else {
+				//pi (towards apoapsis) for very eccentric orbits
+				E = m < 0 ? -Math.PI : Math.PI;
+				sinE = 0;
+				cosE = -1;
+			}
+			for(int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+				double delta = (E - e * sinE - m) / (1 - e * cosE);
+				E -= delta;
+				if(Math.abs(delta) < SMALL_STEP) {
+					//sin(E - delta) and cos(E - delta) from the angle difference formulas, with the series of sin(delta) and cos(delta)
+					double delta2 = delta * delta,
+							sinDelta = delta * (1 - delta2 / 6),
+							cosDelta = 1 - delta2 * (0.5 - delta2 / 24),
+							sinBefore = sinE;
+					sinE = sinE * cosDelta - cosE * sinDelta;
+					cosE = cosE * cosDelta + sinBefore * sinDelta;
+				}
+				else {
+					sinE = Math.sin(E);
+					cosE = Math.cos(E);
+				}
+				if(Math.abs(delta) < TOLERANCE) break;
+			}
+			anomaly[i] = (float) E;
+			if(cosAnomaly != null) cosAnomaly[i] = (float) cosE;
+			if(sinAnomaly != null) sinAnomaly[i] = (float) sinE;
+		}
+	}
+
+	/**
+	 * Places every body on its orbit at the given time
+	 * @param timeElapsed time since the simulation began
+	 */
+	public void place(float timeElapsed) {
+		Simulation s = simulation;
+		if(s.count == 0) return;
+		if(chunkedCount != s.count) makeChunks();
+		if(!oriented) orient();
+		this.time = timeElapsed;
+		s.graph.fit();
+		s.graph.setLocal(0, 0.0f, 0.0f, 0.0f); // the primary does not orbit
+		ParallelChunks.run(pool, chunks);
+		s.graph.resolve();
+	}
+
+	/**
+	 * Marks the orientations of the orbits as out of date (called when elements change)
+	 */
+	void invalidate() {
+		this.oriented = false;
+	}
+
+	/**
+	 * Works out the periapsis (P) and 90 degrees ahead (Q) unit vectors of every orbit from its
+	 * inclination i, node and argument of periapsis w, and turns them from ecliptic to scene axes (x, y, z) -> (x, z, y)
+	 */
+	private void orient() {
+		Simulation s = simulation;
+		int count = s.count;
+		if(px.length < count) {
+			px = new float[count]; py = new float[count]; pz = new float[count];
+			qx = new float[count]; qy = new float[count]; qz = new float[count];
+			anomaly = new float[count];
+			cosAnomaly = new float[count]; sinAnomaly = new float[count];
+		}
+		float[] pq = new float[6];
+		for(int i = 0; i < count; i++) {
+			orientation(s.inclination[i], s.node[i], s.periapsis[i], pq);
+			px[i] = pq[0]; py[i] = pq[1]; pz[i] = pq[2];
+			qx[i] = pq[3]; qy[i] = pq[4]; qz[i] = pq[5];
+		}
+		oriented = true;
+	}
+
+	/**
+	 * Works out the periapsis (P) and 90 degrees ahead (Q) unit vectors of an orbit, in scene axes
+	 * @param inclination inclination of the orbit (degrees)
+	 * @param node longitude of the ascending node (degrees)
+	 * @param periapsis argument of periapsis (degrees)
+	 * @param pq receives P and then Q, x y and z each
+	 */
+	static void orientation(float inclination, float node, float periapsis, float[] pq) {
+		double i = Math.toRadians(inclination), n = Math.toRadians(node), w = Math.toRadians(periapsis);
+		double cosI = Math.cos(i), sinI = Math.sin(i),
+				cosN = Math.cos(n), sinN = Math.sin(n),
+				cosW = Math.cos(w), sinW = Math.sin(w);
+		pq[0] = (float) (cosW * cosN - sinW * sinN * cosI);
+		pq[1] = (float) (sinW * sinI);
+		pq[2] = (float) (cosW * sinN + sinW * cosN * cosI);
+		pq[3] = (float) (-sinW * cosN - cosW * sinN * cosI);
+		pq[4] = (float) (cosW * sinI);
+		pq[5] = (float) (-sinW * sinN + cosW * cosN * cosI);
+	}
+
+	/**
+	 * Splits the bodies into chunks (only when the number of bodies changes)
+	 */
+	private void makeChunks() {
+		int count = simulation.count,
+				maxChunks = Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD),
+				chunkCount = Math.max(1, Math.min(maxChunks, (count + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE)),
+				chunkSize = (count + chunkCount - 1) / chunkCount;
+		chunks = new Chunk[chunkCount];
+		for(int c = 0; c < chunkCount; c++)
+			chunks[c] = new Chunk(Math.min(count, c * chunkSize), Math.min(count, (c + 1) * chunkSize));
+		chunkedCount = count;
+		oriented = false; // the orientation arrays may need to grow
+	}
+
+	/**
+	 * A range of bodies [from, to) that is placed by one task
+	 */
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+
+		Chunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			Simulation s = simulation;
+			int start = Math.max(from, 1); // the primary is held at the origin
+
+			//mean anomaly, kept in the same range as the closed form angle before it is turned into radians
+			for(int i = start; i < to; i++) {
+				float degrees = (s.meanAnomaly[i] + time * s.orbitRate[i]) % 360;
+				anomaly[i] = (float) Math.toRadians(degrees);
+				//the orbit angle is the mean longitude, which is the closed form angle on a circle
+				float theta = (s.node[i] + s.periapsis[i] + degrees) % 360;
+				s.orbit[i] = theta < 0 ? theta + 360 : theta;
+			}
+
+			solve(anomaly, s.eccentricity, cosAnomaly, sinAnomaly, start, to);
+
+			//position on the ellipse, turned into the scene by the orientation of the orbit
+			for(int i = start; i < to; i++) {
+				float e = s.eccentricity[i],
+						a = s.semiMajorAxis[i] > 0 ? s.semiMajorAxis[i] : s.offset[i] + s.radius[Math.max(s.parent[i], 0)],
+						b = a * (float) Math.sqrt(1 - e * e);
+				float cosE = cosAnomaly[i], sinE = sinAnomaly[i];
+				float u = a * (cosE - e), v = b * sinE; // position in the plane of the orbit, u towards periapsis
+				s.graph.setLocal(i, px[i] * u + qx[i] * v, py[i] * u + qy[i] * v, pz[i] * u + qz[i] * v);
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package solarModel;
+
+import java.util.Arrays;
+
+/**
+ * Picks a tessellation level for every body from the size it has on screen.
+ * Levels go from coarsest (0) to finest. A body moves up to a finer level once its projected radius passes
+ * the level's threshold by the hysteresis margin, and back down once it falls below by the same margin,
+ * so a body sitting on a threshold doesn't pop between levels every frame.
+ * The level of each body is kept between frames in a flat array indexed by body.
+ */
+public class LevelOfDetail {
+	public static final int[] DEFAULT_TESSELLATIONS = {8, 16, 30, 48}; // slices and stacks of each level
+	public static final float[] DEFAULT_THRESHOLDS = {4.0f, 24.0f, 120.0f}; // projected radius (pixels) to reach levels 1, 2, 3
+	private static final float DEFAULT_HYSTERESIS = 0.15f;
+
+	private final int[] tessellations;
+	private final float[] thresholds; // thresholds[i] is the projected radius needed for level i + 1
+	private final float hysteresis; // fraction of a threshold a body must pass it by before changing level
+	private int[] levels = new int[16]; // current level of each body
+
+	/**
+	 * Creates a selector with the default levels
+	 */
+	public LevelOfDetail() {
+		this(DEFAULT_TESSELLATIONS, DEFAULT_THRESHOLDS, DEFAULT_HYSTERESIS);
+	}
+
+	/**
+	 * @param tessellations slices and stacks of each level, coarsest first
+	 * @param thresholds projected radius (pixels) a body needs to use level i + 1 (one less than there are levels)
+	 * @param hysteresis fraction of a threshold a body must pass it by before changing level
+	 */
+	public LevelOfDetail(int[] tessellations, float[] thresholds, float hysteresis) {
+		if(thresholds.length != tessellations.length - 1)
+			throw new IllegalArgumentException("need one threshold between each pair of levels");
+		this.tessellations = tessellations.clone();
+		this.thresholds = thresholds.clone();
+		this.hysteresis = hysteresis;
+	}
+
+	/**
+	 * Finds the radius of a sphere on screen
+	 * @param radius radius of the sphere
+	 * @param distance distance from the camera to the centre of the sphere
+	 * @param verticalFov vertical field of view (degrees) of the projection
+	 * @param viewportHeight height of the viewport in pixels
+	 * @return the projected radius in pixels (infinite when the camera is inside the sphere)
+	 */
+	public static float projectedRadius(float radius, float distance, float verticalFov, int viewportHeight) {
+		if(distance <= radius) return Float.POSITIVE_INFINITY;
+		float tanHalfFov = (float) Math.tan(Math.toRadians(0.5 * verticalFov));
+		return radius / (distance * tanHalfFov) * (0.5f * viewportHeight);
+	}
+
+	/**
+	 * Updates the level of a body from its projected radius
+	 * @param body index of the body
+	 * @param projectedRadius radius of the body on screen in pixels
+	 * @return the level the body should be drawn with
+	 */
+	public int select(int body, float projectedRadius) {
+		if(body >= levels.length) levels = Arrays.copyOf(levels, Math.max(2 * levels.length, body + 1));
+		int level = levels[body];
+		//move up while the body is clearly larger than the next threshold
+		while(level < thresholds.length && projectedRadius > thresholds[level] * (1 + hysteresis))
+			level++;
+		//move down while the body is clearly smaller than the current level's threshold
+		while(level > 0 && projectedRadius < thresholds[level - 1] * (1 - hysteresis))
+			level--;
+		levels[body] = level;
+		return level;
+	}
+
+	/**
+	 * @return the number of levels
+	 */
+	public int getLevelCount() {
+		return tessellations.length;
+	}
+
+	/**
+	 * @param level the level
+	 * @return the slices and stacks of the sphere mesh of that level
+	 */
+	public int getTessellation(int level) {
+		return tessellations[level];
+	}
+
+	/**
+	 * Generates the sphere mesh of every level
+	 * @return the meshes, coarsest first
+	 */
+	public SphereMesh[] makeMeshes() {
+		SphereMesh[] meshes = new SphereMesh[tessellations.length];
+		for(int level = 0; level < meshes.length; level++)
+			meshes[level] = new SphereMesh(tessellations[level], tessellations[level]);
+		return meshes;
+	}
+}
@@ -1,16 +1,32 @@
 package solarModel;
 
 /**
- * NOT IMPLEMENTED
- * Idea is for the moon rotating its planet to behave the same as planets rotating the sun.
+ * A Moon orbits a planet (or another moon) the same way planets orbit the sun:
+ * its offset is measured from its planet's surface and its orbit is carried along as the planet moves (see SceneGraph).
+ * Moons have rgb intensity values in the range of [0.0f,1.0f]
  */
 public class Moon extends Planet {
+	private final Planet parent; // the body this moon orbits
 
-	public Moon(PlanetEnum p) {
-		super(p); //Needs correction
+	/**
+	 * Create a moon with explicit values passed as arguments, orbiting a planet
+	 * @param parent The planet (or moon) it orbits
+	 * @param radius Radius of the moon (will determin the moons size)
+	 * @param offset Distance from the surface of its planet
+	 * @param orbitRate How fast the moon will rotate around its planet
+	 * @param rotateRate How fast the moon wil rotate around its axis
+	 * @param color The color of the moon
+	 */
+	public Moon(Planet parent, float radius, float offset, float orbitRate, float rotateRate, float[] color) {
+		super(radius, offset, orbitRate, rotateRate, color);
+		this.parent = parent;
+		parent.addMoon(this);
 	}
 
-//	public Moon() {
-//		super(ra, of, 1.0f, 1.0f, 1.0f);
-//	}
+	/**
+	 * @return the planet (or moon) this moon orbits
+	 */
+	public Planet getParent() {
+		return parent;
+	}
 }
@@ -0,0 +1,488 @@
+package solarModel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The path of every body's orbit as closed polylines, relative to the body it orbits, to be drawn as line loops
+ * carried along with the parent.
+ *
+ * A path is worked out once from the body's orbit (its offset and its parent's radius, or its orbital elements) and
+ * kept until the orbit changes: update() compares each body's orbit with the one its path was made from, so a path is
+ * only made again when the orbit actually changed. Paths are made on a pool of worker threads and picked up by a later
+ * update(), so a large catalog never holds up a frame; until then the body has no path (or its old one).
+ *
+ * Each path is sampled adaptively by eccentric anomaly: a span is halved while the middle of its arc is further than the
+ * tolerance from its chord, so points gather where the ellipse bends most (around periapsis) and circles are sampled
+ * evenly. Each path is made at LEVELS tolerances, relative to the size of the orbit, and the renderer picks the coarsest
+ * whose error is below a fraction of a pixel on screen (see getDistance).
+ * The worker that makes a path also packs its levels one after the other into one array. update() writes it into the
+ * body's slot of one direct buffer, shared by every path (see getVertices, getFirst and getCount): into the slot the
+ * body's last path had if it fits, else into the spare capacity at the end of the buffer, and notes the range it wrote
+ * so a renderer uploads only what changed (see getChangeCount). When there is no spare capacity left, every path is
+ * packed again into a larger buffer on a worker thread; the paths that didn't fit wait for it, and the old buffer
+ * is drawn meanwhile (see getVersion).
+ *
+ * update() and the getters are called from one thread (the thread drawing the paths).
+ */
+public class OrbitPaths {
+	// error of each level, times the semi-major axis (a circle gets 24, 96 and 384 points)
+	public static final float[] TOLERANCES = {1.0e-2f, 6.0e-4f, 4.0e-5f};
+	public static final int LEVELS = TOLERANCES.length;
+	public static final int POINT_FLOATS = 3;
+	private static final int KEY_FLOATS = 5; // semi-major axis, eccentricity, inclination, node and periapsis
+	private static final int INITIAL_SPANS = 12; // spans the orbit is cut into before any is halved
+	private static final int MAX_DEPTH = 10; // times a span may be halved
+	private static final int BATCH = 256; // paths made by one task
+	private static final int MIN_SPARE = 16384; // floats of spare capacity a buffer is packed with at least
+
+	private final ExecutorService workers;
+	private final ConcurrentLinkedQueue<Path> finished = new ConcurrentLinkedQueue<Path>(); // made, not yet picked up
+	private float[] keys = new float[0]; // orbit of each body the last path was asked for (NaN for none)
+	private Path[] paths = new Path[0]; // the last path picked up for each body (null for none yet)
+	private Packing packed = new Packing(new Path[0]); // the vertices and the paths in them
+	private volatile Packing repacked; // the vertices packed again by a worker, not yet picked up
+	private boolean repacking; // a worker is packing the vertices again
+	private int[] changes = new int[32]; // first float and number of floats of each range written since clearChanges()
+	private int changeCount;
+	private int version; // counts the times the paths were packed again
+	private int pending; // paths asked for and not yet picked up
+	private int waiting; // paths picked up and waiting for room in the vertices
+
+	/**
+	 * Starts the worker threads (created the first time paths are asked for)
+	 * @param threads the number of paths made at the same time
+	 */
+	public OrbitPaths(int threads) {
+		this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "orbit-paths");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Picks up the paths made since the last update, and the vertices if they were packed again, and asks for the paths
+	 * of the bodies whose orbit changed.
+	 * Doesn't allocate unless a path is asked for or the vertices run out of room.
+	 * @param simulation the bodies (bodies that don't orbit, with no orbit rate or no parent, have no path)
+	 * @return true if the vertices changed
+	 */
+	public boolean update(Simulation simulation) {
+		int count = simulation.count;
+		if(keys.length != count * KEY_FLOATS) resize(count);
+		boolean changed = false;
+		Packing done = repacked;
+		if(done != null) {
+			repacked = null;
+			repacking = false;
+			changed = adopt(done);
+		}
+		for(Path path = finished.poll(); path != null; path = finished.poll()) {
+			pending--;
+			//a path for an orbit that has changed again is dropped, its new path is on the way
+			if(path.body < count && matches(path.key, path.body)) {
+				changed |= place(path.body, path);
+			}
+		}
+
+		ArrayList<Path> batch = null;
+		for(int i = 1; i < count; i++) {
+			int p = simulation.parent[i];
+			boolean orbits = p >= 0 && simulation.orbitRate[i] != 0;
+			float a = simulation.semiMajorAxis[i] > 0 ? simulation.semiMajorAxis[i]
+					: simulation.offset[i] + (p >= 0 ? simulation.radius[p] : 0.0f); // as KeplerSolver places the body
+			int k = KEY_FLOATS * i;
+			if(!orbits) {
+				if(paths[i] != null || !Float.isNaN(keys[k])) {
+					keys[k] = Float.NaN;
+					changed |= place(i, null);
+				}
+				continue;
+			}
+			if(keys[k] == a && keys[k + 1] == simulation.eccentricity[i] && keys[k + 2] == simulation.inclination[i]
+					&& keys[k + 3] == simulation.node[i] && keys[k + 4] == simulation.periapsis[i]) continue;
+			keys[k] = a;
+			keys[k + 1] = simulation.eccentricity[i];
+			keys[k + 2] = simulation.inclination[i];
+			keys[k + 3] = simulation.node[i];
+			keys[k + 4] = simulation.periapsis[i];
+			if(batch == null) batch = new ArrayList<Path>(BATCH);
+			batch.add(new Path(i, Arrays.copyOfRange(keys, k, k + KEY_FLOATS)));
+			if(batch.size() == BATCH) {
+				submit(batch);
+				batch = null;
+			}
+		}
+		if(batch != null) submit(batch);
+		return changed;
+	}
+
+	private boolean matches(float[] key, int body) {
+		for(int f = 0; f < KEY_FLOATS; f++)
+			if(key[f] != keys[KEY_FLOATS * body + f]) return false;
+		return true;
+	}
+
+	/**
+	 * Makes a batch of paths on a worker thread
+	 */
+	private void submit(ArrayList<Path> batch) {
+		pending += batch.size();
+		workers.execute(() -> {
+			for(Path path : batch) {
+				path.make();
+				finished.add(path);
+			}
+		});
+	}
+
+	/**
+	 * Fits the arrays to a number of bodies, keeping the paths of the bodies that are still there and their slots
+	 */
+	private void resize(int count) {
+		int kept = Math.min(count, paths.length);
+		float[] newKeys = new float[count * KEY_FLOATS];
+		Arrays.fill(newKeys, Float.NaN);
+		System.arraycopy(keys, 0, newKeys, 0, kept * KEY_FLOATS);
+		keys = newKeys;
+		paths = Arrays.copyOf(paths, count);
+		packed.resize(count);
+		waiting = 0;
+		for(int i = 0; i < count; i++)
+			if(paths[i] != packed.paths[i]) waiting++;
+	}
+
+	/**
+	 * Takes a body's new path (null for none) and writes it into the vertices: into the body's slot if it fits,
+	 * else into the spare capacity. If there is no room left, the vertices are packed again on a worker and the path
+	 * waits for them.
+	 * @return true if the vertices changed
+	 */
+	private boolean place(int body, Path path) {
+		Packing p = packed;
+		boolean wasWaiting = paths[body] != p.paths[body]; // the body's last path didn't fit either
+		paths[body] = path;
+		if(path != null && path.points.length > p.slotSizes[body]) {
+			if(p.end + path.points.length > p.vertices.capacity()) {
+				if(!wasWaiting) waiting++;
+				repack();
+				return false;
+			}
+			p.slots[body] = p.end;
+			p.slotSizes[body] = path.points.length;
+			p.end += path.points.length;
+		}
+		if(wasWaiting) waiting--;
+		int slot = p.place(body, path);
+		if(path != null) {
+			p.vertices.position(slot);
+			p.vertices.put(path.points);
+			p.vertices.clear();
+			change(slot, path.points.length);
+		}
+		return true;
+	}
+
+	/**
+	 * Notes a range of the vertices written, joined to the last one if it follows it
+	 */
+	private void change(int first, int floats) {
+		if(changeCount > 0 && changes[2 * changeCount - 2] + changes[2 * changeCount - 1] == first) {
+			changes[2 * changeCount - 1] += floats;
+			return;
+		}
+		if(2 * changeCount == changes.length) changes = Arrays.copyOf(changes, 2 * changes.length);
+		changes[2 * changeCount] = first;
+		changes[2 * changeCount + 1] = floats;
+		changeCount++;
+	}
+
+	/**
+	 * Packs every path picked up so far into a new, larger buffer on a worker thread, unless it's already being done
+	 */
+	private void repack() {
+		if(repacking) return; // the paths waiting are placed when it's done
+		repacking = true;
+		Path[] snapshot = paths.clone();
+		workers.execute(() -> repacked = new Packing(snapshot));
+	}
+
+	/**
+	 * Takes the vertices packed again, then places the paths picked up since they were started
+	 * @return true (the vertices are new)
+	 */
+	private boolean adopt(Packing done) {
+		if(done.paths.length != paths.length) done.resize(paths.length); // bodies were added or removed meanwhile
+		packed = done;
+		changeCount = 0;
+		version++;
+		waiting = 0;
+		for(int i = 0; i < paths.length; i++)
+			if(paths[i] != done.paths[i]) {
+				waiting++; // until placed
+				place(i, paths[i]);
+			}
+		return true;
+	}
+
+	/**
+	 * Finds how far a viewer is from a body's path at least, to pick the level it is drawn at
+	 * @param body the index of the body
+	 * @param x x coordinate of the viewer
+	 * @param y y coordinate of the viewer
+	 * @param z z coordinate of the viewer
+	 * @param originX x coordinate of the body's parent, where the path is drawn from
+	 * @param originY y coordinate of the parent
+	 * @param originZ z coordinate of the parent
+	 * @return the distance to the nearest point of the path, or less (0 for a body without a path)
+	 */
+	public float getDistance(int body, float x, float y, float z, float originX, float originY, float originZ) {
+		Path path = packed.paths[body];
+		if(path == null) return 0.0f;
+		float dx = x - originX, dy = y - originY, dz = z - originZ;
+		//height above the plane of the orbit, and distance across it outside the ring the orbit lies in
+		float height = dx * path.normalX + dy * path.normalY + dz * path.normalZ,
+				across = (float) Math.sqrt(Math.max(0.0f, dx * dx + dy * dy + dz * dz - height * height)),
+				outside = Math.max(0.0f, Math.max(across - path.apoapsis, path.periapsis - across));
+		return (float) Math.sqrt(height * height + outside * outside);
+	}
+
+	/**
+	 * The vertices of the paths, each body's path in its own slot with the spare capacity after the last slot
+	 */
+	private static class Packing {
+		FloatBuffer vertices; // from position 0 to the capacity
+		Path[] paths; // the path in each body's slot (null for none)
+		int[] slots, slotSizes; // first float and number of floats of each body's slot
+		int[] firsts, counts; // first point and number of points of each body's levels
+		int end; // floats used by the slots, the spare capacity follows
+
+		/**
+		 * Packs paths one after the other into a new buffer, with half as much again of spare capacity
+		 */
+		Packing(Path[] paths) {
+			int count = paths.length, floats = 0;
+			for(Path path : paths)
+				if(path != null) floats += path.points.length;
+			this.vertices = newFloatBuffer(floats + Math.max(floats / 2, MIN_SPARE));
+			this.paths = paths;
+			this.slots = new int[count];
+			this.slotSizes = new int[count];
+			this.firsts = new int[count * LEVELS];
+			this.counts = new int[count * LEVELS];
+			for(int i = 0; i < count; i++) {
+				Path path = paths[i];
+				slots[i] = end;
+				if(path == null) continue;
+				vertices.put(path.points);
+				slotSizes[i] = path.points.length;
+				end += path.points.length;
+				place(i, path);
+			}
+			vertices.clear();
+		}
+
+		/**
+		 * Sets the first point and number of points of a body's levels for a path written into its slot
+		 * @return the first float of the slot
+		 */
+		int place(int body, Path path) {
+			paths[body] = path;
+			for(int level = 0; level < LEVELS; level++) {
+				firsts[LEVELS * body + level] = slots[body] / POINT_FLOATS + (path != null ? path.starts[level] : 0);
+				counts[LEVELS * body + level] = path != null ? path.starts[level + 1] - path.starts[level] : 0;
+			}
+			return slots[body];
+		}
+
+		/**
+		 * Fits the arrays to a number of bodies, keeping the slots of the bodies that are still there
+		 */
+		void resize(int count) {
+			paths = Arrays.copyOf(paths, count);
+			slots = Arrays.copyOf(slots, count);
+			slotSizes = Arrays.copyOf(slotSizes, count);
+			firsts = Arrays.copyOf(firsts, count * LEVELS);
+			counts = Arrays.copyOf(counts, count * LEVELS);
+		}
+	}
+
+	/**
+	 * Adaptive polylines of one body's orbit, made on a worker thread
+	 */
+	private static class Path {
+		final int body;
+		final float[] key; // the orbit the path is made from
+		float[] points; // x, y, z of each point of every level, one level after the other
+		int[] starts = new int[LEVELS + 1]; // first point of each level in points, then the number of points
+		float periapsis, apoapsis; // nearest and furthest distances from the parent
+		float normalX, normalY, normalZ; // unit normal of the orbit's plane
+
+		Path(int body, float[] key) {
+			this.body = body;
+			this.key = key;
+		}
+
+		/**
+		 * Samples the ellipse at every tolerance, turned into the scene by the orientation of the orbit (see KeplerSolver),
+		 * and packs the levels into points
+		 */
+		void make() {
+			float a = key[0], e = key[1], b = a * (float) Math.sqrt(1 - e * e);
+			float[] pq = new float[6];
+			KeplerSolver.orientation(key[2], key[3], key[4], pq);
+			periapsis = a * (1 - e);
+			apoapsis = a * (1 + e);
+			normalX = pq[1] * pq[5] - pq[2] * pq[4];
+			normalY = pq[2] * pq[3] - pq[0] * pq[5];
+			normalZ = pq[0] * pq[4] - pq[1] * pq[3];
+			Points[] levels = new Points[LEVELS];
+			for(int level = 0; level < LEVELS; level++) {
+				levels[level] = new Points(a, e, b, pq, TOLERANCES[level] * a);
+				for(int span = 0; span < INITIAL_SPANS; span++)
+					levels[level].span(2 * Math.PI * span / INITIAL_SPANS, 2 * Math.PI * (span + 1) / INITIAL_SPANS, 0);
+				starts[level + 1] = starts[level] + levels[level].size / POINT_FLOATS;
+			}
+			points = new float[POINT_FLOATS * starts[LEVELS]];
+			for(int level = 0; level < LEVELS; level++)
+				System.arraycopy(levels[level].xyz, 0, points, POINT_FLOATS * starts[level], levels[level].size);
+		}
+	}
+
+	/**
+	 * The points of one level of a path, as they are sampled
+	 */
+	private static class Points {
+		final float a, e, b, tolerance;
+		final float[] pq;
+		float[] xyz = new float[POINT_FLOATS * INITIAL_SPANS * 4];
+		int size;
+
+		Points(float a, float e, float b, float[] pq, float tolerance) {
+			this.a = a;
+			this.e = e;
+			this.b = b;
+			this.pq = pq;
+			this.tolerance = tolerance;
+		}
+
+		/**
+		 * Adds the points of the arc between two eccentric anomalies, halving it until its chord is close enough,
+		 * without its end (the start of the next span)
+		 */
+		void span(double from, double to, int depth) {
+			double middle = 0.5 * (from + to);
+			float u0 = u(from), v0 = v(from), u1 = u(to), v1 = v(to), um = u(middle), vm = v(middle);
+			//distance of the middle of the arc from the chord
+			float cu = u1 - u0, cv = v1 - v0,
+					error = Math.abs(cu * (vm - v0) - cv * (um - u0)) / (float) Math.sqrt(cu * cu + cv * cv);
+			if(error > tolerance && depth < MAX_DEPTH) {
+				span(from, middle, depth + 1);
+				span(middle, to, depth + 1);
+				return;
+			}
+			if(size + POINT_FLOATS > xyz.length) xyz = Arrays.copyOf(xyz, 2 * xyz.length);
+			xyz[size++] = pq[0] * u0 + pq[3] * v0;
+			xyz[size++] = pq[1] * u0 + pq[4] * v0;
+			xyz[size++] = pq[2] * u0 + pq[5] * v0;
+		}
+
+		float u(double anomaly) {
+			return a * ((float) Math.cos(anomaly) - e); // towards periapsis
+		}
+		float v(double anomaly) {
+			return b * (float) Math.sin(anomaly);
+		}
+	}
+
+	private static FloatBuffer newFloatBuffer(int floats) {
+		return ByteBuffer.allocateDirect(floats * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	/**
+	 * Stops the worker threads, paths being made are dropped
+	 */
+	public void dispose() {
+		workers.shutdownNow();
+	}
+
+	/*
+	Getters for the packed paths, indexed by body and level
+	 */
+
+	/**
+	 * @return the points of every path, from position 0 to the capacity (the spare capacity included)
+	 */
+	public FloatBuffer getVertices() {
+		return packed.vertices;
+	}
+	/**
+	 * @return the index of the first point of a level of a body's path in the vertices
+	 */
+	public int getFirst(int body, int level) {
+		return packed.firsts[LEVELS * body + level];
+	}
+	/**
+	 * @return the number of points of a level of a body's path (0 for a body without a path)
+	 */
+	public int getCount(int body, int level) {
+		return packed.counts[LEVELS * body + level];
+	}
+	/**
+	 * @return the number of ranges of the vertices written since clearChanges()
+	 */
+	public int getChangeCount() {
+		return changeCount;
+	}
+	/**
+	 * @return the first float of a range of the vertices written since clearChanges()
+	 */
+	public int getChangeFirst(int change) {
+		return changes[2 * change];
+	}
+	/**
+	 * @return the number of floats of a range of the vertices written since clearChanges()
+	 */
+	public int getChangeLength(int change) {
+		return changes[2 * change + 1];
+	}
+	/**
+	 * Forgets the ranges written, once they are uploaded
+	 */
+	public void clearChanges() {
+		changeCount = 0;
+	}
+	/**
+	 * @return the number of bodies there is room for (the bodies of the last update)
+	 */
+	public int size() {
+		return paths.length;
+	}
+	/**
+	 * @return the apoapsis of a body's path, the radius around its parent the path fits in (0 for none)
+	 */
+	public float getApoapsis(int body) {
+		Path path = packed.paths[body];
+		return path != null ? path.apoapsis : 0.0f;
+	}
+	/**
+	 * @return counts the times the vertices were packed again into a new buffer, so a renderer knows when to upload
+	 * all of them (between two, only the ranges of getChangeCount changed)
+	 */
+	public int getVersion() {
+		return version;
+	}
+	/**
+	 * @return the number of paths asked for and not yet in the vertices
+	 */
+	public int getPending() {
+		return pending + waiting;
+	}
+}
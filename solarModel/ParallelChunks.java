@@ -0,0 +1,37 @@
+package solarModel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a batch of chunks in parallel on a fork-join pool without allocating, as every per-tick batch of the model
+ * does (GravityIntegrator, KeplerSolver, ParticleBelt, CloseApproaches).
+ */
+final class ParallelChunks {
+	private ParallelChunks() {}
+
+	/**
+	 * Runs every chunk and returns when they have all finished.
+	 * Every chunk but the first is handed to the pool and the first is run on this thread.
+	 * The other chunks are then waited for by yielding instead of join(), which allocates a wait node when it blocks.
+	 * @param pool the pool the chunks run on
+	 * @param chunks the chunks, run again each time (they are reinitialized first)
+	 */
+	static void run(ForkJoinPool pool, ForkJoinTask<?>[] chunks) {
+		for(int c = 1; c < chunks.length; c++) {
+			chunks[c].reinitialize();
+			pool.execute(chunks[c]);
+		}
+		if(chunks.length > 0) {
+			chunks[0].reinitialize();
+			chunks[0].invoke(); // runs on this thread, it was never handed to the pool
+		}
+		for(int c = 1; c < chunks.length; c++) {
+			ForkJoinTask<?> chunk = chunks[c];
+			while(!chunk.isDone())
+				Thread.yield();
+			if(chunk.isCompletedAbnormally())
+				chunk.join(); // rethrows the exception of the chunk
+		}
+	}
+}
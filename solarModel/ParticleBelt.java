@@ -0,0 +1,188 @@
+package solarModel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A belt of small bodies (asteroids, Kuiper belt objects) too many to be bodies of a Simulation:
+ * they don't pull on anything, aren't tracked or named, and are drawn all at once by instancing one mesh.
+ *
+ * Each particle moves on a fixed circular orbit around the primary, tilted by its inclination, at the rate of a
+ * planet at its offset (Kepler's third law: the rate falls with offset^1.5, earth's is 1 degree per unit of time).
+ * The state drawn for each instance is kept off the heap in direct buffers, ready to be uploaded as they are:
+ * the instance buffer holds x, y, z and scale (INSTANCE_FLOATS floats each) and is rewritten by update(),
+ * the colour buffer holds red, green and blue (COLOR_FLOATS floats each) and never changes.
+ * update() is split into chunks of particles which are run in parallel on a fork-join pool; the chunks are reused,
+ * so once the belt is made an update doesn't allocate. Nothing here needs a GL context.
+ */
+public class ParticleBelt {
+	public static final int INSTANCE_FLOATS = 4, COLOR_FLOATS = 3;
+	private static final int CHUNKS_PER_THREAD = 4; // more chunks than threads so idle threads can steal work
+	private static final int MIN_CHUNK_SIZE = 4096; // smallest number of particles worth a task
+
+	private final int count;
+	private final float[] distance; // distance of each particle from the primary's centre
+	private final float[] angle; // angle (radians) of each particle around its orbit at time 0
+	private final float[] rate; // radians per unit of time
+	private final float[] sinInclination, cosInclination; // tilt of each orbit about its line of nodes
+	private final float[] sinNode, cosNode; // direction of each orbit's line of nodes on the XZ plane
+	private final FloatBuffer instances; // x, y, z, scale of each particle
+	private final FloatBuffer colors; // red, green, blue of each particle
+	private final ForkJoinPool pool;
+	private final Chunk[] chunks;
+	private float time = Float.NaN; // time of the positions in the instance buffer
+	private int version; // counts the updates that moved the particles, so a renderer knows when to upload again
+
+	/**
+	 * Scatters particles on circular orbits between two offsets
+	 * @param count the number of particles
+	 * @param innerOffset smallest offset from the primary's surface (relative to earth's, as Planet's)
+	 * @param outerOffset largest offset from the primary's surface
+	 * @param maxInclination largest tilt (degrees) of an orbit from the XZ plane
+	 * @param minScale radius of the smallest particle
+	 * @param maxScale radius of the largest particle
+	 * @param color rgb colour of the belt in [0,1], varied a little from particle to particle
+	 * @param primaryRadius radius of the primary the particles orbit
+	 * @param seed seed of the random placement, so the same belt is made every time
+	 */
+	public ParticleBelt(int count, float innerOffset, float outerOffset, float maxInclination, float minScale, float maxScale,
+			float[] color, float primaryRadius, long seed) {
+		this(count, innerOffset, outerOffset, maxInclination, minScale, maxScale, color, primaryRadius, seed,
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Scatters particles on circular orbits between two offsets, updated on the given pool
+	 * (see the other constructor for the parameters)
+	 */
+	public ParticleBelt(int count, float innerOffset, float outerOffset, float maxInclination, float minScale, float maxScale,
+			float[] color, float primaryRadius, long seed, ForkJoinPool pool) {
+		this.count = count;
+		this.distance = new float[count];
+		this.angle = new float[count];
+		this.rate = new float[count];
+		this.sinInclination = new float[count]; this.cosInclination = new float[count];
+		this.sinNode = new float[count]; this.cosNode = new float[count];
+		this.instances = newFloatBuffer(count * INSTANCE_FLOATS);
+		this.colors = newFloatBuffer(count * COLOR_FLOATS);
+		this.pool = pool;
+
+		Random random = new Random(seed);
+		for(int i = 0; i < count; i++) {
+			float offset = innerOffset + (outerOffset - innerOffset) * random.nextFloat();
+			distance[i] = primaryRadius + offset;
+			angle[i] = (float) (2 * Math.PI * random.nextFloat());
+			rate[i] = (float) Math.toRadians(Math.pow(offset, -1.5));
+			double inclination = Math.toRadians(maxInclination * random.nextFloat() * random.nextFloat()), // mostly flat
+					node = 2 * Math.PI * random.nextFloat();
+			sinInclination[i] = (float) Math.sin(inclination); cosInclination[i] = (float) Math.cos(inclination);
+			sinNode[i] = (float) Math.sin(node); cosNode[i] = (float) Math.cos(node);
+			//small particles are the most common
+			instances.put(INSTANCE_FLOATS * i + 3, minScale + (maxScale - minScale) * random.nextFloat() * random.nextFloat());
+			float shade = 0.8f + 0.4f * random.nextFloat();
+			for(int c = 0; c < COLOR_FLOATS; c++)
+				colors.put(COLOR_FLOATS * i + c, Math.min(1.0f, color[c] * shade));
+		}
+
+		int maxChunks = Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD),
+				chunkCount = Math.max(1, Math.min(maxChunks, (count + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE)),
+				chunkSize = (count + chunkCount - 1) / chunkCount;
+		this.chunks = new Chunk[chunkCount];
+		for(int c = 0; c < chunkCount; c++)
+			chunks[c] = new Chunk(Math.min(count, c * chunkSize), Math.min(count, (c + 1) * chunkSize));
+		update(0.0f);
+	}
+
+	/*
+	The belts below are tilted far less than the real ones: offsets are measured from the sun's surface, so the belts
+	are narrow rings far from the sun's centre, and a real inclination at that distance would make them thick shells.
+	 */
+
+	/**
+	 * The main asteroid belt, between the orbits of Mars and Jupiter
+	 * @param count the number of asteroids
+	 * @param primaryRadius radius of the sun
+	 */
+	public static ParticleBelt mainBelt(int count, float primaryRadius) {
+		return new ParticleBelt(count, 2.1f, 3.3f, 0.5f, 0.01f, 0.08f, new float[] {0.55f, 0.50f, 0.45f}, primaryRadius, 1);
+	}
+
+	/**
+	 * The Kuiper belt, beyond the orbit of Neptune
+	 * @param count the number of objects
+	 * @param primaryRadius radius of the sun
+	 */
+	public static ParticleBelt kuiperBelt(int count, float primaryRadius) {
+		return new ParticleBelt(count, 30.0f, 50.0f, 2.0f, 0.02f, 0.2f, new float[] {0.60f, 0.65f, 0.75f}, primaryRadius, 2);
+	}
+
+	/**
+	 * Moves every particle to where it is at a time, writing the instance buffer.
+	 * Does nothing if the particles are already there (e.g. while time is paused).
+	 * @param time the simulation time
+	 */
+	public void update(float time) {
+		if(time == this.time) return;
+		this.time = time;
+		ParallelChunks.run(pool, chunks);
+		version++;
+	}
+
+	/**
+	 * A range of particles [from, to) that is moved by one task
+	 */
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;
+
+		Chunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			FloatBuffer out = instances;
+			float t = time;
+			for(int i = from; i < to; i++) {
+				double theta = angle[i] + rate[i] * t;
+				float r = distance[i],
+						u = r * (float) Math.cos(theta), // along the line of nodes
+						v = r * (float) Math.sin(theta); // across it, in the orbit's plane
+				float across = v * cosInclination[i];
+				int base = INSTANCE_FLOATS * i;
+				out.put(base, u * cosNode[i] - across * sinNode[i]);
+				out.put(base + 1, v * sinInclination[i]);
+				out.put(base + 2, u * sinNode[i] + across * cosNode[i]);
+			}
+		}
+	}
+
+	private static FloatBuffer newFloatBuffer(int floats) {
+		return ByteBuffer.allocateDirect(floats * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	/*
+	Getters for the belt and its buffers (indexed by particle, INSTANCE_FLOATS or COLOR_FLOATS floats per particle)
+	 */
+
+	public int getCount() {
+		return count;
+	}
+	public FloatBuffer getInstances() {
+		return instances;
+	}
+	public FloatBuffer getColors() {
+		return colors;
+	}
+	public float getTime() {
+		return time;
+	}
+	public int getVersion() {
+		return version;
+	}
+}
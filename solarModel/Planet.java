@@ -1,11 +1,14 @@
 package solarModel;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.jogamp.opengl.math.Vec3f;
 
 /**
  *  * A Planet is a 3d graphical element to be displayed on jogl.java
  * Planets have rotation, orbit, offset, and a radius
- * Planets may also have moons (not implemented)
+ * Planets may also have moons, which orbit them the way they orbit the sun (see Moon)
  * Planets have rgb intensity values in the range of [0.0f,1.0f]
  */
 public class Planet {
@@ -13,10 +16,11 @@ public class Planet {
 	protected float orbit; //Planet's position in it's orbit (angle)
 	protected float radius; //relative to earth
 	protected float offset; //relative to earth's offset from the sun (1AU)
+	protected float mass; //relative to earth (0 for bodies that don't attract other bodies)
 	private float rotateRate, orbitRate; //relative velocities to earth
 	protected Vec3f color; // The color for each planet using RGB model
 	protected Vec3f position; // Position of each planet using (x,y,z) model (Planets are drawn on the XZ plane
-	protected Moon moon;	// The planets moon. (not implemented)
+	protected final ArrayList<Moon> moons = new ArrayList<Moon>(); // The moons orbiting this planet
 	protected PlanetEnum planetEnum; // The enum holding all the planets
 	
 	//all ratios are of earth's respective properties
@@ -35,7 +39,6 @@ public class Planet {
 	public Planet(PlanetEnum p) {
 		//init rotation and orbit
 		this.rotation = 0; this.orbit = 0;
-		PlanetEnum[] planets = PlanetEnum.values();
 		// intialize Earth values first because all other planets property
 		// values are calculated as a ratio from Earth's property values
 		float earthRadius = radiusRatios[EARTHINDEX],
@@ -43,18 +46,15 @@ public class Planet {
 				earthRotateRate = rotateRatios[EARTHINDEX],
 				earthOrbitRate = orbitRatios[EARTHINDEX];
 		
-		for(int planetIndex = 0; planetIndex < planets.length; planetIndex++) {
-			if(planets[planetIndex] == p) { // Find the appropriate planet set values for
-				//Set all the planet properties
-				this.radius = earthRadius * radiusRatios[planetIndex];
-				this.offset = earthOffset * offsetRatios[planetIndex];
-				this.rotateRate = earthRotateRate * rotateRatios[planetIndex];
-				this.orbitRate = earthOrbitRate * orbitRatios[planetIndex];
-				this.color = new Vec3f(planetColors[planetIndex]);
-				this.planetEnum = p;
-				this.position = new Vec3f(0.0f,0.0f,0.0f); // All planets will have a postion at (0,0,0) Will be changed by the offset.
-			}
-		}
+		int planetIndex = p.ordinal(); // the ratios are in the order of the enum
+		//Set all the planet properties
+		this.radius = earthRadius * radiusRatios[planetIndex];
+		this.offset = earthOffset * offsetRatios[planetIndex];
+		this.rotateRate = earthRotateRate * rotateRatios[planetIndex];
+		this.orbitRate = earthOrbitRate * orbitRatios[planetIndex];
+		this.color = new Vec3f(planetColors[planetIndex]);
+		this.planetEnum = p;
+		this.position = new Vec3f(0.0f,0.0f,0.0f); // All planets will have a postion at (0,0,0) Will be changed by the offset.
 	}
 
 	/**
@@ -80,21 +80,17 @@ public class Planet {
 		//init rotation and orbit
 		this.rotation = 0; this.orbit = 0;
 		this.position = new Vec3f(position);
-		PlanetEnum[] planets = PlanetEnum.values();
 		float earthRadius = radiusRatios[EARTHINDEX],
 				earthOffset = offsetRatios[EARTHINDEX],
 				earthRotateRate = rotateRatios[EARTHINDEX],
 				earthOrbitRate = orbitRatios[EARTHINDEX];
-		for(int planetIndex = 0; planetIndex < planets.length; planetIndex++) {
-			if(planets[planetIndex] == p) {
-				this.radius = earthRadius * radiusRatios[planetIndex];
-				this.offset = earthOffset * offsetRatios[planetIndex];
-				this.rotateRate = earthRotateRate * rotateRatios[planetIndex];
-				this.orbitRate = earthOrbitRate * orbitRatios[planetIndex];
-				this.color = new Vec3f(planetColors[planetIndex]);
-				this.planetEnum = p;
-			}
-		}
+		int planetIndex = p.ordinal(); // the ratios are in the order of the enum
+		this.radius = earthRadius * radiusRatios[planetIndex];
+		this.offset = earthOffset * offsetRatios[planetIndex];
+		this.rotateRate = earthRotateRate * rotateRatios[planetIndex];
+		this.orbitRate = earthOrbitRate * orbitRatios[planetIndex];
+		this.color = new Vec3f(planetColors[planetIndex]);
+		this.planetEnum = p;
 	}
 
 	/**
@@ -190,10 +186,25 @@ public class Planet {
 	
 	/**
 	 * Checks if the planet has a moon
-	 * @return true if moon isn't null
+	 * @return true if at least one moon orbits the planet
 	 */
 	public boolean hasMoon() {
-		return moon != null;
+		return !moons.isEmpty();
+	}
+
+	/**
+	 * Adds a moon orbiting this planet (done by the Moon's constructor)
+	 * @param moon the moon
+	 */
+	public void addMoon(Moon moon) {
+		moons.add(moon);
+	}
+
+	/**
+	 * @return the moons orbiting this planet, in the order they were added
+	 */
+	public List<Moon> getMoons() {
+		return moons;
 	}
 	public float getRotation() {
 		return rotation;
@@ -223,7 +234,7 @@ public class Planet {
 		this.color.setZ(blue);
 	}
 	public Moon getMoon() {
-		return moon;
+		return moons.isEmpty() ? null : moons.get(0);
 	}
 	public float getRadius() {
 		return radius;
@@ -240,6 +251,18 @@ public class Planet {
 	public float getOrbit() {
 		return orbit;
 	}
+	public float getMass() {
+		return mass;
+	}
+	public void setMass(float mass) {
+		this.mass = mass;
+	}
+	public float getOrbitRate() {
+		return orbitRate;
+	}
+	public float getRotateRate() {
+		return rotateRate;
+	}
 	public void setOrbit(float orbit){
 		this.orbit = orbit;
 	}
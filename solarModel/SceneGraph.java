@@ -0,0 +1,106 @@
+package solarModel;
+
+import java.util.Arrays;
+
+/**
+ * The hierarchy of a Simulation's bodies: the sun at the root, planets orbiting it, moons orbiting planets and
+ * satellites orbiting moons (see Simulation.setParent). Each body's orbit is worked out in its parent's frame,
+ * giving its local position, and its world position is its parent's world position plus its local position.
+ * A frame only carries its body's position: moons don't turn with their planet's spin, which is applied when the
+ * body itself is drawn.
+ *
+ * A parent always comes before its children in the simulation, so one pass in index order turns every local
+ * position into a world position: the cost of a tick grows with the number of bodies, not the depth of the tree.
+ * World positions are cached in the simulation's x, y and z arrays and only recomputed for bodies that are dirty:
+ * a body is dirty when its local position changed or its parent is dirty, so bodies at rest in a frame at rest
+ * (e.g. the sun, or everything while time is paused) cost nothing.
+ */
+public class SceneGraph {
+	private final Simulation simulation;
+	private float[] lx = new float[0], ly = new float[0], lz = new float[0]; // local position of each body
+	private boolean[] dirty = new boolean[0]; // bodies whose world position is out of date
+	private boolean allDirty = true; // every world position is out of date (e.g. they were moved by an integrator)
+
+	/**
+	 * @param simulation the simulation whose bodies are placed
+	 */
+	public SceneGraph(Simulation simulation) {
+		this.simulation = simulation;
+	}
+
+	/**
+	 * Sets the position of a body relative to its parent, marking the body dirty if it moved
+	 * @param index the index of the body
+	 * @param x local x position
+	 * @param y local y position
+	 * @param z local z position
+	 */
+	public void setLocal(int index, float x, float y, float z) {
+		if(index >= lx.length) fit();
+		if(lx[index] == x && ly[index] == y && lz[index] == z) return;
+		lx[index] = x; ly[index] = y; lz[index] = z;
+		dirty[index] = true;
+	}
+
+	/**
+	 * Works out the world position of every dirty body and of every body below one, in one pass in index order
+	 * @return the number of bodies whose world position was worked out
+	 */
+	public int resolve() {
+		Simulation s = simulation;
+		if(lx.length < s.count) fit();
+		int resolved = 0;
+		for(int i = 0; i < s.count; i++) {
+			int p = s.parent[i];
+			if(!allDirty && !dirty[i] && (p < 0 || !dirty[p])) continue;
+			dirty[i] = true; // so the body's children are resolved too
+			if(p < 0) {
+				s.x[i] = lx[i]; s.y[i] = ly[i]; s.z[i] = lz[i];
+			} else {
+				s.x[i] = s.x[p] + lx[i]; s.y[i] = s.y[p] + ly[i]; s.z[i] = s.z[p] + lz[i];
+			}
+			resolved++;
+		}
+		Arrays.fill(dirty, 0, s.count, false);
+		allDirty = false;
+		return resolved;
+	}
+
+	/**
+	 * Marks every world position out of date, e.g. after the bodies were moved by something else or the tree changed
+	 */
+	public void invalidate() {
+		allDirty = true;
+	}
+
+	/**
+	 * Grows the arrays to the simulation's capacity (before local positions are set from several threads).
+	 * Does nothing if they already fit, so it can be called every tick.
+	 */
+	void fit() {
+		int capacity = simulation.x.length;
+		if(lx.length >= capacity) return;
+		lx = Arrays.copyOf(lx, capacity); ly = Arrays.copyOf(ly, capacity); lz = Arrays.copyOf(lz, capacity);
+		dirty = Arrays.copyOf(dirty, capacity);
+		allDirty = true;
+	}
+
+	/**
+	 * @return the number of frames between a body and the root (0 for a root)
+	 */
+	public int getDepth(int index) {
+		int depth = 0;
+		for(int p = simulation.parent[index]; p >= 0; p = simulation.parent[p])
+			depth++;
+		return depth;
+	}
+
+	/**
+	 * @return whether a body is below another in the tree (or is it)
+	 */
+	public boolean isWithin(int index, int ancestor) {
+		for(int i = index; i >= 0; i = simulation.parent[i])
+			if(i == ancestor) return true;
+		return false;
+	}
+}
@@ -0,0 +1,442 @@
+package solarModel;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A headless simulation of the bodies in the solar system.
+ * Body properties are stored in flat primitive arrays (one array per property, indexed by body)
+ * so the whole system can be advanced in one tight loop per tick without an OpenGL context.
+ * Body 0 is the primary (the sun). It stays at the origin and every other body orbits it, or orbits another body
+ * above it (e.g. a moon orbits its planet, see setParent and SceneGraph).
+ * By default bodies move on circles (closed form). Bodies given orbital elements move on ellipses instead (see KeplerSolver),
+ * and a GravityIntegrator can be set to move them under gravity.
+ * The arrays are package-private so the integrators in this package can work on them directly.
+ * Bodies are named, and bound to what they are drawn with, in a BodyRegistry.
+ */
+public class Simulation {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	int count; // number of bodies in the simulation
+	float[] x, y, z; // position of each body (bodies are placed on the XZ plane)
+	float[] vx, vy, vz; // velocity of each body (only used by the integrator)
+	float[] ax, ay, az; // acceleration of each body (only used by the integrator)
+	float[] mass; // mass of each body relative to earth (0 for test particles)
+	float[] orbit; // angle (degrees) each body makes with the primary
+	float[] rotation; // angle (degrees) of rotation on each body's axis
+	float[] radius, offset; // radius of each body and its offset from the primary's surface
+	float[] orbitRate, rotateRate; // degrees per unit of time
+	float[] red, green, blue; // rgb intensity of each body in the range [0.0f,1.0f]
+	final BodyRegistry registry; // name, planet, texture and mesh of each body
+	int[] parent; // index of the body each body orbits, always a lower index (-1 for the primary)
+	float[] semiMajorAxis, eccentricity; // size and shape of each body's ellipse (0 for a circle of radius offset + primary radius)
+	float[] inclination, node, periapsis; // orientation (degrees) of each body's ellipse: inclination, longitude of the ascending node, argument of periapsis
+	float[] meanAnomaly; // mean anomaly (degrees) of each body at time 0
+	private KeplerSolver kepler; // places bodies on their ellipses (null while every orbit is a circle)
+	final SceneGraph graph = new SceneGraph(this); // turns positions relative to each body's parent into world positions
+	private Ephemeris ephemeris; // gives the positions of the bodies instead of moving them (null to move them)
+	private int heldRotation; // index of the body whose rotation is not updated (-1 for none)
+	private GravityIntegrator integrator; // moves the bodies under gravity (null for closed form orbits)
+	private float lastTime; // time of the last update (used to find the integrator's time step)
+
+	/**
+	 * Creates an empty simulation with room for the given number of bodies
+	 * @param capacity initial number of bodies that can be stored before the arrays grow
+	 */
+	public Simulation(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.x = new float[capacity]; this.y = new float[capacity]; this.z = new float[capacity];
+		this.vx = new float[capacity]; this.vy = new float[capacity]; this.vz = new float[capacity];
+		this.ax = new float[capacity]; this.ay = new float[capacity]; this.az = new float[capacity];
+		this.mass = new float[capacity];
+		this.orbit = new float[capacity]; this.rotation = new float[capacity];
+		this.radius = new float[capacity]; this.offset = new float[capacity];
+		this.orbitRate = new float[capacity]; this.rotateRate = new float[capacity];
+		this.red = new float[capacity]; this.green = new float[capacity]; this.blue = new float[capacity];
+		this.registry = new BodyRegistry(capacity);
+		this.parent = new int[capacity];
+		this.semiMajorAxis = new float[capacity]; this.eccentricity = new float[capacity];
+		this.inclination = new float[capacity]; this.node = new float[capacity]; this.periapsis = new float[capacity];
+		this.meanAnomaly = new float[capacity];
+		this.count = 0;
+		this.heldRotation = -1;
+	}
+
+	/**
+	 * Creates a simulation holding every planet in the list (the first planet is the primary) and their moons
+	 * @param planets the planets to be simulated
+	 */
+	public Simulation(List<Planet> planets) {
+		this(Math.max(planets.size(), DEFAULT_CAPACITY));
+		for(Planet p : planets)
+			addMoons(p, addPlanet(p));
+	}
+
+	/**
+	 * Adds the moons of a body, and their moons, each after the body it orbits
+	 * @param p the body
+	 * @param index the index of the body
+	 */
+	private void addMoons(Planet p, int index) {
+		for(Moon moon : p.getMoons()) {
+			int moonIndex = addPlanet(moon);
+			setParent(moonIndex, index);
+			addMoons(moon, moonIndex);
+		}
+	}
+
+	/**
+	 * Creates a copy of a simulation with the same bodies in the same state (without its integrator or ephemeris)
+	 * @param other the simulation to be copied
+	 */
+	public Simulation(Simulation other) {
+		this(Math.max(other.count, DEFAULT_CAPACITY));
+		int n = other.count;
+		System.arraycopy(other.x, 0, x, 0, n); System.arraycopy(other.y, 0, y, 0, n); System.arraycopy(other.z, 0, z, 0, n);
+		System.arraycopy(other.vx, 0, vx, 0, n); System.arraycopy(other.vy, 0, vy, 0, n); System.arraycopy(other.vz, 0, vz, 0, n);
+		System.arraycopy(other.mass, 0, mass, 0, n);
+		System.arraycopy(other.orbit, 0, orbit, 0, n); System.arraycopy(other.rotation, 0, rotation, 0, n);
+		System.arraycopy(other.radius, 0, radius, 0, n); System.arraycopy(other.offset, 0, offset, 0, n);
+		System.arraycopy(other.orbitRate, 0, orbitRate, 0, n); System.arraycopy(other.rotateRate, 0, rotateRate, 0, n);
+		System.arraycopy(other.red, 0, red, 0, n); System.arraycopy(other.green, 0, green, 0, n); System.arraycopy(other.blue, 0, blue, 0, n);
+		registry.copy(other.registry);
+		System.arraycopy(other.parent, 0, parent, 0, n);
+		System.arraycopy(other.semiMajorAxis, 0, semiMajorAxis, 0, n); System.arraycopy(other.eccentricity, 0, eccentricity, 0, n);
+		System.arraycopy(other.inclination, 0, inclination, 0, n); System.arraycopy(other.node, 0, node, 0, n);
+		System.arraycopy(other.periapsis, 0, periapsis, 0, n); System.arraycopy(other.meanAnomaly, 0, meanAnomaly, 0, n);
+		this.count = n;
+		this.lastTime = other.lastTime;
+		if(other.kepler != null) this.kepler = new KeplerSolver(this);
+	}
+
+	/**
+	 * Creates a simulation holding every body in the catalog (the first body is the primary)
+	 * @param catalog the bodies to be simulated
+	 */
+	public Simulation(BodyCatalog catalog) {
+		this(Math.max(catalog.size(), DEFAULT_CAPACITY));
+		addCatalog(catalog);
+	}
+
+	/**
+	 * Copies every body of a catalog into the simulation, straight into the property arrays
+	 * @param catalog the bodies to be added
+	 * @return the index of the first new body
+	 */
+	public int addCatalog(BodyCatalog catalog) {
+		int first = count, size = catalog.size();
+		if(count + size > this.x.length) grow(Math.max(count + size, count * 2));
+		for(int i = 0; i < size; i++) {
+			int index = addBody(catalog.getRadius(i), catalog.getOffset(i), catalog.getOrbitRate(i), catalog.getRotateRate(i),
+					catalog.getRed(i), catalog.getGreen(i), catalog.getBlue(i));
+			registry.setName(index, catalog.getName(i));
+			registry.setEnum(index, catalog.getEnum(i));
+			this.mass[index] = catalog.getMass(i);
+			int parent = catalog.getParent(i);
+			if(parent >= 0) setParent(index, first + parent);
+			if(catalog.hasOrbitalElements(i))
+				setOrbitalElements(index, catalog.getSemiMajorAxis(i), catalog.getEccentricity(i), catalog.getInclination(i),
+						catalog.getNode(i), catalog.getPeriapsis(i), catalog.getMeanAnomaly(i));
+		}
+		return first;
+	}
+
+	/**
+	 * Copies the properties of a planet into the simulation
+	 * Planets without an enum do not orbit (see Planet.orbit()), moons do
+	 * @param p the planet to be added
+	 * @return the index of the new body (which orbits the primary, see setParent)
+	 */
+	public int addPlanet(Planet p) {
+		float orbitRate = p.getEnum() == null && !(p instanceof Moon) ? 0.0f : p.getOrbitRate();
+		int index = addBody(p.getRadius(), p.getOffset(), orbitRate, p.getRotateRate(),
+				p.getRed(), p.getGreen(), p.getBlue());
+		this.x[index] = p.getX(); this.y[index] = p.getY(); this.z[index] = p.getZ();
+		if(p.getEnum() != null) registry.setName(index, p.getEnum().name().toLowerCase(Locale.ROOT));
+		registry.setEnum(index, p.getEnum());
+		this.mass[index] = p.getMass();
+		return index;
+	}
+
+	/**
+	 * Adds a body to the simulation with explicit values
+	 * @param radius Radius of the body
+	 * @param offset Distance from the surface of the primary
+	 * @param orbitRate How fast the body orbits the primary
+	 * @param rotateRate How fast the body rotates around its axis
+	 * @return the index of the new body
+	 */
+	public int addBody(float radius, float offset, float orbitRate, float rotateRate, float red, float green, float blue) {
+		if(count == this.x.length) grow(count * 2);
+		int index = count++;
+		registry.add();
+		this.parent[index] = index == 0 ? -1 : 0; // the primary, or a body orbiting it
+		this.radius[index] = radius;
+		this.offset[index] = offset;
+		this.orbitRate[index] = orbitRate;
+		this.rotateRate[index] = rotateRate;
+		this.red[index] = red; this.green[index] = green; this.blue[index] = blue;
+		return index;
+	}
+
+	/**
+	 * Resizes every property array to the new capacity
+	 * @param capacity the new number of bodies that can be stored
+	 */
+	private void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity); y = Arrays.copyOf(y, capacity); z = Arrays.copyOf(z, capacity);
+		vx = Arrays.copyOf(vx, capacity); vy = Arrays.copyOf(vy, capacity); vz = Arrays.copyOf(vz, capacity);
+		ax = Arrays.copyOf(ax, capacity); ay = Arrays.copyOf(ay, capacity); az = Arrays.copyOf(az, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		orbit = Arrays.copyOf(orbit, capacity); rotation = Arrays.copyOf(rotation, capacity);
+		radius = Arrays.copyOf(radius, capacity); offset = Arrays.copyOf(offset, capacity);
+		orbitRate = Arrays.copyOf(orbitRate, capacity); rotateRate = Arrays.copyOf(rotateRate, capacity);
+		red = Arrays.copyOf(red, capacity); green = Arrays.copyOf(green, capacity); blue = Arrays.copyOf(blue, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		semiMajorAxis = Arrays.copyOf(semiMajorAxis, capacity); eccentricity = Arrays.copyOf(eccentricity, capacity);
+		inclination = Arrays.copyOf(inclination, capacity); node = Arrays.copyOf(node, capacity);
+		periapsis = Arrays.copyOf(periapsis, capacity); meanAnomaly = Arrays.copyOf(meanAnomaly, capacity);
+	}
+
+	/**
+	 * Makes a body orbit another body (e.g. a moon its planet) instead of the primary.
+	 * The body's offset is then from the parent's surface and its orbital elements are around the parent,
+	 * and the body is carried along as the parent moves.
+	 * @param index the index of the body
+	 * @param parent the index of the body it orbits, which must be before it, or -1 for a body that doesn't orbit
+	 * (it stays at the origin like the primary)
+	 */
+	public void setParent(int index, int parent) {
+		if(parent >= index || parent < -1)
+			throw new IllegalArgumentException("body " + index + " can't orbit body " + parent + ", a parent must come before its children");
+		this.parent[index] = parent;
+		graph.invalidate();
+		if(kepler != null) kepler.invalidate();
+	}
+
+	/**
+	 * Puts a body on an elliptical orbit around the primary (or its parent, see setParent). The body's orbit rate becomes its mean motion
+	 * (degrees of mean anomaly per unit of time). The reference plane is the XZ plane of the scene.
+	 * @param index the index of the body
+	 * @param semiMajorAxis half the long axis of the ellipse, from the parent's centre (0 for offset + parent radius)
+	 * @param eccentricity shape of the ellipse, in [0, 1)
+	 * @param inclination angle (degrees) between the orbit and the XZ plane
+	 * @param node longitude (degrees) of the ascending node
+	 * @param periapsis argument (degrees) of periapsis
+	 * @param meanAnomaly mean anomaly (degrees) at time 0
+	 */
+	public void setOrbitalElements(int index, float semiMajorAxis, float eccentricity, float inclination,
+			float node, float periapsis, float meanAnomaly) {
+		if(eccentricity < 0 || eccentricity >= 1)
+			throw new IllegalArgumentException("eccentricity of a closed orbit must be in [0, 1): " + eccentricity);
+		this.semiMajorAxis[index] = semiMajorAxis; this.eccentricity[index] = eccentricity;
+		this.inclination[index] = inclination; this.node[index] = node; this.periapsis[index] = periapsis;
+		this.meanAnomaly[index] = meanAnomaly;
+		if(kepler == null) kepler = new KeplerSolver(this);
+		kepler.invalidate();
+	}
+
+	/**
+	 * Determines the orbital position and rotational angle of every body as functions of time.
+	 * If an integrator is set the bodies are moved under gravity by the time passed since the last update,
+	 * otherwise the primary stays at the origin and all other bodies are placed on their ellipse if any body has
+	 * orbital elements, or on a circle of radius offset + parent radius on the XZ plane, around their parent
+	 * (see SceneGraph: only the bodies that moved, and the bodies below them, have their world position worked out).
+	 * If an ephemeris is set the positions are read from it instead (and the integrator isn't stepped).
+	 * @param timeElapsed time since the simulation began
+	 */
+	public void update(float timeElapsed) {
+		if(count == 0) return;
+		if(ephemeris != null) {
+			ephemeris.evaluate(timeElapsed, this);
+			graph.invalidate(); // the world positions are set directly
+			lastTime = timeElapsed;
+			for(int i = 0; i < count; i++)
+				if(i != heldRotation)
+					rotation[i] = timeElapsed * rotateRate[i];
+			return;
+		}
+		if(integrator != null) {
+			integrator.step(timeElapsed - lastTime);
+			graph.invalidate(); // the world positions are set directly
+			lastTime = timeElapsed;
+			for(int i = 0; i < count; i++)
+				if(i != heldRotation)
+					rotation[i] = timeElapsed * rotateRate[i];
+			return;
+		}
+		if(kepler != null) {
+			kepler.place(timeElapsed);
+			for(int i = 0; i < count; i++)
+				if(i != heldRotation)
+					rotation[i] = timeElapsed * rotateRate[i];
+			return;
+		}
+		for(int i = 0; i < count; i++) {
+			float theta = (timeElapsed * orbitRate[i]) % 360; // angle (in degrees) from the original position
+			orbit[i] = theta;
+			int p = parent[i];
+			if(p < 0) {
+				graph.setLocal(i, 0.0f, 0.0f, 0.0f); // the primary does not orbit
+			} else {
+				float thetaRadians = (float) Math.toRadians(theta);
+				float distance = offset[i] + radius[p];
+				graph.setLocal(i, (float) (distance * Math.cos(thetaRadians)), 0.0f, (float) (distance * Math.sin(thetaRadians)));
+			}
+			if(i != heldRotation)
+				rotation[i] = timeElapsed * rotateRate[i];
+		}
+		graph.resolve();
+	}
+
+	/**
+	 * Sets the integrator used to move the bodies under gravity
+	 * @param integrator the integrator, or null to go back to closed form circular orbits
+	 * @param timeElapsed the current time of the simulation
+	 */
+	public void setIntegrator(GravityIntegrator integrator, float timeElapsed) {
+		this.integrator = integrator;
+		graph.invalidate();
+		this.lastTime = timeElapsed;
+	}
+
+	/**
+	 * Sets the ephemeris the positions of the bodies are read from
+	 * @param ephemeris the ephemeris (fitted from a copy of this simulation), or null to move the bodies again
+	 */
+	public void setEphemeris(Ephemeris ephemeris) {
+		this.ephemeris = ephemeris;
+		graph.invalidate();
+	}
+
+	/**
+	 * @return the ephemeris the positions are read from, or null if the bodies are moved
+	 */
+	public Ephemeris getEphemeris() {
+		return ephemeris;
+	}
+
+	/**
+	 * @return the integrator moving the bodies, or null if orbits are closed form
+	 */
+	public GravityIntegrator getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Finds the body that represents the given planet
+	 * @param p the enum of the planet
+	 * @return the index of the body or -1 if it is not in the simulation
+	 */
+	public int indexOf(PlanetEnum p) {
+		return registry.indexOf(p);
+	}
+
+	/**
+	 * Finds a body by name (e.g. a moon from a catalog)
+	 * @param name the name of the body, in any case
+	 * @return the index of the body or -1 if there is no body with the name
+	 */
+	public int indexOf(String name) {
+		return registry.indexOf(name);
+	}
+
+	/**
+	 * @return the names of the bodies and what they are drawn with
+	 */
+	public BodyRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Stops update() from changing the rotation of a body (used when the camera is in free orbit around it)
+	 * @param index the index of the body, or -1 to update every body
+	 */
+	public void holdRotation(int index) {
+		this.heldRotation = index;
+	}
+
+	/*
+	Series of setters and getters for the properties of each body
+	 */
+
+	public int getCount() {
+		return count;
+	}
+	public float getX(int index) {
+		return x[index];
+	}
+	public float getY(int index) {
+		return y[index];
+	}
+	public float getZ(int index) {
+		return z[index];
+	}
+	public float getOrbit(int index) {
+		return orbit[index];
+	}
+	public float getRotation(int index) {
+		return rotation[index];
+	}
+	public void setRotation(int index, float angle) {
+		this.rotation[index] = angle;
+	}
+	public float getMass(int index) {
+		return mass[index];
+	}
+	public void setMass(int index, float mass) {
+		this.mass[index] = mass;
+	}
+	public void setVelocity(int index, float vx, float vy, float vz) {
+		this.vx[index] = vx; this.vy[index] = vy; this.vz[index] = vz;
+	}
+	public float getRadius(int index) {
+		return radius[index];
+	}
+	public float getOffset(int index) {
+		return offset[index];
+	}
+	public float getOrbitRate(int index) {
+		return orbitRate[index];
+	}
+	public float getRotateRate(int index) {
+		return rotateRate[index];
+	}
+	public float getRed(int index) {
+		return red[index];
+	}
+	public float getGreen(int index) {
+		return green[index];
+	}
+	public float getBlue(int index) {
+		return blue[index];
+	}
+	public PlanetEnum getEnum(int index) {
+		return registry.getEnum(index);
+	}
+	public int getParent(int index) {
+		return parent[index];
+	}
+	public SceneGraph getSceneGraph() {
+		return graph;
+	}
+	public float getSemiMajorAxis(int index) {
+		return semiMajorAxis[index];
+	}
+	public float getEccentricity(int index) {
+		return eccentricity[index];
+	}
+	public float getInclination(int index) {
+		return inclination[index];
+	}
+	public float getNode(int index) {
+		return node[index];
+	}
+	public float getPeriapsis(int index) {
+		return periapsis[index];
+	}
+	public float getMeanAnomaly(int index) {
+		return meanAnomaly[index];
+	}
+}
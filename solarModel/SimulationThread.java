@@ -0,0 +1,369 @@
+package solarModel;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Advances a simulation on its own thread at a fixed rate, so how fast the simulation runs doesn't depend on how often
+ * (or whether) it is drawn: a slow frame doesn't slow the simulation and a fast display doesn't speed it up.
+ *
+ * Every tick the thread advances its simulation by a fixed step of time and publishes a snapshot holding the positions
+ * and angles of every body before and after the tick. Snapshots are handed over through three buffers without locks:
+ * the thread writes one, the reader holds another and the third is exchanged between them with an atomic swap, so
+ * neither side waits for the other and nothing is allocated. The reader interpolates between the two states of the
+ * newest snapshot by how much of a tick has passed since it was published, so motion stays smooth whatever the
+ * frame rate (the drawn state is at most one tick behind the simulation).
+ *
+ * The simulation is only touched by the thread; other threads change it through change(), between ticks.
+ */
+public class SimulationThread {
+	public static final int DEFAULT_TICK_RATE = 60; // ticks per second (the frame rate the simulation used to be stepped at)
+	private static final int MAX_CATCH_UP = 5; // ticks run back to back after a stall before the missed ticks are dropped
+	private static final int INDEX = 3, FRESH = 4; // the exchanged snapshot's index, and the bit set until the reader takes it
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	private static final float MAX_ADVANCE_STEP = 1.0f; // largest step advanceTo() gives an integrator (the default tick's step)
+
+	private final Simulation simulation; // the simulation stepped by the thread
+	private final long tickNanos; // time between ticks (0 to tick as fast as possible)
+	private final Snapshot[] snapshots = {new Snapshot(), new Snapshot(), new Snapshot()};
+	private final AtomicInteger exchange = new AtomicInteger(1); // snapshot between the thread and the reader
+	private int back = 0; // snapshot being written by the thread
+	private int front = 2; // snapshot being read by the reader
+	private volatile float step; // simulation time per tick
+	private volatile float time; // simulation time of the last tick
+	private volatile long tickCount; // ticks run since the thread started
+	private volatile double ticksPerSecond; // ticks run in the last second
+	private volatile boolean running;
+	private Thread thread;
+	private TimelineRecorder recorder; // records every tick (null for none), guarded by the simulation's lock
+	private Trails trails; // appended to every tick (null for none), guarded by the simulation's lock
+	private CloseApproaches approaches; // detects close approaches every tick (null for none), guarded by the simulation's lock
+	private SpatialGrid grid; // kept up to date every tick (null for none), guarded by the simulation's lock
+	private float gridRadiusScale; // what the radii are multiplied by for the grid
+
+	/**
+	 * @param simulation the simulation to be stepped (no longer changed directly once the thread is started)
+	 * @param time the current time of the simulation
+	 * @param tickRate ticks per second, or 0 to tick as fast as possible (e.g. to measure throughput)
+	 */
+	public SimulationThread(Simulation simulation, float time, int tickRate) {
+		this.simulation = simulation;
+		this.time = time;
+		this.step = 1.0f;
+		this.tickNanos = tickRate > 0 ? NANOS_PER_SECOND / tickRate : 0;
+	}
+
+	/**
+	 * Places the bodies at the current time, publishes them and starts ticking
+	 */
+	public synchronized void start() {
+		if(running) return;
+		running = true;
+		//the reader has the current state before the first tick
+		synchronized(simulation) {
+			simulation.update(time);
+		}
+		tick(0.0f);
+		thread = new Thread(this::loop, "simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops ticking and waits for the current tick to finish
+	 */
+	public synchronized void stop() {
+		if(!running) return;
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	/**
+	 * Moves the simulation to a time on the calling thread and publishes it as a snapshot that doesn't move, so
+	 * the next interpolate() gives the bodies exactly as they are at that time (e.g. to render frames one by one).
+	 * Only allowed while the thread isn't running.
+	 * Under gravity the integrator is stepped there in steps no larger than MAX_ADVANCE_STEP.
+	 * @param target the time to move to
+	 */
+	public synchronized void advanceTo(float target) {
+		if(running) throw new IllegalStateException("the simulation thread is running");
+		synchronized(simulation) {
+			if(simulation.getIntegrator() != null && simulation.getEphemeris() == null) {
+				while(Math.abs(target - time) > MAX_ADVANCE_STEP) {
+					time += Math.signum(target - time) * MAX_ADVANCE_STEP;
+					simulation.update(time);
+				}
+			}
+			time = target;
+			simulation.update(time);
+			if(trails != null) trails.append(simulation);
+			if(approaches != null) approaches.detect(simulation, time);
+			if(grid != null) grid.update(simulation, gridRadiusScale);
+		}
+		Snapshot snapshot = snapshots[back];
+		snapshot.copy(simulation, false);
+		snapshot.copy(simulation, true);
+		snapshot.nanos = System.nanoTime();
+		back = exchange.getAndSet(back | FRESH) & INDEX;
+		tickCount++;
+	}
+
+	/**
+	 * Ticks on the fixed schedule until stopped
+	 */
+	private void loop() {
+		long next = System.nanoTime(), windowStart = next, windowTicks = tickCount;
+		while(running) {
+			long now = System.nanoTime();
+			if(tickNanos > 0) {
+				if(now < next) {
+					LockSupport.parkNanos(next - now);
+					continue;
+				}
+				next += tickNanos;
+				//after a stall, drop the missed ticks instead of running them all at once
+				if(now - next > MAX_CATCH_UP * tickNanos) next = now + tickNanos;
+			}
+			tick(step);
+			if(now - windowStart >= NANOS_PER_SECOND) {
+				ticksPerSecond = (double) (tickCount - windowTicks) * NANOS_PER_SECOND / (now - windowStart);
+				windowStart = now;
+				windowTicks = tickCount;
+			}
+		}
+	}
+
+	/**
+	 * Advances the simulation by one step and publishes the state before and after it
+	 */
+	private void tick(float dt) {
+		Snapshot snapshot = snapshots[back];
+		synchronized(simulation) {
+			snapshot.copy(simulation, false);
+			time += dt;
+			simulation.update(time);
+			snapshot.copy(simulation, true);
+			if(recorder != null) record();
+			if(trails != null) trails.append(simulation);
+			if(approaches != null) approaches.detect(simulation, time);
+			if(grid != null) grid.update(simulation, gridRadiusScale);
+		}
+		snapshot.nanos = System.nanoTime();
+		back = exchange.getAndSet(back | FRESH) & INDEX;
+		tickCount++;
+	}
+
+	/**
+	 * Appends the tick to the recording, dropping the recorder if the file can't grow (e.g. the disk is full)
+	 */
+	private void record() {
+		try {
+			recorder.append(simulation, time);
+		} catch (IOException e) {
+			e.printStackTrace();
+			recorder = null;
+		}
+	}
+
+	/**
+	 * Records every tick from the next one on, or stops recording
+	 * @param recorder the recorder for the simulation's bodies, or null to stop recording
+	 * @return the recorder replaced (no longer written to, for the caller to close), or null
+	 */
+	public TimelineRecorder setRecorder(TimelineRecorder recorder) {
+		synchronized(simulation) {
+			TimelineRecorder replaced = this.recorder;
+			this.recorder = recorder;
+			return replaced;
+		}
+	}
+
+	/**
+	 * @return the recorder ticks are recorded with, or null
+	 */
+	public TimelineRecorder getRecorder() {
+		synchronized(simulation) {
+			return recorder;
+		}
+	}
+
+	/**
+	 * Appends the bodies' positions to trails after every tick from the next one on, or stops appending
+	 * @param trails the trails of the simulation's bodies, or null to stop
+	 */
+	public void setTrails(Trails trails) {
+		synchronized(simulation) {
+			this.trails = trails;
+		}
+	}
+
+	/**
+	 * @return the trails appended to every tick, or null
+	 */
+	public Trails getTrails() {
+		synchronized(simulation) {
+			return trails;
+		}
+	}
+
+	/**
+	 * Looks for bodies coming close after every tick from the next one on, or stops looking
+	 * @param approaches the detector for the simulation's bodies (starting afresh from the next tick), or null to stop
+	 */
+	public void setApproaches(CloseApproaches approaches) {
+		synchronized(simulation) {
+			if(approaches != null) approaches.reset();
+			this.approaches = approaches;
+		}
+	}
+
+	/**
+	 * @return the detector run every tick, or null
+	 */
+	public CloseApproaches getApproaches() {
+		synchronized(simulation) {
+			return approaches;
+		}
+	}
+
+	/**
+	 * Keeps a grid over the bodies up to date after every tick, from now on, or stops updating it.
+	 * The grid is only queried with the simulation's lock held, e.g. within change(), as its positions are the simulation's.
+	 * @param grid the grid over the simulation's bodies (updated now), or null to stop
+	 * @param radiusScale what the radii are multiplied by to give the size of the bodies (see SpatialGrid.update)
+	 */
+	public void setGrid(SpatialGrid grid, float radiusScale) {
+		synchronized(simulation) {
+			if(grid != null) grid.update(simulation, radiusScale);
+			this.grid = grid;
+			this.gridRadiusScale = radiusScale;
+		}
+	}
+
+	/**
+	 * @return the grid updated every tick, or null
+	 */
+	public SpatialGrid getGrid() {
+		synchronized(simulation) {
+			return grid;
+		}
+	}
+
+	/**
+	 * Writes the bodies' positions and angles, as of now, into a simulation holding the same bodies.
+	 * Only one thread may read snapshots (the thread drawing the bodies).
+	 * @param target the simulation that is drawn
+	 * @param heldRotation index of a body whose rotation is left as it is in target (-1 for none, see Simulation.holdRotation)
+	 * @return false if nothing has been published yet
+	 */
+	public boolean interpolate(Simulation target, int heldRotation) {
+		if((exchange.get() & FRESH) != 0)
+			front = exchange.getAndSet(front) & INDEX;
+		Snapshot snapshot = snapshots[front];
+		if(snapshot.nanos == 0) return false;
+		float alpha = 1.0f;
+		if(tickNanos > 0)
+			alpha = Math.max(0.0f, Math.min(1.0f, (float) (System.nanoTime() - snapshot.nanos) / tickNanos));
+		int count = Math.min(snapshot.count, target.count);
+		for(int i = 0; i < count; i++) {
+			target.x[i] = snapshot.x0[i] + alpha * (snapshot.x1[i] - snapshot.x0[i]);
+			target.y[i] = snapshot.y0[i] + alpha * (snapshot.y1[i] - snapshot.y0[i]);
+			target.z[i] = snapshot.z0[i] + alpha * (snapshot.z1[i] - snapshot.z0[i]);
+			//orbit angles wrap around, go the short way
+			float orbit = snapshot.orbit1[i] - snapshot.orbit0[i];
+			orbit -= 360.0f * Math.round(orbit / 360.0f);
+			target.orbit[i] = snapshot.orbit0[i] + alpha * orbit;
+			if(i != heldRotation)
+				target.rotation[i] = snapshot.rotation0[i] + alpha * (snapshot.rotation1[i] - snapshot.rotation0[i]);
+		}
+		return true;
+	}
+
+	/**
+	 * Changes the simulation between two ticks, e.g. to switch gravity on
+	 * @param change what to do to the simulation (runs on the calling thread)
+	 */
+	public void change(Consumer<Simulation> change) {
+		synchronized(simulation) {
+			change.accept(simulation);
+		}
+	}
+
+	/**
+	 * @param step simulation time per tick (0 to pause)
+	 */
+	public void setStep(float step) {
+		this.step = step;
+	}
+	public float getStep() {
+		return step;
+	}
+
+	/**
+	 * @return the simulation time of the last tick
+	 */
+	public float getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the number of ticks run
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * @return the ticks run in the last second, measured by the thread
+	 */
+	public double getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	/**
+	 * @return the simulation stepped by the thread (change it only through change())
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * The positions and angles of every body before (0) and after (1) a tick
+	 */
+	private static class Snapshot {
+		int count;
+		long nanos; // when the snapshot was published (0 if never)
+		float[] x0 = new float[0], y0 = new float[0], z0 = new float[0], orbit0 = new float[0], rotation0 = new float[0];
+		float[] x1 = new float[0], y1 = new float[0], z1 = new float[0], orbit1 = new float[0], rotation1 = new float[0];
+
+		/**
+		 * Copies the state of a simulation, growing the arrays only when the number of bodies grows
+		 * @param after true for the state after the tick, false for the state before it
+		 */
+		void copy(Simulation s, boolean after) {
+			int n = s.count;
+			if(x0.length < n) {
+				x0 = new float[n]; y0 = new float[n]; z0 = new float[n]; orbit0 = new float[n]; rotation0 = new float[n];
+				x1 = new float[n]; y1 = new float[n]; z1 = new float[n]; orbit1 = new float[n]; rotation1 = new float[n];
+			}
+			count = n;
+			System.arraycopy(s.x, 0, after ? x1 : x0, 0, n);
+			System.arraycopy(s.y, 0, after ? y1 : y0, 0, n);
+			System.arraycopy(s.z, 0, after ? z1 : z0, 0, n);
+			System.arraycopy(s.orbit, 0, after ? orbit1 : orbit0, 0, n);
+			System.arraycopy(s.rotation, 0, after ? rotation1 : rotation0, 0, n);
+		}
+	}
+}
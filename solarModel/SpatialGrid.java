@@ -0,0 +1,322 @@
+package solarModel;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the positions of the bodies of a Simulation, to find the bodies near a point or along a ray
+ * (e.g. under the mouse) without testing every body.
+ *
+ * Space is cut into cubes of cellSize; each cube is hashed into a table of buckets and each bucket holds a linked list
+ * of the bodies in it (in int arrays, so there is nothing to allocate per body). update() works out every body's cube
+ * and moves only the bodies that have left theirs, so keeping the grid up to date as the bodies move costs a pass over
+ * the positions instead of a rebuild. Bodies larger than a cell are also listed apart, so a ray passing through their
+ * edge far from their centre still finds them.
+ *
+ * A grid is only used by one thread at a time, and queried with the positions it was last updated with
+ * (e.g. kept up to date by a SimulationThread and queried under the simulation's lock, see SimulationThread.setGrid).
+ */
+public class SpatialGrid {
+	private static final int COORDINATE_BITS = 21; // bits of each cell coordinate in a cell's key
+	private static final int COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+
+	private final float cellSize, inverseCellSize;
+	private int count; // bodies in the grid
+	private int[] heads = new int[0]; // first body of each bucket (-1 for none), a power of two of them
+	private int[] next = new int[0], previous = new int[0]; // lists of bodies in each bucket (-1 at either end)
+	private long[] keys = new long[0]; // cell of each body
+	private int[] large = new int[0]; // bodies with a radius larger than a cell
+	private int largeCount;
+	private float minX, minY, minZ, maxX, maxY, maxZ; // box around every body's centre
+	private float[] bestDistances = new float[0]; // squared distances of the bodies found by nearest(), nearest first
+
+	/**
+	 * @param cellSize the width of a cell, about the distance between neighbouring bodies
+	 */
+	public SpatialGrid(float cellSize) {
+		this.cellSize = cellSize;
+		this.inverseCellSize = 1.0f / cellSize;
+	}
+
+	/**
+	 * Moves the bodies that left their cell since the last update into their new one
+	 * (every body, the first time or when the number of bodies changed)
+	 * @param simulation the bodies, at their current positions
+	 * @param radiusScale what the radii are multiplied by to give the size of the bodies (as they are drawn)
+	 * @return the number of bodies that changed cell
+	 */
+	public int update(Simulation simulation, float radiusScale) {
+		if(simulation.count != count) resize(simulation.count);
+		int moved = 0;
+		largeCount = 0;
+		minX = minY = minZ = Float.POSITIVE_INFINITY;
+		maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+		for(int i = 0; i < count; i++) {
+			float x = simulation.x[i], y = simulation.y[i], z = simulation.z[i];
+			minX = Math.min(minX, x); minY = Math.min(minY, y); minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x); maxY = Math.max(maxY, y); maxZ = Math.max(maxZ, z);
+			if(simulation.radius[i] * radiusScale > cellSize) large[largeCount++] = i;
+			long key = key(cell(x), cell(y), cell(z));
+			if(key == keys[i]) continue;
+			unlink(i);
+			keys[i] = key;
+			link(i);
+			moved++;
+		}
+		return moved;
+	}
+
+	/**
+	 * Sizes the grid for a number of bodies, leaving every body out of it
+	 */
+	private void resize(int count) {
+		this.count = count;
+		int buckets = Integer.highestOneBit(Math.max(1, 2 * count - 1)) << 1; // at least two buckets per body
+		heads = new int[buckets];
+		Arrays.fill(heads, -1);
+		next = new int[count];
+		previous = new int[count];
+		keys = new long[count];
+		Arrays.fill(keys, Long.MIN_VALUE); // no cell has this key, so every body is linked by the update
+		large = new int[count];
+	}
+
+	private int cell(float coordinate) {
+		return (int) Math.floor(coordinate * inverseCellSize);
+	}
+
+	private static long key(int cx, int cy, int cz) {
+		return ((long) (cx & COORDINATE_MASK) << (2 * COORDINATE_BITS)) | ((long) (cy & COORDINATE_MASK) << COORDINATE_BITS)
+				| (cz & COORDINATE_MASK);
+	}
+
+	private int bucket(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L; // spreads neighbouring cells over the table
+		return (int) (hash >>> 40) & (heads.length - 1);
+	}
+
+	private void link(int body) {
+		int bucket = bucket(keys[body]), head = heads[bucket];
+		previous[body] = -1;
+		next[body] = head;
+		if(head >= 0) previous[head] = body;
+		heads[bucket] = body;
+	}
+
+	private void unlink(int body) {
+		if(keys[body] == Long.MIN_VALUE) return; // not in the grid yet
+		int before = previous[body], after = next[body];
+		if(before >= 0) next[before] = after;
+		else heads[bucket(keys[body])] = after;
+		if(after >= 0) previous[after] = before;
+	}
+
+	/**
+	 * Finds the bodies nearest a point, searching the cells around it ring by ring until no closer body can be found
+	 * (or testing every body, if that is fewer tests than the cells left to search)
+	 * @param simulation the bodies the grid was last updated with
+	 * @param x x coordinate of the point
+	 * @param y y coordinate of the point
+	 * @param z z coordinate of the point
+	 * @param result receives the indices of the bodies, nearest first (its length is how many are wanted)
+	 * @return the number of bodies found (fewer than wanted if there are fewer bodies)
+	 */
+	public int nearest(Simulation simulation, float x, float y, float z, int[] result) {
+		int wanted = Math.min(result.length, count);
+		if(wanted == 0) return 0;
+		if(bestDistances.length < wanted) bestDistances = new float[wanted];
+		int found = 0, cx = cell(x), cy = cell(y), cz = cell(z);
+		int lowX = cell(minX), lowY = cell(minY), lowZ = cell(minZ), highX = cell(maxX), highY = cell(maxY), highZ = cell(maxZ);
+		//rings of cells around the point that can't reach the box around the bodies, and that reach all of it
+		int first = Math.max(0, Math.max(Math.max(lowX - cx, cx - highX), Math.max(Math.max(lowY - cy, cy - highY),
+				Math.max(lowZ - cz, cz - highZ))));
+		int last = Math.max(Math.max(cx - lowX, highX - cx), Math.max(Math.max(cy - lowY, highY - cy),
+				Math.max(cz - lowZ, highZ - cz)));
+		long searched = 0;
+		for(int ring = first; ring <= last; ring++) {
+			//the cells of the ring inside the box
+			long cells = boxCells(ring, cx, cy, cz, lowX, lowY, lowZ, highX, highY, highZ)
+					- boxCells(ring - 1, cx, cy, cz, lowX, lowY, lowZ, highX, highY, highZ);
+			if(searched + cells > count) return scan(simulation, x, y, z, result, wanted); // the grid is too sparse here
+			searched += cells;
+			int fromZ = Math.max(cz - ring, lowZ), toZ = Math.min(cz + ring, highZ);
+			for(int i = Math.max(cx - ring, lowX); i <= Math.min(cx + ring, highX); i++)
+				for(int j = Math.max(cy - ring, lowY); j <= Math.min(cy + ring, highY); j++) {
+					if(Math.abs(i - cx) == ring || Math.abs(j - cy) == ring) {
+						for(int k = fromZ; k <= toZ; k++)
+							found = search(simulation, key(i, j, k), x, y, z, result, found, wanted);
+					}
+					else { // inside the ring only its two faces across z
+						if(cz - ring >= lowZ) found = search(simulation, key(i, j, cz - ring), x, y, z, result, found, wanted);
+						if(cz + ring <= highZ) found = search(simulation, key(i, j, cz + ring), x, y, z, result, found, wanted);
+					}
+				}
+			//cells beyond this ring are at least ring cells away
+			float reach = ring * cellSize;
+			if(found == wanted && bestDistances[found - 1] <= reach * reach) break;
+		}
+		return found;
+	}
+
+	/**
+	 * @return the number of cells within a number of rings of a cell that are inside the box around the bodies
+	 */
+	private static long boxCells(int ring, int cx, int cy, int cz, int lowX, int lowY, int lowZ, int highX, int highY, int highZ) {
+		if(ring < 0) return 0;
+		return (long) Math.max(0, Math.min(cx + ring, highX) - Math.max(cx - ring, lowX) + 1)
+				* Math.max(0, Math.min(cy + ring, highY) - Math.max(cy - ring, lowY) + 1)
+				* Math.max(0, Math.min(cz + ring, highZ) - Math.max(cz - ring, lowZ) + 1);
+	}
+
+	/**
+	 * Offers the bodies of one cell to the bodies found (skipping the bodies of other cells sharing its bucket)
+	 * @return the number of bodies found
+	 */
+	private int search(Simulation simulation, long key, float x, float y, float z, int[] result, int found, int wanted) {
+		for(int body = heads[bucket(key)]; body >= 0; body = next[body])
+			if(keys[body] == key) found = offer(simulation, body, x, y, z, result, found, wanted);
+		return found;
+	}
+
+	/**
+	 * Finds the nearest bodies by testing every body
+	 */
+	private int scan(Simulation simulation, float x, float y, float z, int[] result, int wanted) {
+		int found = 0;
+		for(int body = 0; body < count; body++)
+			found = offer(simulation, body, x, y, z, result, found, wanted);
+		return found;
+	}
+
+	/**
+	 * Inserts a body into the bodies found so far, kept sorted by distance, if it is nearer than the furthest
+	 * @return the number of bodies found
+	 */
+	private int offer(Simulation simulation, int body, float x, float y, float z, int[] result, int found, int wanted) {
+		float dx = simulation.x[body] - x, dy = simulation.y[body] - y, dz = simulation.z[body] - z,
+				distance = dx * dx + dy * dy + dz * dz;
+		if(found == wanted && distance >= bestDistances[found - 1]) return found;
+		int at = found == wanted ? found - 1 : found++;
+		while(at > 0 && bestDistances[at - 1] > distance) {
+			bestDistances[at] = bestDistances[at - 1];
+			result[at] = result[at - 1];
+			at--;
+		}
+		bestDistances[at] = distance;
+		result[at] = body;
+		return found;
+	}
+
+	/**
+	 * Finds the first body along a ray (e.g. from the camera through the mouse), walking the cells the ray crosses and
+	 * testing the bodies of the cells around each one (and only those, not the other cells sharing their buckets).
+	 * A body is hit if the ray passes within its size, or within the tolerance for bodies too small to aim at
+	 * (a cone around the ray, at most a cell wide), and the hit nearest the origin wins.
+	 * @param simulation the bodies the grid was last updated with
+	 * @param originX x coordinate of the ray's origin
+	 * @param originY y coordinate of the ray's origin
+	 * @param originZ z coordinate of the ray's origin
+	 * @param directionX x component of the ray's direction (unit length)
+	 * @param directionY y component of the ray's direction
+	 * @param directionZ z component of the ray's direction
+	 * @param tolerance how far from the ray a small body may be, per unit of distance along it (e.g. a few pixels' angle)
+	 * @param radiusScale what the radii are multiplied by to give the size of the bodies (as they are drawn)
+	 * @return the index of the body hit, or -1 for none
+	 */
+	public int pick(Simulation simulation, float originX, float originY, float originZ,
+			float directionX, float directionY, float directionZ, float tolerance, float radiusScale) {
+		Ray ray = new Ray(simulation, originX, originY, originZ, directionX, directionY, directionZ, tolerance, radiusScale);
+		for(int l = 0; l < largeCount; l++)
+			ray.test(large[l]);
+
+		//the part of the ray inside the box around the bodies (and a cell around it)
+		float margin = cellSize;
+		float[] range = {0.0f, Float.POSITIVE_INFINITY};
+		if(!clip(originX, directionX, minX - margin, maxX + margin, range)
+				|| !clip(originY, directionY, minY - margin, maxY + margin, range)
+				|| !clip(originZ, directionZ, minZ - margin, maxZ + margin, range))
+			return ray.hit;
+
+		//walk the cells along the ray (Amanatides and Woo), testing the cells around each one
+		float start = range[0];
+		float sx = originX + start * directionX, sy = originY + start * directionY, sz = originZ + start * directionZ;
+		int cx = cell(sx), cy = cell(sy), cz = cell(sz),
+				stepX = directionX < 0 ? -1 : 1, stepY = directionY < 0 ? -1 : 1, stepZ = directionZ < 0 ? -1 : 1;
+		float nextX = crossing(originX, directionX, cx + (stepX > 0 ? 1 : 0)),
+				nextY = crossing(originY, directionY, cy + (stepY > 0 ? 1 : 0)),
+				nextZ = crossing(originZ, directionZ, cz + (stepZ > 0 ? 1 : 0));
+		float deltaX = Math.abs(cellSize / directionX), deltaY = Math.abs(cellSize / directionY), deltaZ = Math.abs(cellSize / directionZ);
+		float t = start;
+		while(t <= range[1] && t <= ray.hitDistance + 2 * cellSize) { // a nearer hit can only be a cell or two on
+			for(int i = -1; i <= 1; i++)
+				for(int j = -1; j <= 1; j++)
+					for(int k = -1; k <= 1; k++) {
+						long key = key(cx + i, cy + j, cz + k);
+						for(int body = heads[bucket(key)]; body >= 0; body = next[body])
+							if(keys[body] == key) ray.test(body);
+					}
+			if(nextX <= nextY && nextX <= nextZ) { t = nextX; nextX += deltaX; cx += stepX; }
+			else if(nextY <= nextZ) { t = nextY; nextY += deltaY; cy += stepY; }
+			else { t = nextZ; nextZ += deltaZ; cz += stepZ; }
+		}
+		return ray.hit;
+	}
+
+	/**
+	 * @return the distance along a ray at which it crosses a cell boundary (infinite if it never does)
+	 */
+	private float crossing(float origin, float direction, int boundary) {
+		return direction == 0 ? Float.POSITIVE_INFINITY : (boundary * cellSize - origin) / direction;
+	}
+
+	/**
+	 * Narrows the range of distances along a ray to the part between two planes
+	 * @return false if the ray misses the slab between the planes
+	 */
+	private static boolean clip(float origin, float direction, float min, float max, float[] range) {
+		if(direction == 0) return origin >= min && origin <= max;
+		float t0 = (min - origin) / direction, t1 = (max - origin) / direction;
+		range[0] = Math.max(range[0], Math.min(t0, t1));
+		range[1] = Math.min(range[1], Math.max(t0, t1));
+		return range[0] <= range[1];
+	}
+
+	/**
+	 * The nearest hit along a ray so far
+	 */
+	private class Ray {
+		final Simulation simulation;
+		final float ox, oy, oz, dx, dy, dz, tolerance, radiusScale;
+		int hit = -1;
+		float hitDistance = Float.POSITIVE_INFINITY;
+
+		Ray(Simulation simulation, float ox, float oy, float oz, float dx, float dy, float dz, float tolerance, float radiusScale) {
+			this.simulation = simulation;
+			this.ox = ox; this.oy = oy; this.oz = oz;
+			this.dx = dx; this.dy = dy; this.dz = dz;
+			this.tolerance = tolerance;
+			this.radiusScale = radiusScale;
+		}
+
+		void test(int body) {
+			float px = simulation.x[body] - ox, py = simulation.y[body] - oy, pz = simulation.z[body] - oz;
+			float along = px * dx + py * dy + pz * dz; // distance along the ray to the point nearest the body
+			if(along <= 0) return; // behind the origin
+			float cross2 = px * px + py * py + pz * pz - along * along,
+					reach = Math.max(simulation.radius[body] * radiusScale, Math.min(along * tolerance, cellSize));
+			if(cross2 > reach * reach) return;
+			//where the ray enters the body, for bodies large enough to be aimed at
+			float entry = along - (float) Math.sqrt(Math.max(0.0f, reach * reach - cross2));
+			if(entry < hitDistance) {
+				hitDistance = entry;
+				hit = body;
+			}
+		}
+	}
+
+	public float getCellSize() {
+		return cellSize;
+	}
+	public int size() {
+		return count;
+	}
+}
@@ -0,0 +1,123 @@
+package solarModel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A unit sphere tessellated into slices (around the z axis) and stacks (from the +z pole to the -z pole),
+ * generated once into direct buffers that can be uploaded to the GPU as they are.
+ * Every sphere in the scene is drawn by scaling this mesh, so no vertices are generated per frame.
+ * The layout matches gluSphere: vertices are (x, y, z) = (sin(stack) sin(slice), sin(stack) cos(slice), cos(stack))
+ * and texture coordinates are (1 - slice / slices, 1 - stack / stacks).
+ * Vertices are interleaved as [position(3), normal(3), texture coordinate(2)]. The seam and poles repeat
+ * their vertex for every slice so each vertex has a single texture coordinate.
+ * This class has no OpenGL dependency.
+ */
+public class SphereMesh {
+	public static final int FLOATS_PER_VERTEX = 8;
+	public static final int STRIDE = FLOATS_PER_VERTEX * Float.BYTES; // bytes between vertices
+	public static final int POSITION_OFFSET = 0; // bytes from the start of a vertex to its position
+	public static final int NORMAL_OFFSET = 3 * Float.BYTES; // bytes from the start of a vertex to its normal
+	public static final int TEXTURE_OFFSET = 6 * Float.BYTES; // bytes from the start of a vertex to its texture coordinate
+
+	private final int slices, stacks;
+	private final FloatBuffer vertices;
+	private final IntBuffer indices;
+
+	/**
+	 * Generates a unit sphere
+	 * @param slices number of subdivisions around the z axis (at least 3)
+	 * @param stacks number of subdivisions along the z axis (at least 2)
+	 */
+	public SphereMesh(int slices, int stacks) {
+		if(slices < 3 || stacks < 2)
+			throw new IllegalArgumentException("a sphere needs at least 3 slices and 2 stacks: " + slices + "x" + stacks);
+		this.slices = slices;
+		this.stacks = stacks;
+		this.vertices = newFloatBuffer(vertexCount(slices, stacks) * FLOATS_PER_VERTEX);
+		this.indices = newIntBuffer(indexCount(slices, stacks));
+
+		for(int stack = 0; stack <= stacks; stack++) {
+			double rho = Math.PI * stack / stacks;
+			float sinRho = (float) Math.sin(rho),
+					cosRho = (float) Math.cos(rho);
+			for(int slice = 0; slice <= slices; slice++) {
+				double theta = 2 * Math.PI * (slice == slices ? 0 : slice) / slices; // the seam repeats the first slice exactly
+				float x = sinRho * (float) Math.sin(theta),
+						y = sinRho * (float) Math.cos(theta),
+						z = cosRho;
+				vertices.put(x).put(y).put(z); // position
+				vertices.put(x).put(y).put(z); // normal (the same as the position on a unit sphere)
+				vertices.put(1.0f - (float) slice / slices).put(1.0f - (float) stack / stacks);
+			}
+		}
+
+		//two triangles per quad, one at the poles where the quad's pole edge has no width
+		for(int stack = 0; stack < stacks; stack++) {
+			for(int slice = 0; slice < slices; slice++) {
+				int upperLeft = index(stack, slice), upperRight = index(stack, slice + 1),
+						lowerLeft = index(stack + 1, slice), lowerRight = index(stack + 1, slice + 1);
+				if(stack != 0)
+					indices.put(upperLeft).put(upperRight).put(lowerLeft);
+				if(stack != stacks - 1)
+					indices.put(upperRight).put(lowerRight).put(lowerLeft);
+			}
+		}
+		vertices.flip();
+		indices.flip();
+	}
+
+	/**
+	 * @return the index of the vertex of a stack and slice
+	 */
+	private int index(int stack, int slice) {
+		return stack * (slices + 1) + slice;
+	}
+
+	/**
+	 * @return the number of vertices in a sphere of the given tessellation
+	 */
+	public static int vertexCount(int slices, int stacks) {
+		return (slices + 1) * (stacks + 1);
+	}
+
+	/**
+	 * @return the number of indices (3 per triangle) in a sphere of the given tessellation
+	 */
+	public static int indexCount(int slices, int stacks) {
+		return 6 * slices * (stacks - 1);
+	}
+
+	private static FloatBuffer newFloatBuffer(int floats) {
+		return ByteBuffer.allocateDirect(floats * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	private static IntBuffer newIntBuffer(int ints) {
+		return ByteBuffer.allocateDirect(ints * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/*
+	Getters for the mesh. The buffers are shared, use duplicate() to read them without moving their position.
+	 */
+
+	public int getSlices() {
+		return slices;
+	}
+	public int getStacks() {
+		return stacks;
+	}
+	public int getVertexCount() {
+		return vertices.limit() / FLOATS_PER_VERTEX;
+	}
+	public int getIndexCount() {
+		return indices.limit();
+	}
+	public FloatBuffer getVertices() {
+		return vertices;
+	}
+	public IntBuffer getIndices() {
+		return indices;
+	}
+}
@@ -0,0 +1,209 @@
+package solarModel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A body catalog in a human-editable text file, read completely when opened.
+ * One body per line, fields separated by whitespace, everything after a '#' is a comment:
+ *
+ * name radius offset orbitRate rotateRate red green blue mass texture [semiMajorAxis eccentricity inclination node periapsis meanAnomaly] [parent]
+ *
+ * texture is a path relative to the catalog file, or '-' for none.
+ * parent is the name of the body this body orbits (e.g. earth for the moon), which must be above it;
+ * a body without one orbits the primary.
+ * The orbital elements are optional, a body without them moves on the circle given by its offset
+ * (see Simulation.setOrbitalElements, angles are in degrees).
+ * A body named after a planet (e.g. earth) is that planet, so it can be tracked by the camera.
+ */
+public class TextCatalog implements BodyCatalog {
+	private static final int FIELDS = 10, ELEMENT_FIELDS = 6;
+
+	private int count;
+	private String[] names = new String[16], textures = new String[16];
+	private PlanetEnum[] enums = new PlanetEnum[16];
+	private boolean[] elements = new boolean[16]; // whether each body has orbital elements
+	private int[] parents = new int[16]; // row each body orbits (-1 for the primary)
+	private final HashMap<String, Integer> rows = new HashMap<String, Integer>(); // row of each name, to find parents
+	// radius, offset, orbitRate, rotateRate, red, green, blue, mass, then the orbital elements
+	// semiMajorAxis, eccentricity, inclination, node, periapsis, meanAnomaly
+	private float[][] values = new float[14][16];
+
+	/**
+	 * Reads a text catalog
+	 * @param file the catalog file
+	 * @throws IOException if the file can't be read or a line is malformed
+	 */
+	public TextCatalog(File file) throws IOException {
+		try(BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			int lineNumber = 0;
+			while((line = in.readLine()) != null) {
+				lineNumber++;
+				int comment = line.indexOf('#');
+				if(comment >= 0) line = line.substring(0, comment);
+				line = line.trim();
+				if(line.isEmpty()) continue;
+				String[] fields = line.split("\\s+");
+				int valueFields = fields.length;
+				if(valueFields == FIELDS + 1 || valueFields == FIELDS + ELEMENT_FIELDS + 1)
+					valueFields--; // the last field names the parent
+				else if(valueFields != FIELDS && valueFields != FIELDS + ELEMENT_FIELDS)
+					throw new IOException(file + ":" + lineNumber + ": expected " + FIELDS + " or " + (FIELDS + ELEMENT_FIELDS)
+							+ " fields and maybe a parent, found " + fields.length);
+				int parent = count == 0 ? -1 : 0;
+				if(valueFields < fields.length) {
+					Integer row = rows.get(fields[fields.length - 1]);
+					if(row == null)
+						throw new IOException(file + ":" + lineNumber + ": parent " + fields[fields.length - 1] + " is not a body above");
+					parent = row;
+				}
+				float[] row = new float[values.length];
+				try {
+					for(int v = 0; v < FIELDS - 2; v++)
+						row[v] = Float.parseFloat(fields[v + 1]);
+					for(int v = 0; v < valueFields - FIELDS; v++)
+						row[FIELDS - 2 + v] = Float.parseFloat(fields[FIELDS + v]);
+				} catch (NumberFormatException e) {
+					throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+				}
+				add(fields[0], row, fields[FIELDS - 1].equals("-") ? null : fields[FIELDS - 1], valueFields > FIELDS, parent);
+			}
+		}
+	}
+
+	private void add(String name, float[] row, String texture, boolean hasElements, int parent) {
+		if(count == names.length) {
+			names = Arrays.copyOf(names, 2 * count);
+			textures = Arrays.copyOf(textures, 2 * count);
+			enums = Arrays.copyOf(enums, 2 * count);
+			elements = Arrays.copyOf(elements, 2 * count);
+			parents = Arrays.copyOf(parents, 2 * count);
+			for(int v = 0; v < values.length; v++)
+				values[v] = Arrays.copyOf(values[v], 2 * count);
+		}
+		names[count] = name;
+		textures[count] = texture;
+		enums[count] = BodyCatalog.planetEnum(name);
+		elements[count] = hasElements;
+		parents[count] = parent;
+		rows.putIfAbsent(name, count);
+		for(int v = 0; v < values.length; v++)
+			values[v][count] = row[v];
+		count++;
+	}
+
+	/**
+	 * Writes a catalog as text, e.g. to edit a binary catalog
+	 * @param catalog the catalog to be written
+	 * @param file the text file
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(BodyCatalog catalog, File file) throws IOException {
+		ArrayList<String> lines = new ArrayList<String>(catalog.size() + 1);
+		lines.add("# name radius offset orbitRate rotateRate red green blue mass texture [semiMajorAxis eccentricity inclination node periapsis meanAnomaly] [parent]");
+		for(int i = 0; i < catalog.size(); i++) {
+			String texture = catalog.getTexture(i);
+			lines.add(catalog.getName(i).replaceAll("\\s", "_") + " " + catalog.getRadius(i) + " " + catalog.getOffset(i) + " "
+					+ catalog.getOrbitRate(i) + " " + catalog.getRotateRate(i) + " " + catalog.getRed(i) + " "
+					+ catalog.getGreen(i) + " " + catalog.getBlue(i) + " " + catalog.getMass(i) + " "
+					+ (texture == null ? "-" : texture)
+					+ (!catalog.hasOrbitalElements(i) ? "" : " " + catalog.getSemiMajorAxis(i) + " " + catalog.getEccentricity(i)
+							+ " " + catalog.getInclination(i) + " " + catalog.getNode(i) + " " + catalog.getPeriapsis(i)
+							+ " " + catalog.getMeanAnomaly(i))
+					+ (catalog.getParent(i) == (i == 0 ? -1 : 0) ? "" : " " + catalog.getName(catalog.getParent(i)).replaceAll("\\s", "_")));
+		}
+		Files.write(file.toPath(), lines);
+	}
+
+	/*
+	Getters for each row of the catalog
+	 */
+
+	@Override
+	public int size() {
+		return count;
+	}
+	@Override
+	public String getName(int index) {
+		return names[index];
+	}
+	@Override
+	public PlanetEnum getEnum(int index) {
+		return enums[index];
+	}
+	@Override
+	public float getRadius(int index) {
+		return values[0][index];
+	}
+	@Override
+	public float getOffset(int index) {
+		return values[1][index];
+	}
+	@Override
+	public float getOrbitRate(int index) {
+		return values[2][index];
+	}
+	@Override
+	public float getRotateRate(int index) {
+		return values[3][index];
+	}
+	@Override
+	public float getRed(int index) {
+		return values[4][index];
+	}
+	@Override
+	public float getGreen(int index) {
+		return values[5][index];
+	}
+	@Override
+	public float getBlue(int index) {
+		return values[6][index];
+	}
+	@Override
+	public float getMass(int index) {
+		return values[7][index];
+	}
+	@Override
+	public String getTexture(int index) {
+		return textures[index];
+	}
+	@Override
+	public boolean hasOrbitalElements(int index) {
+		return elements[index];
+	}
+	@Override
+	public int getParent(int index) {
+		return parents[index];
+	}
+	@Override
+	public float getSemiMajorAxis(int index) {
+		return values[8][index];
+	}
+	@Override
+	public float getEccentricity(int index) {
+		return values[9][index];
+	}
+	@Override
+	public float getInclination(int index) {
+		return values[10][index];
+	}
+	@Override
+	public float getNode(int index) {
+		return values[11][index];
+	}
+	@Override
+	public float getPeriapsis(int index) {
+		return values[12][index];
+	}
+	@Override
+	public float getMeanAnomaly(int index) {
+		return values[13][index];
+	}
+}
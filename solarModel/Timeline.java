@@ -0,0 +1,264 @@
+package solarModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A simulation recorded tick by tick (see TimelineRecorder), mapped from disk to be played back: forwards, backwards
+ * or from any time, without running the simulation again.
+ *
+ * File layout (big endian):
+ * header (HEADER_BYTES): magic, version, number of bodies, number of ticks recorded (long)
+ * bodies (BODY_BYTES each): radius, red, green, blue, so a recording can be drawn without the bodies it was made from
+ * ticks (tickBytes() each): time, then the x, y, z, orbit angle and rotation angle of every body (floats)
+ *
+ * Every tick holds the whole state, so playing on is reading the next tick. To find a time, the time of every
+ * KEYFRAME_TICKS-th tick is kept in an index in memory (built from the file when it is opened): a binary search of
+ * the index, then of the ticks between two keyframes, finds the tick in O(log n) while touching a few pages of the
+ * file instead of pages all over it. Times never decrease from one tick to the next.
+ *
+ * Ticks are mapped in chunks of whole ticks (about CHUNK_BYTES each), since a mapping holds at most 2GB.
+ */
+public class Timeline {
+	static final int MAGIC = 0x53544d4c; // "STML"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 32, BODY_BYTES = 16;
+	static final int BODIES = 8, TICKS = 12; // offsets of the number of bodies and ticks in the header
+	static final int KEYFRAME_TICKS = 256; // ticks between two entries of the index
+	static final long CHUNK_BYTES = 16 << 20;
+	private static final int SCAN_TICKS = 8; // ticks scanned forward from the last tick found before searching
+
+	private final File file;
+	private final FileChannel channel;
+	private final int count; // bodies in each tick
+	private final float[] bodies; // radius, red, green, blue of each body
+	private FloatBuffer[] chunks = new FloatBuffer[0]; // mapped as they are first read (null until then)
+	private float[] keyframes = new float[0]; // time of every KEYFRAME_TICKS-th tick
+	private long ticks; // ticks in the file
+	private long cursor; // last tick found by seek()
+
+	/**
+	 * Maps a recording
+	 * @param file the timeline file
+	 * @throws IOException if the file can't be read or isn't a timeline
+	 */
+	public Timeline(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while(header.hasRemaining() && channel.read(header) >= 0);
+			if(header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+				throw new IOException(file + ": not a timeline of version " + VERSION);
+			this.count = header.getInt(BODIES);
+			if(count <= 0 || dataStart(count) > channel.size())
+				throw new IOException(file + ": truncated timeline");
+			ByteBuffer table = ByteBuffer.allocate(count * BODY_BYTES);
+			while(table.hasRemaining() && channel.read(table) >= 0);
+			table.flip();
+			this.bodies = new float[4 * count];
+			table.asFloatBuffer().get(bodies);
+			refresh();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads how many ticks are recorded, e.g. to see the ticks recorded since the timeline was opened
+	 * @throws IOException if the file can't be read
+	 */
+	public void refresh() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		channel.read(header, 0);
+		//a recorder that didn't close leaves the header's count behind what it wrote, never ahead
+		long recorded = Math.min(header.getLong(TICKS), (channel.size() - dataStart(count)) / tickBytes(count));
+		if(recorded <= ticks) return;
+		long first = ticks;
+		ticks = recorded;
+		int partial = (int) (first / chunkTicks(count)); // mapped when the file may have ended inside it
+		if(partial < chunks.length) chunks[partial] = null;
+		int keyframeCount = (int) ((ticks + KEYFRAME_TICKS - 1) / KEYFRAME_TICKS);
+		int from = (int) ((first + KEYFRAME_TICKS - 1) / KEYFRAME_TICKS);
+		keyframes = Arrays.copyOf(keyframes, keyframeCount);
+		for(int k = from; k < keyframeCount; k++)
+			keyframes[k] = getTime((long) k * KEYFRAME_TICKS);
+	}
+
+	/**
+	 * Finds the tick at or before a time (the first tick if the time is before it).
+	 * Playing forward scans on from the tick found last time, otherwise the index is searched.
+	 * @param time the simulation time
+	 * @return the tick, or -1 if nothing is recorded
+	 */
+	public long seek(float time) {
+		if(ticks == 0) return -1;
+		if(cursor < ticks && getTime(cursor) <= time) {
+			for(int scanned = 0; scanned < SCAN_TICKS; scanned++) {
+				if(cursor + 1 >= ticks || getTime(cursor + 1) > time) return cursor;
+				cursor++;
+			}
+		}
+		//the last keyframe at or before the time, then the last tick up to the next keyframe
+		int low = 0, high = keyframes.length - 1;
+		while(low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if(keyframes[middle] <= time) low = middle;
+			else high = middle - 1;
+		}
+		long first = (long) low * KEYFRAME_TICKS, last = Math.min(ticks, first + KEYFRAME_TICKS) - 1;
+		while(first < last) {
+			long middle = (first + last + 1) >>> 1;
+			if(getTime(middle) <= time) first = middle;
+			else last = middle - 1;
+		}
+		cursor = first;
+		return cursor;
+	}
+
+	/**
+	 * Writes the bodies as they were at a time into a simulation, interpolated between the two ticks around it
+	 * (the first or last tick outside the recording). Extra bodies in either are left as they are.
+	 * Allocates nothing once the chunks read have been mapped.
+	 * @param time the simulation time
+	 * @param target the simulation that is drawn
+	 * @param heldRotation index of a body whose rotation is left as it is in target (-1 for none, see Simulation.holdRotation)
+	 * @return false if nothing is recorded
+	 */
+	public boolean read(float time, Simulation target, int heldRotation) {
+		long tick = seek(time);
+		if(tick < 0) return false;
+		long next = Math.min(tick + 1, ticks - 1);
+		float t0 = getTime(tick), t1 = getTime(next);
+		float alpha = t1 > t0 ? Math.max(0.0f, Math.min(1.0f, (time - t0) / (t1 - t0))) : 0.0f;
+		FloatBuffer a = chunk(tick), b = chunk(next);
+		int i0 = offset(tick) + 1, i1 = offset(next) + 1;
+		int n = Math.min(count, target.count);
+		for(int i = 0; i < n; i++) {
+			target.x[i] = lerp(a, i0 + i, b, i1 + i, alpha);
+			target.y[i] = lerp(a, i0 + count + i, b, i1 + count + i, alpha);
+			target.z[i] = lerp(a, i0 + 2 * count + i, b, i1 + 2 * count + i, alpha);
+			//orbit angles wrap around, go the short way
+			float orbit0 = a.get(i0 + 3 * count + i), orbit = b.get(i1 + 3 * count + i) - orbit0;
+			orbit -= 360.0f * Math.round(orbit / 360.0f);
+			target.orbit[i] = orbit0 + alpha * orbit;
+			if(i != heldRotation)
+				target.rotation[i] = lerp(a, i0 + 4 * count + i, b, i1 + 4 * count + i, alpha);
+		}
+		return true;
+	}
+
+	private static float lerp(FloatBuffer a, int i0, FloatBuffer b, int i1, float alpha) {
+		float v0 = a.get(i0);
+		return v0 + alpha * (b.get(i1) - v0);
+	}
+
+	/**
+	 * @return the simulation time of a tick
+	 */
+	public float getTime(long tick) {
+		return chunk(tick).get(offset(tick));
+	}
+
+	/**
+	 * @return the float index of a tick in its chunk
+	 */
+	private int offset(long tick) {
+		return (int) (tick % chunkTicks(count)) * (tickBytes(count) / Float.BYTES);
+	}
+
+	/**
+	 * @return the chunk holding a tick, mapped the first time
+	 */
+	private FloatBuffer chunk(long tick) {
+		int index = (int) (tick / chunkTicks(count));
+		if(index >= chunks.length) chunks = Arrays.copyOf(chunks, index + 1);
+		if(chunks[index] == null) {
+			long start = dataStart(count) + index * chunkBytes(count);
+			try {
+				long size = Math.min(chunkBytes(count), channel.size() - start);
+				chunks[index] = channel.map(FileChannel.MapMode.READ_ONLY, start, size).asFloatBuffer();
+			} catch (IOException e) {
+				throw new IllegalStateException(file + ": can't map ticks from " + tick, e);
+			}
+		}
+		return chunks[index];
+	}
+
+	/**
+	 * Closes the file (the chunks stay mapped until they are collected)
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	Getters for the recording and its bodies
+	 */
+
+	/**
+	 * @return the number of ticks recorded
+	 */
+	public long size() {
+		return ticks;
+	}
+	public int getCount() {
+		return count;
+	}
+	public float getStartTime() {
+		return ticks > 0 ? getTime(0) : 0.0f;
+	}
+	public float getEndTime() {
+		return ticks > 0 ? getTime(ticks - 1) : 0.0f;
+	}
+	public float getRadius(int index) {
+		return bodies[4 * index];
+	}
+	public float getRed(int index) {
+		return bodies[4 * index + 1];
+	}
+	public float getGreen(int index) {
+		return bodies[4 * index + 2];
+	}
+	public float getBlue(int index) {
+		return bodies[4 * index + 3];
+	}
+
+	/*
+	The layout of a timeline file, shared with TimelineRecorder
+	 */
+
+	/**
+	 * @return the bytes of one tick of a number of bodies
+	 */
+	static int tickBytes(int count) {
+		return Float.BYTES * (1 + 5 * count);
+	}
+
+	/**
+	 * @return where the first tick starts
+	 */
+	static long dataStart(int count) {
+		return HEADER_BYTES + (long) count * BODY_BYTES;
+	}
+
+	/**
+	 * @return the ticks in a chunk
+	 */
+	static long chunkTicks(int count) {
+		return Math.max(1, CHUNK_BYTES / tickBytes(count));
+	}
+
+	/**
+	 * @return the bytes of a chunk, a whole number of ticks
+	 */
+	static long chunkBytes(int count) {
+		return chunkTicks(count) * tickBytes(count);
+	}
+}
@@ -0,0 +1,113 @@
+package solarModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Records a simulation tick by tick into a timeline file (see Timeline for the layout), appending each tick to the
+ * mapped end of the file, so a long run computed once (e.g. an N-body run under gravity) can be played back later.
+ * The file grows a chunk at a time; the tick count in the header is written after each tick,
+ * so a reader never sees a tick half written and a recording cut short still opens.
+ */
+public class TimelineRecorder {
+	private final File file;
+	private final FileChannel channel;
+	private final int count; // bodies in each tick
+	private final MappedByteBuffer header;
+	private final ArrayList<MappedByteBuffer> mapped = new ArrayList<MappedByteBuffer>(); // the chunks, to be forced to disk
+	private FloatBuffer chunk; // chunk the next tick is written into
+	private long ticks; // ticks written
+	private float lastTime = Float.NEGATIVE_INFINITY;
+
+	/**
+	 * Creates a timeline file (replacing any file there) for the bodies of a simulation
+	 * @param file the timeline file
+	 * @param simulation the simulation to be recorded (its bodies' sizes and colours are written now)
+	 * @throws IOException if the file can't be written
+	 */
+	public TimelineRecorder(File file, Simulation simulation) throws IOException {
+		this.file = file;
+		this.count = simulation.count;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer start = ByteBuffer.allocate((int) Timeline.dataStart(count));
+			start.putInt(Timeline.MAGIC).putInt(Timeline.VERSION).putInt(count).putLong(0);
+			start.position(Timeline.HEADER_BYTES);
+			for(int i = 0; i < count; i++)
+				start.putFloat(simulation.radius[i]).putFloat(simulation.red[i])
+						.putFloat(simulation.green[i]).putFloat(simulation.blue[i]);
+			start.flip();
+			while(start.hasRemaining()) channel.write(start);
+			this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, Timeline.HEADER_BYTES);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends the bodies' state as a tick
+	 * @param simulation the simulation recorded (with the same bodies as when the recorder was made)
+	 * @param time the simulation time of the tick, no earlier than the last tick's
+	 * @throws IOException if the file can't grow
+	 */
+	public void append(Simulation simulation, float time) throws IOException {
+		if(simulation.count != count)
+			throw new IllegalArgumentException("recording " + count + " bodies, not " + simulation.count);
+		if(time < lastTime)
+			throw new IllegalArgumentException("time " + time + " is before the last tick's " + lastTime);
+		long chunkTicks = Timeline.chunkTicks(count);
+		if(ticks % chunkTicks == 0) {
+			//map the next chunk, which grows the file
+			MappedByteBuffer next = channel.map(FileChannel.MapMode.READ_WRITE,
+					Timeline.dataStart(count) + ticks / chunkTicks * Timeline.chunkBytes(count), Timeline.chunkBytes(count));
+			mapped.add(next);
+			chunk = next.asFloatBuffer();
+		}
+		chunk.put(time);
+		chunk.put(simulation.x, 0, count);
+		chunk.put(simulation.y, 0, count);
+		chunk.put(simulation.z, 0, count);
+		chunk.put(simulation.orbit, 0, count);
+		chunk.put(simulation.rotation, 0, count);
+		ticks++;
+		lastTime = time;
+		header.putLong(Timeline.TICKS, ticks); // publishes the tick
+	}
+
+	/**
+	 * @return the number of ticks recorded
+	 */
+	public long size() {
+		return ticks;
+	}
+
+	/**
+	 * @return the file recorded into
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Writes the recording to disk and closes the file, trimming the unused end of the last chunk
+	 * @throws IOException if the file can't be written
+	 */
+	public void close() throws IOException {
+		for(MappedByteBuffer buffer : mapped) buffer.force();
+		header.force();
+		try {
+			channel.truncate(Timeline.dataStart(count) + ticks * Timeline.tickBytes(count));
+		} catch (IOException e) {
+			// some systems don't truncate a mapped file, readers only go up to the header's tick count
+		}
+		channel.close();
+	}
+}
@@ -0,0 +1,154 @@
+package solarModel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The last positions of the bodies of a Simulation, drawn as a line behind each body to show where it has been.
+ *
+ * Each body has a ring of capacity points in one direct buffer off the heap, so the trails take the same memory
+ * however long the simulation runs: once a ring is full every new point overwrites its oldest one.
+ * Body i's ring is the points [i * stride, (i + 1) * stride) of the buffer, POINT_FLOATS floats (x, y, z) each.
+ * The stride is one point more than the capacity: the last point repeats the ring's first one, so a ring that has
+ * wrapped is drawn as two line strips that meet (see getStrips). The buffer is laid out the way it is drawn,
+ * so a renderer uploads it as it is and from then on only the points written since (see getWritten and slot).
+ *
+ * A body's point is only appended once it has moved at least its spacing from its last point. This decimates slow
+ * bodies (Neptune moves a hundredth of Mercury's distance in a tick), so the trails of slow and fast bodies reach about
+ * as far back along their orbits and a body that isn't moving doesn't write anything.
+ *
+ * The simulation thread appends to the trails every tick (see SimulationThread.setTrails) while another thread draws
+ * them: both hold the trails' lock (append() does, readers synchronize on the trails).
+ */
+public class Trails {
+	public static final int POINT_FLOATS = 3;
+
+	private final int count; // bodies with a trail
+	private final int capacity; // points in each ring
+	private final FloatBuffer points; // the rings, one after the other
+	private final long[] written; // points ever appended to each ring
+	private final float[] spacing; // squared distance a body moves before its next point is appended
+
+	/**
+	 * @param count the number of bodies with a trail (the first bodies of the simulation)
+	 * @param capacity the number of points in each trail (at least 2)
+	 * @param spacing the distance a body moves before its next point is appended (0 to append every tick)
+	 */
+	public Trails(int count, int capacity, float spacing) {
+		if(capacity < 2) throw new IllegalArgumentException("a trail needs at least 2 points");
+		this.count = count;
+		this.capacity = capacity;
+		this.points = ByteBuffer.allocateDirect(count * (capacity + 1) * POINT_FLOATS * Float.BYTES)
+				.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		this.written = new long[count];
+		this.spacing = new float[count];
+		Arrays.fill(this.spacing, spacing * spacing);
+	}
+
+	/**
+	 * Appends the position of every body that has moved far enough since its last point
+	 * @param simulation the simulation, after a tick
+	 */
+	public synchronized void append(Simulation simulation) {
+		int n = Math.min(count, simulation.count);
+		for(int i = 0; i < n; i++) {
+			float x = simulation.x[i], y = simulation.y[i], z = simulation.z[i];
+			long w = written[i];
+			if(w > 0) {
+				int last = POINT_FLOATS * (getStride() * i + slot(w - 1));
+				float dx = x - points.get(last), dy = y - points.get(last + 1), dz = z - points.get(last + 2);
+				if(dx * dx + dy * dy + dz * dz < spacing[i]) continue;
+			}
+			int slot = slot(w);
+			put(i, slot, x, y, z);
+			if(slot == 0) put(i, capacity, x, y, z); // the point closing the ring
+			written[i] = w + 1;
+		}
+	}
+
+	private void put(int body, int slot, float x, float y, float z) {
+		int base = POINT_FLOATS * (getStride() * body + slot);
+		points.put(base, x);
+		points.put(base + 1, y);
+		points.put(base + 2, z);
+	}
+
+	/**
+	 * @param point the number of a point appended to a ring (0 for the first ever appended)
+	 * @return the slot of the ring the point is in
+	 */
+	public int slot(long point) {
+		return (int) (point % capacity);
+	}
+
+	/**
+	 * Adds the line strips a body's trail is drawn with, oldest point first, to the arguments of glMultiDrawArrays.
+	 * The call must hold the trails' lock.
+	 * @param body the index of the body
+	 * @param firsts receives the index of each strip's first point in the buffer
+	 * @param counts receives the number of points of each strip
+	 * @return the number of strips added (0 to 2, none for a trail shorter than 2 points)
+	 */
+	public int getStrips(int body, IntBuffer firsts, IntBuffer counts) {
+		long w = written[body];
+		int base = getStride() * body, oldest = slot(w);
+		if(w < 2) return 0;
+		if(w <= capacity || oldest == 0) {
+			firsts.put(base);
+			counts.put((int) Math.min(w, capacity));
+			return 1;
+		}
+		//from the oldest point to the end of the ring (through the point closing it), then from its start to the newest
+		firsts.put(base + oldest);
+		counts.put(capacity - oldest + 1);
+		if(oldest < 2) return 1; // the newest point is the one closing the ring
+		firsts.put(base);
+		counts.put(oldest);
+		return 2;
+	}
+
+	/**
+	 * Sets how far a body moves before its next point is appended, e.g. less for a moon close to its planet
+	 * @param body the index of the body
+	 * @param spacing the distance (0 to append every tick)
+	 */
+	public synchronized void setSpacing(int body, float spacing) {
+		this.spacing[body] = spacing * spacing;
+	}
+
+	/*
+	Getters for the trails and their buffer
+	 */
+
+	public int getCount() {
+		return count;
+	}
+	public int getCapacity() {
+		return capacity;
+	}
+	/**
+	 * @return the points each ring takes in the buffer (the capacity and the point closing the ring)
+	 */
+	public int getStride() {
+		return capacity + 1;
+	}
+	/**
+	 * @return the rings of every body, to be read holding the trails' lock
+	 */
+	public FloatBuffer getPoints() {
+		return points;
+	}
+	/**
+	 * @param body the index of the body
+	 * @return the number of points ever appended to the body's trail (to be read holding the trails' lock)
+	 */
+	public long getWritten(int body) {
+		return written[body];
+	}
+	public float getSpacing(int body) {
+		return (float) Math.sqrt(spacing[body]);
+	}
+}
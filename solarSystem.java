@@ -1,21 +1,41 @@
 
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
+import solarModel.BarnesHutSolver;
+import solarModel.BinaryCatalog;
+import solarModel.BodyCatalog;
+import solarModel.CameraPath;
+import solarModel.DirectForceSolver;
+import solarModel.ForceSolver;
+import solarModel.GravityIntegrator;
+import solarModel.Moon;
+import solarModel.ParticleBelt;
 import solarModel.Planet;
 import solarModel.PlanetEnum;
+import solarModel.Simulation;
+import solarModel.TextCatalog;
+import solarModel.TimelineRecorder;
 
 /**
  * This is where the solar system is run
- * We create each planet with their appropriate data
+ * The bodies are read from a catalog (set with -Dsolar.catalog=<file>, see BodyCatalog),
+ * or created with their built in data when there is no catalog file
  * We create an instance of GLFrame, which will also create an instance of Jogl
  */
 public class solarSystem{
 	final static int PLANETCOUNT = 8; // Number of planets in the solar system (excluding pluto)
+	final static String DEFAULT_CATALOG = "src/Planet_Catalog/solar_system.txt"; // Catalog used when none is set
 	static ArrayList<Planet> planets = new ArrayList<Planet>(PLANETCOUNT); // intialize ArrayList to have size of 9
+	// Particles in the asteroid belts drawn around the sun (none unless set)
+	final static int MAIN_BELT = Integer.getInteger("solar.mainBelt", 0), KUIPER_BELT = Integer.getInteger("solar.kuiperBelt", 0);
 
 	/**
-	 * This will create each planet, with the appropriate property values
+	 * This will create each planet, with the appropriate property values (used when there is no catalog)
 	 * Then add the planet to the ArrayList planets
 	 * @return boolean status
 	 */
@@ -24,22 +44,150 @@ public class solarSystem{
 		float[] color = {1.0f,0.55f,0.0f},
 				position = {0.0f, 0.0f, 0.0f};
 		Planet p = new Planet(position, 109.3f, 0.0f, 0.0f, 0.8800f, color);  // Properties set for the sun
+		p.setMass(332946.0f);	// The sun is 332,946 times the mass of the earth
+		// the planets are left without mass: the orbits in the scene are much closer together than in reality,
+		// so planets with their real masses would pull each other out of orbit
 		planets.add(p);
 		//add the other planets
 		for(PlanetEnum planetEnum : PlanetEnum.values()) {
 			p = new Planet(position, planetEnum);	
 			planets.add(p);
+			if(planetEnum == PlanetEnum.EARTH) {
+				// The moon orbits the earth about 13.37 times a year, always showing it the same face
+				new Moon(p, 0.273f, 5.93f, 13.37f, 13.37f, new float[] {0.62f, 0.62f, 0.60f});
+			}
 		}
 		return true;
 	}
 
+	/**
+	 * Makes the belts set with -Dsolar.mainBelt=<count> and -Dsolar.kuiperBelt=<count>
+	 * @param catalog the bodies the belts are drawn with (null for the built in planets)
+	 * @return the belts, empty when no counts are set
+	 */
+	public static ArrayList<ParticleBelt> makeBelts(BodyCatalog catalog) {
+		float sunRadius = catalog != null ? catalog.getRadius(0) : planets.get(0).getRadius();
+		ArrayList<ParticleBelt> belts = new ArrayList<ParticleBelt>();
+		if(MAIN_BELT > 0) belts.add(ParticleBelt.mainBelt(MAIN_BELT, sunRadius));
+		if(KUIPER_BELT > 0) belts.add(ParticleBelt.kuiperBelt(KUIPER_BELT, sunRadius));
+		return belts;
+	}
+
+	/**
+	 * Runs the simulation without a display and reports how long each tick takes
+	 * Extra bodies are added between the orbits of the planets until the simulation holds bodyCount bodies
+	 * With the direct solver the extra bodies are massless test particles, with the Barnes-Hut solver they are
+	 * given a small mass so they pull on each other like debris
+	 * With -Dsolar.timeline=<file> every tick is recorded, to be played back later (see Timeline)
+	 * @param catalog the bodies to start from (null for the built in planets)
+	 * @param bodyCount the number of bodies to be simulated
+	 * @param ticks the number of ticks to be run
+	 * @param solver the solver used to move the bodies under gravity (null for closed form orbits)
+	 */
+	public static void runHeadless(BodyCatalog catalog, int bodyCount, int ticks, ForceSolver solver) throws IOException {
+		Simulation simulation = catalog != null ? new Simulation(catalog) : new Simulation(planets);
+		int catalogCount = simulation.getCount();
+		Random random = new Random(1);
+		while(simulation.getCount() < bodyCount && catalogCount > 1) {
+			int p = 1 + random.nextInt(catalogCount - 1); // copy the rates of a random body
+			int index = simulation.addBody(simulation.getRadius(p), simulation.getOffset(p) * (0.5f + random.nextFloat()),
+					simulation.getOrbitRate(p), simulation.getRotateRate(p),
+					simulation.getRed(p), simulation.getGreen(p), simulation.getBlue(p));
+			if(solver instanceof BarnesHutSolver)
+				simulation.setMass(index, 1.0e-6f);
+		}
+		if(solver != null) {
+			simulation.update(0); // place every body on its orbit before it is given a velocity
+			GravityIntegrator integrator = new GravityIntegrator(simulation);
+			integrator.setForceSolver(solver);
+			integrator.circularize();
+			simulation.setIntegrator(integrator, 0);
+		}
+		String timeline = System.getProperty("solar.timeline");
+		TimelineRecorder recorder = timeline != null ? new TimelineRecorder(new File(timeline), simulation) : null;
+		long start = System.nanoTime();
+		for(int tick = 0; tick < ticks; tick++) {
+			simulation.update(tick);
+			if(recorder != null) recorder.append(simulation, tick);
+		}
+		if(recorder != null) recorder.close();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d bodies, %d ticks in %.3f s (%.3f ms/tick)%n",
+				simulation.getCount(), ticks, seconds, 1000 * seconds / ticks);
+	}
+
+	/**
+	 * Renders frames of the simulation into PNG files without a display (see BatchRenderer)
+	 * @param catalog the bodies to be drawn (null for the built in planets)
+	 * @param catalogDirectory the directory texture paths in the catalog are relative to
+	 * @param args <directory> <from> <to> <frames> [<width>x<height>] [<body> | <camera path file>]
+	 */
+	public static void runRender(BodyCatalog catalog, File catalogDirectory, String[] args) throws Exception {
+		File directory = new File(args[0]);
+		float from = Float.parseFloat(args[1]), to = Float.parseFloat(args[2]);
+		int frames = Integer.parseInt(args[3]);
+		int width = 3840, height = 2160;
+		int next = 4;
+		if(args.length > next && args[next].matches("\\d+x\\d+")) {
+			String[] size = args[next++].split("x");
+			width = Integer.parseInt(size[0]);
+			height = Integer.parseInt(size[1]);
+		}
+		Jogl jogl = new Jogl(false);
+		if(catalog != null) jogl.loadCatalog(catalog, catalogDirectory);
+		else jogl.loadArtbook(planets);
+		for(ParticleBelt belt : makeBelts(catalog))
+			jogl.addBelt(belt);
+		if(args.length > next) {
+			int body = jogl.getSimulation().indexOf(args[next]); // any named body, e.g. a moon from the catalog
+			if(body > 0) jogl.post(Jogl.TRACK_BODY, body);
+			else jogl.setCameraPath(new CameraPath(new File(args[next])));
+		}
+		BatchRenderer renderer = new BatchRenderer(jogl, directory, width, height, Runtime.getRuntime().availableProcessors());
+		renderer.render(from, to, frames);
+	}
+
 	/*
 	Main method that runs the program
+	Run with "--headless [bodies] [ticks] [gravity | barneshut [theta]]" to run the simulation without a display
+	Run with "--convert-catalog <from> <to.txt | to.bin>" to convert a catalog between text and binary
+	Run with "--render <directory> <from> <to> <frames> [<width>x<height>] [<body> | <camera path file>]" to render
+	frames into PNG files without a display (4K unless a size is given)
 	 */
 	public static void main(String[] args) throws Exception {
-		setPlanets();								 // Sets up the ArrayList planets, with planets and their data
+		if(args.length > 2 && args[0].equals("--convert-catalog")) {
+			BodyCatalog from = BodyCatalog.open(new File(args[1]));
+			File to = new File(args[2]);
+			if(to.getName().endsWith(".txt")) TextCatalog.write(from, to);
+			else BinaryCatalog.write(from, to);
+			System.out.printf("%d bodies written to %s%n", from.size(), to);
+			return;
+		}
+		File catalogFile = new File(System.getProperty("solar.catalog", DEFAULT_CATALOG));
+		BodyCatalog catalog = catalogFile.isFile() ? BodyCatalog.open(catalogFile) : null;
+		if(catalog == null) setPlanets();			 // Sets up the ArrayList planets, with planets and their data
+		if(args.length > 0 && args[0].equals("--headless")) {
+			int bodyCount = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+			int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+			ForceSolver solver = null;
+			if(args.length > 3 && args[3].equals("gravity"))
+				solver = new DirectForceSolver();
+			else if(args.length > 3 && args[3].equals("barneshut"))
+				solver = new BarnesHutSolver(args.length > 4 ? Float.parseFloat(args[4]) : 0.5f);
+			runHeadless(catalog, bodyCount, ticks, solver);
+			return;
+		}
+		if(args.length > 4 && args[0].equals("--render")) {
+			runRender(catalog, catalogFile.getAbsoluteFile().getParentFile(), Arrays.copyOfRange(args, 1, args.length));
+			System.exit(0); // GL and AWT threads would keep the program alive
+		}
 		GlFrame glf = new GlFrame("Solar.glf"); // Sets up the main window, and user controls
-		glf.loadArtbook(planets);					 // Loads the ArrayList planets into the Jogl class
+		if(catalog != null)
+			glf.loadCatalog(catalog, catalogFile.getAbsoluteFile().getParentFile()); // Loads the catalog's bodies into the Jogl class
+		else
+			glf.loadArtbook(planets);				 // Loads the ArrayList planets into the Jogl class
+		for(ParticleBelt belt : makeBelts(catalog))
+			glf.addBelt(belt);						 // Adds the asteroid belts set with -Dsolar.mainBelt and -Dsolar.kuiperBelt
 		glf.action();								 // Starts the program, and animation
 	}
 
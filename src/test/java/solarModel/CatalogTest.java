@@ -0,0 +1,146 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A catalog written as text or binary reads back as the same bodies, version 1 binary files still read,
+ * and malformed files are refused
+ */
+class CatalogTest {
+	private static final String[] LINES = {
+			"# a primary, a planet, a moon of it, and bodies on ellipses (one around the moon)",
+			"sun	109.3	0.0	0.0	0.88	1.0	0.55	0.0	332946.0	../Planet_Textures/sun.jpg",
+			"earth	1.0	1.0	1.0	1.0	0.39	0.59	0.66	0.0	../Planet_Textures/earth.jpg",
+			"moon	0.273	5.93	13.37	13.37	0.62	0.62	0.6	0.0	-	earth",
+			"halley	0.001	0.0	0.0133	0.0	0.8	0.8	0.9	0.0	-	17.8	0.967	162.3	58.4	111.3	38.4",
+			"probe	0.0001	0.0	50.0	0.0	1.0	0.0	0.0	0.0	../Planet_Textures/earth.jpg	0.5	0.1	5.0	0.0	0.0	90.0	moon"};
+
+	@Test
+	void textAndBinaryRoundTrip() throws IOException {
+		File text = File.createTempFile("catalog", ".txt"), binary = File.createTempFile("catalog", ".bin"),
+				again = File.createTempFile("catalog", ".txt");
+		try {
+			Files.write(text.toPath(), Arrays.asList(LINES));
+			TextCatalog catalog = new TextCatalog(text);
+			assertEquals(5, catalog.size());
+			assertEquals(PlanetEnum.EARTH, catalog.getEnum(1));
+			assertEquals(1, catalog.getParent(2));
+			assertEquals(2, catalog.getParent(4));
+			assertFalse(catalog.hasOrbitalElements(2));
+			assertEquals(0.967f, catalog.getEccentricity(3));
+			assertNull(catalog.getTexture(2));
+
+			BinaryCatalog.write(catalog, binary);
+			assertSameBodies(catalog, new BinaryCatalog(binary));
+			TextCatalog.write(new BinaryCatalog(binary), again);
+			assertSameBodies(catalog, new TextCatalog(again));
+		} finally {
+			text.delete();
+			binary.delete();
+			again.delete();
+		}
+	}
+
+	@Test
+	void bundledCatalogRoundTrips() throws IOException {
+		TextCatalog catalog = new TextCatalog(new File("Planet_Catalog/solar_system.txt"));
+		File binary = File.createTempFile("catalog", ".bin");
+		try {
+			BinaryCatalog.write(catalog, binary);
+			assertSameBodies(catalog, new BinaryCatalog(binary));
+		} finally {
+			binary.delete();
+		}
+	}
+
+	@Test
+	void refusesMalformedFiles() throws IOException {
+		File file = File.createTempFile("catalog", ".bin");
+		try {
+			Files.write(file.toPath(), new byte[64]);
+			assertThrows(IOException.class, () -> new BinaryCatalog(file)); // no magic number
+			Files.write(file.toPath(), Arrays.asList("sun 109.3 0.0 0.0 0.88 1.0 0.55 0.0"));
+			assertThrows(IOException.class, () -> new TextCatalog(file)); // too few fields
+			Files.write(file.toPath(), Arrays.asList(LINES[1], "moon 0.273 5.93 13.37 13.37 0.62 0.62 0.6 0.0 - earth"));
+			assertThrows(IOException.class, () -> new TextCatalog(file)); // a parent that isn't above
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	void readsVersion1() throws IOException {
+		//rows of 64 bytes holding up to the planet, without orbital elements or parents
+		String[] textures = {"../Planet_Textures/sun.jpg"};
+		ByteBuffer buffer = ByteBuffer.allocate(32 + 2 * 64 + 4 + 2 + textures[0].length());
+		buffer.putInt(BinaryCatalog.MAGIC).putInt(1).putInt(2).putLong(32 + 2 * 64);
+		buffer.position(32);
+		row(buffer, "sun", new float[] {109.3f, 0.0f, 0.0f, 0.88f, 1.0f, 0.55f, 0.0f, 332946.0f}, 0, -1);
+		row(buffer, "mars", new float[] {0.532f, 1.524f, 0.5319f, 1.03f, 0.95f, 0.38f, 0.47f, 0.0f}, -1, PlanetEnum.MARS.ordinal());
+		buffer.putInt(1).putShort((short) textures[0].length()).put(textures[0].getBytes(StandardCharsets.UTF_8));
+		File file = File.createTempFile("catalog", ".bin");
+		try {
+			Files.write(file.toPath(), buffer.array());
+			BinaryCatalog catalog = new BinaryCatalog(file);
+			assertEquals(2, catalog.size());
+			assertEquals("mars", catalog.getName(1));
+			assertEquals(PlanetEnum.MARS, catalog.getEnum(1));
+			assertEquals(1.524f, catalog.getOffset(1));
+			assertEquals(0.5319f, catalog.getOrbitRate(1));
+			assertEquals(332946.0f, catalog.getMass(0));
+			assertEquals(textures[0], catalog.getTexture(0));
+			assertNull(catalog.getTexture(1));
+			assertEquals(-1, catalog.getParent(0));
+			assertEquals(0, catalog.getParent(1));
+			assertFalse(catalog.hasOrbitalElements(1));
+			assertEquals(0.0f, catalog.getSemiMajorAxis(1));
+			assertEquals(0.0f, catalog.getEccentricity(1));
+			assertEquals(0.0f, catalog.getMeanAnomaly(1));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void assertSameBodies(BodyCatalog expected, BodyCatalog actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++) {
+			String row = "row " + i;
+			assertEquals(expected.getName(i), actual.getName(i), row);
+			assertEquals(expected.getEnum(i), actual.getEnum(i), row);
+			assertEquals(expected.getTexture(i), actual.getTexture(i), row);
+			assertEquals(expected.getParent(i), actual.getParent(i), row);
+			assertEquals(expected.hasOrbitalElements(i), actual.hasOrbitalElements(i), row);
+			float[] values = {expected.getRadius(i), expected.getOffset(i), expected.getOrbitRate(i), expected.getRotateRate(i),
+					expected.getRed(i), expected.getGreen(i), expected.getBlue(i), expected.getMass(i),
+					expected.getSemiMajorAxis(i), expected.getEccentricity(i), expected.getInclination(i), expected.getNode(i),
+					expected.getPeriapsis(i), expected.getMeanAnomaly(i)};
+			float[] read = {actual.getRadius(i), actual.getOffset(i), actual.getOrbitRate(i), actual.getRotateRate(i),
+					actual.getRed(i), actual.getGreen(i), actual.getBlue(i), actual.getMass(i),
+					actual.getSemiMajorAxis(i), actual.getEccentricity(i), actual.getInclination(i), actual.getNode(i),
+					actual.getPeriapsis(i), actual.getMeanAnomaly(i)};
+			assertArrayEquals(values, read, row);
+		}
+	}
+
+	private static void row(ByteBuffer buffer, String name, float[] values, int texture, int planet) {
+		int start = buffer.position();
+		buffer.put(name.getBytes(StandardCharsets.UTF_8));
+		buffer.position(start + 16);
+		for(float value : values) buffer.putFloat(value);
+		buffer.putInt(texture).putInt(planet);
+		buffer.position(start + 64); // padded to 64 bytes
+	}
+}
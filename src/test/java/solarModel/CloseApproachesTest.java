@@ -0,0 +1,140 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CloseApproaches finds the pairs testing every pair finds, on the whole of the bodies' motion within a tick,
+ * and flags each pair once until it has drifted apart
+ */
+class CloseApproachesTest {
+	private static final float DISTANCE = 0.05f, RADIUS_SCALE = 0.5f;
+
+	@Test
+	void detectFindsThePairsEveryPairTestFinds() {
+		int bodies = 10000, ticks = 6;
+		Random random = new Random(7);
+		Simulation simulation = new Simulation(bodies);
+		float side = (float) Math.cbrt(bodies) * 1.5f;
+		float[] vx = new float[bodies], vy = new float[bodies], vz = new float[bodies];
+		for(int i = 0; i < bodies; i++) {
+			simulation.addBody(random.nextFloat() < 0.01f ? 2.0f : 0.01f, 1, 1, 0, 1, 1, 1);
+			simulation.x[i] = random.nextFloat() * side;
+			simulation.y[i] = random.nextFloat() * side;
+			simulation.z[i] = random.nextFloat() * side;
+			float speed = random.nextFloat() < 0.02f ? 30.0f : 0.05f; // a few cross the whole box in a tick
+			vx[i] = (random.nextFloat() - 0.5f) * speed;
+			vy[i] = (random.nextFloat() - 0.5f) * speed;
+			vz[i] = (random.nextFloat() - 0.5f) * speed;
+		}
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			CloseApproaches detector = new CloseApproaches(DISTANCE, RADIUS_SCALE, pool); // more than one chunk
+			Set<Long> announced = new HashSet<Long>();
+			detector.addListener((first, second, time, distance) -> {
+				assertTrue(first < second);
+				assertTrue(announced.add((long) first << 32 | second), "pair " + first + ", " + second + " flagged twice in a tick");
+			});
+			float[] lastX = simulation.x.clone(), lastY = simulation.y.clone(), lastZ = simulation.z.clone();
+			Set<Long> close = pairs(simulation, lastX, lastY, lastZ);
+			assertEquals(close.size(), detector.detect(simulation, 0.0f));
+			assertEquals(close, announced);
+			int flagged = 0;
+			for(int tick = 1; tick <= ticks; tick++) {
+				lastX = simulation.x.clone();
+				lastY = simulation.y.clone();
+				lastZ = simulation.z.clone();
+				for(int i = 0; i < bodies; i++) {
+					simulation.x[i] += vx[i];
+					simulation.y[i] += vy[i];
+					simulation.z[i] += vz[i];
+				}
+				announced.clear();
+				Set<Long> expected = pairs(simulation, lastX, lastY, lastZ);
+				assertEquals(expected.size(), detector.detect(simulation, tick), "pairs of tick " + tick);
+				Set<Long> fresh = new HashSet<Long>(expected);
+				fresh.removeAll(close); // the pairs close at the last tick aren't flagged again
+				assertEquals(fresh, announced, "pairs flagged at tick " + tick);
+				flagged += announced.size();
+				close = expected;
+			}
+			assertTrue(flagged > 0, "some pairs came close");
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void fastBodiesPassingThroughEachOtherWithinATickAreFound() {
+		Simulation simulation = new Simulation(4);
+		simulation.addBody(0.01f, 1, 1, 0, 1, 1, 1);
+		simulation.addBody(0.01f, 1, 1, 0, 1, 1, 1);
+		simulation.addBody(0.01f, 1, 1, 0, 1, 1, 1);
+		simulation.addBody(0.01f, 1, 1, 0, 1, 1, 1);
+		//0 and 1 swap places through each other, 2 and 3 cross too far apart to come close
+		place(simulation, 0, -50, 0, 0);
+		place(simulation, 1, 50, 0, 0);
+		place(simulation, 2, 0, -50, 10);
+		place(simulation, 3, 0, 50, 11);
+		CloseApproaches detector = new CloseApproaches(DISTANCE, RADIUS_SCALE);
+		List<float[]> approaches = new ArrayList<float[]>();
+		detector.addListener((first, second, time, distance) -> approaches.add(new float[] {first, second, time, distance}));
+		assertEquals(0, detector.detect(simulation, 2.0f));
+
+		place(simulation, 0, 50, 0, 0);
+		place(simulation, 1, -50, 0, 0);
+		place(simulation, 2, 0, 50, 10);
+		place(simulation, 3, 0, -50, 11);
+		assertEquals(1, detector.detect(simulation, 3.0f), "100 apart at both ends of the tick, collided in the middle");
+		assertEquals(1, approaches.size());
+		float[] approach = approaches.get(0);
+		assertEquals(0, (int) approach[0]);
+		assertEquals(1, (int) approach[1]);
+		assertEquals(2.5f, approach[2], 1.0e-4f, "nearest halfway through the tick");
+		assertTrue(approach[3] <= 0, "collided, " + approach[3] + " between the surfaces");
+
+		//standing still 100 apart, the pair is no longer close
+		approaches.clear();
+		assertEquals(0, detector.detect(simulation, 4.0f));
+		assertTrue(approaches.isEmpty());
+	}
+
+	private static void place(Simulation simulation, int body, float x, float y, float z) {
+		simulation.x[body] = x;
+		simulation.y[body] = y;
+		simulation.z[body] = z;
+	}
+
+	/**
+	 * Tests every pair of bodies moving in straight lines from their last positions, as CloseApproaches tests a pair
+	 * @return the pairs whose surfaces came within the distance, first index in the high half
+	 */
+	private static Set<Long> pairs(Simulation simulation, float[] lastX, float[] lastY, float[] lastZ) {
+		Set<Long> pairs = new HashSet<Long>();
+		for(int i = 0; i < simulation.count; i++)
+			for(int j = i + 1; j < simulation.count; j++) {
+				float x0 = lastX[j] - lastX[i], y0 = lastY[j] - lastY[i], z0 = lastZ[j] - lastZ[i],
+						vx = simulation.x[j] - simulation.x[i] - x0, vy = simulation.y[j] - simulation.y[i] - y0,
+						vz = simulation.z[j] - simulation.z[i] - z0;
+				float speed2 = vx * vx + vy * vy + vz * vz, t = 1.0f;
+				if(speed2 > 0) t = Math.max(0.0f, Math.min(1.0f, -(x0 * vx + y0 * vy + z0 * vz) / speed2));
+				float dx = x0 + t * vx, dy = y0 + t * vy, dz = z0 + t * vz,
+						reach = reach(simulation, i) + reach(simulation, j);
+				if(dx * dx + dy * dy + dz * dz <= reach * reach) pairs.add((long) i << 32 | j);
+			}
+		return pairs;
+	}
+
+	private static float reach(Simulation simulation, int body) {
+		return simulation.radius[body] * RADIUS_SCALE + 0.5f * DISTANCE;
+	}
+}
@@ -0,0 +1,86 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A CommandQueue hands over its commands in order as its slots wrap around, drops what doesn't fit while it is full,
+ * and loses nothing from producers on several threads
+ */
+class CommandQueueTest {
+	private static final int CAPACITY = 8;
+
+	@Test
+	void wrapsAroundWhenFull() {
+		CommandQueue queue = new CommandQueue(CAPACITY);
+		List<float[]> executed = new ArrayList<float[]>();
+		CommandQueue.Handler handler = (command, value) -> executed.add(new float[] {command, value});
+		int next = 0;
+		for(int lap = 0; lap < 3 * CAPACITY; lap++) {
+			//a few commands so the queue starts at a different slot each lap, then fill it from there, past the end of the array
+			int first = next;
+			for(int i = 0; i < lap % CAPACITY; i++, next++) assertTrue(queue.offer(next, next * 0.5f));
+			executed.clear();
+			assertEquals(lap % CAPACITY, queue.drain(handler));
+			while(queue.offer(next, next * 0.5f)) next++;
+			assertEquals(lap % CAPACITY + CAPACITY, next - first, "all the slots filled on lap " + lap);
+			assertFalse(queue.offer(-1, -1.0f), "full on lap " + lap);
+
+			executed.clear();
+			assertEquals(CAPACITY, queue.drain(handler), "lap " + lap);
+			for(int i = 0; i < CAPACITY; i++) {
+				int code = next - CAPACITY + i;
+				assertEquals(code, (int) executed.get(i)[0], "lap " + lap);
+				assertEquals(code * 0.5f, executed.get(i)[1], "lap " + lap);
+			}
+			assertEquals(0, queue.drain(handler), "the dropped commands don't turn up later");
+		}
+	}
+
+	@Test
+	void capacityIsRoundedUpToAPowerOfTwo() {
+		CommandQueue queue = new CommandQueue(5);
+		int added = 0;
+		while(queue.offer(added, 0)) added++;
+		assertEquals(8, added);
+		assertEquals(8, queue.drain((command, value) -> {}));
+	}
+
+	@Test
+	void producersOnSeveralThreads() throws InterruptedException {
+		int producers = 4, each = 20000;
+		CommandQueue queue = new CommandQueue(64);
+		Thread[] threads = new Thread[producers];
+		for(int p = 0; p < producers; p++) {
+			int producer = p;
+			threads[p] = new Thread(() -> {
+				for(int i = 0; i < each; i++)
+					while(!queue.offer(producer, i)) Thread.yield(); // full, wait for the consumer
+			});
+			threads[p].start();
+		}
+		int[] received = new int[producers];
+		boolean[] inOrder = {true};
+		CommandQueue.Handler handler = (command, value) -> {
+			if(value != received[command]) inOrder[0] = false;
+			received[command]++;
+		};
+		int total = 0;
+		while(total < producers * each) {
+			int executed = queue.drain(handler);
+			assertTrue(executed <= 64, "one queue's worth at most");
+			total += executed;
+			if(executed == 0) Thread.yield();
+		}
+		for(Thread thread : threads) thread.join();
+		assertEquals(0, queue.drain(handler));
+		assertTrue(inOrder[0], "each producer's commands arrive in the order it added them");
+		for(int p = 0; p < producers; p++) assertEquals(each, received[p], "producer " + p);
+	}
+}
@@ -0,0 +1,102 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The positions an Ephemeris evaluates are the model's, for slow and fast orbits, forwards and backwards in time
+ */
+class EphemerisTest {
+	private static final float SUN_RADIUS = 10.0f;
+	private static final float[] RATES = {0.0f, 2.0f, 2.9f, 3.0f, 100.0f, -150.0f, 1145.0f, 1.0e6f};
+
+	/**
+	 * A sun, a slow planet, a fast moon of it, a retrograde moon, and a fast body on an inclined ellipse
+	 */
+	private static Simulation bodies() {
+		Simulation simulation = new Simulation(6);
+		simulation.addBody(SUN_RADIUS, 0, 0, 0, 1, 1, 1);
+		int planet = simulation.addBody(1.0f, 20, 3.0f, 1, 1, 1, 1);
+		int moon = simulation.addBody(0.1f, 2, 400.0f, 1, 1, 1, 1);
+		simulation.setParent(moon, planet);
+		int retrograde = simulation.addBody(0.1f, 4, -150.0f, 1, 1, 1, 1);
+		simulation.setParent(retrograde, planet);
+		int ellipse = simulation.addBody(0.2f, 0, 50.0f, 1, 1, 1, 1);
+		simulation.setOrbitalElements(ellipse, 25, 0.6f, 30, 40, 50, 60);
+		simulation.addBody(0.2f, 35, 0.05f, 1, 1, 1, 1);
+		return simulation;
+	}
+
+	@Test
+	void spansAreCutToAQuarterTurn() {
+		Simulation model = new Simulation(RATES.length);
+		for(float rate : RATES) model.addBody(1, 1, rate, 0, 1, 1, 1);
+		Ephemeris ephemeris = new Ephemeris(model, 0, Ephemeris.DEFAULT_SPAN, Ephemeris.DEFAULT_DEGREE, Ephemeris.DEFAULT_BUDGET,
+				ForkJoinPool.commonPool());
+		try {
+			for(int i = 0; i < RATES.length; i++) {
+				float span = ephemeris.getSpan(i), turn = Math.abs(RATES[i]) * span;
+				assertTrue(span <= Ephemeris.DEFAULT_SPAN, "body " + i + " has a span of " + span);
+				if(span == Ephemeris.DEFAULT_SPAN) assertTrue(turn <= Ephemeris.MAX_TURN, "body " + i + " turns " + turn);
+				else assertTrue(turn > Ephemeris.MAX_TURN / 2 || RATES[i] == 1.0e6f, "body " + i + " has a span of " + span + ", halved too often");
+				if(RATES[i] != 1.0e6f) assertTrue(turn <= Ephemeris.MAX_TURN, "body " + i + " turns " + turn + " in a span");
+			}
+		} finally {
+			ephemeris.dispose();
+		}
+	}
+
+	@Test
+	void evaluateFollowsTheModel() {
+		Simulation drawn = bodies(), reference = bodies();
+		Ephemeris ephemeris = new Ephemeris(bodies(), 0, Ephemeris.DEFAULT_SPAN, Ephemeris.DEFAULT_DEGREE, Ephemeris.DEFAULT_BUDGET,
+				ForkJoinPool.commonPool());
+		try {
+			//forwards through several segments, then backwards past the start
+			for(float time = 0; time < 150; time += 0.0371f) compare(ephemeris, drawn, reference, time);
+			for(float time = 150; time > -40; time -= 0.0533f) compare(ephemeris, drawn, reference, time);
+		} finally {
+			ephemeris.dispose();
+		}
+	}
+
+	@Test
+	void evaluateFollowsTheBundledCatalog() throws IOException {
+		Simulation catalog = new Simulation(new TextCatalog(new File("Planet_Catalog/solar_system.txt")));
+		Simulation drawn = new Simulation(catalog), reference = new Simulation(catalog);
+		Ephemeris ephemeris = new Ephemeris(new Simulation(catalog), 0);
+		try {
+			assertTrue(catalog.count > 9, "the catalog has moons");
+			for(float time = 0; time <= 500; time += 0.0493f) compare(ephemeris, drawn, reference, time);
+		} finally {
+			ephemeris.dispose();
+		}
+	}
+
+	/**
+	 * Checks every body's position from the ephemeris against the model's, and its angle round its parent
+	 */
+	static void compare(Ephemeris ephemeris, Simulation drawn, Simulation reference, float time) {
+		ephemeris.evaluate(time, drawn);
+		reference.update(time);
+		for(int i = 0; i < reference.count; i++) {
+			float dx = drawn.x[i] - reference.x[i], dy = drawn.y[i] - reference.y[i], dz = drawn.z[i] - reference.z[i],
+					error = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+			int p = reference.parent[i];
+			float rx = p < 0 ? 0 : reference.x[i] - reference.x[p], ry = p < 0 ? 0 : reference.y[i] - reference.y[p],
+					rz = p < 0 ? 0 : reference.z[i] - reference.z[p], radius = (float) Math.sqrt(rx * rx + ry * ry + rz * rz);
+			assertTrue(error <= 2.0e-3f * Math.max(1.0f, radius), "body " + i + " is " + error + " off at time " + time
+					+ " on an orbit of radius " + radius);
+			if(p < 0) continue;
+			float angle = (float) Math.toDegrees(Math.atan2(rz, rx)), difference = drawn.orbit[i] - angle;
+			difference -= 360.0f * Math.round(difference / 360.0f);
+			assertEquals(0.0f, difference, 0.5f, "angle of body " + i + " round its parent at time " + time);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * KeplerSolver.solve finds the eccentric anomaly the mean anomaly was worked out from in closed form,
+ * M = E - e sin(E), with its cosine and sine, for circles up to very eccentric orbits
+ */
+class KeplerSolverTest {
+	private static final int BODIES = 5000;
+
+	@Test
+	void solveInvertsKeplersEquation() {
+		Random random = new Random(3);
+		float[] eccentricity = new float[BODIES], anomaly = new float[BODIES], expected = new float[BODIES],
+				cosAnomaly = new float[BODIES], sinAnomaly = new float[BODIES];
+		for(int i = 0; i < BODIES; i++) {
+			//every fifth body on a circle, a few close to a parabola
+			double e = i % 5 == 0 ? 0.0 : i % 7 == 0 ? 0.9 + 0.09 * random.nextDouble() : 0.9 * random.nextDouble(),
+					E = (random.nextDouble() * 2 - 1) * Math.PI;
+			eccentricity[i] = (float) e;
+			expected[i] = (float) E;
+			anomaly[i] = (float) (E - e * Math.sin(E));
+		}
+		KeplerSolver.solve(anomaly, eccentricity, cosAnomaly, sinAnomaly, 0, BODIES);
+		for(int i = 0; i < BODIES; i++) {
+			double e = eccentricity[i], E = anomaly[i],
+					m = expected[i] - e * Math.sin(expected[i]);
+			String body = "body " + i + " (e " + e + ")";
+			assertEquals(m, E - e * Math.sin(E), 2.0e-6, body);
+			//the anomaly is only as well defined as 1 - e cos(E) lets it be, near periapsis of a very eccentric orbit
+			assertEquals(expected[i], E, 2.0e-6 / (1 - e * Math.cos(E)), body);
+			assertEquals(Math.cos(E), cosAnomaly[i], 1.0e-6, body);
+			assertEquals(Math.sin(E), sinAnomaly[i], 1.0e-6, body);
+		}
+	}
+
+	@Test
+	void solveWrapsTheMeanAnomaly() {
+		//whole turns ahead or behind land on the same eccentric anomaly, within [-pi, pi]
+		float[] eccentricity = {0.3f, 0.3f, 0.3f, 0.0f, 0.5f}, anomaly = {1.0f, 1.0f + 6 * (float) Math.PI,
+				1.0f - 40 * (float) Math.PI, -3.0f + 2 * (float) Math.PI, 0.0f};
+		KeplerSolver.solve(anomaly, eccentricity, 0, anomaly.length);
+		assertEquals(anomaly[0], anomaly[1], 1.0e-5f);
+		assertEquals(anomaly[0], anomaly[2], 1.0e-4f);
+		assertEquals(-3.0f, anomaly[3], 1.0e-5f, "a circle's eccentric anomaly is its mean anomaly");
+		assertEquals(0.0f, anomaly[4], "periapsis stays at periapsis");
+		for(float E : anomaly) assertTrue(Math.abs(E) <= Math.PI + 1.0e-6f, E + " is not within half a turn");
+	}
+
+	@Test
+	void solveOnlyTouchesItsRange() {
+		float[] eccentricity = {0.5f, 0.5f, 0.5f, 0.5f}, anomaly = {1.0f, 1.0f, 1.0f, 1.0f};
+		KeplerSolver.solve(anomaly, eccentricity, 1, 3);
+		assertEquals(1.0f, anomaly[0]);
+		assertEquals(1.0f, anomaly[3]);
+		assertTrue(anomaly[1] > 1.0f && anomaly[1] == anomaly[2]);
+	}
+}
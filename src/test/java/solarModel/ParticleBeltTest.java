@@ -0,0 +1,90 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The particles of a ParticleBelt stay on their orbits as they are moved, and the buffers hold one record per particle
+ */
+class ParticleBeltTest {
+	private static final float INNER = 2.1f, OUTER = 3.3f, MAX_INCLINATION = 5.0f, MIN_SCALE = 0.01f, MAX_SCALE = 0.08f,
+			PRIMARY_RADIUS = 1.0f;
+	private static final float[] COLOR = {0.55f, 0.50f, 0.45f};
+	private static final float EPSILON = 1.0e-4f;
+
+	private static ParticleBelt belt(int count, ForkJoinPool pool) {
+		return new ParticleBelt(count, INNER, OUTER, MAX_INCLINATION, MIN_SCALE, MAX_SCALE, COLOR, PRIMARY_RADIUS, 7, pool);
+	}
+
+	@Test
+	void particlesStayWithinTheBelt() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParticleBelt belt = belt(50000, pool); // several chunks
+			float maxHeight = (float) Math.sin(Math.toRadians(MAX_INCLINATION));
+			for(float time : new float[] {0.0f, 1.0f, 17.5f, 360.0f, 1.0e4f, -250.0f}) {
+				belt.update(time);
+				FloatBuffer instances = belt.getInstances();
+				for(int i = 0; i < belt.getCount(); i++) {
+					int base = ParticleBelt.INSTANCE_FLOATS * i;
+					float x = instances.get(base), y = instances.get(base + 1), z = instances.get(base + 2);
+					float distance = (float) Math.sqrt(x * x + y * y + z * z);
+					assertTrue(distance >= PRIMARY_RADIUS + INNER - EPSILON && distance <= PRIMARY_RADIUS + OUTER + EPSILON,
+							"particle " + i + " at distance " + distance + " at time " + time);
+					assertTrue(Math.abs(y) <= distance * maxHeight + EPSILON,
+							"particle " + i + " at height " + y + " at time " + time);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void buffersHoldOneRecordPerParticle() {
+		for(int count : new int[] {1, 4095, 4096, 20000}) {
+			ParticleBelt belt = belt(count, ForkJoinPool.commonPool());
+			FloatBuffer instances = belt.getInstances(), colors = belt.getColors();
+			assertEquals(count, belt.getCount());
+			assertEquals(count * ParticleBelt.INSTANCE_FLOATS, instances.capacity());
+			assertEquals(count * ParticleBelt.INSTANCE_FLOATS, instances.limit());
+			assertEquals(count * ParticleBelt.COLOR_FLOATS, colors.capacity());
+			assertEquals(count * ParticleBelt.COLOR_FLOATS, colors.limit());
+			assertTrue(instances.isDirect() && colors.isDirect(), "the buffers are uploaded as they are");
+
+			float[] scales = new float[count];
+			for(int i = 0; i < count; i++) {
+				scales[i] = instances.get(ParticleBelt.INSTANCE_FLOATS * i + 3);
+				assertTrue(scales[i] >= MIN_SCALE && scales[i] <= MAX_SCALE, "scale " + scales[i]);
+				for(int c = 0; c < ParticleBelt.COLOR_FLOATS; c++) {
+					float channel = colors.get(ParticleBelt.COLOR_FLOATS * i + c);
+					assertTrue(channel >= 0 && channel <= 1, "colour " + channel);
+				}
+			}
+			//moving the particles only writes their positions
+			belt.update(42.0f);
+			for(int i = 0; i < count; i++)
+				assertEquals(scales[i], instances.get(ParticleBelt.INSTANCE_FLOATS * i + 3), 0.0f);
+		}
+	}
+
+	@Test
+	void updatesOnlyWhenTimeChanges() {
+		ParticleBelt belt = belt(100, ForkJoinPool.commonPool());
+		int version = belt.getVersion();
+		belt.update(0.0f); // where the constructor placed them
+		assertEquals(version, belt.getVersion());
+		belt.update(3.0f);
+		assertEquals(version + 1, belt.getVersion());
+		assertEquals(3.0f, belt.getTime(), 0.0f);
+		float x = belt.getInstances().get(0);
+		belt.update(3.0f);
+		assertEquals(version + 1, belt.getVersion());
+		assertEquals(x, belt.getInstances().get(0), 0.0f);
+	}
+}
@@ -0,0 +1,143 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The bodies a SpatialGrid finds near a point and along a ray are the ones testing every body finds,
+ * before and after the bodies move
+ */
+class SpatialGridTest {
+	private static final int BODIES = 20000;
+	private static final float RADIUS_SCALE = 0.5f, TOLERANCE = 0.002f;
+	private static final int QUERIES = 100;
+
+	/**
+	 * Bodies scattered in a flat box, about one per cell, a few of them larger than a cell
+	 */
+	private static Simulation bodies(Random random) {
+		Simulation simulation = new Simulation(BODIES);
+		for(int i = 0; i < BODIES; i++) {
+			simulation.addBody(random.nextFloat() < 0.002f ? 8.0f : 0.05f, 1, 1, 0, 1, 1, 1);
+			simulation.x[i] = (random.nextFloat() - 0.5f) * 60;
+			simulation.y[i] = (random.nextFloat() - 0.5f) * 5;
+			simulation.z[i] = (random.nextFloat() - 0.5f) * 60;
+		}
+		return simulation;
+	}
+
+	@Test
+	void nearestFindsTheNearestBodies() {
+		Random random = new Random(5);
+		Simulation simulation = bodies(random);
+		SpatialGrid grid = new SpatialGrid(1.0f);
+		assertEquals(BODIES, grid.update(simulation, RADIUS_SCALE));
+		for(int round = 0; round < 2; round++) {
+			int[] result = new int[10];
+			for(int q = 0; q < QUERIES; q++) {
+				//points among the bodies and far outside them
+				float spread = q % 4 == 0 ? 400 : 70;
+				float x = (random.nextFloat() - 0.5f) * spread, y = (random.nextFloat() - 0.5f) * 10, z = (random.nextFloat() - 0.5f) * spread;
+				assertEquals(result.length, grid.nearest(simulation, x, y, z, result));
+				float[] distances = new float[BODIES];
+				for(int i = 0; i < BODIES; i++) distances[i] = distance2(simulation, i, x, y, z);
+				float[] found = new float[result.length];
+				for(int k = 0; k < result.length; k++) found[k] = distances[result[k]];
+				Arrays.sort(distances);
+				assertArrayEquals(Arrays.copyOf(distances, result.length), found, "query " + q + " of round " + round);
+			}
+			moveSome(simulation, random);
+			assertTrue(grid.update(simulation, RADIUS_SCALE) > 0);
+		}
+	}
+
+	@Test
+	void pickFindsTheFirstBodyAlongTheRay() {
+		Random random = new Random(9);
+		Simulation simulation = bodies(random);
+		SpatialGrid grid = new SpatialGrid(1.0f);
+		grid.update(simulation, RADIUS_SCALE);
+		int hits = 0;
+		for(int round = 0; round < 2; round++) {
+			for(int q = 0; q < QUERIES; q++) {
+				//rays from above the box, down through it at a slant
+				float ox = (random.nextFloat() - 0.5f) * 60, oy = 30, oz = (random.nextFloat() - 0.5f) * 60;
+				float dx = random.nextFloat() - 0.5f, dy = -1, dz = random.nextFloat() - 0.5f,
+						length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+				dx /= length; dy /= length; dz /= length;
+				int hit = grid.pick(simulation, ox, oy, oz, dx, dy, dz, TOLERANCE, RADIUS_SCALE);
+				int expected = -1;
+				float nearest = Float.POSITIVE_INFINITY;
+				for(int i = 0; i < BODIES; i++) {
+					float entry = entry(simulation, i, ox, oy, oz, dx, dy, dz, grid.getCellSize());
+					if(entry < nearest) {
+						nearest = entry;
+						expected = i;
+					}
+				}
+				assertEquals(expected, hit, "ray " + q + " of round " + round);
+				if(hit >= 0) hits++;
+			}
+			moveSome(simulation, random);
+			grid.update(simulation, RADIUS_SCALE);
+		}
+		assertTrue(hits > QUERIES / 4, "the rays hit bodies, " + hits + " did"); // so the comparison tests hits, not only misses
+	}
+
+	@Test
+	void emptyAndSparseGrids() {
+		SpatialGrid grid = new SpatialGrid(1.0f);
+		Simulation none = new Simulation(1);
+		grid.update(none, RADIUS_SCALE);
+		assertEquals(0, grid.nearest(none, 0, 0, 0, new int[3]));
+		assertEquals(-1, grid.pick(none, 0, 10, 0, 0, -1, 0, TOLERANCE, RADIUS_SCALE));
+
+		//fewer bodies than wanted, far apart
+		Simulation few = new Simulation(5);
+		for(int i = 0; i < 5; i++) {
+			few.addBody(1, 1, 1, 0, 1, 1, 1);
+			few.x[i] = i * 100;
+		}
+		grid.update(few, RADIUS_SCALE);
+		int[] result = new int[8];
+		assertEquals(5, grid.nearest(few, 210, 0, 0, result));
+		assertArrayEquals(new int[] {2, 3, 1, 4, 0}, Arrays.copyOf(result, 5));
+		assertEquals(3, grid.pick(few, 300, 50, 0, 0, -1, 0, TOLERANCE, RADIUS_SCALE));
+	}
+
+	/**
+	 * Moves a tenth of the bodies a little, and a few of them across the box
+	 */
+	private static void moveSome(Simulation simulation, Random random) {
+		for(int i = 0; i < BODIES; i += 10) {
+			simulation.x[i] += random.nextFloat() * 2;
+			simulation.z[i] -= random.nextFloat() * 2;
+		}
+		for(int i = 5; i < BODIES; i += 1000) simulation.x[i] = -simulation.x[i];
+	}
+
+	private static float distance2(Simulation simulation, int body, float x, float y, float z) {
+		float dx = simulation.x[body] - x, dy = simulation.y[body] - y, dz = simulation.z[body] - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * @return where a ray enters a body, as SpatialGrid.pick tests it (infinite if it misses)
+	 */
+	private static float entry(Simulation simulation, int body, float ox, float oy, float oz, float dx, float dy, float dz,
+			float cellSize) {
+		float px = simulation.x[body] - ox, py = simulation.y[body] - oy, pz = simulation.z[body] - oz;
+		float along = px * dx + py * dy + pz * dz;
+		if(along <= 0) return Float.POSITIVE_INFINITY;
+		float cross2 = px * px + py * py + pz * pz - along * along,
+				reach = Math.max(simulation.radius[body] * RADIUS_SCALE, Math.min(along * TOLERANCE, cellSize));
+		if(cross2 > reach * reach) return Float.POSITIVE_INFINITY;
+		return along - (float) Math.sqrt(Math.max(0.0f, reach * reach - cross2));
+	}
+}
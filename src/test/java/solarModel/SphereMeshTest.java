@@ -0,0 +1,78 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The counts of a SphereMesh match its tessellation and every triangle indexes vertices that exist
+ */
+class SphereMeshTest {
+	private static final int[][] TESSELLATIONS = {{3, 2}, {4, 3}, {8, 5}, {36, 18}, {64, 64}, {100, 7}}; // slices, stacks
+
+	@Test
+	void countsMatchTessellation() {
+		for(int[] tessellation : TESSELLATIONS) {
+			int slices = tessellation[0], stacks = tessellation[1];
+			SphereMesh mesh = new SphereMesh(slices, stacks);
+			String name = slices + "x" + stacks;
+			assertEquals((slices + 1) * (stacks + 1), mesh.getVertexCount(), name);
+			assertEquals(SphereMesh.vertexCount(slices, stacks), mesh.getVertexCount(), name);
+			assertEquals(SphereMesh.vertexCount(slices, stacks) * SphereMesh.FLOATS_PER_VERTEX, mesh.getVertices().limit(), name);
+			//two triangles per quad except at the poles, where there is one
+			int triangles = 2 * slices * stacks - 2 * slices;
+			assertEquals(3 * triangles, mesh.getIndexCount(), name);
+			assertEquals(SphereMesh.indexCount(slices, stacks), mesh.getIndexCount(), name);
+		}
+	}
+
+	@Test
+	void indicesAreInBounds() {
+		for(int[] tessellation : TESSELLATIONS) {
+			SphereMesh mesh = new SphereMesh(tessellation[0], tessellation[1]);
+			IntBuffer indices = mesh.getIndices().duplicate();
+			int vertexCount = mesh.getVertexCount();
+			boolean[] used = new boolean[vertexCount];
+			while(indices.hasRemaining()) {
+				int a = indices.get(), b = indices.get(), c = indices.get();
+				for(int index : new int[] {a, b, c}) {
+					assertTrue(index >= 0 && index < vertexCount, "index " + index + " of " + vertexCount + " vertices");
+					used[index] = true;
+				}
+				assertTrue(a != b && b != c && a != c, "degenerate triangle " + a + " " + b + " " + c);
+			}
+			//each pole has one vertex per slice plus the seam, and one of them is never needed by a triangle
+			int unused = 0;
+			for(boolean u : used)
+				if(!u) unused++;
+			assertEquals(2, unused, tessellation[0] + "x" + tessellation[1]);
+		}
+	}
+
+	@Test
+	void verticesAreOnTheUnitSphere() {
+		SphereMesh mesh = new SphereMesh(36, 18);
+		FloatBuffer vertices = mesh.getVertices().duplicate();
+		for(int v = 0; v < mesh.getVertexCount(); v++) {
+			float x = vertices.get(), y = vertices.get(), z = vertices.get();
+			float nx = vertices.get(), ny = vertices.get(), nz = vertices.get();
+			float s = vertices.get(), t = vertices.get();
+			assertEquals(1.0f, (float) Math.sqrt(x * x + y * y + z * z), 1.0e-5f);
+			assertEquals(x, nx, 0.0f);
+			assertEquals(y, ny, 0.0f);
+			assertEquals(z, nz, 0.0f);
+			assertTrue(s >= 0 && s <= 1 && t >= 0 && t <= 1, "texture coordinate " + s + ", " + t);
+		}
+	}
+
+	@Test
+	void rejectsTooFewSubdivisions() {
+		assertThrows(IllegalArgumentException.class, () -> new SphereMesh(2, 8));
+		assertThrows(IllegalArgumentException.class, () -> new SphereMesh(8, 1));
+	}
+}
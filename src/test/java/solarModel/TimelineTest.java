@@ -0,0 +1,125 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Timeline.seek finds the tick testing every tick finds, across keyframes, playing forwards or backwards or jumping,
+ * and picks up the ticks recorded after the timeline was opened
+ */
+class TimelineTest {
+	private static final int TICKS = 5 * Timeline.KEYFRAME_TICKS + 17; // the last keyframe is followed by a few ticks
+
+	/**
+	 * Times of uneven steps, some of them repeated, one run of repeats across a keyframe
+	 */
+	private static float[] times() {
+		float[] times = new float[TICKS];
+		float time = 3.0f;
+		for(int tick = 0; tick < TICKS; tick++) {
+			boolean repeat = tick % 37 == 0 || Math.abs(tick - 2 * Timeline.KEYFRAME_TICKS) <= 2;
+			if(tick > 0 && !repeat) time += tick % 3 == 0 ? 0.75f : 0.25f;
+			times[tick] = time;
+		}
+		return times;
+	}
+
+	/**
+	 * Records two bodies whose x is the tick they were recorded at
+	 */
+	private static void record(TimelineRecorder recorder, Simulation simulation, float[] times, int from, int to)
+			throws IOException {
+		for(int tick = from; tick < to; tick++) {
+			simulation.x[0] = tick;
+			simulation.x[1] = -tick;
+			recorder.append(simulation, times[tick]);
+		}
+	}
+
+	private static Simulation bodies() {
+		Simulation simulation = new Simulation(2);
+		simulation.addBody(1, 0, 0, 0, 1, 1, 1);
+		simulation.addBody(0.5f, 1, 1, 0, 1, 0, 0);
+		return simulation;
+	}
+
+	@Test
+	void seekFindsTheTickAcrossKeyframes() throws IOException {
+		float[] times = times();
+		File file = File.createTempFile("timeline", ".stml");
+		Timeline timeline = null;
+		try {
+			Simulation simulation = bodies();
+			TimelineRecorder recorder = new TimelineRecorder(file, simulation);
+			record(recorder, simulation, times, 0, TICKS);
+			recorder.close();
+			timeline = new Timeline(file);
+			assertEquals(TICKS, timeline.size());
+			assertEquals(times[0], timeline.getStartTime());
+			assertEquals(times[TICKS - 1], timeline.getEndTime());
+
+			//forwards tick by tick and in halves of a tick, as playing does, then backwards and jumping about
+			for(int tick = 0; tick < TICKS; tick++) {
+				assertSeek(timeline, times, times[tick]);
+				assertSeek(timeline, times, times[tick] + 0.125f);
+			}
+			for(int tick = TICKS - 1; tick >= 0; tick--) assertSeek(timeline, times, times[tick] - 0.125f);
+			Random random = new Random(11);
+			for(int q = 0; q < 2000; q++)
+				assertSeek(timeline, times, times[0] - 2 + random.nextFloat() * (times[TICKS - 1] - times[0] + 4));
+			assertEquals(0, timeline.seek(-1000.0f), "before the recording, the first tick");
+			assertEquals(TICKS - 1, timeline.seek(1.0e6f), "after it, the last tick");
+
+			//read() interpolates between the ticks around the time
+			Simulation target = bodies();
+			int tick = 3 * Timeline.KEYFRAME_TICKS + 1; // followed by a step of 0.25
+			assertTrue(timeline.read(times[tick] + 0.125f, target, -1));
+			assertEquals(tick + 0.5f, target.x[0], 1.0e-4f);
+			assertEquals(-tick - 0.5f, target.x[1], 1.0e-4f);
+		} finally {
+			if(timeline != null) timeline.close();
+			file.delete();
+		}
+	}
+
+	@Test
+	void refreshPicksUpTicksRecordedSinceOpening() throws IOException {
+		float[] times = times();
+		File file = File.createTempFile("timeline", ".stml");
+		Timeline timeline = null;
+		try {
+			Simulation simulation = bodies();
+			TimelineRecorder recorder = new TimelineRecorder(file, simulation);
+			record(recorder, simulation, times, 0, Timeline.KEYFRAME_TICKS + 40);
+			timeline = new Timeline(file);
+			assertEquals(Timeline.KEYFRAME_TICKS + 40, timeline.size());
+			assertSeek(timeline, times, times[Timeline.KEYFRAME_TICKS + 39]);
+
+			//the index gains the keyframes of the new ticks, the partly read chunk is mapped again
+			record(recorder, simulation, times, Timeline.KEYFRAME_TICKS + 40, TICKS);
+			timeline.refresh();
+			assertEquals(TICKS, timeline.size());
+			for(int tick = TICKS - 1; tick >= 0; tick -= 7) assertSeek(timeline, times, times[tick] + 0.125f);
+			recorder.close();
+		} finally {
+			if(timeline != null) timeline.close();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Checks seek against the last tick at or before the time, found by testing every tick
+	 */
+	private static void assertSeek(Timeline timeline, float[] times, float time) {
+		int expected = 0;
+		for(int tick = 0; tick < times.length && tick < timeline.size(); tick++)
+			if(times[tick] <= time) expected = tick;
+		assertEquals(expected, timeline.seek(time), "time " + time);
+	}
+}
@@ -0,0 +1,82 @@
+package solarModel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The strips of a trail hold its last points oldest first, before and after its ring wraps,
+ * and a body only writes a point once it has moved its spacing
+ */
+class TrailsTest {
+	private static final int CAPACITY = 5;
+
+	@Test
+	void stripsFollowTheRingAsItWraps() {
+		//body 0 writes a point every tick, body 1 every other tick, so the rings wrap at different slots
+		Simulation simulation = new Simulation(2);
+		simulation.addBody(1, 1, 1, 0, 1, 1, 1);
+		simulation.addBody(1, 2, 1, 0, 1, 1, 1);
+		Trails trails = new Trails(2, CAPACITY, 1.0f);
+		trails.setSpacing(1, 2.0f);
+		IntBuffer firsts = IntBuffer.allocate(2), counts = IntBuffer.allocate(2);
+		for(int tick = 0; tick < 4 * CAPACITY + 3; tick++) {
+			simulation.x[0] = tick;
+			simulation.x[1] = tick;
+			trails.append(simulation);
+			assertEquals(tick + 1, trails.getWritten(0));
+			assertEquals(tick / 2 + 1, trails.getWritten(1));
+			for(int body = 0; body < 2; body++) {
+				long written = trails.getWritten(body);
+				float[] expected = new float[(int) Math.min(written, CAPACITY)];
+				for(int k = 0; k < expected.length; k++) expected[k] = (written - expected.length + k) * (body + 1);
+				if(written < 2) expected = new float[0]; // a single point isn't drawn
+				firsts.clear();
+				counts.clear();
+				int strips = trails.getStrips(body, firsts, counts);
+				assertEquals(written > CAPACITY && trails.slot(written) > 1 ? 2 : written < 2 ? 0 : 1, strips,
+						"strips of body " + body + " after tick " + tick);
+				assertArrayEquals(expected, drawn(trails, body, firsts, counts, strips), "body " + body + " after tick " + tick);
+			}
+		}
+	}
+
+	@Test
+	void bodiesThatDontMoveWriteNothing() {
+		Simulation simulation = new Simulation(1);
+		simulation.addBody(1, 1, 1, 0, 1, 1, 1);
+		Trails trails = new Trails(1, CAPACITY, 0.5f);
+		for(int tick = 0; tick < 10; tick++) {
+			simulation.x[0] = tick < 5 ? 0.0f : (tick - 4) * 0.3f; // still, then 0.3 a tick
+			trails.append(simulation);
+		}
+		assertEquals(3, trails.getWritten(0), "0, then 0.6 and 1.2");
+		assertEquals(0.5f, trails.getSpacing(0), 1.0e-6f);
+		assertThrows(IllegalArgumentException.class, () -> new Trails(1, 1, 0.0f));
+	}
+
+	/**
+	 * Reads the x of the points a renderer draws from the strips, once where two strips meet
+	 */
+	private static float[] drawn(Trails trails, int body, IntBuffer firsts, IntBuffer counts, int strips) {
+		FloatBuffer points = trails.getPoints();
+		int stride = trails.getStride();
+		float[] xs = new float[2 * stride];
+		int n = 0;
+		for(int s = 0; s < strips; s++) {
+			int first = firsts.get(s), count = counts.get(s);
+			assertTrue(first >= body * stride && first + count <= (body + 1) * stride, "strip " + s + " within the body's ring");
+			assertTrue(count >= 2, "strip " + s + " is a line");
+			if(s > 0) assertEquals(xs[n - 1], points.get(Trails.POINT_FLOATS * first), "the strips meet");
+			for(int p = s == 0 ? 0 : 1; p < count; p++) xs[n++] = points.get(Trails.POINT_FLOATS * (first + p));
+		}
+		return Arrays.copyOf(xs, n);
+	}
+}